@@ -0,0 +1,77 @@
+package com.server.smarttransferserver.benchmark;
+
+import com.server.smarttransferserver.congestion.CongestionControlAlgorithm;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 单个算法处理合成 ACK/丢包流的开销
+ * 每次调用处理一个事件：按预生成的序列决定是 onAck 还是 onLoss，时钟每个事件前进 stepMs。
+ * Throughput 给出每秒事件数，SampleTime 给出单事件延迟分位数；加 -prof gc 查看每事件分配字节数
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class AlgorithmAckBenchmark {
+
+    private static final int SERIES_SIZE = 1 << 16;
+    private static final int MASK = SERIES_SIZE - 1;
+
+    @Param({"RENO", "VEGAS", "CUBIC", "BBR", "ADAPTIVE"})
+    public String algorithm;
+
+    @Param({"0", "0.01"})
+    public double lossRate;
+
+    /**
+     * 每个事件虚拟时钟前进的毫秒数
+     */
+    @Param({"1"})
+    public long stepMs;
+
+    private CongestionControlAlgorithm instance;
+    private BenchmarkSupport.SteppingClock clock;
+    private long[] rtts;
+    private long[] probeRtts;
+    private boolean[] losses;
+    private int index;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        clock = new BenchmarkSupport.SteppingClock(stepMs);
+        instance = BenchmarkSupport.newAlgorithm(algorithm, clock);
+        rtts = BenchmarkSupport.rttSeries(SERIES_SIZE, 80, 10, 0.01, 1);
+        probeRtts = BenchmarkSupport.rttSeries(SERIES_SIZE, 40, 5, 0.01, 2);
+        losses = BenchmarkSupport.lossSeries(SERIES_SIZE, lossRate, 3);
+        index = 0;
+    }
+
+    @Benchmark
+    public long onEvent(Blackhole blackhole) {
+        int i = index++ & MASK;
+        clock.tick();
+        if (losses[i]) {
+            instance.onLoss(BenchmarkSupport.CHUNK_BYTES);
+        } else {
+            instance.onAck(BenchmarkSupport.CHUNK_BYTES, rtts[i], probeRtts[i]);
+        }
+        blackhole.consume(instance.getRate());
+        return instance.getCwnd();
+    }
+}
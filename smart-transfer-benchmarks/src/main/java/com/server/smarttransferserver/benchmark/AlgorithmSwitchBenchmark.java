@@ -0,0 +1,78 @@
+package com.server.smarttransferserver.benchmark;
+
+import com.server.smarttransferserver.congestion.CongestionControlAlgorithm;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 自适应算法在网络状况频繁变化时的每事件开销（onAck → evaluateAndSwitch → selectOptimalAlgorithm）
+ * 合成流在两种状况之间交替：低延迟无丢包（倾向 BBR/CUBIC）和高延迟高抖动5%丢包（倾向 Reno/Vegas），
+ * 每段长度为 phaseEvents 个事件；时钟步长较大，使评估间隔在每段内触发多次
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class AlgorithmSwitchBenchmark {
+
+    private static final int SERIES_SIZE = 1 << 16;
+    private static final int MASK = SERIES_SIZE - 1;
+
+    /**
+     * 每段网络状况持续的事件数
+     */
+    @Param({"2000"})
+    public int phaseEvents;
+
+    /**
+     * 每个事件虚拟时钟前进的毫秒数
+     */
+    @Param({"20"})
+    public long stepMs;
+
+    private CongestionControlAlgorithm adaptive;
+    private BenchmarkSupport.SteppingClock clock;
+    private long[] goodRtts;
+    private long[] badRtts;
+    private boolean[] badLosses;
+    private int index;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        clock = new BenchmarkSupport.SteppingClock(stepMs);
+        adaptive = BenchmarkSupport.newAlgorithm("ADAPTIVE", clock);
+        goodRtts = BenchmarkSupport.rttSeries(SERIES_SIZE, 20, 2, 0, 1);
+        badRtts = BenchmarkSupport.rttSeries(SERIES_SIZE, 250, 80, 0.05, 2);
+        badLosses = BenchmarkSupport.lossSeries(SERIES_SIZE, 0.05, 3);
+        index = 0;
+    }
+
+    @Benchmark
+    public long onEvent() {
+        int n = index++;
+        int i = n & MASK;
+        clock.tick();
+        boolean bad = (n / phaseEvents & 1) == 1;
+        if (bad && badLosses[i]) {
+            adaptive.onLoss(BenchmarkSupport.CHUNK_BYTES);
+        } else {
+            long rtt = bad ? badRtts[i] : goodRtts[i];
+            adaptive.onAck(BenchmarkSupport.CHUNK_BYTES, rtt, rtt);
+        }
+        return adaptive.getCwnd();
+    }
+}
@@ -0,0 +1,240 @@
+package com.server.smarttransferserver.benchmark;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONArray;
+import com.alibaba.fastjson.JSONObject;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 基准结果与基线对比
+ * 读取 JMH 的 JSON 结果（-rf json），与 baseline 目录下的基线逐项比较：
+ * 吞吐量下降、p99 延迟上升、每次调用分配字节数（-prof gc 的 gc.alloc.rate.norm）上升超过阈值时视为回归，进程以1退出。
+ * <pre>
+ * java -cp target/benchmarks.jar com.server.smarttransferserver.benchmark.BaselineComparator \
+ *      baseline/congestion.json target/congestion.json [阈值，默认0.1]
+ * </pre>
+ * 基线是精简格式（每个基准一行：模式、参数、得分、误差、p99、B/op），由 JMH 原始结果生成，评审时可以直接看 diff：
+ * <pre>
+ * java -cp target/benchmarks.jar com.server.smarttransferserver.benchmark.BaselineComparator \
+ *      --summarize target/congestion.json baseline/congestion.json
+ * </pre>
+ * 两个输入文件都可以是 JMH 原始结果或精简格式。基线中没有的条目标记为 NEW，不算回归。
+ * 基线或结果文件不存在、为空，或两者没有共同条目时无法判断回归，进程以2退出（不会误报“未发现回归”）
+ */
+public final class BaselineComparator {
+
+    private static final String ALLOC_METRIC = "·gc.alloc.rate.norm";
+    private static final String PACKAGE_PREFIX = BaselineComparator.class.getPackage().getName() + ".";
+
+    /**
+     * 精简格式保留的有效数字位数，去掉测量噪声以下的位数，重新生成基线时 diff 更干净
+     */
+    private static final MathContext DIGITS = new MathContext(4);
+
+    private BaselineComparator() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length == 3 && "--summarize".equals(args[0])) {
+            summarize(Paths.get(args[1]), Paths.get(args[2]));
+            return;
+        }
+        if (args.length < 2) {
+            System.err.println("用法: BaselineComparator <基线JSON> <结果JSON> [阈值]");
+            System.err.println("      BaselineComparator --summarize <JMH结果JSON> <输出的精简基线JSON>");
+            System.exit(2);
+        }
+        double threshold = args.length > 2 ? Double.parseDouble(args[2]) : 0.1;
+        Map<String, Summary> baseline = load(Paths.get(args[0]));
+        Map<String, Summary> current = load(Paths.get(args[1]));
+        if (baseline.isEmpty()) {
+            System.err.println("基线为空或不存在: " + args[0] + "，先在参考机器上生成基线（见 README 的“更新基线”）");
+            System.exit(2);
+        }
+        if (current.isEmpty()) {
+            System.err.println("结果为空或不存在: " + args[1]);
+            System.exit(2);
+        }
+
+        int regressions = 0;
+        int compared = 0;
+        System.out.printf("%-90s %14s %14s %9s  %s%n", "基准", "基线", "当前", "变化", "结论");
+        for (Map.Entry<String, Summary> entry : current.entrySet()) {
+            Summary now = entry.getValue();
+            Summary base = baseline.get(entry.getKey());
+            if (base == null) {
+                System.out.printf("%-90s %14s %14.3f %9s  NEW%n", entry.getKey(), "-", now.score, "-");
+                continue;
+            }
+            compared++;
+            // 吞吐量越大越好，其余模式（时间）越小越好
+            boolean higherIsBetter = "thrpt".equals(now.mode);
+            double change = base.score != 0 ? (now.score - base.score) / base.score : 0;
+            boolean regressed = higherIsBetter ? change < -threshold : change > threshold;
+            regressions += report(entry.getKey(), base.score, now.score, change, regressed);
+
+            if (base.p99 != null && now.p99 != null) {
+                double p99Change = base.p99 != 0 ? (now.p99 - base.p99) / base.p99 : 0;
+                regressions += report(entry.getKey() + " p99", base.p99, now.p99, p99Change, p99Change > threshold);
+            }
+
+            if (base.allocNorm != null && now.allocNorm != null) {
+                // 基线为0时，只要出现分配就算回归（零分配路径）
+                boolean allocRegressed = base.allocNorm < 1
+                        ? now.allocNorm >= 1
+                        : (now.allocNorm - base.allocNorm) / base.allocNorm > threshold;
+                double allocChange = base.allocNorm != 0 ? (now.allocNorm - base.allocNorm) / base.allocNorm : 0;
+                regressions += report(entry.getKey() + " B/op", base.allocNorm, now.allocNorm, allocChange,
+                        allocRegressed);
+            }
+        }
+        if (compared == 0) {
+            System.err.println("结果与基线没有共同条目（基准名、模式或参数不一致），无法对比");
+            System.exit(2);
+        }
+        System.out.println(regressions == 0 ? "未发现回归" : "发现 " + regressions + " 项回归（阈值 " + threshold * 100 + "%）");
+        System.exit(regressions == 0 ? 0 : 1);
+    }
+
+    private static int report(String name, double base, double now, double change, boolean regressed) {
+        System.out.printf("%-90s %14.3f %14.3f %+8.1f%%  %s%n", name, base, now, change * 100, regressed ? "REGRESSION" : "OK");
+        return regressed ? 1 : 0;
+    }
+
+    /**
+     * 把 JMH 原始结果写成精简基线：每个基准一行，按基准名、模式、参数排序，不含直方图等原始数据
+     */
+    private static void summarize(Path source, Path target) throws IOException {
+        Map<String, Summary> results = load(source);
+        if (results.isEmpty()) {
+            System.err.println("结果为空或不存在: " + source);
+            System.exit(2);
+        }
+        List<String> lines = new ArrayList<>();
+        for (Summary summary : new TreeMap<>(results).values()) {
+            lines.add("  " + JSON.toJSONString(summary.toJson()));
+        }
+        String json = "[\n" + String.join(",\n", lines) + "\n]\n";
+        Files.write(target, json.getBytes(StandardCharsets.UTF_8));
+        System.out.println("已写入 " + target + "，共 " + lines.size() + " 项");
+    }
+
+    /**
+     * 读取结果文件（JMH 原始结果或精简格式），按 基准名 + 模式 + 参数 建索引
+     */
+    private static Map<String, Summary> load(Path path) throws IOException {
+        Map<String, Summary> results = new LinkedHashMap<>();
+        if (!Files.exists(path)) {
+            return results;
+        }
+        JSONArray array = JSON.parseArray(new String(Files.readAllBytes(path), StandardCharsets.UTF_8));
+        if (array == null) {
+            return results;
+        }
+        for (int i = 0; i < array.size(); i++) {
+            JSONObject result = array.getJSONObject(i);
+            Summary summary = result.containsKey("primaryMetric") ? Summary.fromJmh(result) : Summary.fromJson(result);
+            results.put(summary.key(), summary);
+        }
+        return results;
+    }
+
+    private static Double round(Double value) {
+        if (value == null || value.isNaN() || value.isInfinite()) {
+            return null;
+        }
+        return new BigDecimal(value).round(DIGITS).doubleValue();
+    }
+
+    /**
+     * 单个基准条目的对比数据
+     */
+    private static final class Summary {
+        private String benchmark;
+        private String mode;
+        private Map<String, Object> params;
+        private double score;
+        private double scoreError;
+        private String unit;
+        /** p99（仅 SampleTime 模式） */
+        private Double p99;
+        /** 每次调用分配字节数（仅 -prof gc） */
+        private Double allocNorm;
+
+        private static Summary fromJmh(JSONObject result) {
+            Summary summary = new Summary();
+            String benchmark = result.getString("benchmark");
+            summary.benchmark = benchmark.startsWith(PACKAGE_PREFIX)
+                    ? benchmark.substring(PACKAGE_PREFIX.length()) : benchmark;
+            summary.mode = result.getString("mode");
+            JSONObject params = result.getJSONObject("params");
+            summary.params = params != null ? new TreeMap<>(params) : new TreeMap<>();
+            JSONObject primary = result.getJSONObject("primaryMetric");
+            summary.score = primary.getDoubleValue("score");
+            summary.scoreError = primary.getDoubleValue("scoreError");
+            summary.unit = primary.getString("scoreUnit");
+            JSONObject percentiles = primary.getJSONObject("scorePercentiles");
+            if ("sample".equals(summary.mode) && percentiles != null) {
+                summary.p99 = percentiles.getDouble("99.0");
+            }
+            JSONObject secondary = result.getJSONObject("secondaryMetrics");
+            if (secondary != null && secondary.containsKey(ALLOC_METRIC)) {
+                summary.allocNorm = secondary.getJSONObject(ALLOC_METRIC).getDouble("score");
+            }
+            return summary;
+        }
+
+        private static Summary fromJson(JSONObject json) {
+            Summary summary = new Summary();
+            summary.benchmark = json.getString("benchmark");
+            summary.mode = json.getString("mode");
+            JSONObject params = json.getJSONObject("params");
+            summary.params = params != null ? new TreeMap<>(params) : new TreeMap<>();
+            summary.score = json.getDoubleValue("score");
+            summary.scoreError = json.getDoubleValue("scoreError");
+            summary.unit = json.getString("unit");
+            summary.p99 = json.getDouble("p99");
+            summary.allocNorm = json.getDouble("allocBytesPerOp");
+            return summary;
+        }
+
+        private Map<String, Object> toJson() {
+            Map<String, Object> json = new LinkedHashMap<>();
+            json.put("benchmark", benchmark);
+            json.put("mode", mode);
+            if (!params.isEmpty()) {
+                json.put("params", params);
+            }
+            json.put("score", round(score));
+            json.put("scoreError", round(scoreError));
+            json.put("unit", unit);
+            if (p99 != null) {
+                json.put("p99", round(p99));
+            }
+            if (allocNorm != null) {
+                json.put("allocBytesPerOp", round(allocNorm));
+            }
+            return json;
+        }
+
+        private String key() {
+            StringBuilder key = new StringBuilder(benchmark).append(" [").append(mode).append(']');
+            for (Map.Entry<String, Object> param : params.entrySet()) {
+                key.append(' ').append(param.getKey()).append('=').append(param.getValue());
+            }
+            return key.toString();
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.server.smarttransferserver.benchmark;
+
+import com.server.smarttransferserver.config.CongestionConfig;
+import com.server.smarttransferserver.congestion.CongestionClock;
+import com.server.smarttransferserver.congestion.CongestionControlAlgorithm;
+import com.server.smarttransferserver.service.AlgorithmFactory;
+
+import java.lang.reflect.Field;
+import java.util.Random;
+
+/**
+ * 基准测试公共工具
+ * 不启动 Spring 容器：算法工厂和拥塞配置直接 new，配置使用类里的默认值
+ */
+public final class BenchmarkSupport {
+
+    /**
+     * 分片大小（字节），与线上默认分片一致
+     */
+    public static final long CHUNK_BYTES = 5L * 1024 * 1024;
+
+    private BenchmarkSupport() {
+    }
+
+    /**
+     * 通过算法工厂创建算法实例（与线上任务的创建路径一致）
+     *
+     * @param type  算法类型
+     * @param clock 算法使用的时钟
+     * @return 已初始化的算法实例
+     */
+    public static CongestionControlAlgorithm newAlgorithm(String type, CongestionClock clock) {
+        AlgorithmFactory factory = new AlgorithmFactory();
+        setField(factory, "congestionConfig", new CongestionConfig());
+        CongestionControlAlgorithm algorithm = factory.createAlgorithm(type);
+        algorithm.setClock(clock);
+        algorithm.initialize();
+        return algorithm;
+    }
+
+    private static void setField(Object target, String name, Object value) {
+        try {
+            Field field = target.getClass().getDeclaredField(name);
+            field.setAccessible(true);
+            field.set(target, value);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("设置字段失败: " + name, e);
+        }
+    }
+
+    /**
+     * 生成 RTT 序列：基准 RTT 加高斯抖动，偶尔出现 3~5 倍的尖峰（模拟异常值）
+     *
+     * @param size      序列长度（2的幂，便于取模）
+     * @param baseRtt   基准 RTT（毫秒）
+     * @param jitter    抖动标准差（毫秒）
+     * @param spikeRate 尖峰比例
+     * @param seed      随机种子
+     * @return RTT 序列（毫秒，至少为1）
+     */
+    public static long[] rttSeries(int size, long baseRtt, double jitter, double spikeRate, long seed) {
+        Random random = new Random(seed);
+        long[] series = new long[size];
+        for (int i = 0; i < size; i++) {
+            double rtt = baseRtt + random.nextGaussian() * jitter;
+            if (random.nextDouble() < spikeRate) {
+                rtt *= 3 + random.nextDouble() * 2;
+            }
+            series[i] = Math.max(1, Math.round(rtt));
+        }
+        return series;
+    }
+
+    /**
+     * 生成丢包序列
+     *
+     * @param size     序列长度
+     * @param lossRate 丢包率
+     * @param seed     随机种子
+     * @return true 表示该事件为丢包
+     */
+    public static boolean[] lossSeries(int size, double lossRate, long seed) {
+        Random random = new Random(seed);
+        boolean[] series = new boolean[size];
+        for (int i = 0; i < size; i++) {
+            series[i] = random.nextDouble() < lossRate;
+        }
+        return series;
+    }
+
+    /**
+     * 每次读取前进固定步长的时钟，让依赖时间间隔的逻辑（算法评估、带宽窗口）在基准中按事件数触发
+     */
+    public static final class SteppingClock implements CongestionClock {
+
+        private final long stepMillis;
+        private long now = System.currentTimeMillis();
+
+        public SteppingClock(long stepMillis) {
+            this.stepMillis = stepMillis;
+        }
+
+        /**
+         * 推进一个步长（每个 ACK/丢包事件调用一次）
+         */
+        public void tick() {
+            now += stepMillis;
+        }
+
+        @Override
+        public long currentTimeMillis() {
+            return now;
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.server.smarttransferserver.benchmark;
+
+import com.server.smarttransferserver.congestion.BandwidthEstimator;
+import com.server.smarttransferserver.congestion.NetworkTrendAnalyzer;
+import com.server.smarttransferserver.congestion.RttMeasurement;
+import com.server.smarttransferserver.congestion.RttOutlierFilter;
+import com.server.smarttransferserver.util.LongRingBuffer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 网络估算器的单次调用开销：带宽估算、RTT 平滑、RTT 异常值过滤、趋势分析
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class EstimatorBenchmark {
+
+    private static final int SERIES_SIZE = 1 << 16;
+    private static final int MASK = SERIES_SIZE - 1;
+
+    /**
+     * 与自适应算法的评估窗口一致
+     */
+    private static final int FILTER_WINDOW = 100;
+
+    private BandwidthEstimator bandwidthEstimator;
+    private RttMeasurement rttMeasurement;
+    private RttOutlierFilter outlierFilter;
+    private LongRingBuffer filterWindow;
+    private long[] filterOut;
+    private NetworkTrendAnalyzer trendAnalyzer;
+    private long[] rtts;
+    private int index;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        bandwidthEstimator = new BandwidthEstimator();
+        rttMeasurement = new RttMeasurement();
+        outlierFilter = new RttOutlierFilter(true);
+        filterWindow = new LongRingBuffer(FILTER_WINDOW);
+        filterOut = new long[FILTER_WINDOW];
+        trendAnalyzer = new NetworkTrendAnalyzer(5, 0.1);
+        rtts = BenchmarkSupport.rttSeries(SERIES_SIZE, 80, 10, 0.02, 1);
+        for (int i = 0; i < FILTER_WINDOW; i++) {
+            filterWindow.add(rtts[i]);
+        }
+        index = 0;
+    }
+
+    @Benchmark
+    public long bandwidthRecordSent() {
+        bandwidthEstimator.recordSent(BenchmarkSupport.CHUNK_BYTES);
+        return bandwidthEstimator.getEstimatedBandwidth();
+    }
+
+    @Benchmark
+    public long rttAddSample() {
+        rttMeasurement.addSample(rtts[index++ & MASK]);
+        return rttMeasurement.getSmoothedRtt();
+    }
+
+    /**
+     * 滑动窗口写入一个新样本后重新过滤（自适应算法每次评估时的做法）
+     */
+    @Benchmark
+    public int outlierFilter() {
+        filterWindow.add(rtts[index++ & MASK]);
+        return outlierFilter.filterOutliers(filterWindow, filterOut);
+    }
+
+    @Benchmark
+    public void trendAnalysis(Blackhole blackhole) {
+        int i = index++ & MASK;
+        trendAnalyzer.addWindow((i & 15) / 1000.0, rtts[i] / 8, rtts[i]);
+        blackhole.consume(trendAnalyzer.analyzeLossRateTrend());
+        blackhole.consume(trendAnalyzer.analyzeRttTrend());
+        blackhole.consume(trendAnalyzer.analyzeRttJitterTrend());
+    }
+}
@@ -0,0 +1,23 @@
+package com.server.smarttransferserver.benchmark.storage;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * 处理字节数计数器
+ * Throughput 模式下 JMH 把 bytes 按时间单位折算成速率输出（OutputTimeUnit 为秒时即 字节/秒，除以 1048576 为 MB/s）
+ */
+@State(Scope.Thread)
+@AuxCounters(AuxCounters.Type.OPERATIONS)
+public class BytesCounter {
+
+    public long bytes;
+
+    @Setup(Level.Iteration)
+    public void reset() {
+        bytes = 0;
+    }
+}
@@ -0,0 +1,187 @@
+package com.server.smarttransferserver.benchmark.storage;
+
+import com.server.smarttransferserver.service.impl.FileStorageServiceImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 分片写入
+ * serviceSaveChunk 走 FileStorageServiceImpl.saveChunk 的真实路径（池化64KB缓冲 + 边写边算MD5），
+ * 分片文件模式和直接落盘模式各测一组；其余方法只比较写入方式（不算MD5）：缓冲流、FileChannel、mmap，以及不同缓冲大小。
+ * 每个线程轮流覆盖自己的16个分片，磁盘占用 = 线程数 × 16 × 分片大小。
+ * 多线程：-t 1 / -t 4 / -t 16 分别运行
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 3)
+@Measurement(iterations = 5, time = 3)
+@Fork(1)
+public class ChunkWriteBenchmark {
+
+    private static final int CHUNKS_PER_THREAD = 16;
+
+    @State(Scope.Benchmark)
+    public static class Shared {
+
+        @Param({"1024", "5120"})
+        public int chunkSizeKb;
+
+        final AtomicLong fileIds = new AtomicLong(1);
+        Path workDir;
+        byte[] data;
+
+        @Setup(Level.Trial)
+        public void setUp() throws IOException {
+            workDir = StorageFixture.createWorkDir("chunk-write");
+            data = StorageFixture.randomBytes(chunkSizeKb * 1024, 1);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws IOException {
+            StorageFixture.deleteRecursively(workDir);
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Service {
+
+        @Param({"false", "true"})
+        public boolean directPlacement;
+
+        FileStorageServiceImpl storage;
+
+        @Setup(Level.Trial)
+        public void setUp(Shared shared) {
+            storage = StorageFixture.storageService(shared.workDir.resolve("service-" + directPlacement), directPlacement);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Writer {
+
+        long fileId;
+        int next;
+        Path dir;
+
+        @Setup(Level.Trial)
+        public void setUp(Shared shared) throws IOException {
+            fileId = shared.fileIds.getAndIncrement();
+            dir = shared.workDir.resolve("raw").resolve(String.valueOf(fileId));
+            Files.createDirectories(dir);
+        }
+
+        int nextChunk() {
+            int chunk = next;
+            next = (next + 1) % CHUNKS_PER_THREAD;
+            return chunk;
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Buffer {
+
+        @Param({"8", "64", "1024"})
+        public int bufferKb;
+
+        byte[] heap;
+        ByteBuffer direct;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            heap = new byte[bufferKb * 1024];
+            direct = ByteBuffer.allocateDirect(bufferKb * 1024);
+        }
+    }
+
+    /**
+     * 直接落盘模式下，每个线程先预分配自己的目标文件
+     */
+    @State(Scope.Thread)
+    public static class Placement {
+
+        @Setup(Level.Trial)
+        public void setUp(Shared shared, Service service, Writer writer) throws IOException {
+            service.storage.preallocateFile(writer.fileId, (long) shared.data.length * CHUNKS_PER_THREAD, shared.data.length);
+        }
+    }
+
+    @Benchmark
+    public String serviceSaveChunk(Shared shared, Service service, Placement placement, Writer writer,
+                                   BytesCounter counter) throws IOException {
+        String md5 = service.storage.saveChunk(writer.fileId, writer.nextChunk(),
+                new ByteArrayInputStream(shared.data), shared.data.length);
+        counter.bytes += shared.data.length;
+        return md5;
+    }
+
+    @Benchmark
+    public void streamWrite(Shared shared, Writer writer, Buffer buffer, BytesCounter counter) throws IOException {
+        Path path = writer.dir.resolve("chunk_" + writer.nextChunk());
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(path), buffer.heap.length)) {
+            // 按缓冲大小分段写入，与从请求体读一段写一段的方式一致
+            int offset = 0;
+            while (offset < shared.data.length) {
+                int n = Math.min(buffer.heap.length, shared.data.length - offset);
+                out.write(shared.data, offset, n);
+                offset += n;
+            }
+        }
+        counter.bytes += shared.data.length;
+    }
+
+    @Benchmark
+    public void channelWrite(Shared shared, Writer writer, Buffer buffer, BytesCounter counter) throws IOException {
+        Path path = writer.dir.resolve("chunk_" + writer.nextChunk());
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer direct = buffer.direct;
+            int offset = 0;
+            while (offset < shared.data.length) {
+                int n = Math.min(direct.capacity(), shared.data.length - offset);
+                ((java.nio.Buffer) direct).clear();
+                direct.put(shared.data, offset, n);
+                ((java.nio.Buffer) direct).flip();
+                while (direct.hasRemaining()) {
+                    channel.write(direct);
+                }
+                offset += n;
+            }
+        }
+        counter.bytes += shared.data.length;
+    }
+
+    @Benchmark
+    public void mmapWrite(Shared shared, Writer writer, BytesCounter counter) throws IOException {
+        Path path = writer.dir.resolve("chunk_" + writer.nextChunk());
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_WRITE, 0, shared.data.length);
+            mapped.put(shared.data);
+        }
+        counter.bytes += shared.data.length;
+    }
+}
@@ -0,0 +1,155 @@
+package com.server.smarttransferserver.benchmark.storage;
+
+import com.server.smarttransferserver.service.impl.FileChecksumServiceImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 文件哈希
+ * serviceMd5 走 FileChecksumServiceImpl.calculateMD5（commons-codec 对 FileInputStream 计算），
+ * 其余方法比较读取方式：流 + 堆缓冲、FileChannel + 直接缓冲、mmap，以及 MD5 / SHA-256。
+ * 多个线程读同一个文件，第一轮预热后文件在页缓存中，测的是哈希计算和内核拷贝的开销
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class HashBenchmark {
+
+    /**
+     * mmap 每次映射的窗口大小
+     */
+    private static final long MAP_WINDOW = 256L * 1024 * 1024;
+
+    @State(Scope.Benchmark)
+    public static class Shared {
+
+        @Param({"256"})
+        public int fileSizeMb;
+
+        Path workDir;
+        Path file;
+        long size;
+        FileChecksumServiceImpl checksum;
+
+        @Setup(Level.Trial)
+        public void setUp() throws IOException {
+            workDir = StorageFixture.createWorkDir("hash");
+            file = workDir.resolve("data.bin");
+            size = fileSizeMb * 1024L * 1024L;
+            StorageFixture.writeRandomFile(file, size, 1);
+            checksum = StorageFixture.checksumService();
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws IOException {
+            StorageFixture.deleteRecursively(workDir);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Digest {
+
+        @Param({"MD5", "SHA-256"})
+        public String algorithm;
+
+        MessageDigest digest;
+
+        @Setup(Level.Trial)
+        public void setUp() throws NoSuchAlgorithmException {
+            digest = MessageDigest.getInstance(algorithm);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Buffer {
+
+        @Param({"8", "64", "1024"})
+        public int bufferKb;
+
+        byte[] heap;
+        ByteBuffer direct;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            heap = new byte[bufferKb * 1024];
+            direct = ByteBuffer.allocateDirect(bufferKb * 1024);
+        }
+    }
+
+    @Benchmark
+    public String serviceMd5(Shared shared, BytesCounter counter) throws IOException {
+        String md5 = shared.checksum.calculateMD5(shared.file.toString());
+        counter.bytes += shared.size;
+        return md5;
+    }
+
+    @Benchmark
+    public byte[] streamDigest(Shared shared, Digest digest, Buffer buffer, BytesCounter counter) throws IOException {
+        MessageDigest md = digest.digest;
+        try (InputStream in = Files.newInputStream(shared.file)) {
+            int n;
+            while ((n = in.read(buffer.heap)) > 0) {
+                md.update(buffer.heap, 0, n);
+            }
+        }
+        counter.bytes += shared.size;
+        return md.digest();
+    }
+
+    @Benchmark
+    public byte[] channelDigest(Shared shared, Digest digest, Buffer buffer, BytesCounter counter) throws IOException {
+        MessageDigest md = digest.digest;
+        ByteBuffer direct = buffer.direct;
+        try (FileChannel channel = FileChannel.open(shared.file, StandardOpenOption.READ)) {
+            ((java.nio.Buffer) direct).clear();
+            while (channel.read(direct) > 0) {
+                ((java.nio.Buffer) direct).flip();
+                md.update(direct);
+                ((java.nio.Buffer) direct).clear();
+            }
+        }
+        counter.bytes += shared.size;
+        return md.digest();
+    }
+
+    @Benchmark
+    public byte[] mmapDigest(Shared shared, Digest digest, BytesCounter counter) throws IOException {
+        MessageDigest md = digest.digest;
+        try (FileChannel channel = FileChannel.open(shared.file, StandardOpenOption.READ)) {
+            long position = 0;
+            while (position < shared.size) {
+                long length = Math.min(MAP_WINDOW, shared.size - position);
+                MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+                md.update(mapped);
+                position += length;
+            }
+        }
+        counter.bytes += shared.size;
+        return md.digest();
+    }
+}
@@ -0,0 +1,172 @@
+package com.server.smarttransferserver.benchmark.storage;
+
+import com.server.smarttransferserver.service.impl.FileStorageServiceImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 分片合并
+ * serviceMerge 走 FileStorageServiceImpl.mergeChunks 的分片文件模式（transferTo 拼接 + 移入内容寻址存储），
+ * 每次调用后删除生成的 blob，下次调用重新合并；其余方法只比较拼接方式：transferTo、缓冲流复制、mmap 复制。
+ * 每个线程有自己的一组分片文件，磁盘占用约为 线程数 × 2 × 文件大小
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class MergeBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Shared {
+
+        @Param({"256"})
+        public int fileSizeMb;
+
+        @Param({"5120"})
+        public int chunkSizeKb;
+
+        final AtomicLong fileIds = new AtomicLong(1);
+        Path workDir;
+        FileStorageServiceImpl storage;
+
+        @Setup(Level.Trial)
+        public void setUp() throws IOException {
+            workDir = StorageFixture.createWorkDir("merge");
+            storage = StorageFixture.storageService(workDir, false);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws IOException {
+            StorageFixture.deleteRecursively(workDir);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Chunks {
+
+        long fileId;
+        int totalChunks;
+        long totalBytes;
+        Path chunkDir;
+        Path output;
+        String fileHash;
+
+        @Setup(Level.Trial)
+        public void setUp(Shared shared) throws IOException {
+            fileId = shared.fileIds.getAndIncrement();
+            // 与 saveChunk 的分片文件模式目录一致：temp/default/{fileId}/chunk_N
+            chunkDir = shared.workDir.resolve("temp").resolve("default").resolve(String.valueOf(fileId));
+            long chunkSize = shared.chunkSizeKb * 1024L;
+            totalBytes = shared.fileSizeMb * 1024L * 1024L;
+            totalChunks = (int) ((totalBytes + chunkSize - 1) / chunkSize);
+            for (int i = 0; i < totalChunks; i++) {
+                long size = Math.min(chunkSize, totalBytes - i * chunkSize);
+                StorageFixture.writeRandomFile(chunkDir.resolve("chunk_" + i), size, fileId * 100_000 + i);
+            }
+            output = shared.workDir.resolve("raw-" + fileId + ".part");
+            fileHash = String.format("%032x", fileId);
+        }
+
+        /**
+         * 删除上一次合并生成的 blob，保证每次调用都是一次完整的合并
+         */
+        @TearDown(Level.Invocation)
+        public void removeBlob(Shared shared) throws IOException {
+            Path blob = shared.workDir.resolve("storage").resolve("blobs")
+                    .resolve(fileHash.substring(0, 2)).resolve(fileHash.substring(2, 4)).resolve(fileHash);
+            Files.deleteIfExists(blob);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Buffer {
+
+        @Param({"64", "1024"})
+        public int bufferKb;
+    }
+
+    @Benchmark
+    public String serviceMerge(Shared shared, Chunks chunks, BytesCounter counter) throws IOException {
+        String path = shared.storage.mergeChunks(chunks.fileId, chunks.fileHash, chunks.totalChunks);
+        counter.bytes += chunks.totalBytes;
+        return path;
+    }
+
+    @Benchmark
+    public void transferToMerge(Chunks chunks, BytesCounter counter) throws IOException {
+        try (FileChannel target = openOutput(chunks.output)) {
+            for (int i = 0; i < chunks.totalChunks; i++) {
+                try (FileChannel source = FileChannel.open(chunks.chunkDir.resolve("chunk_" + i), StandardOpenOption.READ)) {
+                    long size = source.size();
+                    long position = 0;
+                    while (position < size) {
+                        position += source.transferTo(position, size - position, target);
+                    }
+                }
+            }
+        }
+        counter.bytes += chunks.totalBytes;
+    }
+
+    @Benchmark
+    public void streamMerge(Chunks chunks, Buffer buffer, BytesCounter counter) throws IOException {
+        byte[] array = new byte[buffer.bufferKb * 1024];
+        try (OutputStream out = Files.newOutputStream(chunks.output)) {
+            for (int i = 0; i < chunks.totalChunks; i++) {
+                try (InputStream in = Files.newInputStream(chunks.chunkDir.resolve("chunk_" + i))) {
+                    int n;
+                    while ((n = in.read(array)) > 0) {
+                        out.write(array, 0, n);
+                    }
+                }
+            }
+        }
+        counter.bytes += chunks.totalBytes;
+    }
+
+    @Benchmark
+    public void mmapMerge(Chunks chunks, BytesCounter counter) throws IOException {
+        try (FileChannel target = FileChannel.open(chunks.output, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            long position = 0;
+            for (int i = 0; i < chunks.totalChunks; i++) {
+                try (FileChannel source = FileChannel.open(chunks.chunkDir.resolve("chunk_" + i), StandardOpenOption.READ)) {
+                    long size = source.size();
+                    MappedByteBuffer in = source.map(FileChannel.MapMode.READ_ONLY, 0, size);
+                    MappedByteBuffer out = target.map(FileChannel.MapMode.READ_WRITE, position, size);
+                    out.put(in);
+                    position += size;
+                }
+            }
+        }
+        counter.bytes += chunks.totalBytes;
+    }
+
+    private static FileChannel openOutput(Path path) throws IOException {
+        return FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+    }
+}
@@ -0,0 +1,192 @@
+package com.server.smarttransferserver.benchmark.storage;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 下载分块的区间读取
+ * 线上 downloadChunk 不在堆上读分块，由 FileRegionHttpMessageConverter 调用 FileChannel.transferTo 写出
+ * （有速率控制时按64KB分段），transferTo / pacedTransferTo 对应这两条路径；
+ * 目标是丢弃数据的通道而不是 socket，JDK 会退化为经缓冲的拷贝，测到的是读取侧开销，不含 sendfile 零拷贝的收益。
+ * 其余方法比较 RandomAccessFile、FileChannel 定位读、mmap。每次调用随机选一个分块（按分块对齐，种子固定）
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 3)
+@Measurement(iterations = 5, time = 3)
+@Fork(1)
+public class RangedReadBenchmark {
+
+    /**
+     * 与 FileRegionHttpMessageConverter 有速率控制时的分段大小一致
+     */
+    private static final long PACED_SLICE = 64 * 1024;
+
+    @State(Scope.Benchmark)
+    public static class Shared {
+
+        @Param({"1024"})
+        public int fileSizeMb;
+
+        @Param({"5120"})
+        public int rangeKb;
+
+        Path workDir;
+        Path file;
+        long size;
+        long range;
+        int ranges;
+
+        @Setup(Level.Trial)
+        public void setUp() throws IOException {
+            workDir = StorageFixture.createWorkDir("ranged-read");
+            file = workDir.resolve("data.bin");
+            size = fileSizeMb * 1024L * 1024L;
+            range = rangeKb * 1024L;
+            ranges = (int) (size / range);
+            StorageFixture.writeRandomFile(file, size, 1);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws IOException {
+            StorageFixture.deleteRecursively(workDir);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Reader {
+
+        FileChannel channel;
+        RandomAccessFile raf;
+        Random random;
+        final StorageFixture.NullChannel sink = new StorageFixture.NullChannel();
+
+        @Setup(Level.Trial)
+        public void setUp(Shared shared) throws IOException {
+            channel = FileChannel.open(shared.file, StandardOpenOption.READ);
+            raf = new RandomAccessFile(shared.file.toFile(), "r");
+            random = new Random(Thread.currentThread().getId());
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws IOException {
+            channel.close();
+            raf.close();
+        }
+
+        long nextOffset(Shared shared) {
+            return random.nextInt(shared.ranges) * shared.range;
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Buffer {
+
+        @Param({"8", "64", "1024"})
+        public int bufferKb;
+
+        byte[] heap;
+        ByteBuffer direct;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            heap = new byte[bufferKb * 1024];
+            direct = ByteBuffer.allocateDirect(bufferKb * 1024);
+        }
+    }
+
+    @Benchmark
+    public long transferTo(Shared shared, Reader reader, BytesCounter counter) throws IOException {
+        long position = reader.nextOffset(shared);
+        long end = position + shared.range;
+        while (position < end) {
+            position += reader.channel.transferTo(position, end - position, reader.sink);
+        }
+        counter.bytes += shared.range;
+        return reader.sink.getWritten();
+    }
+
+    @Benchmark
+    public long pacedTransferTo(Shared shared, Reader reader, BytesCounter counter) throws IOException {
+        long position = reader.nextOffset(shared);
+        long end = position + shared.range;
+        while (position < end) {
+            long sliceEnd = Math.min(end, position + PACED_SLICE);
+            position += reader.channel.transferTo(position, sliceEnd - position, reader.sink);
+        }
+        counter.bytes += shared.range;
+        return reader.sink.getWritten();
+    }
+
+    @Benchmark
+    public long randomAccessRead(Shared shared, Reader reader, Buffer buffer, BytesCounter counter) throws IOException {
+        long position = reader.nextOffset(shared);
+        reader.raf.seek(position);
+        long remaining = shared.range;
+        long checksum = 0;
+        while (remaining > 0) {
+            int n = reader.raf.read(buffer.heap, 0, (int) Math.min(buffer.heap.length, remaining));
+            if (n < 0) {
+                break;
+            }
+            checksum += buffer.heap[n - 1];
+            remaining -= n;
+        }
+        counter.bytes += shared.range;
+        return checksum;
+    }
+
+    @Benchmark
+    public long channelRead(Shared shared, Reader reader, Buffer buffer, BytesCounter counter) throws IOException {
+        long position = reader.nextOffset(shared);
+        long end = position + shared.range;
+        ByteBuffer direct = buffer.direct;
+        long checksum = 0;
+        while (position < end) {
+            ((java.nio.Buffer) direct).clear();
+            ((java.nio.Buffer) direct).limit((int) Math.min(direct.capacity(), end - position));
+            int n = reader.channel.read(direct, position);
+            if (n < 0) {
+                break;
+            }
+            checksum += direct.get(n - 1);
+            position += n;
+        }
+        counter.bytes += shared.range;
+        return checksum;
+    }
+
+    @Benchmark
+    public long mmapRead(Shared shared, Reader reader, BytesCounter counter) throws IOException {
+        long position = reader.nextOffset(shared);
+        MappedByteBuffer mapped = reader.channel.map(FileChannel.MapMode.READ_ONLY, position, shared.range);
+        // 逐个 long 读取，保证每一页都被真正访问
+        long checksum = 0;
+        while (mapped.remaining() >= Long.BYTES) {
+            checksum += mapped.getLong();
+        }
+        counter.bytes += shared.range;
+        return checksum;
+    }
+}
@@ -0,0 +1,191 @@
+package com.server.smarttransferserver.benchmark.storage;
+
+import com.server.smarttransferserver.mapper.BlobRefMapper;
+import com.server.smarttransferserver.service.impl.FileChecksumServiceImpl;
+import com.server.smarttransferserver.service.impl.FileStorageServiceImpl;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Field;
+import java.lang.reflect.Proxy;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Random;
+
+/**
+ * 存储基准的测试环境
+ * 在临时目录（-Dbench.dir 指定，默认 java.io.tmpdir）下生成随机内容的文件，
+ * 不启动 Spring 容器，直接 new 存储服务并用反射注入路径；数据库只有内容寻址存储的引用计数，用空实现代替
+ */
+public final class StorageFixture {
+
+    private StorageFixture() {
+    }
+
+    /**
+     * 创建基准专用的临时目录
+     *
+     * @param prefix 目录名前缀
+     * @return 目录
+     */
+    public static Path createWorkDir(String prefix) throws IOException {
+        Path base = Paths.get(System.getProperty("bench.dir", System.getProperty("java.io.tmpdir")));
+        Files.createDirectories(base);
+        return Files.createTempDirectory(base, prefix);
+    }
+
+    /**
+     * 存储服务（存储路径和临时路径都指向 workDir 下）
+     *
+     * @param workDir         工作目录
+     * @param directPlacement 是否使用直接落盘模式
+     * @return 存储服务
+     */
+    public static FileStorageServiceImpl storageService(Path workDir, boolean directPlacement) {
+        FileStorageServiceImpl service = new FileStorageServiceImpl();
+        setField(service, "storagePath", workDir.resolve("storage").toString());
+        setField(service, "tempPath", workDir.resolve("temp").toString());
+        setField(service, "directPlacement", directPlacement);
+        setField(service, "blobRefMapper", noopMapper(BlobRefMapper.class));
+        service.init();
+        return service;
+    }
+
+    /**
+     * 校验服务
+     *
+     * @return 校验服务
+     */
+    public static FileChecksumServiceImpl checksumService() {
+        return new FileChecksumServiceImpl();
+    }
+
+    /**
+     * 生成随机内容（不可压缩）
+     *
+     * @param size 字节数
+     * @param seed 随机种子
+     * @return 数据
+     */
+    public static byte[] randomBytes(int size, long seed) {
+        byte[] data = new byte[size];
+        new Random(seed).nextBytes(data);
+        return data;
+    }
+
+    /**
+     * 生成随机内容的文件
+     *
+     * @param path 文件路径
+     * @param size 字节数
+     * @param seed 随机种子
+     */
+    public static void writeRandomFile(Path path, long size, long seed) throws IOException {
+        Files.createDirectories(path.getParent());
+        byte[] block = randomBytes(1024 * 1024, seed);
+        try (OutputStream out = Files.newOutputStream(path)) {
+            long written = 0;
+            while (written < size) {
+                int n = (int) Math.min(block.length, size - written);
+                out.write(block, 0, n);
+                written += n;
+                // 每块轮换一下内容，避免文件由重复块组成
+                block[(int) (written % block.length)] ^= (byte) written;
+            }
+        }
+    }
+
+    /**
+     * 递归删除目录
+     *
+     * @param dir 目录
+     */
+    public static void deleteRecursively(Path dir) throws IOException {
+        if (dir == null || !Files.exists(dir)) {
+            return;
+        }
+        Files.walkFileTree(dir, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                Files.delete(file);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory(Path d, IOException e) throws IOException {
+                Files.delete(d);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    /**
+     * 丢弃所有写入的通道（代替下载响应的 socket，只统计字节数）
+     */
+    public static final class NullChannel implements WritableByteChannel {
+
+        private long written;
+
+        @Override
+        public int write(ByteBuffer src) {
+            int n = src.remaining();
+            ((Buffer) src).position(src.limit());
+            written += n;
+            return n;
+        }
+
+        public long getWritten() {
+            return written;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T noopMapper(Class<T> type) {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+            Class<?> returnType = method.getReturnType();
+            if (method.getDeclaringClass() == Object.class) {
+                switch (method.getName()) {
+                    case "equals":
+                        return proxy == args[0];
+                    case "hashCode":
+                        return System.identityHashCode(proxy);
+                    default:
+                        return type.getSimpleName() + "(noop)";
+                }
+            }
+            if (returnType == int.class || returnType == long.class) {
+                return returnType == int.class ? (Object) 1 : (Object) 1L;
+            }
+            if (returnType == boolean.class) {
+                return false;
+            }
+            return null;
+        });
+    }
+
+    private static void setField(Object target, String name, Object value) {
+        try {
+            Field field = target.getClass().getDeclaredField(name);
+            field.setAccessible(true);
+            field.set(target, value);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("设置字段失败: " + name, e);
+        }
+    }
+}
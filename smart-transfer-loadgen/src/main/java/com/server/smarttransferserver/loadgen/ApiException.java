@@ -0,0 +1,48 @@
+package com.server.smarttransferserver.loadgen;
+
+/**
+ * 服务端返回了错误（HTTP 非2xx，或 Result.code 不是200）
+ * 网络层错误不用这个异常，仍是 IOException
+ */
+public class ApiException extends RuntimeException {
+
+    private final int httpStatus;
+
+    /**
+     * 429 时服务端建议的等待时间（毫秒），其他情况为0
+     */
+    private final long retryAfterMs;
+
+    public ApiException(int httpStatus, String message) {
+        this(httpStatus, message, 0);
+    }
+
+    public ApiException(int httpStatus, String message, long retryAfterMs) {
+        super(message);
+        this.httpStatus = httpStatus;
+        this.retryAfterMs = retryAfterMs;
+    }
+
+    public int getHttpStatus() {
+        return httpStatus;
+    }
+
+    public long getRetryAfterMs() {
+        return retryAfterMs;
+    }
+
+    public boolean isThrottled() {
+        return httpStatus == 429;
+    }
+
+    /**
+     * 错误摘要，用于错误分类计数（去掉消息里的数字，避免按文件ID、分片号分散）
+     */
+    public String summary() {
+        String message = getMessage() == null ? "" : getMessage().replaceAll("\\d+", "#");
+        if (message.length() > 80) {
+            message = message.substring(0, 80);
+        }
+        return "HTTP " + httpStatus + " " + message;
+    }
+}
@@ -0,0 +1,143 @@
+package com.server.smarttransferserver.loadgen;
+
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * 按拥塞窗口控制并发的分片发送，逻辑与 TransferCenter.vue 一致：
+ * <ul>
+ *     <li>并发数 = clamp(floor(cwnd / 分片大小), 1, 上限)，每个分片完成后立即重新计算并补足</li>
+ *     <li>服务端返回的 cwnd 在 (0, 1MB) 内视为异常，cwnd 取 max(当前, 1MB)；否则直接采用</li>
+ *     <li>分片成功后才更新 lastRtt（0~60000ms）和 lastRetryCount（0~10），随下一个分片请求带给服务端</li>
+ *     <li>服务端返回 success=false 时只重传该分片，超过重传上限则整个传输失败</li>
+ * </ul>
+ * 协调逻辑只在调用线程里执行，窗口状态不需要加锁；分片请求在共享线程池中执行
+ */
+public class ChunkWindow {
+
+    private static final long MIN_CWND = 1024 * 1024;
+    private static final long MAX_RTT_HEADER_MS = 60000;
+    private static final int MAX_RETRY_HEADER = 10;
+
+    private final ExecutorService executor;
+    private final long chunkSize;
+    private final int maxConcurrent;
+    private final int maxRetransmits;
+    private final LoadMetrics metrics;
+    private final LoadMetrics.Op op;
+
+    private long cwnd;
+    private long lastRttMs;
+    private int lastRetryCount;
+    private String failure;
+
+    public ChunkWindow(ExecutorService executor, long chunkSize, int maxConcurrent, long initialCwnd,
+                       int maxRetransmits, LoadMetrics metrics, LoadMetrics.Op op) {
+        this.executor = executor;
+        this.chunkSize = chunkSize;
+        this.maxConcurrent = maxConcurrent;
+        this.cwnd = initialCwnd;
+        this.maxRetransmits = maxRetransmits;
+        this.metrics = metrics;
+        this.op = op;
+    }
+
+    /**
+     * 发送一组分片，全部成功或失败后返回
+     *
+     * @param chunks 分片序号
+     * @param sender 单个分片的发送
+     * @return 是否全部成功
+     */
+    public boolean run(Collection<Integer> chunks, ChunkSender sender) throws InterruptedException {
+        Deque<Integer> queue = new ArrayDeque<>(chunks);
+        Map<Integer, Integer> retransmits = new HashMap<>();
+        CompletionService<ChunkResult> completion = new ExecutorCompletionService<>(executor);
+        int active = 0;
+        failure = null;
+
+        while (active > 0 || (failure == null && !queue.isEmpty())) {
+            int window = (int) Math.max(1, Math.min(maxConcurrent, cwnd / chunkSize));
+            while (failure == null && active < window && !queue.isEmpty()) {
+                int chunkNumber = queue.poll();
+                long rtt = lastRttMs;
+                int retry = lastRetryCount;
+                completion.submit(() -> sender.send(chunkNumber, rtt, retry));
+                active++;
+            }
+
+            Future<ChunkResult> done = completion.take();
+            active--;
+            ChunkResult result;
+            try {
+                result = done.get();
+            } catch (ExecutionException e) {
+                // 网络错误重试耗尽：不再发新分片，等在途分片结束后返回失败
+                Throwable cause = e.getCause();
+                failure = cause.getClass().getSimpleName() + ": " + cause.getMessage();
+                continue;
+            }
+
+            updateCwnd(result.cwnd);
+            if (result.success) {
+                lastRttMs = Math.max(0, Math.min(MAX_RTT_HEADER_MS, result.clientRttMs));
+                lastRetryCount = Math.min(MAX_RETRY_HEADER, result.retryCount);
+                continue;
+            }
+            int count = retransmits.merge(result.chunkNumber, 1, Integer::sum);
+            if (count > maxRetransmits) {
+                failure = "分片" + result.chunkNumber + "重传" + maxRetransmits + "次仍失败: " + result.message;
+            } else {
+                metrics.recordRetry(op);
+                queue.add(result.chunkNumber);
+            }
+        }
+        return failure == null;
+    }
+
+    private void updateCwnd(long received) {
+        if (received > 0 && received < MIN_CWND) {
+            cwnd = Math.max(cwnd, MIN_CWND);
+        } else if (received > 0) {
+            cwnd = received;
+        }
+    }
+
+    public String getFailure() {
+        return failure;
+    }
+
+    /**
+     * 单个分片的发送（含网络错误重试）
+     */
+    public interface ChunkSender {
+        /**
+         * @param chunkNumber    分片序号
+         * @param lastRttMs      上一个成功分片的客户端RTT
+         * @param lastRetryCount 上一个成功分片的重试次数
+         * @return 分片结果
+         * @throws Exception 网络错误重试耗尽
+         */
+        ChunkResult send(int chunkNumber, long lastRttMs, int lastRetryCount) throws Exception;
+    }
+
+    /**
+     * 单个分片的结果
+     */
+    public static class ChunkResult {
+        int chunkNumber;
+        boolean success;
+        long cwnd;
+        long clientRttMs;
+        int retryCount;
+        String message;
+    }
+}
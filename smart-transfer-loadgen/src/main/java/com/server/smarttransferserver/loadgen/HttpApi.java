@@ -0,0 +1,264 @@
+package com.server.smarttransferserver.loadgen;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONObject;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+
+/**
+ * 服务端接口的 HTTP 调用（HttpURLConnection，保持长连接）
+ * JSON 接口统一解析 Result：HTTP 非2xx 或 code 不是200 时抛 {@link ApiException}，网络错误抛 IOException。
+ * 分片上传/下载不经过内存缓冲：上传直接把分片内容写进请求体，下载边读边计算MD5
+ */
+public class HttpApi {
+
+    private static final int SUCCESS_CODE = 200;
+
+    private final String baseUrl;
+    private final int connectTimeoutMs;
+    private final int readTimeoutMs;
+
+    private volatile String token;
+
+    public HttpApi(String baseUrl, int connectTimeoutMs, int readTimeoutMs) {
+        this.baseUrl = baseUrl;
+        this.connectTimeoutMs = connectTimeoutMs;
+        this.readTimeoutMs = readTimeoutMs;
+    }
+
+    public void setToken(String token) {
+        this.token = token;
+    }
+
+    public String getToken() {
+        return token;
+    }
+
+    /**
+     * GET 请求，返回 Result.data
+     */
+    public JSONObject getData(String path) throws IOException {
+        return call("GET", path, null).getJSONObject("data");
+    }
+
+    /**
+     * POST JSON 请求，返回 Result.data
+     */
+    public JSONObject postData(String path, Object body) throws IOException {
+        return call("POST", path, body).getJSONObject("data");
+    }
+
+    /**
+     * GET 不包 Result 的 JSON 接口（如 Actuator）
+     */
+    public JSONObject getJson(String path) throws IOException {
+        HttpURLConnection conn = open("GET", path);
+        int status = conn.getResponseCode();
+        byte[] body = readAll(status >= 400 ? conn.getErrorStream() : conn.getInputStream());
+        String text = new String(body, StandardCharsets.UTF_8);
+        if (status >= 400) {
+            throw new ApiException(status, messageOf(text));
+        }
+        return JSON.parseObject(text);
+    }
+
+    /**
+     * 调用 JSON 接口，返回完整的 Result
+     *
+     * @param method 请求方法
+     * @param path   路径
+     * @param body   请求体（序列化为JSON），null表示无请求体
+     * @return Result
+     */
+    public JSONObject call(String method, String path, Object body) throws IOException {
+        HttpURLConnection conn = open(method, path);
+        if (body != null) {
+            byte[] bytes = JSON.toJSONString(body).getBytes(StandardCharsets.UTF_8);
+            conn.setDoOutput(true);
+            conn.setRequestProperty("Content-Type", "application/json;charset=UTF-8");
+            conn.setFixedLengthStreamingMode(bytes.length);
+            try (OutputStream out = conn.getOutputStream()) {
+                out.write(bytes);
+            }
+        }
+        return readResult(conn);
+    }
+
+    /**
+     * 上传分片（PUT 二进制请求体）
+     *
+     * @param fileId          文件ID
+     * @param chunkNumber     分片序号
+     * @param chunkHash       分片MD5
+     * @param lastRttMs       上一分片的客户端RTT
+     * @param lastRetryCount  上一分片的重试次数
+     * @param length          分片长度
+     * @param payload         分片内容写出
+     * @return ChunkUploadVO
+     */
+    public JSONObject uploadChunk(long fileId, int chunkNumber, String chunkHash, long lastRttMs, int lastRetryCount,
+                                  int length, PayloadWriter payload) throws IOException {
+        HttpURLConnection conn = open("PUT", "/file/upload/chunk/" + fileId + "/" + chunkNumber);
+        conn.setDoOutput(true);
+        conn.setRequestProperty("Content-Type", "application/octet-stream");
+        conn.setRequestProperty("X-Chunk-Hash", chunkHash);
+        conn.setRequestProperty("X-Last-RTT-Ms", String.valueOf(lastRttMs));
+        conn.setRequestProperty("X-Chunk-Retry-Count", String.valueOf(lastRetryCount));
+        conn.setFixedLengthStreamingMode(length);
+        try (OutputStream out = conn.getOutputStream()) {
+            payload.writeTo(out);
+        }
+        return readResult(conn).getJSONObject("data");
+    }
+
+    /**
+     * 下载分块，响应体边读边计算MD5
+     *
+     * @param fileId         文件ID
+     * @param chunkNumber    分块序号
+     * @param startByte      起始字节
+     * @param endByte        结束字节（含）
+     * @param lastRttMs      上一分块的客户端RTT
+     * @param lastRetryCount 上一分块的重试次数
+     * @return 分块结果（X-Success 为 false 时 success=false）
+     */
+    public DownloadedChunk downloadChunk(long fileId, int chunkNumber, long startByte, long endByte,
+                                         long lastRttMs, int lastRetryCount) throws IOException {
+        HttpURLConnection conn = open("GET", "/file/download/chunk/" + fileId + "/" + chunkNumber
+                + "?startByte=" + startByte + "&endByte=" + endByte);
+        conn.setRequestProperty("X-Last-RTT-Ms", String.valueOf(lastRttMs));
+        conn.setRequestProperty("X-Chunk-Retry-Count", String.valueOf(lastRetryCount));
+        int status = conn.getResponseCode();
+        if (status == 429) {
+            drain(conn.getErrorStream());
+            throw throttled(conn);
+        }
+        DownloadedChunk chunk = new DownloadedChunk();
+        chunk.success = status == 200 && "true".equals(conn.getHeaderField("X-Success"));
+        chunk.cwnd = parseLong(conn.getHeaderField("X-Cwnd"));
+        if (!chunk.success) {
+            byte[] body = readAll(status >= 400 ? conn.getErrorStream() : conn.getInputStream());
+            chunk.message = "HTTP " + status + " " + new String(body, StandardCharsets.UTF_8);
+            return chunk;
+        }
+        MessageDigest md5 = PayloadPool.md5();
+        byte[] buffer = new byte[64 * 1024];
+        try (InputStream in = conn.getInputStream()) {
+            int n;
+            while ((n = in.read(buffer)) > 0) {
+                md5.update(buffer, 0, n);
+                chunk.bytes += n;
+            }
+        }
+        chunk.md5 = PayloadPool.hex(md5.digest());
+        return chunk;
+    }
+
+    private HttpURLConnection open(String method, String path) throws IOException {
+        HttpURLConnection conn = (HttpURLConnection) new URL(baseUrl + path).openConnection();
+        conn.setRequestMethod(method);
+        conn.setConnectTimeout(connectTimeoutMs);
+        conn.setReadTimeout(readTimeoutMs);
+        conn.setUseCaches(false);
+        if (token != null) {
+            conn.setRequestProperty("Authorization", "Bearer " + token);
+        }
+        return conn;
+    }
+
+    private JSONObject readResult(HttpURLConnection conn) throws IOException {
+        int status = conn.getResponseCode();
+        if (status == 429) {
+            drain(conn.getErrorStream());
+            throw throttled(conn);
+        }
+        byte[] body = readAll(status >= 400 ? conn.getErrorStream() : conn.getInputStream());
+        String text = new String(body, StandardCharsets.UTF_8);
+        if (status >= 400) {
+            throw new ApiException(status, messageOf(text));
+        }
+        JSONObject result = JSON.parseObject(text);
+        if (result == null || result.getIntValue("code") != SUCCESS_CODE) {
+            throw new ApiException(status, result == null ? "空响应" : result.getString("message"));
+        }
+        return result;
+    }
+
+    private static ApiException throttled(HttpURLConnection conn) {
+        long retryAfterMs = parseLong(conn.getHeaderField("X-Retry-After-Ms"));
+        if (retryAfterMs <= 0) {
+            retryAfterMs = parseLong(conn.getHeaderField("Retry-After")) * 1000;
+        }
+        return new ApiException(429, "限流", Math.max(retryAfterMs, 100));
+    }
+
+    private static String messageOf(String text) {
+        try {
+            JSONObject json = JSON.parseObject(text);
+            if (json != null && json.getString("message") != null) {
+                return json.getString("message");
+            }
+        } catch (RuntimeException ignored) {
+            // 非JSON响应体，直接用原文
+        }
+        return text;
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        if (in == null) {
+            return new byte[0];
+        }
+        try (InputStream input = in) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int n;
+            while ((n = input.read(buffer)) > 0) {
+                out.write(buffer, 0, n);
+            }
+            return out.toByteArray();
+        }
+    }
+
+    /**
+     * 读完并关闭响应体，连接才能放回长连接池
+     */
+    private static void drain(InputStream in) throws IOException {
+        readAll(in);
+    }
+
+    private static long parseLong(String value) {
+        if (value == null || value.isEmpty()) {
+            return 0;
+        }
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * 分片内容写出
+     */
+    public interface PayloadWriter {
+        void writeTo(OutputStream out) throws IOException;
+    }
+
+    /**
+     * 下载的分块
+     */
+    public static class DownloadedChunk {
+        boolean success;
+        long cwnd;
+        long bytes;
+        String md5;
+        String message;
+    }
+}
@@ -0,0 +1,341 @@
+package com.server.smarttransferserver.loadgen;
+
+import com.server.smarttransferserver.loadgen.proxy.ImpairmentConfig;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * 压测配置
+ * 命令行参数形如 --users=200 --file-size=20MB，未给出的取默认值；
+ * 以 --proxy- 开头的参数配置进程内损伤代理，任意一项非零即启用代理
+ */
+public class LoadConfig {
+
+    /**
+     * 服务端地址（不经过代理时直接访问）
+     */
+    private String target = "http://127.0.0.1:8081";
+
+    /**
+     * 并发用户数
+     */
+    private int users = 100;
+
+    /**
+     * 用户启动的爬坡时长（秒），用户均匀地在这段时间内启动
+     */
+    private int rampUpSeconds = 10;
+
+    /**
+     * 压测时长（秒），到时后不再开始新的文件，进行中的文件传完为止
+     */
+    private int durationSeconds = 120;
+
+    /**
+     * 每个用户最多传多少个文件，0表示不限（只受时长约束）
+     */
+    private int iterations;
+
+    /**
+     * 文件大小（字节）
+     */
+    private long fileSize = 20L * 1024 * 1024;
+
+    /**
+     * 分片大小（字节），与前端一致默认5MB
+     */
+    private long chunkSize = 5L * 1024 * 1024;
+
+    /**
+     * 上传后是否下载同一文件并逐块校验
+     */
+    private boolean download = true;
+
+    /**
+     * 每轮结束后是否删除文件
+     */
+    private boolean cleanup = true;
+
+    /**
+     * 用户名前缀，用户名为 前缀 + 序号
+     */
+    private String userPrefix = "lg";
+
+    /**
+     * 压测用户密码
+     */
+    private String password = "loadgen123";
+
+    /**
+     * 登录失败时是否自动注册
+     */
+    private boolean register = true;
+
+    /**
+     * 上传最大并发分片数（TransferCenter.vue 为4）
+     */
+    private int maxUploadConcurrency = 4;
+
+    /**
+     * 下载最大并发分块数（TransferCenter.vue 为6）
+     */
+    private int maxDownloadConcurrency = 6;
+
+    /**
+     * 初始拥塞窗口（字节），与前端一致默认10MB
+     */
+    private long initialCwnd = 10L * 1024 * 1024;
+
+    /**
+     * 单个分片网络错误的重试次数（对应前端 uploadChunk 的 maxRetries）
+     */
+    private int maxRetries = 3;
+
+    /**
+     * 服务端拒绝（success=false）后的重传次数（对应前端 MAX_CHUNK_RETRANSMITS）
+     */
+    private int maxRetransmits = 3;
+
+    /**
+     * 连接超时（毫秒）
+     */
+    private int connectTimeoutMs = 10000;
+
+    /**
+     * 读超时（毫秒），对应前端的停滞检测
+     */
+    private int readTimeoutMs = 60000;
+
+    /**
+     * 服务端资源采样与进度打印间隔（秒）
+     */
+    private int sampleIntervalSeconds = 5;
+
+    /**
+     * 报告输出文件（JSON）
+     */
+    private String reportFile = "loadgen-report.json";
+
+    /**
+     * 随机种子（文件内容）
+     */
+    private long seed = 42;
+
+    /**
+     * 损伤代理配置
+     */
+    private final ImpairmentConfig proxy = new ImpairmentConfig();
+
+    /**
+     * 解析命令行参数
+     *
+     * @param args 命令行参数
+     * @return 配置
+     */
+    public static LoadConfig parse(String[] args) {
+        LoadConfig config = new LoadConfig();
+        for (String arg : args) {
+            if (!arg.startsWith("--")) {
+                throw new IllegalArgumentException("参数格式应为 --名称=值: " + arg);
+            }
+            int eq = arg.indexOf('=');
+            String name = eq > 0 ? arg.substring(2, eq) : arg.substring(2);
+            String value = eq > 0 ? arg.substring(eq + 1) : "true";
+            config.set(name, value);
+        }
+        config.validate();
+        return config;
+    }
+
+    private void set(String name, String value) {
+        switch (name) {
+            case "target": target = value.endsWith("/") ? value.substring(0, value.length() - 1) : value; break;
+            case "users": users = Integer.parseInt(value); break;
+            case "ramp-up": rampUpSeconds = Integer.parseInt(value); break;
+            case "duration": durationSeconds = Integer.parseInt(value); break;
+            case "iterations": iterations = Integer.parseInt(value); break;
+            case "file-size": fileSize = parseSize(value); break;
+            case "chunk-size": chunkSize = parseSize(value); break;
+            case "download": download = Boolean.parseBoolean(value); break;
+            case "cleanup": cleanup = Boolean.parseBoolean(value); break;
+            case "user-prefix": userPrefix = value; break;
+            case "password": password = value; break;
+            case "register": register = Boolean.parseBoolean(value); break;
+            case "max-upload-concurrency": maxUploadConcurrency = Integer.parseInt(value); break;
+            case "max-download-concurrency": maxDownloadConcurrency = Integer.parseInt(value); break;
+            case "initial-cwnd": initialCwnd = parseSize(value); break;
+            case "max-retries": maxRetries = Integer.parseInt(value); break;
+            case "max-retransmits": maxRetransmits = Integer.parseInt(value); break;
+            case "connect-timeout-ms": connectTimeoutMs = Integer.parseInt(value); break;
+            case "read-timeout-ms": readTimeoutMs = Integer.parseInt(value); break;
+            case "sample-interval": sampleIntervalSeconds = Integer.parseInt(value); break;
+            case "report": reportFile = value; break;
+            case "seed": seed = Long.parseLong(value); break;
+            case "proxy-port": proxy.setListenPort(Integer.parseInt(value)); break;
+            case "proxy-delay-ms": proxy.setDelayMs(Integer.parseInt(value)); break;
+            case "proxy-jitter-ms": proxy.setJitterMs(Integer.parseInt(value)); break;
+            case "proxy-loss": proxy.setLossRate(Double.parseDouble(value)); break;
+            case "proxy-rto-ms": proxy.setRtoMs(Integer.parseInt(value)); break;
+            case "proxy-bandwidth": proxy.setBandwidthBytesPerSecond(parseSize(value)); break;
+            case "proxy-shared-bandwidth": proxy.setSharedBandwidth(Boolean.parseBoolean(value)); break;
+            case "proxy-reset": proxy.setResetRate(Double.parseDouble(value)); break;
+            case "proxy": proxy.setForced(Boolean.parseBoolean(value)); break;
+            default:
+                throw new IllegalArgumentException("未知参数: --" + name);
+        }
+    }
+
+    private void validate() {
+        if (users <= 0) {
+            throw new IllegalArgumentException("users 必须大于0");
+        }
+        if (fileSize <= 0 || chunkSize <= 0) {
+            throw new IllegalArgumentException("file-size、chunk-size 必须大于0");
+        }
+        if (chunkSize > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("chunk-size 过大");
+        }
+        if (maxUploadConcurrency <= 0 || maxDownloadConcurrency <= 0) {
+            throw new IllegalArgumentException("并发数必须大于0");
+        }
+        if (durationSeconds <= 0 && iterations <= 0) {
+            throw new IllegalArgumentException("duration 和 iterations 至少指定一个");
+        }
+        proxy.validate();
+    }
+
+    /**
+     * 解析带单位的大小：1024、512KB、5MB、1GB（按1024进制）
+     */
+    static long parseSize(String value) {
+        String v = value.trim().toUpperCase(Locale.ROOT);
+        long unit = 1;
+        if (v.endsWith("GB")) {
+            unit = 1024L * 1024 * 1024;
+        } else if (v.endsWith("MB")) {
+            unit = 1024L * 1024;
+        } else if (v.endsWith("KB")) {
+            unit = 1024L;
+        }
+        if (unit > 1) {
+            v = v.substring(0, v.length() - 2);
+        } else if (v.endsWith("B")) {
+            v = v.substring(0, v.length() - 1);
+        }
+        return Math.round(Double.parseDouble(v.trim()) * unit);
+    }
+
+    /**
+     * 报告中回显的配置
+     */
+    public Map<String, Object> describe() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("target", target);
+        map.put("users", users);
+        map.put("rampUpSeconds", rampUpSeconds);
+        map.put("durationSeconds", durationSeconds);
+        map.put("iterations", iterations);
+        map.put("fileSize", fileSize);
+        map.put("chunkSize", chunkSize);
+        map.put("download", download);
+        map.put("maxUploadConcurrency", maxUploadConcurrency);
+        map.put("maxDownloadConcurrency", maxDownloadConcurrency);
+        map.put("initialCwnd", initialCwnd);
+        map.put("proxy", proxy.isEnabled() ? proxy.describe() : null);
+        return map;
+    }
+
+    public String getTarget() {
+        return target;
+    }
+
+    public int getUsers() {
+        return users;
+    }
+
+    public int getRampUpSeconds() {
+        return rampUpSeconds;
+    }
+
+    public int getDurationSeconds() {
+        return durationSeconds;
+    }
+
+    public int getIterations() {
+        return iterations;
+    }
+
+    public long getFileSize() {
+        return fileSize;
+    }
+
+    public long getChunkSize() {
+        return chunkSize;
+    }
+
+    public boolean isDownload() {
+        return download;
+    }
+
+    public boolean isCleanup() {
+        return cleanup;
+    }
+
+    public String getUserPrefix() {
+        return userPrefix;
+    }
+
+    public String getPassword() {
+        return password;
+    }
+
+    public boolean isRegister() {
+        return register;
+    }
+
+    public int getMaxUploadConcurrency() {
+        return maxUploadConcurrency;
+    }
+
+    public int getMaxDownloadConcurrency() {
+        return maxDownloadConcurrency;
+    }
+
+    public long getInitialCwnd() {
+        return initialCwnd;
+    }
+
+    public int getMaxRetries() {
+        return maxRetries;
+    }
+
+    public int getMaxRetransmits() {
+        return maxRetransmits;
+    }
+
+    public int getConnectTimeoutMs() {
+        return connectTimeoutMs;
+    }
+
+    public int getReadTimeoutMs() {
+        return readTimeoutMs;
+    }
+
+    public int getSampleIntervalSeconds() {
+        return sampleIntervalSeconds;
+    }
+
+    public String getReportFile() {
+        return reportFile;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public ImpairmentConfig getProxy() {
+        return proxy;
+    }
+}
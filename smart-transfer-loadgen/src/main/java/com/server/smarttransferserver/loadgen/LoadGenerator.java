@@ -0,0 +1,148 @@
+package com.server.smarttransferserver.loadgen;
+
+import com.server.smarttransferserver.loadgen.proxy.ImpairmentProxy;
+
+import java.net.URL;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 端到端压测入口
+ * <pre>
+ * java -jar target/loadgen.jar --target=http://127.0.0.1:8081 --users=200 --duration=300 \
+ *      --file-size=20MB --proxy-delay-ms=50 --proxy-jitter-ms=10 --proxy-loss=0.01 --proxy-bandwidth=50MB
+ * </pre>
+ * 启用代理时上传/下载请求经过本进程内的损伤代理，服务端资源采样直连服务端。
+ * 按 Ctrl-C 会停止开始新文件，等进行中的文件结束后仍输出报告
+ */
+public final class LoadGenerator {
+
+    private LoadGenerator() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadConfig config = LoadConfig.parse(args);
+        // HttpURLConnection 的长连接池默认每个目标只保留5条空闲连接，并发分片多时会不断新建连接
+        System.setProperty("http.maxConnections", String.valueOf(
+                config.getUsers() * Math.max(config.getMaxUploadConcurrency(), config.getMaxDownloadConcurrency())));
+
+        URL target = new URL(config.getTarget());
+        String transferBase = config.getTarget();
+        ImpairmentProxy proxy = null;
+        if (config.getProxy().isEnabled()) {
+            int port = target.getPort() > 0 ? target.getPort() : target.getDefaultPort();
+            proxy = new ImpairmentProxy(target.getHost(), port, config.getProxy());
+            int proxyPort = proxy.start();
+            transferBase = "http://127.0.0.1:" + proxyPort;
+            System.out.println("损伤代理已启动 127.0.0.1:" + proxyPort + " -> " + target.getHost() + ":" + port
+                    + " " + config.getProxy().describe());
+        }
+
+        LoadMetrics metrics = new LoadMetrics();
+        PayloadPool payload = new PayloadPool((int) config.getChunkSize(), config.getSeed());
+        ServerResourceSampler sampler = new ServerResourceSampler(
+                new HttpApi(config.getTarget(), config.getConnectTimeoutMs(), config.getReadTimeoutMs()),
+                ServerResourceSampler.DEFAULT_METRICS);
+        ExecutorService chunkExecutor = Executors.newCachedThreadPool(daemonThreads("loadgen-chunk"));
+        ExecutorService userExecutor = Executors.newFixedThreadPool(config.getUsers(), daemonThreads("loadgen-user"));
+        ScheduledExecutorService ticker = Executors.newSingleThreadScheduledExecutor(daemonThreads("loadgen-ticker"));
+
+        AtomicBoolean stop = new AtomicBoolean();
+        CountDownLatch reported = new CountDownLatch(1);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            stop.set(true);
+            try {
+                reported.await(60, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, "loadgen-shutdown"));
+
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.SECONDS.toNanos(config.getDurationSeconds());
+        long rampUpMs = TimeUnit.SECONDS.toMillis(config.getRampUpSeconds());
+        for (int i = 0; i < config.getUsers(); i++) {
+            long startDelay = rampUpMs * i / config.getUsers();
+            userExecutor.execute(new VirtualUser(i, config, metrics, payload, chunkExecutor, transferBase,
+                    startDelay, deadline, stop));
+        }
+        userExecutor.shutdown();
+
+        ProgressPrinter progress = new ProgressPrinter(metrics, sampler, start);
+        int interval = Math.max(1, config.getSampleIntervalSeconds());
+        ticker.scheduleAtFixedRate(progress, interval, interval, TimeUnit.SECONDS);
+
+        while (!userExecutor.awaitTermination(1, TimeUnit.SECONDS)) {
+            // 等所有用户结束（时长到后进行中的文件传完为止）
+        }
+        double elapsedSeconds = (System.nanoTime() - start) / 1e9;
+        ticker.shutdownNow();
+        sampler.sample();
+
+        Map<String, Object> report = LoadReport.build(config, metrics, sampler, proxy, elapsedSeconds);
+        LoadReport.print(report, System.out);
+        LoadReport.write(report, Paths.get(config.getReportFile()));
+        System.out.println();
+        System.out.println("报告已写入 " + Paths.get(config.getReportFile()).toAbsolutePath());
+
+        chunkExecutor.shutdownNow();
+        if (proxy != null) {
+            proxy.close();
+        }
+        reported.countDown();
+    }
+
+    private static ThreadFactory daemonThreads(String prefix) {
+        AtomicInteger seq = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + "-" + seq.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * 周期性采样服务端资源并打印区间吞吐量
+     */
+    private static final class ProgressPrinter implements Runnable {
+        private final LoadMetrics metrics;
+        private final ServerResourceSampler sampler;
+        private final long start;
+        private long lastNanos;
+        private long lastUp;
+        private long lastDown;
+
+        private ProgressPrinter(LoadMetrics metrics, ServerResourceSampler sampler, long start) {
+            this.metrics = metrics;
+            this.sampler = sampler;
+            this.start = start;
+            this.lastNanos = start;
+        }
+
+        @Override
+        public void run() {
+            Map<String, Double> server = sampler.sample();
+            long now = System.nanoTime();
+            long up = metrics.getBytesUploaded();
+            long down = metrics.getBytesDownloaded();
+            double seconds = (now - lastNanos) / 1e9;
+            System.out.printf("[%6.0fs] 活跃用户 %4d  上传 %8.2f MB/s  下载 %8.2f MB/s  完成文件 %6d  失败请求 %6d  CPU %s%n",
+                    (now - start) / 1e9, metrics.getActiveUsers().get(),
+                    LoadReport.rate(up - lastUp, seconds), LoadReport.rate(down - lastDown, seconds),
+                    metrics.getFilesUploaded(), metrics.getFailures(),
+                    server.containsKey("process.cpu.usage")
+                            ? String.format("%.0f%%", server.get("process.cpu.usage") * 100) : "-");
+            lastNanos = now;
+            lastUp = up;
+            lastDown = down;
+        }
+    }
+}
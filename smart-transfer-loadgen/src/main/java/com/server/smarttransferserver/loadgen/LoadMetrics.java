@@ -0,0 +1,206 @@
+package com.server.smarttransferserver.loadgen;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 压测统计
+ * 每类请求一个 HdrHistogram（微秒，3位有效数字），记录成功请求的客户端耗时；失败、限流、重试单独计数。
+ * 所有方法线程安全，由各虚拟用户的分片线程直接写入
+ */
+public class LoadMetrics {
+
+    /**
+     * 请求类型
+     */
+    public enum Op {
+        LOGIN,
+        UPLOAD_INIT,
+        UPLOAD_CHUNK,
+        MERGE,
+        DOWNLOAD_INIT,
+        DOWNLOAD_CHUNK,
+        DOWNLOAD_COMPLETE,
+        DELETE
+    }
+
+    private final Map<Op, OpStats> ops = new EnumMap<>(Op.class);
+
+    /**
+     * 错误分类计数：请求类型 + 错误摘要
+     */
+    private final ConcurrentHashMap<String, LongAdder> errors = new ConcurrentHashMap<>();
+
+    private final LongAdder bytesUploaded = new LongAdder();
+    private final LongAdder bytesDownloaded = new LongAdder();
+    private final LongAdder filesUploaded = new LongAdder();
+    private final LongAdder filesDownloaded = new LongAdder();
+    private final LongAdder filesFailed = new LongAdder();
+    private final LongAdder verifyMismatches = new LongAdder();
+    private final AtomicInteger activeUsers = new AtomicInteger();
+
+    public LoadMetrics() {
+        for (Op op : Op.values()) {
+            ops.put(op, new OpStats());
+        }
+    }
+
+    /**
+     * 记录一次成功请求
+     *
+     * @param op          请求类型
+     * @param latencyNanos 耗时（纳秒）
+     */
+    public void recordSuccess(Op op, long latencyNanos) {
+        OpStats stats = ops.get(op);
+        stats.requests.increment();
+        stats.latency.recordValue(Math.max(1, TimeUnit.NANOSECONDS.toMicros(latencyNanos)));
+    }
+
+    /**
+     * 记录一次失败请求（网络错误、服务端拒绝、HTTP错误）
+     *
+     * @param op     请求类型
+     * @param reason 错误摘要
+     */
+    public void recordFailure(Op op, String reason) {
+        OpStats stats = ops.get(op);
+        stats.requests.increment();
+        stats.failures.increment();
+        errors.computeIfAbsent(op + ": " + reason, k -> new LongAdder()).increment();
+    }
+
+    /**
+     * 记录一次限流（429），不算失败
+     */
+    public void recordThrottled(Op op) {
+        ops.get(op).throttled.increment();
+    }
+
+    /**
+     * 记录一次分片重试或重传
+     */
+    public void recordRetry(Op op) {
+        ops.get(op).retries.increment();
+    }
+
+    public void addUploaded(long bytes) {
+        bytesUploaded.add(bytes);
+    }
+
+    public void addDownloaded(long bytes) {
+        bytesDownloaded.add(bytes);
+    }
+
+    public void fileUploaded() {
+        filesUploaded.increment();
+    }
+
+    public void fileDownloaded() {
+        filesDownloaded.increment();
+    }
+
+    public void fileFailed() {
+        filesFailed.increment();
+    }
+
+    public void verifyMismatch() {
+        verifyMismatches.increment();
+    }
+
+    public AtomicInteger getActiveUsers() {
+        return activeUsers;
+    }
+
+    public long getBytesUploaded() {
+        return bytesUploaded.sum();
+    }
+
+    public long getBytesDownloaded() {
+        return bytesDownloaded.sum();
+    }
+
+    public long getFilesUploaded() {
+        return filesUploaded.sum();
+    }
+
+    public long getFilesDownloaded() {
+        return filesDownloaded.sum();
+    }
+
+    public long getFilesFailed() {
+        return filesFailed.sum();
+    }
+
+    public long getVerifyMismatches() {
+        return verifyMismatches.sum();
+    }
+
+    public long getFailures() {
+        long sum = 0;
+        for (OpStats stats : ops.values()) {
+            sum += stats.failures.sum();
+        }
+        return sum;
+    }
+
+    /**
+     * 各请求类型的统计
+     */
+    public Map<String, Object> opSnapshot() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        for (Map.Entry<Op, OpStats> entry : ops.entrySet()) {
+            OpStats stats = entry.getValue();
+            long requests = stats.requests.sum();
+            if (requests == 0 && stats.throttled.sum() == 0) {
+                continue;
+            }
+            Histogram latency = stats.latency.copy();
+            long failures = stats.failures.sum();
+            Map<String, Object> op = new LinkedHashMap<>();
+            op.put("requests", requests);
+            op.put("failures", failures);
+            op.put("errorRate", requests > 0 ? (double) failures / requests : 0);
+            op.put("throttled", stats.throttled.sum());
+            op.put("retries", stats.retries.sum());
+            op.put("p50Ms", millis(latency.getValueAtPercentile(50)));
+            op.put("p90Ms", millis(latency.getValueAtPercentile(90)));
+            op.put("p99Ms", millis(latency.getValueAtPercentile(99)));
+            op.put("maxMs", millis(latency.getMaxValue()));
+            op.put("meanMs", latency.getTotalCount() > 0 ? latency.getMean() / 1000 : 0);
+            map.put(entry.getKey().name(), op);
+        }
+        return map;
+    }
+
+    /**
+     * 错误分类（按次数降序）
+     */
+    public Map<String, Long> errorSnapshot() {
+        Map<String, Long> map = new LinkedHashMap<>();
+        errors.entrySet().stream()
+                .sorted((a, b) -> Long.compare(b.getValue().sum(), a.getValue().sum()))
+                .forEach(e -> map.put(e.getKey(), e.getValue().sum()));
+        return map;
+    }
+
+    private static double millis(long micros) {
+        return micros / 1000d;
+    }
+
+    private static final class OpStats {
+        private final ConcurrentHistogram latency = new ConcurrentHistogram(3);
+        private final LongAdder requests = new LongAdder();
+        private final LongAdder failures = new LongAdder();
+        private final LongAdder throttled = new LongAdder();
+        private final LongAdder retries = new LongAdder();
+    }
+}
@@ -0,0 +1,137 @@
+package com.server.smarttransferserver.loadgen;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.serializer.SerializerFeature;
+import com.server.smarttransferserver.loadgen.proxy.ImpairmentProxy;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 压测报告
+ * 汇总吞吐量、各类请求的 p50/p90/p99 延迟和错误率、错误分类、服务端资源和代理统计，输出到控制台并写成 JSON
+ */
+public final class LoadReport {
+
+    private static final double MB = 1024d * 1024;
+
+    private LoadReport() {
+    }
+
+    /**
+     * 生成报告
+     *
+     * @param config         压测配置
+     * @param metrics        压测统计
+     * @param sampler        服务端资源采样
+     * @param proxy          损伤代理，未启用时为null
+     * @param elapsedSeconds 压测实际耗时（秒）
+     * @return 报告（有序Map，可直接序列化为JSON）
+     */
+    public static Map<String, Object> build(LoadConfig config, LoadMetrics metrics, ServerResourceSampler sampler,
+                                            ImpairmentProxy proxy, double elapsedSeconds) {
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("config", config.describe());
+        report.put("elapsedSeconds", elapsedSeconds);
+
+        Map<String, Object> throughput = new LinkedHashMap<>();
+        long up = metrics.getBytesUploaded();
+        long down = metrics.getBytesDownloaded();
+        throughput.put("bytesUploaded", up);
+        throughput.put("bytesDownloaded", down);
+        throughput.put("uploadMBps", rate(up, elapsedSeconds));
+        throughput.put("downloadMBps", rate(down, elapsedSeconds));
+        throughput.put("totalMBps", rate(up + down, elapsedSeconds));
+        report.put("throughput", throughput);
+
+        Map<String, Object> files = new LinkedHashMap<>();
+        files.put("uploaded", metrics.getFilesUploaded());
+        files.put("downloaded", metrics.getFilesDownloaded());
+        files.put("failed", metrics.getFilesFailed());
+        files.put("verifyMismatches", metrics.getVerifyMismatches());
+        report.put("files", files);
+
+        report.put("requests", metrics.opSnapshot());
+        report.put("errors", metrics.errorSnapshot());
+        report.put("server", sampler.snapshot());
+        report.put("proxy", proxy != null ? proxy.getStats().snapshot() : null);
+        return report;
+    }
+
+    /**
+     * 输出到控制台
+     */
+    @SuppressWarnings("unchecked")
+    public static void print(Map<String, Object> report, PrintStream out) {
+        Map<String, Object> config = (Map<String, Object>) report.get("config");
+        Map<String, Object> throughput = (Map<String, Object>) report.get("throughput");
+        Map<String, Object> files = (Map<String, Object>) report.get("files");
+
+        out.println();
+        out.println("========== 压测结果 ==========");
+        out.printf("耗时 %.1fs，用户 %s，文件 %s 字节，分片 %s 字节%n",
+                (Double) report.get("elapsedSeconds"), config.get("users"), config.get("fileSize"), config.get("chunkSize"));
+        out.printf("吞吐量：上传 %.2f MB/s，下载 %.2f MB/s，合计 %.2f MB/s%n",
+                throughput.get("uploadMBps"), throughput.get("downloadMBps"), throughput.get("totalMBps"));
+        out.printf("文件：上传完成 %s，下载完成 %s，失败 %s，校验不一致分块 %s%n",
+                files.get("uploaded"), files.get("downloaded"), files.get("failed"), files.get("verifyMismatches"));
+
+        out.println();
+        out.printf("%-18s %9s %8s %8s %8s %8s %10s %10s %10s %10s%n",
+                "请求", "次数", "失败", "失败率", "限流", "重试", "p50(ms)", "p90(ms)", "p99(ms)", "max(ms)");
+        Map<String, Object> requests = (Map<String, Object>) report.get("requests");
+        for (Map.Entry<String, Object> entry : requests.entrySet()) {
+            Map<String, Object> op = (Map<String, Object>) entry.getValue();
+            out.printf("%-18s %9d %8d %7.2f%% %8d %8d %10.1f %10.1f %10.1f %10.1f%n",
+                    entry.getKey(), op.get("requests"), op.get("failures"), (Double) op.get("errorRate") * 100,
+                    op.get("throttled"), op.get("retries"),
+                    op.get("p50Ms"), op.get("p90Ms"), op.get("p99Ms"), op.get("maxMs"));
+        }
+
+        Map<String, Long> errors = (Map<String, Long>) report.get("errors");
+        if (!errors.isEmpty()) {
+            out.println();
+            out.println("错误分类（前10）：");
+            errors.entrySet().stream().limit(10)
+                    .forEach(e -> out.printf("  %8d  %s%n", e.getValue(), e.getKey()));
+        }
+
+        Map<String, Object> server = (Map<String, Object>) report.get("server");
+        if (!server.isEmpty()) {
+            out.println();
+            out.printf("%-30s %14s %14s %14s%n", "服务端指标", "min", "avg", "max");
+            for (Map.Entry<String, Object> entry : server.entrySet()) {
+                Map<String, Object> item = (Map<String, Object>) entry.getValue();
+                out.printf("%-30s %14.3f %14.3f %14.3f%n",
+                        entry.getKey(), item.get("min"), item.get("avg"), item.get("max"));
+            }
+        }
+
+        Object proxy = report.get("proxy");
+        if (proxy != null) {
+            out.println();
+            out.println("损伤代理：" + JSON.toJSONString(proxy));
+        }
+    }
+
+    /**
+     * 写成 JSON 文件
+     */
+    public static void write(Map<String, Object> report, Path path) throws IOException {
+        Path parent = path.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        Files.write(path, JSON.toJSONString(report, SerializerFeature.PrettyFormat,
+                SerializerFeature.WriteMapNullValue).getBytes(StandardCharsets.UTF_8));
+    }
+
+    static double rate(long bytes, double seconds) {
+        return seconds > 0 ? bytes / MB / seconds : 0;
+    }
+}
@@ -0,0 +1,149 @@
+package com.server.smarttransferserver.loadgen;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Random;
+
+/**
+ * 测试文件内容
+ * 启动时生成几块分片大小的随机数据，文件的第 i 个分片 = 16字节标记（文件随机数 + 分片序号）+ 第 (随机数 + i) 块的其余部分。
+ * 每个文件、每个分片的内容都不同，不会命中秒传和内容寻址去重；分片内容不落盘也不常驻内存，发送时直接写进请求体
+ */
+public class PayloadPool {
+
+    private static final int BLOCKS = 8;
+    private static final int STAMP_BYTES = 16;
+
+    private final byte[][] blocks;
+    private final int chunkSize;
+
+    public PayloadPool(int chunkSize, long seed) {
+        this.chunkSize = chunkSize;
+        this.blocks = new byte[BLOCKS][chunkSize];
+        Random random = new Random(seed);
+        for (byte[] block : blocks) {
+            random.nextBytes(block);
+        }
+    }
+
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    /**
+     * 生成文件描述，计算整文件和各分片的MD5
+     *
+     * @param nonce    文件随机数
+     * @param fileSize 文件大小
+     * @return 文件描述
+     */
+    public FileSpec newFile(long nonce, long fileSize) {
+        int chunks = (int) ((fileSize + chunkSize - 1) / chunkSize);
+        String[] chunkMd5 = new String[chunks];
+        MessageDigest fileDigest = md5();
+        MessageDigest chunkDigest = md5();
+        for (int i = 0; i < chunks; i++) {
+            int length = chunkLength(fileSize, i);
+            byte[] stamp = stamp(nonce, i);
+            byte[] block = block(nonce, i);
+            int stampLength = Math.min(STAMP_BYTES, length);
+            fileDigest.update(stamp, 0, stampLength);
+            chunkDigest.update(stamp, 0, stampLength);
+            if (length > STAMP_BYTES) {
+                fileDigest.update(block, STAMP_BYTES, length - STAMP_BYTES);
+                chunkDigest.update(block, STAMP_BYTES, length - STAMP_BYTES);
+            }
+            chunkMd5[i] = hex(chunkDigest.digest());
+        }
+        return new FileSpec(nonce, fileSize, chunkSize, chunkMd5, hex(fileDigest.digest()));
+    }
+
+    /**
+     * 把文件的一个分片写到输出流
+     */
+    public void writeChunk(OutputStream out, FileSpec file, int chunkNumber) throws IOException {
+        int length = file.chunkLength(chunkNumber);
+        out.write(stamp(file.getNonce(), chunkNumber), 0, Math.min(STAMP_BYTES, length));
+        if (length > STAMP_BYTES) {
+            out.write(block(file.getNonce(), chunkNumber), STAMP_BYTES, length - STAMP_BYTES);
+        }
+    }
+
+    private int chunkLength(long fileSize, int chunkNumber) {
+        return (int) Math.min(chunkSize, fileSize - (long) chunkNumber * chunkSize);
+    }
+
+    private byte[] block(long nonce, int chunkNumber) {
+        return blocks[(int) Math.floorMod(nonce + chunkNumber, (long) BLOCKS)];
+    }
+
+    private static byte[] stamp(long nonce, int chunkNumber) {
+        return ByteBuffer.allocate(STAMP_BYTES).putLong(nonce).putLong(chunkNumber).array();
+    }
+
+    static MessageDigest md5() {
+        try {
+            return MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    static String hex(byte[] digest) {
+        StringBuilder sb = new StringBuilder(digest.length * 2);
+        for (byte b : digest) {
+            sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * 一个测试文件
+     */
+    public static class FileSpec {
+        private final long nonce;
+        private final long size;
+        private final int chunkSize;
+        private final String[] chunkMd5;
+        private final String md5;
+
+        FileSpec(long nonce, long size, int chunkSize, String[] chunkMd5, String md5) {
+            this.nonce = nonce;
+            this.size = size;
+            this.chunkSize = chunkSize;
+            this.chunkMd5 = chunkMd5;
+            this.md5 = md5;
+        }
+
+        public long getNonce() {
+            return nonce;
+        }
+
+        public long getSize() {
+            return size;
+        }
+
+        public int getChunkSize() {
+            return chunkSize;
+        }
+
+        public int getTotalChunks() {
+            return chunkMd5.length;
+        }
+
+        public String getChunkMd5(int chunkNumber) {
+            return chunkMd5[chunkNumber];
+        }
+
+        public String getMd5() {
+            return md5;
+        }
+
+        public int chunkLength(int chunkNumber) {
+            return (int) Math.min(chunkSize, size - (long) chunkNumber * chunkSize);
+        }
+    }
+}
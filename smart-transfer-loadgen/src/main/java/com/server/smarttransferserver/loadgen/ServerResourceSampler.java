@@ -0,0 +1,133 @@
+package com.server.smarttransferserver.loadgen;
+
+import com.alibaba.fastjson.JSONArray;
+import com.alibaba.fastjson.JSONObject;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 服务端资源采样
+ * 周期性读取 Actuator 的 /actuator/metrics/{name}（直连服务端，不经过损伤代理），统计每项指标的最小/平均/最大/最后值。
+ * 服务端没有的指标（返回404）只提示一次，之后不再请求
+ */
+public class ServerResourceSampler {
+
+    /**
+     * 默认采样的指标
+     */
+    public static final String[] DEFAULT_METRICS = {
+            "process.cpu.usage",
+            "system.cpu.usage",
+            "system.load.average.1m",
+            "jvm.memory.used",
+            "jvm.threads.live",
+            "jvm.gc.pause",
+            "hikaricp.connections.active",
+            "tomcat.threads.busy"
+    };
+
+    private final HttpApi api;
+    private final String[] names;
+    private final Map<String, Summary> summaries = new LinkedHashMap<>();
+    private final Set<String> unavailable = ConcurrentHashMap.newKeySet();
+
+    public ServerResourceSampler(HttpApi api, String... names) {
+        this.api = api;
+        this.names = names;
+        for (String name : names) {
+            summaries.put(name, new Summary());
+        }
+    }
+
+    /**
+     * 采样一次
+     *
+     * @return 本次各指标的值（取不到的指标不在结果中）
+     */
+    public synchronized Map<String, Double> sample() {
+        Map<String, Double> values = new LinkedHashMap<>();
+        for (String name : names) {
+            if (unavailable.contains(name)) {
+                continue;
+            }
+            try {
+                Double value = valueOf(api.getJson("/actuator/metrics/" + name));
+                if (value != null) {
+                    summaries.get(name).add(value);
+                    values.put(name, value);
+                }
+            } catch (ApiException e) {
+                if (e.getHttpStatus() == 404) {
+                    unavailable.add(name);
+                    System.err.println("服务端没有指标 " + name + "，不再采样");
+                }
+            } catch (IOException e) {
+                System.err.println("采样 " + name + " 失败: " + e.getMessage());
+            }
+        }
+        return values;
+    }
+
+    /**
+     * 指标汇总
+     */
+    public synchronized Map<String, Object> snapshot() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        for (Map.Entry<String, Summary> entry : summaries.entrySet()) {
+            Summary summary = entry.getValue();
+            if (summary.count == 0) {
+                continue;
+            }
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("samples", summary.count);
+            item.put("min", summary.min);
+            item.put("avg", summary.sum / summary.count);
+            item.put("max", summary.max);
+            item.put("last", summary.last);
+            map.put(entry.getKey(), item);
+        }
+        return map;
+    }
+
+    /**
+     * 取 VALUE 统计量；计时类指标（如 jvm.gc.pause）取 TOTAL_TIME
+     */
+    private static Double valueOf(JSONObject metric) {
+        JSONArray measurements = metric.getJSONArray("measurements");
+        if (measurements == null || measurements.isEmpty()) {
+            return null;
+        }
+        Double fallback = null;
+        for (int i = 0; i < measurements.size(); i++) {
+            JSONObject m = measurements.getJSONObject(i);
+            String statistic = m.getString("statistic");
+            if ("VALUE".equals(statistic) || "TOTAL_TIME".equals(statistic)) {
+                return m.getDouble("value");
+            }
+            if (fallback == null) {
+                fallback = m.getDouble("value");
+            }
+        }
+        return fallback;
+    }
+
+    private static final class Summary {
+        private long count;
+        private double sum;
+        private double min = Double.MAX_VALUE;
+        private double max = -Double.MAX_VALUE;
+        private double last;
+
+        private void add(double value) {
+            count++;
+            sum += value;
+            min = Math.min(min, value);
+            max = Math.max(max, value);
+            last = value;
+        }
+    }
+}
@@ -0,0 +1,385 @@
+package com.server.smarttransferserver.loadgen;
+
+import com.alibaba.fastjson.JSONArray;
+import com.alibaba.fastjson.JSONObject;
+import com.server.smarttransferserver.loadgen.LoadMetrics.Op;
+import com.server.smarttransferserver.loadgen.PayloadPool.FileSpec;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 虚拟用户
+ * 登录（不存在时注册）后循环：上传初始化 → 按拥塞窗口并发上传分片 → 合并 → 下载初始化 → 并发下载分块并逐块校验MD5 → 下载完成 → 删除文件，
+ * 直到压测时长或轮数用完。分片请求携带上一分片的客户端RTT和重试次数，网络错误按 1s、2s、4s 退避重试，429 按服务端给出的时间等待后重发
+ */
+public class VirtualUser implements Runnable {
+
+    /**
+     * JSON 接口遇到429时最多等待几次
+     */
+    private static final int MAX_THROTTLE_WAITS = 20;
+
+    private final int index;
+    private final String username;
+    private final LoadConfig config;
+    private final LoadMetrics metrics;
+    private final PayloadPool payload;
+    private final ExecutorService chunkExecutor;
+    private final HttpApi api;
+    private final long startDelayMs;
+    private final long deadlineNanos;
+    private final AtomicBoolean stop;
+    private final Random random;
+
+    public VirtualUser(int index, LoadConfig config, LoadMetrics metrics, PayloadPool payload,
+                       ExecutorService chunkExecutor, String baseUrl, long startDelayMs, long deadlineNanos,
+                       AtomicBoolean stop) {
+        this.index = index;
+        this.username = config.getUserPrefix() + index;
+        this.config = config;
+        this.metrics = metrics;
+        this.payload = payload;
+        this.chunkExecutor = chunkExecutor;
+        this.api = new HttpApi(baseUrl, config.getConnectTimeoutMs(), config.getReadTimeoutMs());
+        this.startDelayMs = startDelayMs;
+        this.deadlineNanos = deadlineNanos;
+        this.stop = stop;
+        this.random = new Random(config.getSeed() * 31 + index);
+    }
+
+    @Override
+    public void run() {
+        try {
+            Thread.sleep(startDelayMs);
+            if (!login()) {
+                return;
+            }
+            metrics.getActiveUsers().incrementAndGet();
+            try {
+                for (int iteration = 0; shouldContinue(iteration); iteration++) {
+                    runIteration(iteration);
+                }
+            } finally {
+                metrics.getActiveUsers().decrementAndGet();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private boolean shouldContinue(int iteration) {
+        if (stop.get() || Thread.currentThread().isInterrupted()) {
+            return false;
+        }
+        if (config.getIterations() > 0 && iteration >= config.getIterations()) {
+            return false;
+        }
+        return config.getDurationSeconds() <= 0 || System.nanoTime() < deadlineNanos;
+    }
+
+    private void runIteration(int iteration) throws InterruptedException {
+        FileSpec file = payload.newFile(random.nextLong(), config.getFileSize());
+        Long fileId = null;
+        try {
+            fileId = upload(file, "loadgen-" + username + "-" + iteration + ".bin");
+            if (fileId == null) {
+                metrics.fileFailed();
+                return;
+            }
+            metrics.fileUploaded();
+            if (config.isDownload()) {
+                if (download(fileId, file)) {
+                    metrics.fileDownloaded();
+                } else {
+                    metrics.fileFailed();
+                }
+            }
+        } catch (IOException | ApiException e) {
+            // 单次 JSON 接口失败已计入错误统计，本轮放弃
+            metrics.fileFailed();
+        } finally {
+            if (fileId != null && config.isCleanup()) {
+                long id = fileId;
+                try {
+                    timed(Op.DELETE, () -> api.call("DELETE", "/file/" + id, null));
+                } catch (IOException | ApiException ignored) {
+                    // 清理失败已计入错误统计
+                }
+            }
+        }
+    }
+
+    /**
+     * 登录，失败且允许注册时先注册再登录
+     */
+    private boolean login() throws InterruptedException {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("username", username);
+        body.put("password", config.getPassword());
+        try {
+            try {
+                api.setToken(timed(Op.LOGIN, () -> api.postData("/user/login", body)).getString("token"));
+                return true;
+            } catch (ApiException e) {
+                if (!config.isRegister()) {
+                    throw e;
+                }
+            }
+            Map<String, Object> register = new LinkedHashMap<>(body);
+            register.put("confirmPassword", config.getPassword());
+            register.put("nickname", username);
+            try {
+                api.call("POST", "/user/register", register);
+            } catch (ApiException e) {
+                // 已存在等情况，交给下面的登录判断
+            }
+            api.setToken(timed(Op.LOGIN, () -> api.postData("/user/login", body)).getString("token"));
+            return true;
+        } catch (IOException | ApiException e) {
+            System.err.println("用户 " + username + " 登录失败: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * 上传一个文件
+     *
+     * @return 文件ID，失败返回null
+     */
+    private Long upload(FileSpec file, String fileName) throws IOException, InterruptedException {
+        Map<String, Object> init = new LinkedHashMap<>();
+        init.put("fileName", fileName);
+        init.put("fileSize", file.getSize());
+        init.put("fileHash", file.getMd5());
+        init.put("chunkSize", (long) file.getChunkSize());
+        init.put("totalChunks", file.getTotalChunks());
+        JSONObject initVo = timed(Op.UPLOAD_INIT, () -> api.postData("/file/upload/init", init));
+        long fileId = initVo.getLongValue("fileId");
+        if (Boolean.TRUE.equals(initVo.getBoolean("skipUpload"))) {
+            return fileId;
+        }
+
+        Set<Integer> uploaded = toSet(initVo.getJSONArray("uploaded"));
+        List<Integer> pending = new ArrayList<>();
+        for (int i = 0; i < file.getTotalChunks(); i++) {
+            if (!uploaded.contains(i)) {
+                pending.add(i);
+            }
+        }
+        ChunkWindow window = new ChunkWindow(chunkExecutor, file.getChunkSize(), config.getMaxUploadConcurrency(),
+                config.getInitialCwnd(), config.getMaxRetransmits(), metrics, Op.UPLOAD_CHUNK);
+        ChunkWindow.ChunkSender sender = (chunkNumber, lastRtt, lastRetry) -> sendWithRetries(Op.UPLOAD_CHUNK, chunkNumber, () -> {
+            int length = file.chunkLength(chunkNumber);
+            JSONObject vo = api.uploadChunk(fileId, chunkNumber, file.getChunkMd5(chunkNumber), lastRtt, lastRetry,
+                    length, out -> payload.writeChunk(out, file, chunkNumber));
+            ChunkWindow.ChunkResult result = new ChunkWindow.ChunkResult();
+            result.success = vo != null && Boolean.TRUE.equals(vo.getBoolean("success"));
+            result.cwnd = vo == null ? 0 : vo.getLongValue("cwnd");
+            result.message = vo == null ? "空响应" : vo.getString("message");
+            if (result.success) {
+                metrics.addUploaded(length);
+            }
+            return result;
+        });
+        if (!window.run(pending, sender)) {
+            cancelUpload(fileId);
+            return null;
+        }
+
+        // 合并；服务端校验出坏分片时重传这些分片后再合并一次
+        for (int attempt = 0; attempt < 2; attempt++) {
+            Map<String, Object> merge = new LinkedHashMap<>();
+            merge.put("fileId", fileId);
+            merge.put("fileHash", file.getMd5());
+            JSONObject mergeVo = timed(Op.MERGE, () -> api.postData("/file/merge", merge));
+            if (Boolean.TRUE.equals(mergeVo.getBoolean("success"))) {
+                Long mergedId = mergeVo.getLong("fileId");
+                return mergedId != null ? mergedId : fileId;
+            }
+            Set<Integer> retry = toSet(mergeVo.getJSONArray("retryChunks"));
+            if (retry.isEmpty() || !window.run(retry, sender)) {
+                metrics.recordFailure(Op.MERGE, "success=false " + summarize(mergeVo.getString("message")));
+                cancelUpload(fileId);
+                return null;
+            }
+        }
+        cancelUpload(fileId);
+        return null;
+    }
+
+    /**
+     * 放弃上传，删除服务端的临时分片（尽力而为）
+     */
+    private void cancelUpload(long fileId) {
+        if (!config.isCleanup()) {
+            return;
+        }
+        try {
+            api.call("DELETE", "/file/upload/" + fileId, null);
+        } catch (IOException | ApiException ignored) {
+            // 残留分片由服务端的清理任务处理
+        }
+    }
+
+    /**
+     * 下载文件并逐块校验
+     *
+     * @return 是否全部下载成功
+     */
+    private boolean download(long fileId, FileSpec file) throws IOException, InterruptedException {
+        JSONObject init = timed(Op.DOWNLOAD_INIT,
+                () -> api.getData("/file/download/init/" + fileId + "?chunkSize=" + file.getChunkSize()));
+        int totalChunks = init.getIntValue("totalChunks");
+        long chunkSize = init.getLongValue("chunkSize");
+        long fileSize = init.getLongValue("fileSize");
+        String taskId = init.getString("taskId");
+        // 分块边界与上传一致时才能按上传时的分片MD5校验
+        boolean verify = chunkSize == file.getChunkSize() && fileSize == file.getSize();
+
+        Set<Integer> downloaded = toSet(init.getJSONArray("downloaded"));
+        List<Integer> pending = new ArrayList<>();
+        for (int i = 0; i < totalChunks; i++) {
+            if (!downloaded.contains(i)) {
+                pending.add(i);
+            }
+        }
+        ChunkWindow window = new ChunkWindow(chunkExecutor, chunkSize, config.getMaxDownloadConcurrency(),
+                config.getInitialCwnd(), config.getMaxRetransmits(), metrics, Op.DOWNLOAD_CHUNK);
+        boolean ok = window.run(pending, (chunkNumber, lastRtt, lastRetry) -> sendWithRetries(Op.DOWNLOAD_CHUNK, chunkNumber, () -> {
+            long startByte = chunkNumber * chunkSize;
+            long endByte = Math.min(startByte + chunkSize - 1, fileSize - 1);
+            HttpApi.DownloadedChunk chunk = api.downloadChunk(fileId, chunkNumber, startByte, endByte, lastRtt, lastRetry);
+            ChunkWindow.ChunkResult result = new ChunkWindow.ChunkResult();
+            result.success = chunk.success;
+            result.cwnd = chunk.cwnd;
+            result.message = chunk.message;
+            if (chunk.success && verify && !file.getChunkMd5(chunkNumber).equals(chunk.md5)) {
+                metrics.verifyMismatch();
+                result.success = false;
+                result.message = "分块MD5不一致";
+            }
+            if (result.success) {
+                metrics.addDownloaded(chunk.bytes);
+            }
+            return result;
+        }));
+        if (!ok) {
+            return false;
+        }
+        if (taskId != null) {
+            timed(Op.DOWNLOAD_COMPLETE, () -> api.call("POST", "/file/download/complete/" + taskId, null));
+        }
+        return true;
+    }
+
+    /**
+     * 发送一个分片：网络错误按 2^n 秒退避重试，429 按服务端建议等待后重发（不计入重试次数）
+     */
+    private ChunkWindow.ChunkResult sendWithRetries(Op op, int chunkNumber, ChunkCall call)
+            throws IOException, InterruptedException {
+        IOException lastError = null;
+        int throttles = 0;
+        for (int attempt = 0; attempt <= config.getMaxRetries(); attempt++) {
+            long start = System.nanoTime();
+            try {
+                ChunkWindow.ChunkResult result = call.invoke();
+                long elapsed = System.nanoTime() - start;
+                result.chunkNumber = chunkNumber;
+                result.clientRttMs = TimeUnit.NANOSECONDS.toMillis(elapsed);
+                result.retryCount = attempt;
+                if (result.success) {
+                    metrics.recordSuccess(op, elapsed);
+                } else {
+                    metrics.recordFailure(op, "success=false " + summarize(result.message));
+                }
+                return result;
+            } catch (ApiException e) {
+                if (e.isThrottled() && throttles++ < MAX_THROTTLE_WAITS) {
+                    metrics.recordThrottled(op);
+                    Thread.sleep(e.getRetryAfterMs());
+                    attempt--;
+                    continue;
+                }
+                // 服务端错误按 success=false 处理，由窗口决定是否重传
+                metrics.recordFailure(op, e.summary());
+                ChunkWindow.ChunkResult result = new ChunkWindow.ChunkResult();
+                result.chunkNumber = chunkNumber;
+                result.message = e.getMessage();
+                return result;
+            } catch (IOException e) {
+                lastError = e;
+                metrics.recordFailure(op, e.getClass().getSimpleName() + " " + summarize(e.getMessage()));
+                if (attempt < config.getMaxRetries()) {
+                    metrics.recordRetry(op);
+                    Thread.sleep(TimeUnit.SECONDS.toMillis(1L << attempt));
+                }
+            }
+        }
+        throw lastError;
+    }
+
+    /**
+     * 调用 JSON 接口并计时；429 时等待后重发
+     */
+    private <T> T timed(Op op, JsonCall<T> call) throws IOException, InterruptedException {
+        for (int throttles = 0; ; throttles++) {
+            long start = System.nanoTime();
+            try {
+                T value = call.invoke();
+                metrics.recordSuccess(op, System.nanoTime() - start);
+                return value;
+            } catch (ApiException e) {
+                if (e.isThrottled() && throttles < MAX_THROTTLE_WAITS) {
+                    metrics.recordThrottled(op);
+                    Thread.sleep(e.getRetryAfterMs());
+                    continue;
+                }
+                metrics.recordFailure(op, e.summary());
+                throw e;
+            } catch (IOException e) {
+                metrics.recordFailure(op, e.getClass().getSimpleName() + " " + summarize(e.getMessage()));
+                throw e;
+            }
+        }
+    }
+
+    private static Set<Integer> toSet(JSONArray array) {
+        Set<Integer> set = new HashSet<>();
+        if (array != null) {
+            for (int i = 0; i < array.size(); i++) {
+                set.add(array.getInteger(i));
+            }
+        }
+        return set;
+    }
+
+    private static String summarize(String message) {
+        if (message == null) {
+            return "";
+        }
+        String text = message.replaceAll("\\d+", "#");
+        return text.length() > 80 ? text.substring(0, 80) : text;
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    private interface ChunkCall {
+        ChunkWindow.ChunkResult invoke() throws IOException;
+    }
+
+    private interface JsonCall<T> {
+        T invoke() throws IOException;
+    }
+}
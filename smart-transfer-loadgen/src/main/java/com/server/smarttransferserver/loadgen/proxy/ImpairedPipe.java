@@ -0,0 +1,196 @@
+package com.server.smarttransferserver.loadgen.proxy;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 一条连接一个方向上的损伤转发
+ * 读线程把收到的字节切成数据段，按 时延 + 抖动（丢包再加一个RTO）算出放行时刻后入队；
+ * 写线程按放行时刻、带宽限速依次写出。放行时刻单调不减，字节流保持有序，丢包的段会阻塞其后的段，和 TCP 重传的表现一致。
+ * 队列有界，写不出去时读线程阻塞，发送方自然受到 TCP 流控
+ */
+class ImpairedPipe {
+
+    /**
+     * 每次读取的最大字节数
+     */
+    private static final int SEGMENT_BYTES = 16 * 1024;
+
+    /**
+     * 丢包按以太网 MSS 折算：一个数据段含多个包，任意一个丢失该段即推迟一个RTO
+     */
+    private static final int MSS = 1460;
+
+    /**
+     * 每个方向最多缓冲的数据段数（约1MB）
+     */
+    private static final int QUEUE_SEGMENTS = 64;
+
+    /**
+     * 转发线程栈大小，连接多时线程数是连接数的4倍
+     */
+    private static final long THREAD_STACK_BYTES = 256 * 1024;
+
+    private static final Segment EOF = new Segment(new byte[0], 0, false);
+
+    private final Socket source;
+    private final Socket sink;
+    private final ImpairmentConfig config;
+    private final LinkPacer pacer;
+    private final ImpairmentProxy.Stats stats;
+    private final boolean upstream;
+    private final Runnable onFinish;
+    private final BlockingQueue<Segment> queue = new ArrayBlockingQueue<>(QUEUE_SEGMENTS);
+
+    private Thread reader;
+    private volatile boolean dead;
+    private long lastReleaseNanos;
+
+    /**
+     * @param source   读取端
+     * @param sink     写出端
+     * @param config   损伤参数
+     * @param pacer    带宽限速，null表示不限
+     * @param stats    代理统计
+     * @param upstream 是否为客户端到服务端方向
+     * @param onFinish 本方向结束（正常关闭或出错）时回调
+     */
+    ImpairedPipe(Socket source, Socket sink, ImpairmentConfig config, LinkPacer pacer,
+                 ImpairmentProxy.Stats stats, boolean upstream, Runnable onFinish) {
+        this.source = source;
+        this.sink = sink;
+        this.config = config;
+        this.pacer = pacer;
+        this.stats = stats;
+        this.upstream = upstream;
+        this.onFinish = onFinish;
+    }
+
+    void start(String name) {
+        reader = new Thread(null, this::readLoop, name + "-r", THREAD_STACK_BYTES);
+        Thread writer = new Thread(null, this::writeLoop, name + "-w", THREAD_STACK_BYTES);
+        reader.setDaemon(true);
+        writer.setDaemon(true);
+        reader.start();
+        writer.start();
+    }
+
+    private void readLoop() {
+        byte[] buffer = new byte[SEGMENT_BYTES];
+        try {
+            InputStream in = source.getInputStream();
+            int n;
+            while (!dead && (n = in.read(buffer)) > 0) {
+                queue.put(schedule(Arrays.copyOf(buffer, n)));
+            }
+        } catch (IOException | InterruptedException e) {
+            // 连接已关闭或写线程已退出
+        } finally {
+            if (!dead) {
+                try {
+                    queue.put(EOF);
+                } catch (InterruptedException ignored) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+
+    /**
+     * 计算数据段的放行时刻
+     */
+    private Segment schedule(byte[] data) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long delayNanos = TimeUnit.MILLISECONDS.toNanos(config.getDelayMs());
+        if (config.getJitterMs() > 0) {
+            delayNanos += TimeUnit.MILLISECONDS.toNanos(random.nextInt(-config.getJitterMs(), config.getJitterMs() + 1));
+        }
+        if (config.getLossRate() > 0) {
+            int packets = (data.length + MSS - 1) / MSS;
+            double segmentLoss = 1 - Math.pow(1 - config.getLossRate(), packets);
+            if (random.nextDouble() < segmentLoss) {
+                delayNanos += TimeUnit.MILLISECONDS.toNanos(config.effectiveRtoMs());
+                stats.lostSegments.increment();
+            }
+        }
+        boolean reset = config.getResetRate() > 0 && random.nextDouble() < config.getResetRate();
+        long release = Math.max(lastReleaseNanos, System.nanoTime() + Math.max(0, delayNanos));
+        lastReleaseNanos = release;
+        return new Segment(data, release, reset);
+    }
+
+    private void writeLoop() {
+        try {
+            OutputStream out = sink.getOutputStream();
+            while (true) {
+                Segment segment = queue.take();
+                if (segment == EOF) {
+                    if (!sink.isClosed()) {
+                        sink.shutdownOutput();
+                    }
+                    return;
+                }
+                LinkPacer.sleepUntil(segment.releaseNanos);
+                if (pacer != null) {
+                    pacer.pace(segment.data.length);
+                }
+                if (segment.reset) {
+                    stats.resets.increment();
+                    reset();
+                    return;
+                }
+                out.write(segment.data);
+                (upstream ? stats.bytesUp : stats.bytesDown).add(segment.data.length);
+            }
+        } catch (IOException | InterruptedException e) {
+            closeQuietly(source);
+            closeQuietly(sink);
+        } finally {
+            dead = true;
+            queue.clear();
+            reader.interrupt();
+            onFinish.run();
+        }
+    }
+
+    /**
+     * 以 RST 关闭两端
+     */
+    private void reset() {
+        for (Socket socket : new Socket[]{source, sink}) {
+            try {
+                socket.setSoLinger(true, 0);
+            } catch (IOException ignored) {
+                // 已关闭
+            }
+            closeQuietly(socket);
+        }
+    }
+
+    static void closeQuietly(Socket socket) {
+        try {
+            socket.close();
+        } catch (IOException ignored) {
+            // 关闭失败不影响转发统计
+        }
+    }
+
+    private static final class Segment {
+        private final byte[] data;
+        private final long releaseNanos;
+        private final boolean reset;
+
+        private Segment(byte[] data, long releaseNanos, boolean reset) {
+            this.data = data;
+            this.releaseNanos = releaseNanos;
+            this.reset = reset;
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package com.server.smarttransferserver.loadgen.proxy;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 网络损伤参数（两个方向相同）
+ * 代理转发的是 TCP 字节流，不能真的丢弃字节，丢包按 TCP 的表现模拟：
+ * 被"丢弃"的数据段推迟一个重传超时（RTO）再发出，且后面的数据段不能越过它（队头阻塞）
+ */
+public class ImpairmentConfig {
+
+    /**
+     * 代理监听端口，0表示随机端口
+     */
+    private int listenPort;
+
+    /**
+     * 单向传播时延（毫秒），往返时延为其两倍
+     */
+    private int delayMs;
+
+    /**
+     * 时延抖动（毫秒），每个数据段在 [-jitter, +jitter] 内均匀取值；为保持字节流有序，不会让后发的段先到
+     */
+    private int jitterMs;
+
+    /**
+     * 数据段丢包率（0~1）
+     */
+    private double lossRate;
+
+    /**
+     * 丢包后的重传超时（毫秒），不大于0时取 max(200, 4 × 单向时延)，与 Linux 最小RTO 200ms 一致
+     */
+    private int rtoMs;
+
+    /**
+     * 每个方向的带宽上限（字节/秒），0表示不限
+     */
+    private long bandwidthBytesPerSecond;
+
+    /**
+     * 带宽是否所有连接共享（一条共同的瓶颈链路）；false 时每条连接单独限速
+     */
+    private boolean sharedBandwidth = true;
+
+    /**
+     * 每个数据段触发连接重置（RST）的概率（0~1），用于模拟中途断连
+     */
+    private double resetRate;
+
+    /**
+     * 所有损伤参数为0时也启用代理（只做转发，用于对比代理本身的开销）
+     */
+    private boolean forced;
+
+    /**
+     * 是否启用代理
+     */
+    public boolean isEnabled() {
+        return forced || delayMs > 0 || jitterMs > 0 || lossRate > 0 || bandwidthBytesPerSecond > 0 || resetRate > 0;
+    }
+
+    /**
+     * 实际使用的重传超时（毫秒）
+     */
+    public int effectiveRtoMs() {
+        return rtoMs > 0 ? rtoMs : Math.max(200, 4 * delayMs);
+    }
+
+    public void validate() {
+        if (delayMs < 0 || jitterMs < 0) {
+            throw new IllegalArgumentException("proxy-delay-ms、proxy-jitter-ms 不能为负数");
+        }
+        if (lossRate < 0 || lossRate >= 1 || resetRate < 0 || resetRate >= 1) {
+            throw new IllegalArgumentException("proxy-loss、proxy-reset 必须在 [0, 1) 内");
+        }
+        if (bandwidthBytesPerSecond < 0) {
+            throw new IllegalArgumentException("proxy-bandwidth 不能为负数");
+        }
+    }
+
+    public Map<String, Object> describe() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("delayMs", delayMs);
+        map.put("jitterMs", jitterMs);
+        map.put("lossRate", lossRate);
+        map.put("rtoMs", effectiveRtoMs());
+        map.put("bandwidthBytesPerSecond", bandwidthBytesPerSecond);
+        map.put("sharedBandwidth", sharedBandwidth);
+        map.put("resetRate", resetRate);
+        return map;
+    }
+
+    public int getListenPort() {
+        return listenPort;
+    }
+
+    public void setListenPort(int listenPort) {
+        this.listenPort = listenPort;
+    }
+
+    public int getDelayMs() {
+        return delayMs;
+    }
+
+    public void setDelayMs(int delayMs) {
+        this.delayMs = delayMs;
+    }
+
+    public int getJitterMs() {
+        return jitterMs;
+    }
+
+    public void setJitterMs(int jitterMs) {
+        this.jitterMs = jitterMs;
+    }
+
+    public double getLossRate() {
+        return lossRate;
+    }
+
+    public void setLossRate(double lossRate) {
+        this.lossRate = lossRate;
+    }
+
+    public int getRtoMs() {
+        return rtoMs;
+    }
+
+    public void setRtoMs(int rtoMs) {
+        this.rtoMs = rtoMs;
+    }
+
+    public long getBandwidthBytesPerSecond() {
+        return bandwidthBytesPerSecond;
+    }
+
+    public void setBandwidthBytesPerSecond(long bandwidthBytesPerSecond) {
+        this.bandwidthBytesPerSecond = bandwidthBytesPerSecond;
+    }
+
+    public boolean isSharedBandwidth() {
+        return sharedBandwidth;
+    }
+
+    public void setSharedBandwidth(boolean sharedBandwidth) {
+        this.sharedBandwidth = sharedBandwidth;
+    }
+
+    public double getResetRate() {
+        return resetRate;
+    }
+
+    public void setResetRate(double resetRate) {
+        this.resetRate = resetRate;
+    }
+
+    public boolean isForced() {
+        return forced;
+    }
+
+    public void setForced(boolean forced) {
+        this.forced = forced;
+    }
+}
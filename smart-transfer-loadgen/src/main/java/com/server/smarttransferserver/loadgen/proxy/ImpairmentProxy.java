@@ -0,0 +1,151 @@
+package com.server.smarttransferserver.loadgen.proxy;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 进程内 TCP 损伤代理
+ * 在本机监听一个端口，把每条连接转发到服务端，两个方向分别注入时延、抖动、丢包（按RTO推迟）、带宽限制和连接重置，
+ * 作用和 Clumsy/netem 相同，但不需要 root 权限，也不影响机器上的其他流量。
+ * 共享带宽时所有连接的同一方向共用一个 {@link LinkPacer}，相当于客户端和服务端之间的一条瓶颈链路
+ */
+public class ImpairmentProxy implements Closeable {
+
+    private final String upstreamHost;
+    private final int upstreamPort;
+    private final ImpairmentConfig config;
+    private final LinkPacer sharedUp;
+    private final LinkPacer sharedDown;
+    private final Stats stats = new Stats();
+    private final AtomicInteger connectionSeq = new AtomicInteger();
+
+    private ServerSocket serverSocket;
+    private volatile boolean closed;
+
+    public ImpairmentProxy(String upstreamHost, int upstreamPort, ImpairmentConfig config) {
+        this.upstreamHost = upstreamHost;
+        this.upstreamPort = upstreamPort;
+        this.config = config;
+        boolean shared = config.isSharedBandwidth() && config.getBandwidthBytesPerSecond() > 0;
+        this.sharedUp = shared ? new LinkPacer(config.getBandwidthBytesPerSecond()) : null;
+        this.sharedDown = shared ? new LinkPacer(config.getBandwidthBytesPerSecond()) : null;
+    }
+
+    /**
+     * 开始监听
+     *
+     * @return 实际监听端口
+     * @throws IOException 端口绑定失败
+     */
+    public int start() throws IOException {
+        serverSocket = new ServerSocket();
+        serverSocket.setReuseAddress(true);
+        serverSocket.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), config.getListenPort()), 1024);
+        Thread acceptor = new Thread(this::acceptLoop, "impairment-proxy-accept");
+        acceptor.setDaemon(true);
+        acceptor.start();
+        return serverSocket.getLocalPort();
+    }
+
+    private void acceptLoop() {
+        while (!closed) {
+            Socket client;
+            try {
+                client = serverSocket.accept();
+            } catch (IOException e) {
+                if (!closed) {
+                    System.err.println("代理 accept 失败: " + e.getMessage());
+                }
+                continue;
+            }
+            try {
+                open(client);
+            } catch (IOException e) {
+                stats.connectFailures.increment();
+                ImpairedPipe.closeQuietly(client);
+            }
+        }
+    }
+
+    private void open(Socket client) throws IOException {
+        Socket server = new Socket();
+        server.connect(new InetSocketAddress(upstreamHost, upstreamPort), 10000);
+        for (Socket socket : new Socket[]{client, server}) {
+            configure(socket);
+        }
+        stats.connections.increment();
+        stats.active.incrementAndGet();
+
+        // 两个方向都结束后关闭两端
+        AtomicInteger remaining = new AtomicInteger(2);
+        Runnable onFinish = () -> {
+            if (remaining.decrementAndGet() == 0) {
+                ImpairedPipe.closeQuietly(client);
+                ImpairedPipe.closeQuietly(server);
+                stats.active.decrementAndGet();
+            }
+        };
+
+        long bandwidth = config.getBandwidthBytesPerSecond();
+        LinkPacer up = sharedUp != null ? sharedUp : (bandwidth > 0 ? new LinkPacer(bandwidth) : null);
+        LinkPacer down = sharedDown != null ? sharedDown : (bandwidth > 0 ? new LinkPacer(bandwidth) : null);
+        String name = "impairment-proxy-" + connectionSeq.incrementAndGet();
+        new ImpairedPipe(client, server, config, up, stats, true, onFinish).start(name + "-up");
+        new ImpairedPipe(server, client, config, down, stats, false, onFinish).start(name + "-down");
+    }
+
+    private static void configure(Socket socket) throws SocketException {
+        socket.setTcpNoDelay(true);
+        socket.setKeepAlive(true);
+    }
+
+    public Stats getStats() {
+        return stats;
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        if (serverSocket != null) {
+            try {
+                serverSocket.close();
+            } catch (IOException ignored) {
+                // 已关闭
+            }
+        }
+    }
+
+    /**
+     * 代理统计
+     */
+    public static class Stats {
+        final LongAdder connections = new LongAdder();
+        final LongAdder connectFailures = new LongAdder();
+        final AtomicInteger active = new AtomicInteger();
+        final LongAdder bytesUp = new LongAdder();
+        final LongAdder bytesDown = new LongAdder();
+        final LongAdder lostSegments = new LongAdder();
+        final LongAdder resets = new LongAdder();
+
+        public Map<String, Object> snapshot() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("connections", connections.sum());
+            map.put("connectFailures", connectFailures.sum());
+            map.put("activeConnections", active.get());
+            map.put("bytesUp", bytesUp.sum());
+            map.put("bytesDown", bytesDown.sum());
+            map.put("lostSegments", lostSegments.sum());
+            map.put("resets", resets.sum());
+            return map;
+        }
+    }
+}
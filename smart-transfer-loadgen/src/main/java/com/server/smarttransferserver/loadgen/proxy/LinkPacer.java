@@ -0,0 +1,45 @@
+package com.server.smarttransferserver.loadgen.proxy;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 带宽限速（串行链路模型）
+ * 链路记录"下一次空闲时刻"，每个数据段占用 字节数/速率 的发送时间，调用方睡到该段发完为止；
+ * 允许积攒最多 burst 时长的空闲额度，多个连接共享同一实例即为一条共同的瓶颈链路
+ */
+public class LinkPacer {
+
+    private static final long BURST_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+    private final double nanosPerByte;
+
+    private long nextFreeNanos = System.nanoTime();
+
+    public LinkPacer(long bytesPerSecond) {
+        this.nanosPerByte = 1_000_000_000d / bytesPerSecond;
+    }
+
+    /**
+     * 占用链路发送 bytes 字节，阻塞到发送完成
+     *
+     * @param bytes 字节数
+     * @throws InterruptedException 被中断
+     */
+    public void pace(int bytes) throws InterruptedException {
+        long finish;
+        synchronized (this) {
+            long now = System.nanoTime();
+            long start = Math.max(nextFreeNanos, now - BURST_NANOS);
+            finish = start + (long) (bytes * nanosPerByte);
+            nextFreeNanos = finish;
+        }
+        sleepUntil(finish);
+    }
+
+    static void sleepUntil(long deadlineNanos) throws InterruptedException {
+        long remaining = deadlineNanos - System.nanoTime();
+        if (remaining > 0) {
+            TimeUnit.NANOSECONDS.sleep(remaining);
+        }
+    }
+}
@@ -0,0 +1,39 @@
+/*
+ 已有库升级：file_info 增加分片位图列（新建库直接执行 sql/smart_transfer.sql 即可，无需本脚本）
+ 可重复执行：列已存在时跳过
+
+ 执行：mysql -u root -p smart_transfer < sql/migrations/001_file_info_chunk_bitmap.sql
+
+ 升级前已开始、尚未合并的上传没有 total_chunks，需要重新上传；
+ 分片写入日志（chunks.journal）保存在临时分片目录下，不涉及数据库
+*/
+
+SET NAMES utf8mb4;
+
+-- file_info.total_chunks
+SET @ddl = IF((SELECT COUNT(*) FROM information_schema.COLUMNS
+               WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'file_info' AND COLUMN_NAME = 'total_chunks') = 0,
+    'ALTER TABLE `file_info` ADD COLUMN `total_chunks` int NULL DEFAULT NULL COMMENT ''总分片数'' AFTER `upload_status`',
+    'DO 0');
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+-- file_info.chunk_size
+SET @ddl = IF((SELECT COUNT(*) FROM information_schema.COLUMNS
+               WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'file_info' AND COLUMN_NAME = 'chunk_size') = 0,
+    'ALTER TABLE `file_info` ADD COLUMN `chunk_size` bigint NULL DEFAULT NULL COMMENT ''分片大小（字节）'' AFTER `total_chunks`',
+    'DO 0');
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+-- file_info.chunk_bitmap
+SET @ddl = IF((SELECT COUNT(*) FROM information_schema.COLUMNS
+               WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'file_info' AND COLUMN_NAME = 'chunk_bitmap') = 0,
+    'ALTER TABLE `file_info` ADD COLUMN `chunk_bitmap` blob NULL COMMENT ''分片上传位图（每个分片1位，位序同Redis SETBIT）'' AFTER `chunk_size`',
+    'DO 0');
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
@@ -0,0 +1,17 @@
+/*
+ 已有库升级：file_info 增加完整性校验算法列（新建库直接执行 sql/smart_transfer.sql 即可，无需本脚本）
+ 可重复执行：列已存在时跳过；已有记录按默认值视为 MD5
+
+ 执行：mysql -u root -p smart_transfer < sql/migrations/002_file_info_hash_algorithm.sql
+*/
+
+SET NAMES utf8mb4;
+
+-- file_info.hash_algorithm
+SET @ddl = IF((SELECT COUNT(*) FROM information_schema.COLUMNS
+               WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'file_info' AND COLUMN_NAME = 'hash_algorithm') = 0,
+    'ALTER TABLE `file_info` ADD COLUMN `hash_algorithm` varchar(20) NULL DEFAULT ''MD5'' COMMENT ''完整性校验算法：MD5/SHA256_TREE'' AFTER `file_hash`',
+    'DO 0');
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
@@ -0,0 +1,20 @@
+/*
+ 已有库升级：新增内容寻址存储引用计数表（新建库直接执行 sql/smart_transfer.sql 即可，无需本脚本）
+ 可重复执行：表已存在时跳过
+
+ 执行：mysql -u root -p smart_transfer < sql/migrations/003_blob_ref.sql
+
+ 升级前按用户目录存放的文件路径不变，不需要迁移数据：
+ 复制或跨用户秒传引用这些文件时才以硬链接收入 blobs/ 并在本表登记
+*/
+
+SET NAMES utf8mb4;
+
+CREATE TABLE IF NOT EXISTS `blob_ref`  (
+  `blob_hash` varchar(64) NOT NULL COMMENT '内容哈希（小写，对应 blobs/ab/cd/{hash}）',
+  `file_size` bigint NULL DEFAULT NULL COMMENT '内容大小（字节）',
+  `ref_count` int NOT NULL DEFAULT 0 COMMENT '引用该内容的文件记录数，减到0时删除物理文件',
+  `create_time` datetime NULL DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
+  `update_time` datetime NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
+  PRIMARY KEY (`blob_hash`) USING BTREE
+) ENGINE = InnoDB CHARACTER SET = utf8mb4 COMMENT = '内容寻址存储引用计数表' ROW_FORMAT = Dynamic;
@@ -0,0 +1,53 @@
+/*
+ 已有库升级：congestion_metrics 增加降采样窗口统计列（新建库直接执行 sql/smart_transfer.sql 即可，无需本脚本）
+ 可重复执行：列已存在时跳过；新增列均可为空，升级前写入的逐样本记录保持为空
+
+ 执行：mysql -u root -p smart_transfer < sql/migrations/004_congestion_metrics_downsample.sql
+*/
+
+SET NAMES utf8mb4;
+
+-- congestion_metrics.cwnd_min
+SET @ddl = IF((SELECT COUNT(*) FROM information_schema.COLUMNS
+               WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'congestion_metrics' AND COLUMN_NAME = 'cwnd_min') = 0,
+    'ALTER TABLE `congestion_metrics` ADD COLUMN `cwnd_min` bigint NULL DEFAULT NULL COMMENT ''降采样窗口内最小拥塞窗口（字节）'' AFTER `loss_rate`',
+    'DO 0');
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+-- congestion_metrics.cwnd_max
+SET @ddl = IF((SELECT COUNT(*) FROM information_schema.COLUMNS
+               WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'congestion_metrics' AND COLUMN_NAME = 'cwnd_max') = 0,
+    'ALTER TABLE `congestion_metrics` ADD COLUMN `cwnd_max` bigint NULL DEFAULT NULL COMMENT ''降采样窗口内最大拥塞窗口（字节）'' AFTER `cwnd_min`',
+    'DO 0');
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+-- congestion_metrics.rtt_min
+SET @ddl = IF((SELECT COUNT(*) FROM information_schema.COLUMNS
+               WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'congestion_metrics' AND COLUMN_NAME = 'rtt_min') = 0,
+    'ALTER TABLE `congestion_metrics` ADD COLUMN `rtt_min` bigint NULL DEFAULT NULL COMMENT ''降采样窗口内最小RTT（毫秒）'' AFTER `cwnd_max`',
+    'DO 0');
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+-- congestion_metrics.rtt_max
+SET @ddl = IF((SELECT COUNT(*) FROM information_schema.COLUMNS
+               WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'congestion_metrics' AND COLUMN_NAME = 'rtt_max') = 0,
+    'ALTER TABLE `congestion_metrics` ADD COLUMN `rtt_max` bigint NULL DEFAULT NULL COMMENT ''降采样窗口内最大RTT（毫秒）'' AFTER `rtt_min`',
+    'DO 0');
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+-- congestion_metrics.sample_count
+SET @ddl = IF((SELECT COUNT(*) FROM information_schema.COLUMNS
+               WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'congestion_metrics' AND COLUMN_NAME = 'sample_count') = 0,
+    'ALTER TABLE `congestion_metrics` ADD COLUMN `sample_count` int NULL DEFAULT NULL COMMENT ''降采样窗口内样本数（其余指标为窗口内最后一个样本）'' AFTER `rtt_max`',
+    'DO 0');
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
@@ -17,6 +17,19 @@
 SET NAMES utf8mb4;
 SET FOREIGN_KEY_CHECKS = 0;
 
+-- ----------------------------
+-- Table structure for blob_ref
+-- ----------------------------
+DROP TABLE IF EXISTS `blob_ref`;
+CREATE TABLE `blob_ref`  (
+  `blob_hash` varchar(64) CHARACTER SET utf8mb4 COLLATE utf8mb4_0900_ai_ci NOT NULL COMMENT '内容哈希（小写，对应 blobs/ab/cd/{hash}）',
+  `file_size` bigint NULL DEFAULT NULL COMMENT '内容大小（字节）',
+  `ref_count` int NOT NULL DEFAULT 0 COMMENT '引用该内容的文件记录数，减到0时删除物理文件',
+  `create_time` datetime NULL DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
+  `update_time` datetime NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
+  PRIMARY KEY (`blob_hash`) USING BTREE
+) ENGINE = InnoDB CHARACTER SET = utf8mb4 COLLATE = utf8mb4_0900_ai_ci COMMENT = '内容寻址存储引用计数表' ROW_FORMAT = Dynamic;
+
 -- ----------------------------
 -- Table structure for congestion_metrics
 -- ----------------------------
@@ -30,6 +43,11 @@ CREATE TABLE `congestion_metrics`  (
   `rtt` bigint NULL DEFAULT NULL COMMENT 'RTT往返时延（毫秒）',
   `bandwidth` bigint NULL DEFAULT NULL COMMENT '带宽（字节/秒）',
   `loss_rate` decimal(5, 2) NULL DEFAULT NULL COMMENT '丢包率（百分比）',
+  `cwnd_min` bigint NULL DEFAULT NULL COMMENT '降采样窗口内最小拥塞窗口（字节）',
+  `cwnd_max` bigint NULL DEFAULT NULL COMMENT '降采样窗口内最大拥塞窗口（字节）',
+  `rtt_min` bigint NULL DEFAULT NULL COMMENT '降采样窗口内最小RTT（毫秒）',
+  `rtt_max` bigint NULL DEFAULT NULL COMMENT '降采样窗口内最大RTT（毫秒）',
+  `sample_count` int NULL DEFAULT NULL COMMENT '降采样窗口内样本数（其余指标为窗口内最后一个样本）',
   `record_time` datetime NULL DEFAULT CURRENT_TIMESTAMP COMMENT '记录时间',
   PRIMARY KEY (`id`) USING BTREE,
   INDEX `idx_task_id`(`task_id` ASC) USING BTREE,
@@ -46,7 +64,7 @@ CREATE TABLE `file_chunk`  (
   `file_id` bigint NOT NULL COMMENT '文件ID',
   `chunk_number` int NOT NULL COMMENT '分片序号（从0开始）',
   `chunk_size` bigint NOT NULL COMMENT '分片大小（字节）',
-  `chunk_hash` varchar(64) CHARACTER SET utf8mb4 COLLATE utf8mb4_0900_ai_ci NULL DEFAULT NULL COMMENT '分片哈希值',
+  `chunk_hash` varchar(64) CHARACTER SET utf8mb4 COLLATE utf8mb4_0900_ai_ci NULL DEFAULT NULL COMMENT '分片哈希值（服务端写入时计算的MD5，合并时批量写入）',
   `upload_status` varchar(20) CHARACTER SET utf8mb4 COLLATE utf8mb4_0900_ai_ci NULL DEFAULT 'PENDING' COMMENT '上传状态：PENDING-待上传 UPLOADING-上传中 COMPLETED-已完成',
   `create_time` datetime NULL DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
   PRIMARY KEY (`id`) USING BTREE,
@@ -66,10 +84,14 @@ CREATE TABLE `file_info`  (
   `file_name` varchar(255) CHARACTER SET utf8mb4 COLLATE utf8mb4_0900_ai_ci NOT NULL COMMENT '文件名',
   `extend_name` varchar(50) CHARACTER SET utf8mb4 COLLATE utf8mb4_0900_ai_ci NULL DEFAULT NULL COMMENT '文件扩展名',
   `file_size` bigint NOT NULL COMMENT '文件大小（字节）',
-  `file_hash` varchar(64) CHARACTER SET utf8mb4 COLLATE utf8mb4_0900_ai_ci NOT NULL COMMENT '文件哈希值（MD5/SHA256）',
+  `file_hash` varchar(64) CHARACTER SET utf8mb4 COLLATE utf8mb4_0900_ai_ci NOT NULL COMMENT '文件哈希值（MD5，或 SHA256_TREE 的树根哈希）',
+  `hash_algorithm` varchar(20) CHARACTER SET utf8mb4 COLLATE utf8mb4_0900_ai_ci NULL DEFAULT 'MD5' COMMENT '完整性校验算法：MD5/SHA256_TREE',
   `file_path` varchar(500) CHARACTER SET utf8mb4 COLLATE utf8mb4_0900_ai_ci NOT NULL COMMENT '文件存储路径',
   `is_dir` tinyint(1) NULL DEFAULT 0 COMMENT '是否目录（0文件 1目录）',
   `upload_status` varchar(20) CHARACTER SET utf8mb4 COLLATE utf8mb4_0900_ai_ci NULL DEFAULT 'PENDING' COMMENT '上传状态：PENDING-待上传 UPLOADING-上传中 COMPLETED-已完成',
+  `total_chunks` int NULL DEFAULT NULL COMMENT '总分片数',
+  `chunk_size` bigint NULL DEFAULT NULL COMMENT '分片大小（字节）',
+  `chunk_bitmap` blob NULL COMMENT '分片上传位图（每个分片1位，位序同Redis SETBIT）',
   `del_flag` tinyint(1) NULL DEFAULT 0 COMMENT '删除标志（0正常 1已删除）',
   `create_time` datetime NULL DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
   `update_time` datetime NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
@@ -0,0 +1,23 @@
+package com.server.smarttransferserver.common;
+
+import lombok.Getter;
+
+/**
+ * 带宽超限异常
+ * 分片需要等待的时间超过允许的排队时长时抛出，由 GlobalExceptionHandler 转换为 429 + Retry-After
+ */
+@Getter
+public class BandwidthLimitExceededException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * 建议客户端等待的毫秒数
+     */
+    private final long retryAfterMillis;
+
+    public BandwidthLimitExceededException(String message, long retryAfterMillis) {
+        super(message);
+        this.retryAfterMillis = retryAfterMillis;
+    }
+}
@@ -1,6 +1,10 @@
 package com.server.smarttransferserver.common;
 
+import com.server.smarttransferserver.common.enums.ResultCode;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
 import org.springframework.web.multipart.MultipartException;
@@ -29,6 +33,23 @@ public class GlobalExceptionHandler {
         return Result.error("文件大小超过限制，头像最大支持5MB");
     }
     
+    /**
+     * 处理带宽超限异常
+     * 返回 429，Retry-After 为秒（向上取整），X-Retry-After-Ms 为精确的毫秒数
+     *
+     * @param e 异常对象
+     * @return 429响应
+     */
+    @ExceptionHandler(BandwidthLimitExceededException.class)
+    public ResponseEntity<Result<String>> handleBandwidthLimitExceededException(BandwidthLimitExceededException e) {
+        long retryAfterMs = Math.max(1L, e.getRetryAfterMillis());
+        log.debug("带宽超限: {}, 建议等待: {}ms", e.getMessage(), retryAfterMs);
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf((retryAfterMs + 999) / 1000))
+                .header("X-Retry-After-Ms", String.valueOf(retryAfterMs))
+                .body(Result.error(ResultCode.TOO_MANY_REQUESTS.getCode(), e.getMessage()));
+    }
+
     /**
      * 处理文件上传时的连接中断异常
      * 当客户端取消上传时，连接会被关闭，导致EOFException或MultipartException
@@ -0,0 +1,40 @@
+package com.server.smarttransferserver.common.enums;
+
+/**
+ * 合并任务状态
+ * QUEUED -> VERIFYING -> MERGING -> DONE，任一阶段失败进入 FAILED；常量按该顺序声明
+ */
+public enum MergeJobState {
+
+    /**
+     * 排队中
+     */
+    QUEUED,
+
+    /**
+     * 校验中（完成增量MD5，必要时全量校验）
+     */
+    VERIFYING,
+
+    /**
+     * 合并中（移动预分配文件或拼接分片）
+     */
+    MERGING,
+
+    /**
+     * 已完成
+     */
+    DONE,
+
+    /**
+     * 失败（含需要重传分片的情况，详见合并结果）
+     */
+    FAILED;
+
+    /**
+     * 是否已结束
+     */
+    public boolean isFinished() {
+        return this == DONE || this == FAILED;
+    }
+}
@@ -36,6 +36,11 @@ public enum ResultCode {
      */
     NOT_FOUND(404, "资源不存在"),
 
+    /**
+     * 请求过于频繁（带宽超限）
+     */
+    TOO_MANY_REQUESTS(429, "带宽已达上限，请稍后重试"),
+
     /**
      * 文件不存在
      */
@@ -0,0 +1,17 @@
+package com.server.smarttransferserver.common.enums;
+
+/**
+ * 传输方向
+ */
+public enum TransferDirection {
+
+    /**
+     * 上传（服务端入流量）
+     */
+    UPLOAD,
+
+    /**
+     * 下载（服务端出流量）
+     */
+    DOWNLOAD
+}
@@ -0,0 +1,143 @@
+package com.server.smarttransferserver.config;
+
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.server.smarttransferserver.common.enums.TransferDirection;
+import com.server.smarttransferserver.entity.SystemConfig;
+import com.server.smarttransferserver.mapper.SystemConfigMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 分级带宽限制配置管理
+ * 配置保存在 system_config 表（bandwidth. 前缀），管理员修改后刷新；速率单位均为字节/秒，0 表示不限：
+ * 1. bandwidth.enabled：是否启用
+ * 2. bandwidth.upload.global-ceiling / bandwidth.download.global-ceiling：全局上传/下载上限
+ * 3. bandwidth.role.{角色}.weight / .ceiling：角色权重和上限
+ * 4. bandwidth.user.default-weight / default-ceiling：用户默认权重和上限
+ * 5. bandwidth.user.{用户ID}.weight / .ceiling：单个用户的权重和上限（覆盖默认值）
+ * 6. bandwidth.task.ceiling：单个任务上限
+ * 7. bandwidth.max-delay-ms：允许的排队时长，超过则返回429
+ */
+@Slf4j
+@Component
+public class BandwidthLimitConfig {
+
+    public static final String PREFIX = "bandwidth.";
+
+    @Autowired
+    private SystemConfigMapper configMapper;
+
+    /**
+     * 当前配置（整体替换，读取无需加锁）
+     */
+    private volatile Map<String, String> values = Collections.emptyMap();
+
+    /**
+     * 初始化时从数据库加载配置
+     */
+    @PostConstruct
+    public void init() {
+        loadFromDatabase();
+        log.info("分级带宽限制配置已初始化 - 启用: {}", isEnabled());
+    }
+
+    /**
+     * 从数据库加载配置
+     */
+    public void loadFromDatabase() {
+        try {
+            QueryWrapper<SystemConfig> queryWrapper = new QueryWrapper<>();
+            queryWrapper.likeRight("config_key", PREFIX);
+            List<SystemConfig> configs = configMapper.selectList(queryWrapper);
+            Map<String, String> loaded = new HashMap<>();
+            for (SystemConfig sc : configs) {
+                if (sc.getConfigValue() != null && !sc.getConfigValue().isEmpty()) {
+                    loaded.put(sc.getConfigKey().substring(PREFIX.length()), sc.getConfigValue().trim());
+                }
+            }
+            values = loaded;
+            log.info("从数据库加载分级带宽限制配置 - 配置项数: {}", loaded.size());
+        } catch (Exception e) {
+            log.error("加载分级带宽限制配置失败，保留原配置", e);
+        }
+    }
+
+    /**
+     * 刷新配置（API更新后调用）
+     */
+    public void refresh() {
+        loadFromDatabase();
+        log.info("分级带宽限制配置已刷新");
+    }
+
+    /**
+     * 当前配置（键不含 bandwidth. 前缀）
+     */
+    public Map<String, String> getAll() {
+        return new TreeMap<>(values);
+    }
+
+    public boolean isEnabled() {
+        return Boolean.parseBoolean(values.getOrDefault("enabled", "false"));
+    }
+
+    public long getGlobalCeiling(TransferDirection direction) {
+        return getLong(direction.name().toLowerCase() + ".global-ceiling", 0L);
+    }
+
+    public double getRoleWeight(String role) {
+        return getDouble("role." + role + ".weight", 1.0);
+    }
+
+    public long getRoleCeiling(String role) {
+        return getLong("role." + role + ".ceiling", 0L);
+    }
+
+    public double getUserWeight(Long userId) {
+        return getDouble("user." + userId + ".weight", getDouble("user.default-weight", 1.0));
+    }
+
+    public long getUserCeiling(Long userId) {
+        return getLong("user." + userId + ".ceiling", getLong("user.default-ceiling", 0L));
+    }
+
+    public long getTaskCeiling() {
+        return getLong("task.ceiling", 0L);
+    }
+
+    public long getMaxDelayMs() {
+        return getLong("max-delay-ms", 200L);
+    }
+
+    private long getLong(String key, long defaultValue) {
+        String value = values.get(key);
+        if (value != null) {
+            try {
+                return Long.parseLong(value);
+            } catch (NumberFormatException e) {
+                log.warn("配置值格式错误 - key: {}{}, value: {}", PREFIX, key, value);
+            }
+        }
+        return defaultValue;
+    }
+
+    private double getDouble(String key, double defaultValue) {
+        String value = values.get(key);
+        if (value != null) {
+            try {
+                return Double.parseDouble(value);
+            } catch (NumberFormatException e) {
+                log.warn("配置值格式错误 - key: {}{}, value: {}", PREFIX, key, value);
+            }
+        }
+        return defaultValue;
+    }
+}
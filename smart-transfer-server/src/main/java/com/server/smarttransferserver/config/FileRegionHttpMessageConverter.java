@@ -0,0 +1,129 @@
+package com.server.smarttransferserver.config;
+
+import com.server.smarttransferserver.util.FileRegion;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import javax.servlet.http.HttpServletRequest;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * 文件区间响应体转换器
+ * 1. Tomcat 支持 sendfile 时（NIO 连接器、非 TLS）只设置 sendfile 请求属性，
+ *    由 Tomcat 在请求处理结束后用 sendfile 系统调用从文件直接写入 socket
+ * 2. 否则用 FileChannel.transferTo 写入响应输出流
+ * 3. 区间设置了发送速率控制时不使用 sendfile，按 64KB 分段 transferTo，每段写出前先申请令牌；
+ *    限速等待期间占用当前请求线程，同时限速的写出达到上限时（Pacer.tryBegin 返回 false）按 1、2 不限速写出
+ * 都不在堆上缓冲整个分块
+ */
+@Slf4j
+public class FileRegionHttpMessageConverter extends AbstractHttpMessageConverter<FileRegion> {
+
+    private static final String SENDFILE_SUPPORT_ATTR = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME_ATTR = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START_ATTR = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END_ATTR = "org.apache.tomcat.sendfile.end";
+
+    /** 限速时每段写出的字节数 */
+    private static final long PACED_SLICE_BYTES = 64 * 1024;
+
+    private final boolean sendfileEnabled;
+
+    public FileRegionHttpMessageConverter(boolean sendfileEnabled) {
+        super(MediaType.APPLICATION_OCTET_STREAM, MediaType.ALL);
+        this.sendfileEnabled = sendfileEnabled;
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return FileRegion.class.isAssignableFrom(clazz);
+    }
+
+    @Override
+    protected boolean canRead(MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    protected FileRegion readInternal(Class<? extends FileRegion> clazz, HttpInputMessage inputMessage) {
+        throw new HttpMessageNotReadableException("不支持读取文件区间", inputMessage);
+    }
+
+    @Override
+    protected MediaType getDefaultContentType(FileRegion region) {
+        return MediaType.APPLICATION_OCTET_STREAM;
+    }
+
+    @Override
+    protected Long getContentLength(FileRegion region, MediaType contentType) {
+        return region.getCount();
+    }
+
+    @Override
+    protected void writeInternal(FileRegion region, HttpOutputMessage outputMessage) throws IOException {
+        // 必须在响应提交（写出响应头）之前设置，Tomcat 在提交时决定是否使用 sendfile
+        HttpServletRequest request = currentRequest();
+        FileRegion.Pacer pacer = region.getPacer();
+        if (pacer != null && !pacer.tryBegin()) {
+            pacer = null;
+        }
+        try {
+            write(region, pacer, request, outputMessage);
+        } finally {
+            if (pacer != null) {
+                pacer.end();
+            }
+        }
+    }
+
+    private void write(FileRegion region, FileRegion.Pacer pacer, HttpServletRequest request,
+                       HttpOutputMessage outputMessage) throws IOException {
+        if (pacer == null && sendfileEnabled && request != null && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT_ATTR))) {
+            request.setAttribute(SENDFILE_FILENAME_ATTR, region.getPath().toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_START_ATTR, region.getPosition());
+            request.setAttribute(SENDFILE_END_ATTR, region.getPosition() + region.getCount());
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(region.getPath(), StandardOpenOption.READ)) {
+            OutputStream body = outputMessage.getBody();
+            WritableByteChannel target = Channels.newChannel(body);
+            long position = region.getPosition();
+            long remaining = region.getCount();
+            while (remaining > 0) {
+                long slice = remaining;
+                if (pacer != null) {
+                    slice = Math.min(remaining, PACED_SLICE_BYTES);
+                    pacer.acquire(slice);
+                }
+                long sliceEnd = position + slice;
+                while (position < sliceEnd) {
+                    long transferred = channel.transferTo(position, sliceEnd - position, target);
+                    if (transferred <= 0) {
+                        long missing = remaining - slice + (sliceEnd - position);
+                        throw new IOException("文件读取不完整 - 位置: " + position + ", 缺失: " + missing + "字节");
+                    }
+                    position += transferred;
+                }
+                remaining -= slice;
+            }
+        }
+    }
+
+    private static HttpServletRequest currentRequest() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        return attributes instanceof ServletRequestAttributes
+                ? ((ServletRequestAttributes) attributes).getRequest() : null;
+    }
+}
@@ -0,0 +1,77 @@
+package com.server.smarttransferserver.config;
+
+import com.server.smarttransferserver.util.ChunkBitmap;
+import com.server.smarttransferserver.util.MysqlDdlTranslator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.BeanInitializationException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StreamUtils;
+
+import javax.sql.DataSource;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.List;
+
+/**
+ * perf 环境的内存库建表
+ * 数据源创建后、任何 Mapper 使用之前（不少服务在 @PostConstruct 中就会查库），
+ * 把 MySQL 建表脚本转换成 H2 语句执行，并注册位图运算函数 BITMAP_OR/BITMAP_AND
+ */
+@Slf4j
+@Component
+@Profile("perf")
+public class PerfSchemaInitializer implements BeanPostProcessor {
+
+    /**
+     * 建表脚本位置（默认从 smart-transfer-server 目录启动时的相对路径）
+     */
+    @Value("${transfer.perf.schema-location:file:sql/smart_transfer.sql}")
+    private String schemaLocation;
+
+    private boolean initialized;
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (bean instanceof DataSource && !initialized) {
+            initialized = true;
+            initialize((DataSource) bean);
+        }
+        return bean;
+    }
+
+    private void initialize(DataSource dataSource) {
+        long start = System.currentTimeMillis();
+        Resource resource = new DefaultResourceLoader().getResource(schemaLocation);
+        String sql = null;
+        try (InputStream in = resource.getInputStream();
+             Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement()) {
+            String script = StreamUtils.copyToString(in, StandardCharsets.UTF_8);
+            List<String> statements = MysqlDdlTranslator.toH2(script);
+            for (String each : statements) {
+                sql = each;
+                statement.execute(sql);
+            }
+            sql = createAlias("BITMAP_OR", "or");
+            statement.execute(sql);
+            sql = createAlias("BITMAP_AND", "and");
+            statement.execute(sql);
+            log.info("perf 内存库建表完成 - 脚本: {}, 语句数: {}, 耗时: {}ms",
+                    schemaLocation, statements.size(), System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            throw new BeanInitializationException("perf 内存库建表失败 - 脚本: " + schemaLocation
+                    + (sql != null ? ", 语句: " + sql : ""), e);
+        }
+    }
+
+    private static String createAlias(String name, String method) {
+        return "CREATE ALIAS IF NOT EXISTS " + name + " FOR \"" + ChunkBitmap.class.getName() + "." + method + "\"";
+    }
+}
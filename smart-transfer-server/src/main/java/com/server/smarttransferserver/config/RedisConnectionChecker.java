@@ -4,15 +4,17 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.boot.ApplicationArguments;
 import org.springframework.boot.ApplicationRunner;
+import org.springframework.context.annotation.Profile;
 import org.springframework.data.redis.connection.RedisConnection;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.stereotype.Component;
 
 /**
  * Redis 连接检查器
- * 在应用启动时检查 Redis 连接，如果连接失败则终止程序
+ * 在应用启动时检查 Redis 连接，如果连接失败则终止程序（perf 环境不连接 Redis，不检查）
  */
 @Component
+@Profile("!perf")
 public class RedisConnectionChecker implements ApplicationRunner {
     
     private static final Logger log = LoggerFactory.getLogger(RedisConnectionChecker.class);
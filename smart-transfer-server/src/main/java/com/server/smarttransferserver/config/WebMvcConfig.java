@@ -1,6 +1,8 @@
 package com.server.smarttransferserver.config;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.HttpMessageConverter;
 import org.springframework.web.servlet.HandlerExceptionResolver;
 import org.springframework.web.servlet.config.annotation.CorsRegistry;
 import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
@@ -18,11 +20,20 @@ public class WebMvcConfig implements WebMvcConfigurer {
     @Resource
     private JwtInterceptor jwtInterceptor;
 
+    /** 下载分块使用 Tomcat sendfile（TLS 或非 NIO 连接器时自动改用 FileChannel.transferTo） */
+    @Value("${transfer.download.sendfile:true}")
+    private boolean sendfileEnabled;
+
     @Override
     public void extendHandlerExceptionResolvers(List<HandlerExceptionResolver> resolvers) {
         resolvers.add(0, new ClientAbortExceptionResolver());
     }
     
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        converters.add(0, new FileRegionHttpMessageConverter(sendfileEnabled));
+    }
+    
     @Override
     public void addInterceptors(InterceptorRegistry registry) {
         registry.addInterceptor(jwtInterceptor)
@@ -41,6 +52,8 @@ public class WebMvcConfig implements WebMvcConfigurer {
                 .allowedOriginPatterns("*")
                 .allowedMethods("GET", "POST", "PUT", "DELETE", "OPTIONS")
                 .allowedHeaders("*")
+                // 跨域部署时前端需要读取 429 的等待时间
+                .exposedHeaders("Retry-After", "X-Retry-After-Ms")
                 .allowCredentials(true)
                 .maxAge(3600);
     }
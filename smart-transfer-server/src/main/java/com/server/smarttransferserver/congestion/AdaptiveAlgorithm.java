@@ -1,14 +1,15 @@
 package com.server.smarttransferserver.congestion;
 
 import com.server.smarttransferserver.config.CongestionConfig;
+import com.server.smarttransferserver.util.BitRingBuffer;
+import com.server.smarttransferserver.util.DoubleRingBuffer;
+import com.server.smarttransferserver.util.LongRingBuffer;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import javax.annotation.PostConstruct;
-import java.util.LinkedList;
-import java.util.List;
-import java.util.Queue;
+import java.util.Arrays;
 
 /**
  * 自适应拥塞控制算法
@@ -68,9 +69,14 @@ public class AdaptiveAlgorithm implements CongestionControlAlgorithm {
     private int lastNetworkQualityLevel = 0;
     
     /**
-     * RTT样本队列
+     * RTT样本窗口（原始类型环形缓冲区，每个ACK写入不分配对象）
      */
-    private final Queue<Long> rttSamples;
+    private final LongRingBuffer rttSamples;
+    
+    /**
+     * RTT统计用的复用数组（异常值过滤、增量重置排序）
+     */
+    private final long[] rttScratch;
     
     /**
      * 上次评估时间
@@ -93,6 +99,11 @@ public class AdaptiveAlgorithm implements CongestionControlAlgorithm {
     @Autowired
     private CongestionConfig congestionConfig;
     
+    /**
+     * 时钟（网络模拟时替换为虚拟时钟）
+     */
+    private CongestionClock clock = CongestionClock.SYSTEM;
+    
     /**
      * 网络趋势分析器
      */
@@ -136,12 +147,7 @@ public class AdaptiveAlgorithm implements CongestionControlAlgorithm {
     /**
      * 滑动窗口丢包统计（最近20个评估周期）
      */
-    private final java.util.Queue<Double> lossRateHistory;
-    
-    /**
-     * 保留的RTT历史样本（增量重置时保留20%）
-     */
-    private final java.util.Queue<Long> preservedRttSamples;
+    private final DoubleRingBuffer lossRateHistory;
     
     /**
      * **新增：实时滑动窗口**
@@ -151,9 +157,14 @@ public class AdaptiveAlgorithm implements CongestionControlAlgorithm {
      * 丢包滑动窗口（用于快速检测网络质量变化）
      * 20 个分片约 100MB，能较快反映丢包率变化
      */
-    private final java.util.Queue<Boolean> recentPackets; // true=成功, false=丢包
+    private final BitRingBuffer recentPackets; // true=成功, false=丢包
     private static final int RECENT_WINDOW_SIZE = 20;
     
+    /**
+     * 丢包率历史窗口大小
+     */
+    private static final int LOSS_HISTORY_SIZE = 20;
+    
     /**
      * 构造方法
      */
@@ -164,12 +175,12 @@ public class AdaptiveAlgorithm implements CongestionControlAlgorithm {
         this.vegasAlgorithm = vegasAlgorithm;
         this.cubicAlgorithm = cubicAlgorithm;
         this.bbrAlgorithm = bbrAlgorithm;
-        this.rttSamples = new LinkedList<>();
+        this.rttSamples = new LongRingBuffer(EVALUATION_WINDOW);
+        this.rttScratch = new long[EVALUATION_WINDOW];
         this.lastSwitchTime = 0;
-        this.currentAlgorithmStartTime = System.currentTimeMillis();
-        this.lossRateHistory = new LinkedList<>();
-        this.preservedRttSamples = new LinkedList<>();
-        this.recentPackets = new LinkedList<>(); // **新增：初始化滑动窗口**
+        this.currentAlgorithmStartTime = clock.currentTimeMillis();
+        this.lossRateHistory = new DoubleRingBuffer(LOSS_HISTORY_SIZE);
+        this.recentPackets = new BitRingBuffer(RECENT_WINDOW_SIZE); // **新增：初始化滑动窗口**
         this.metrics = new AdaptiveAlgorithmMetrics();
         this.isWarmingUp = false;
         this.warmupRttCount = 0;
@@ -221,13 +232,10 @@ public class AdaptiveAlgorithm implements CongestionControlAlgorithm {
         // RTT 仅使用独立探测值：只有 propagationRttMs（前端 probe）非空时才入样、参与 RTT 突增推断
         boolean inferredLoss = false;
         if (propagationRttMs != null && propagationRttMs > 0 && propagationRttMs < 10000) {
-            rttSamples.offer(propagationRttMs);
-            if (rttSamples.size() > EVALUATION_WINDOW) {
-                rttSamples.poll();
-            }
+            rttSamples.add(propagationRttMs);
             // RTT 突增推断丢包（仅在有探测 RTT 时）
             if (rttSamples.size() >= 3) {
-                double avg = rttSamples.stream().mapToLong(Long::longValue).average().orElse(0);
+                double avg = rttSamples.mean();
                 if (avg > 0 && propagationRttMs >= 1.8 * avg) {
                     inferredLoss = true;
                     if (log.isDebugEnabled()) {
@@ -238,17 +246,14 @@ public class AdaptiveAlgorithm implements CongestionControlAlgorithm {
         }
         
         // **修复：每个成功的 ACK 都记录到 recentPackets（不仅仅是有 RTT 探测时）**
-        recentPackets.offer(inferredLoss ? false : true);
-        if (recentPackets.size() > RECENT_WINDOW_SIZE) {
-            recentPackets.poll();
-        }
+        recentPackets.add(!inferredLoss);
         
         totalPackets++;
         // 子算法使用双 RTT：带宽用 full，延迟用 propagation
         currentAlgorithm.onAck(ackedBytes, fullRttMs, propagationRttMs);
         
         // 定期评估是否需要切换算法
-        long now = System.currentTimeMillis();
+        long now = clock.currentTimeMillis();
         if (now - lastEvaluationTime > congestionConfig.getEvaluationInterval()) {
             evaluateAndSwitch();
             lastEvaluationTime = now;
@@ -267,10 +272,7 @@ public class AdaptiveAlgorithm implements CongestionControlAlgorithm {
         lostPackets++;
         
         // **新增：更新滑动窗口（记录丢包）**
-        recentPackets.offer(false);
-        if (recentPackets.size() > RECENT_WINDOW_SIZE) {
-            recentPackets.poll();
-        }
+        recentPackets.add(false);
         
         // 调用当前算法
         currentAlgorithm.onLoss(lostBytes);
@@ -295,7 +297,7 @@ public class AdaptiveAlgorithm implements CongestionControlAlgorithm {
             // **优化：检测网络剧烈变化时提前结束预热**
             // 使用近期丢包率（更快响应网络变化）
             double cumulativeLossRate = getDisplayLossRate();
-            long recentLossCount = recentPackets.stream().filter(b -> !b).count();
+            long recentLossCount = recentPackets.countFalse();
             double recentLossRate = recentPackets.isEmpty() ? cumulativeLossRate : (double) recentLossCount / recentPackets.size();
             long quickJitter = calculateRttJitter();
             
@@ -338,21 +340,10 @@ public class AdaptiveAlgorithm implements CongestionControlAlgorithm {
         // **更新成员变量，供算法切换决策与 recordMetrics 使用**
         this.currentLossRate = lossRate;
         this.currentRttJitter = rttJitter;
-        double avgRtt = rttSamples.stream()
-                .filter(rtt -> rtt != null && rtt > 0)
-                .mapToLong(Long::longValue)
-                .average()
-                .orElse(0);
-        long minRtt = rttSamples.stream()
-                .filter(rtt -> rtt != null && rtt > 0)
-                .mapToLong(Long::longValue)
-                .min()
-                .orElse(0);
-        long maxRtt = rttSamples.stream()
-                .filter(rtt -> rtt != null && rtt > 0)
-                .mapToLong(Long::longValue)
-                .max()
-                .orElse(0);
+        // rttSamples 入样时已过滤无效值，直接统计
+        double avgRtt = rttSamples.mean();
+        long minRtt = rttSamples.min();
+        long maxRtt = rttSamples.max();
         double rttVariation = maxRtt > 0 ? (double) (maxRtt - minRtt) / maxRtt : 0;
         
         // 获取带宽（用于吞吐量评估）
@@ -363,7 +354,7 @@ public class AdaptiveAlgorithm implements CongestionControlAlgorithm {
         long currentCwnd = currentAlgorithm.getCwnd();
         
         // 计算近期成功率（recentPackets 中 true 的比例）
-        long recentSuccessCount = recentPackets.stream().filter(b -> b).count();
+        long recentSuccessCount = recentPackets.countTrue();
         double recentSuccessRate = recentPackets.isEmpty() ? 0 : (double) recentSuccessCount / recentPackets.size();
         
         // 条件：近期成功率 > 95%（几乎无丢包），RTT抖动 < 阈值，CWND 被压缩到初始值的 50% 以下
@@ -397,17 +388,14 @@ public class AdaptiveAlgorithm implements CongestionControlAlgorithm {
         trendAnalyzer.addWindow(lossRate, rttJitter, avgRtt);
         
         // 添加到滑动窗口丢包统计
-        lossRateHistory.offer(lossRate);
-        if (lossRateHistory.size() > 20) {
-            lossRateHistory.poll();
-        }
+        lossRateHistory.add(lossRate);
         
         String previousAlgorithmName = currentAlgorithm.getAlgorithmName();
         CongestionControlAlgorithm selectedAlgorithm = selectOptimalAlgorithm(
                 lossRate, rttJitter, avgRtt, rttVariation, bandwidth);
         
         if (selectedAlgorithm != null && selectedAlgorithm != currentAlgorithm) {
-            long now = System.currentTimeMillis();
+            long now = clock.currentTimeMillis();
             
             // **DEBUG：添加详细日志**
             log.info("尝试切换算法 - 当前: {}, 目标: {}", 
@@ -536,7 +524,7 @@ public class AdaptiveAlgorithm implements CongestionControlAlgorithm {
         
         // **计算近期丢包率**：用于快速响应网络恢复
         // recentPackets 中 false 表示丢包，统计丢包比例
-        long recentLossCount = recentPackets.stream().filter(b -> !b).count();
+        long recentLossCount = recentPackets.countFalse();
         double recentLossRate = recentPackets.isEmpty() ? lossRate : (double) recentLossCount / recentPackets.size();
         // 综合丢包率：取累计丢包率和近期丢包率的较小值（更快响应网络恢复）
         double effectiveLossRate = Math.min(lossRate, recentLossRate);
@@ -569,11 +557,11 @@ public class AdaptiveAlgorithm implements CongestionControlAlgorithm {
                     lastNetworkQualityLevel, currentQualityLevel, clearFraction, clearRatio);
             int clearCount = rttSamples.size() * clearFraction / clearRatio;
             for (int i = 0; i < clearCount && !rttSamples.isEmpty(); i++) {
-                rttSamples.poll();
+                rttSamples.removeFirst();
             }
             clearCount = recentPackets.size() * clearFraction / clearRatio;
             for (int i = 0; i < clearCount && !recentPackets.isEmpty(); i++) {
-                recentPackets.poll();
+                recentPackets.removeFirst();
             }
         }
         lastNetworkQualityLevel = currentQualityLevel;
@@ -659,31 +647,24 @@ public class AdaptiveAlgorithm implements CongestionControlAlgorithm {
             totalPackets = 0;
             lostPackets = 0;
             rttSamples.clear();
-            preservedRttSamples.clear();
             lossRateHistory.clear();
             recentPackets.clear(); // **新增：重置滑动窗口**
-            lastEvaluationTime = System.currentTimeMillis();
+            lastEvaluationTime = clock.currentTimeMillis();
             lastSwitchTime = 0;
-            currentAlgorithmStartTime = System.currentTimeMillis();
+            currentAlgorithmStartTime = clock.currentTimeMillis();
             trendAnalyzer.reset();
         } else {
             // 增量重置（算法切换）：保留20%的RTT历史样本；不重置 lostPackets，保证界面丢包率 = 总丢包/总分片 不回落
             int preserveCount = (int) (rttSamples.size() * 0.2);
-            preservedRttSamples.clear();
-            List<Long> sorted = new LinkedList<>(rttSamples);
-            sorted.sort(Long::compareTo);
-            for (int i = sorted.size() - preserveCount; i < sorted.size(); i++) {
-                if (i >= 0) {
-                    preservedRttSamples.offer(sorted.get(i));
-                }
-            }
+            int n = rttSamples.copyTo(rttScratch);
+            Arrays.sort(rttScratch, 0, n);
             
             totalPackets = 0;
             rttSamples.clear();
             recentPackets.clear();
             
-            while (!preservedRttSamples.isEmpty()) {
-                rttSamples.offer(preservedRttSamples.poll());
+            for (int i = n - preserveCount; i < n; i++) {
+                rttSamples.add(rttScratch[i]);
             }
         }
     }
@@ -742,21 +723,26 @@ public class AdaptiveAlgorithm implements CongestionControlAlgorithm {
         }
         
         // 使用异常值过滤器
-        List<Long> filtered = outlierFilter.filterOutliers(rttSamples);
-        if (filtered.isEmpty()) {
+        int n = outlierFilter.filterOutliers(rttSamples, rttScratch);
+        if (n == 0) {
             return 0;
         }
         
         // 计算平均值
-        double avg = filtered.stream().mapToLong(Long::longValue).average().orElse(0);
+        double sum = 0;
+        for (int i = 0; i < n; i++) {
+            sum += rttScratch[i];
+        }
+        double avg = sum / n;
         
         // 计算标准差
-        double variance = filtered.stream()
-                .mapToDouble(rtt -> Math.pow(rtt - avg, 2))
-                .average()
-                .orElse(0);
+        double squares = 0;
+        for (int i = 0; i < n; i++) {
+            double diff = rttScratch[i] - avg;
+            squares += diff * diff;
+        }
         
-        return (long) Math.sqrt(variance);
+        return (long) Math.sqrt(squares / n);
     }
     
     @Override
@@ -791,6 +777,42 @@ public class AdaptiveAlgorithm implements CongestionControlAlgorithm {
         return currentAlgorithm.getRtt();
     }
     
+    /**
+     * 用路径状态初始化所有底层算法（切换算法时同样从历史状态开始）
+     */
+    @Override
+    public void seed(PathState pathState) {
+        if (renoAlgorithm != null) {
+            renoAlgorithm.seed(pathState);
+        }
+        if (vegasAlgorithm != null) {
+            vegasAlgorithm.seed(pathState);
+        }
+        if (cubicAlgorithm != null) {
+            cubicAlgorithm.seed(pathState);
+        }
+        if (bbrAlgorithm != null) {
+            bbrAlgorithm.seed(pathState);
+        }
+    }
+    
+    @Override
+    public void setClock(CongestionClock clock) {
+        this.clock = clock;
+        if (renoAlgorithm != null) {
+            renoAlgorithm.setClock(clock);
+        }
+        if (vegasAlgorithm != null) {
+            vegasAlgorithm.setClock(clock);
+        }
+        if (cubicAlgorithm != null) {
+            cubicAlgorithm.setClock(clock);
+        }
+        if (bbrAlgorithm != null) {
+            bbrAlgorithm.setClock(clock);
+        }
+    }
+    
     @Override
     public void reset() {
         if (renoAlgorithm != null) {
@@ -837,11 +859,7 @@ public class AdaptiveAlgorithm implements CongestionControlAlgorithm {
         if (rttSamples == null || rttSamples.isEmpty()) {
             return 0;
         }
-        double avg = rttSamples.stream()
-                .filter(rtt -> rtt != null && rtt > 0)
-                .mapToLong(Long::longValue)
-                .average()
-                .orElse(0);
+        double avg = rttSamples.mean();
         long avgMs = (long) Math.round(avg);
         // rttSamples 已是传播 RTT（往返），除以 2 得到单向传播时延
         return avgMs / 2;
@@ -851,10 +869,18 @@ public class AdaptiveAlgorithm implements CongestionControlAlgorithm {
      * 设置本任务总分片数（由上传服务在每次分片时注入，来自 init 时的 totalChunks）。
      * 用于界面丢包率 = 总丢包数/总分片数，避免前几个包丢 1 个就暴增到 20%。
      */
+    @Override
     public void setTotalChunks(int totalChunks) {
         this.totalChunks = totalChunks;
     }
     
+    /**
+     * 本任务总分片数，未注入时为0
+     */
+    public int getTotalChunks() {
+        return totalChunks;
+    }
+    
     /**
      * 用于界面显示的丢包率：统一为「总丢包数/总分片数」，整次传输内累计、不随算法切换或近期无丢包而回落。
      * totalChunks 未知时返回 0。
@@ -897,21 +923,10 @@ public class AdaptiveAlgorithm implements CongestionControlAlgorithm {
         // 更新当前网络指标（**修复：过滤null值**）
         double lossRate = totalPackets > 0 ? (double) lostPackets / totalPackets : 0;
         long rttJitter = calculateRttJitter();
-        double avgRtt = rttSamples.stream()
-                .filter(rtt -> rtt != null && rtt > 0)
-                .mapToLong(Long::longValue)
-                .average()
-                .orElse(0);
-        long minRtt = rttSamples.stream()
-                .filter(rtt -> rtt != null && rtt > 0)
-                .mapToLong(Long::longValue)
-                .min()
-                .orElse(0);
-        long maxRtt = rttSamples.stream()
-                .filter(rtt -> rtt != null && rtt > 0)
-                .mapToLong(Long::longValue)
-                .max()
-                .orElse(0);
+        // rttSamples 入样时已过滤无效值，直接统计
+        double avgRtt = rttSamples.mean();
+        long minRtt = rttSamples.min();
+        long maxRtt = rttSamples.max();
         double rttVariation = maxRtt > 0 ? (double) (maxRtt - minRtt) / maxRtt : 0;
         long bandwidth = currentAlgorithm.getRate();
         long bdp = bandwidth * (long) avgRtt / 1000;
@@ -0,0 +1,119 @@
+package com.server.smarttransferserver.congestion;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * 算法状态快照（不可变）
+ * 由任务所在分片的事件循环线程在处理完一批事件后生成并发布，
+ * 请求线程、监控推送、公平分配等读取方只读快照，不直接读取正在被修改的算法字段
+ */
+@Getter
+@ToString
+@AllArgsConstructor
+public class AlgorithmSnapshot {
+
+    /**
+     * 算法名称
+     */
+    private final String algorithmName;
+
+    /**
+     * 拥塞状态
+     */
+    private final CongestionState state;
+
+    /**
+     * 拥塞窗口（字节）
+     */
+    private final long cwnd;
+
+    /**
+     * 慢启动阈值（字节）
+     */
+    private final long ssthresh;
+
+    /**
+     * 传输速率（字节/秒）
+     */
+    private final long rate;
+
+    /**
+     * RTT（毫秒）
+     */
+    private final long rtt;
+
+    /**
+     * 是否为自适应算法（以下字段仅自适应算法有效）
+     */
+    private final boolean adaptive;
+
+    /**
+     * 界面显示的单向传播时延（毫秒）
+     */
+    private final long displayRtt;
+
+    /**
+     * 任务总分片数
+     */
+    private final int totalChunks;
+
+    /**
+     * 界面显示的丢包率（总丢包数/总分片数）
+     */
+    private final double displayLossRate;
+
+    /**
+     * 最近一次评估的丢包率
+     */
+    private final double currentLossRate;
+
+    /**
+     * RTT抖动（毫秒）
+     */
+    private final long rttJitter;
+
+    /**
+     * 网络趋势描述
+     */
+    private final String networkTrend;
+
+    /**
+     * 是否正在预热
+     */
+    private final boolean warmingUp;
+
+    /**
+     * 网络质量描述
+     */
+    private final String networkQuality;
+
+    /**
+     * 生成时间（毫秒）
+     */
+    private final long createdAt;
+
+    /**
+     * 读取算法当前状态生成快照，只能在修改该算法的线程中调用
+     *
+     * @param algorithm 算法实例
+     * @return 快照
+     */
+    public static AlgorithmSnapshot of(CongestionControlAlgorithm algorithm) {
+        long now = System.currentTimeMillis();
+        if (algorithm instanceof AdaptiveAlgorithm) {
+            AdaptiveAlgorithm adaptive = (AdaptiveAlgorithm) algorithm;
+            long rttJitter = adaptive.getRttJitter();
+            double displayLossRate = adaptive.getDisplayLossRate();
+            return new AlgorithmSnapshot(adaptive.getAlgorithmName(), adaptive.getState(), adaptive.getCwnd(),
+                    adaptive.getSsthresh(), adaptive.getRate(), adaptive.getRtt(), true,
+                    adaptive.getDisplayRtt(), adaptive.getTotalChunks(), displayLossRate,
+                    adaptive.getCurrentLossRate(), rttJitter, adaptive.getNetworkTrend(), adaptive.isWarmingUp(),
+                    NetworkScenario.fromMetrics(displayLossRate, rttJitter).getDescription(), now);
+        }
+        return new AlgorithmSnapshot(algorithm.getAlgorithmName(), algorithm.getState(), algorithm.getCwnd(),
+                algorithm.getSsthresh(), algorithm.getRate(), algorithm.getRtt(), false,
+                0, 0, 0, 0, 0, null, false, null, now);
+    }
+}
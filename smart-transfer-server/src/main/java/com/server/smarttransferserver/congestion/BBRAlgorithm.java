@@ -1,13 +1,12 @@
 package com.server.smarttransferserver.congestion;
 
 import com.server.smarttransferserver.config.CongestionConfig;
+import com.server.smarttransferserver.util.LongRingBuffer;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import javax.annotation.PostConstruct;
-import java.util.LinkedList;
-import java.util.Queue;
 
 /**
  * BBR拥塞控制算法实现
@@ -65,12 +64,12 @@ public class BBRAlgorithm implements CongestionControlAlgorithm {
     /**
      * 带宽样本队列（最近10个）
      */
-    private final Queue<Long> bandwidthSamples;
+    private final LongRingBuffer bandwidthSamples;
     
     /**
      * RTT样本队列（最近10个）
      */
-    private final Queue<Long> rttSamples;
+    private final LongRingBuffer rttSamples;
     
     /**
      * 上次进入PROBE_RTT的时间
@@ -88,12 +87,17 @@ public class BBRAlgorithm implements CongestionControlAlgorithm {
     @Autowired
     private CongestionConfig congestionConfig;
     
+    /**
+     * 时钟（网络模拟时替换为虚拟时钟）
+     */
+    private CongestionClock clock = CongestionClock.SYSTEM;
+    
     /**
      * 构造方法
      */
     public BBRAlgorithm() {
-        this.bandwidthSamples = new LinkedList<>();
-        this.rttSamples = new LinkedList<>();
+        this.bandwidthSamples = new LongRingBuffer(10);
+        this.rttSamples = new LongRingBuffer(10);
     }
     
     @PostConstruct
@@ -105,7 +109,7 @@ public class BBRAlgorithm implements CongestionControlAlgorithm {
         this.state = CongestionState.BBR_STARTUP;
         this.pacingGain = STARTUP_PACING_GAIN;
         this.probeBwCycleIndex = 0;
-        this.lastProbeRttTime = System.currentTimeMillis();
+        this.lastProbeRttTime = clock.currentTimeMillis();
         this.cwnd = congestionConfig.getMinCwnd();
         
         bandwidthSamples.clear();
@@ -182,11 +186,10 @@ public class BBRAlgorithm implements CongestionControlAlgorithm {
     private void handleStartup() {
         // 如果带宽不再增长，切换到DRAIN
         if (bandwidthSamples.size() >= 3) {
-            Long[] samples = bandwidthSamples.toArray(new Long[0]);
-            int len = samples.length;
+            int len = bandwidthSamples.size();
             
             // 检查最近3个样本是否增长
-            if (len >= 3 && samples[len - 1] <= samples[len - 2]) {
+            if (bandwidthSamples.get(len - 1) <= bandwidthSamples.get(len - 2)) {
                 state = CongestionState.BBR_DRAIN;
                 pacingGain = DRAIN_PACING_GAIN;
                 log.info("BBR切换到DRAIN阶段");
@@ -219,7 +222,7 @@ public class BBRAlgorithm implements CongestionControlAlgorithm {
         pacingGain = PROBE_BW_PACING_GAINS[probeBwCycleIndex];
         
         // 每10秒进入PROBE_RTT
-        long now = System.currentTimeMillis();
+        long now = clock.currentTimeMillis();
         if (now - lastProbeRttTime > 10000) {
             state = CongestionState.BBR_PROBE_RTT;
             lastProbeRttTime = now;
@@ -233,7 +236,7 @@ public class BBRAlgorithm implements CongestionControlAlgorithm {
      */
     private void handleProbeRtt() {
         // 维持200ms后返回PROBE_BW
-        long now = System.currentTimeMillis();
+        long now = clock.currentTimeMillis();
         if (now - lastProbeRttTime > 200) {
             state = CongestionState.BBR_PROBE_BW;
             probeBwCycleIndex = 0;
@@ -250,16 +253,10 @@ public class BBRAlgorithm implements CongestionControlAlgorithm {
     private void updateRttSample(long rtt) {
         // **修复：过滤无效RTT值**
         if (rtt > 0 && rtt < 10000) {
-            rttSamples.offer(rtt);
-            if (rttSamples.size() > 10) {
-                rttSamples.poll();
-            }
+            rttSamples.add(rtt);
             
-            // 更新最小RTT（过滤null值）
-            minRtt = rttSamples.stream()
-                    .filter(r -> r != null && r > 0)
-                    .min(Long::compare)
-                    .orElse(rtt);
+            // 更新最小RTT（入样时已过滤无效值）
+            minRtt = rttSamples.min();
         }
     }
     
@@ -269,13 +266,10 @@ public class BBRAlgorithm implements CongestionControlAlgorithm {
      * @param bandwidth 带宽值
      */
     private void updateBandwidthSample(long bandwidth) {
-        bandwidthSamples.offer(bandwidth);
-        if (bandwidthSamples.size() > 10) {
-            bandwidthSamples.poll();
-        }
+        bandwidthSamples.add(bandwidth);
         
         // 更新瓶颈带宽（取最大值）
-        bottleneckBandwidth = bandwidthSamples.stream().max(Long::compare).orElse(bandwidth);
+        bottleneckBandwidth = bandwidthSamples.max();
     }
     
     @Override
@@ -327,6 +321,32 @@ public class BBRAlgorithm implements CongestionControlAlgorithm {
         return minRtt != Long.MAX_VALUE ? minRtt : 0;
     }
     
+    /**
+     * 用路径状态初始化：带宽和最小RTT作为首个样本，跳过 STARTUP/DRAIN 直接进入 PROBE_BW
+     */
+    @Override
+    public void seed(PathState pathState) {
+        if (pathState.getBandwidth() <= 0 || pathState.getMinRtt() <= 0) {
+            return;
+        }
+        bandwidthSamples.clear();
+        rttSamples.clear();
+        updateBandwidthSample(pathState.getBandwidth());
+        updateRttSample(pathState.getMinRtt());
+        this.lastFullRtt = Math.max(pathState.getMinRtt(), pathState.getCwnd() * 1000 / pathState.getBandwidth());
+        this.state = CongestionState.BBR_PROBE_BW;
+        this.probeBwCycleIndex = 2;
+        this.pacingGain = PROBE_BW_PACING_GAINS[probeBwCycleIndex];
+        this.lastProbeRttTime = clock.currentTimeMillis();
+        this.cwnd = Math.max(congestionConfig.getMinCwnd(), Math.min(pathState.getCwnd(), congestionConfig.getMaxCwnd()));
+        log.debug("BBR使用路径状态初始化 - bandwidth: {}字节/秒, minRtt: {}ms, cwnd: {}字节", bottleneckBandwidth, minRtt, cwnd);
+    }
+    
+    @Override
+    public void setClock(CongestionClock clock) {
+        this.clock = clock;
+    }
+    
     @Override
     public void reset() {
         initialize();
@@ -1,18 +1,14 @@
 package com.server.smarttransferserver.congestion;
 
+import com.server.smarttransferserver.util.LongRingBuffer;
 import lombok.Data;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.stereotype.Component;
-
-import java.util.LinkedList;
-import java.util.Queue;
 
 /**
  * 带宽估算器
  * 用于估算网络可用带宽
  */
 @Slf4j
-@Component
 public class BandwidthEstimator {
     
     /**
@@ -23,7 +19,7 @@ public class BandwidthEstimator {
     /**
      * 带宽样本队列
      */
-    private final Queue<BandwidthSample> bandwidthSamples;
+    private final LongRingBuffer bandwidthSamples;
     
     /**
      * 上次采样时间
@@ -59,7 +55,7 @@ public class BandwidthEstimator {
      * 构造方法
      */
     public BandwidthEstimator() {
-        this.bandwidthSamples = new LinkedList<>();
+        this.bandwidthSamples = new LongRingBuffer(SAMPLE_WINDOW);
         this.lastSampleTime = System.currentTimeMillis();
         this.lastSampleBytes = 0;
         this.totalSentBytes = 0;
@@ -97,14 +93,7 @@ public class BandwidthEstimator {
      * @param bandwidth 带宽值
      */
     private void addSample(long bandwidth) {
-        BandwidthSample sample = new BandwidthSample();
-        sample.setBandwidth(bandwidth);
-        sample.setTimestamp(System.currentTimeMillis());
-        
-        bandwidthSamples.offer(sample);
-        if (bandwidthSamples.size() > SAMPLE_WINDOW) {
-            bandwidthSamples.poll();
-        }
+        bandwidthSamples.add(bandwidth);
         
         // 更新最大、最小带宽
         maxBandwidth = Math.max(maxBandwidth, bandwidth);
@@ -130,10 +119,7 @@ public class BandwidthEstimator {
         }
         
         // 计算最近的平均带宽
-        long recentAvg = (long) bandwidthSamples.stream()
-                .mapToLong(BandwidthSample::getBandwidth)
-                .average()
-                .orElse(0);
+        long recentAvg = (long) bandwidthSamples.mean();
         
         if (estimatedBandwidth == 0) {
             estimatedBandwidth = recentAvg;
@@ -176,13 +162,7 @@ public class BandwidthEstimator {
      * @return 平均带宽
      */
     public long getAverageBandwidth() {
-        if (bandwidthSamples.isEmpty()) {
-            return 0;
-        }
-        return (long) bandwidthSamples.stream()
-                .mapToLong(BandwidthSample::getBandwidth)
-                .average()
-                .orElse(0);
+        return (long) bandwidthSamples.mean();
     }
     
     /**
@@ -228,15 +208,6 @@ public class BandwidthEstimator {
         return stats;
     }
     
-    /**
-     * 带宽样本
-     */
-    @Data
-    private static class BandwidthSample {
-        private long bandwidth;
-        private long timestamp;
-    }
-    
     /**
      * 带宽统计信息
      */
@@ -0,0 +1,21 @@
+package com.server.smarttransferserver.congestion;
+
+/**
+ * 拥塞控制算法使用的时钟
+ * 线上实例使用系统时间；网络模拟器为每个算法实例注入虚拟时钟，模拟时间不受真实时间影响
+ */
+@FunctionalInterface
+public interface CongestionClock {
+
+    /**
+     * 系统时钟
+     */
+    CongestionClock SYSTEM = System::currentTimeMillis;
+
+    /**
+     * 当前时间
+     *
+     * @return 毫秒
+     */
+    long currentTimeMillis();
+}
@@ -78,6 +78,42 @@ public interface CongestionControlAlgorithm {
      */
     long getRtt();
     
+    /**
+     * 用同一路径上历史任务的状态初始化（跳过慢启动），在 initialize 之后、首个 ACK 之前调用
+     * 默认不处理
+     *
+     * @param pathState 路径状态（已按时间衰减）
+     */
+    default void seed(PathState pathState) {
+    }
+    
+    /**
+     * 替换算法使用的时钟（网络模拟器注入虚拟时钟），之后需要重新调用 initialize
+     * 默认不处理
+     *
+     * @param clock 时钟
+     */
+    default void setClock(CongestionClock clock) {
+    }
+    
+    /**
+     * 设置本任务总分片数（用于丢包率统计），默认不处理
+     *
+     * @param totalChunks 总分片数
+     */
+    default void setTotalChunks(int totalChunks) {
+    }
+    
+    /**
+     * 当前状态快照
+     * 默认直接读取算法字段；由事件循环驱动的实例返回循环线程最近发布的快照
+     *
+     * @return 快照
+     */
+    default AlgorithmSnapshot snapshot() {
+        return AlgorithmSnapshot.of(this);
+    }
+    
     /**
      * 重置算法状态
      * 重新初始化所有参数
@@ -0,0 +1,187 @@
+package com.server.smarttransferserver.congestion;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 拥塞控制事件循环（一个分片）
+ * 1. 多个请求线程（同一任务最多4个并发分片）把 ACK/丢包等事件写入无锁 MPSC 环形队列：
+ *    CAS 领取序号、写入槽位、再发布序号，事件字段存放在原始类型数组中，入队不分配对象
+ * 2. 分片内只有一个工作线程按入队顺序取出事件并修改算法状态，算法内部无需加锁；
+ *    每处理完一批事件，为本批涉及的任务发布一次不可变快照，读取方只读快照
+ * 3. 队列满时生产者自旋/让出等待，不丢弃事件
+ */
+@Slf4j
+public class CongestionEventLoop implements Runnable {
+
+    static final byte ACK = 1;
+    static final byte LOSS = 2;
+    static final byte TOTAL_CHUNKS = 3;
+    static final byte SEED = 4;
+    static final byte INITIALIZE = 5;
+    static final byte RESET = 6;
+
+    /**
+     * 单批最多处理的事件数，处理完即发布快照，避免快照长时间不更新
+     */
+    private static final int MAX_BATCH = 256;
+
+    private final int mask;
+    private final byte[] types;
+    private final long[] firstArgs;
+    private final long[] secondArgs;
+    private final Object[] targets;
+    private final Object[] refs;
+
+    /**
+     * 槽位已发布的序号，等于期望的序号时槽位内容可读
+     */
+    private final AtomicLongArray published;
+
+    /**
+     * 生产者领取的下一个序号
+     */
+    private final AtomicLong tail = new AtomicLong();
+
+    /**
+     * 消费者下一个要读取的序号（仅工作线程写）
+     */
+    private final AtomicLong head = new AtomicLong();
+
+    private final List<SerializedAlgorithm> dirty = new ArrayList<>();
+    private final Thread thread;
+
+    private volatile boolean running = true;
+    private volatile boolean parked;
+
+    /**
+     * @param name     线程名
+     * @param capacity 队列容量，向上取整为2的幂
+     */
+    public CongestionEventLoop(String name, int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+        this.mask = size - 1;
+        this.types = new byte[size];
+        this.firstArgs = new long[size];
+        this.secondArgs = new long[size];
+        this.targets = new Object[size];
+        this.refs = new Object[size];
+        this.published = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            published.set(i, -1);
+        }
+        this.thread = new Thread(this, name);
+        this.thread.setDaemon(true);
+    }
+
+    public void start() {
+        thread.start();
+    }
+
+    public void shutdown() {
+        running = false;
+        LockSupport.unpark(thread);
+        try {
+            thread.join(TimeUnit.SECONDS.toMillis(1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * 入队事件（任意线程调用）
+     */
+    void publish(SerializedAlgorithm target, byte type, long first, long second, Object ref) {
+        long seq = tail.getAndIncrement();
+        int spins = 0;
+        while (seq - head.get() > mask) {
+            // 队列已满，等待工作线程消费
+            if (++spins < 100) {
+                Thread.yield();
+            } else {
+                LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(50));
+            }
+        }
+        int index = (int) (seq & mask);
+        types[index] = type;
+        firstArgs[index] = first;
+        secondArgs[index] = second;
+        targets[index] = target;
+        refs[index] = ref;
+        // volatile 写发布槽位，保证工作线程读到序号时槽位字段可见
+        published.set(index, seq);
+        if (parked) {
+            LockSupport.unpark(thread);
+        }
+    }
+
+    /**
+     * 队列中未处理的事件数
+     */
+    public long pending() {
+        return Math.max(0, tail.get() - head.get());
+    }
+
+    @Override
+    public void run() {
+        while (running) {
+            int processed = drain();
+            if (processed > 0) {
+                continue;
+            }
+            parked = true;
+            if (!ready(head.get())) {
+                LockSupport.parkNanos(this, TimeUnit.MILLISECONDS.toNanos(100));
+            }
+            parked = false;
+        }
+        drain();
+    }
+
+    private boolean ready(long seq) {
+        return published.get((int) (seq & mask)) == seq;
+    }
+
+    private int drain() {
+        long seq = head.get();
+        int processed = 0;
+        while (processed < MAX_BATCH && ready(seq)) {
+            int index = (int) (seq & mask);
+            SerializedAlgorithm target = (SerializedAlgorithm) targets[index];
+            byte type = types[index];
+            long first = firstArgs[index];
+            long second = secondArgs[index];
+            Object ref = refs[index];
+            targets[index] = null;
+            refs[index] = null;
+            head.lazySet(++seq);
+            processed++;
+            try {
+                target.apply(type, first, second, ref);
+            } catch (Exception e) {
+                log.error("拥塞控制事件处理失败 - 任务ID: {}, 事件: {}", target.getTaskId(), type, e);
+            }
+            if (!target.dirty) {
+                target.dirty = true;
+                dirty.add(target);
+            }
+        }
+        for (int i = 0; i < dirty.size(); i++) {
+            SerializedAlgorithm target = dirty.get(i);
+            target.dirty = false;
+            try {
+                target.publishSnapshot();
+            } catch (Exception e) {
+                log.error("发布算法快照失败 - 任务ID: {}", target.getTaskId(), e);
+            }
+        }
+        dirty.clear();
+        return processed;
+    }
+}
@@ -66,6 +66,11 @@ public class CubicAlgorithm implements CongestionControlAlgorithm {
     @Autowired
     private CongestionConfig congestionConfig;
     
+    /**
+     * 时钟（网络模拟时替换为虚拟时钟）
+     */
+    private CongestionClock clock = CongestionClock.SYSTEM;
+    
     /**
      * 初始化CUBIC算法
      */
@@ -77,7 +82,7 @@ public class CubicAlgorithm implements CongestionControlAlgorithm {
         this.ssthresh = congestionConfig.getSsthresh();
         this.wMax = 0;
         this.ackCount = 0;
-        this.lastCongestionTime = System.currentTimeMillis();
+        this.lastCongestionTime = clock.currentTimeMillis();
         this.currentRtt = 0;
         this.state = CongestionState.SLOW_START;
         
@@ -106,7 +111,7 @@ public class CubicAlgorithm implements CongestionControlAlgorithm {
             }
         } else {
             // 拥塞避免阶段：使用CUBIC函数
-            long t = System.currentTimeMillis() - lastCongestionTime;
+            long t = clock.currentTimeMillis() - lastCongestionTime;
             long newCwnd = calculateCubicWindow(t);
             
             // 更新拥塞窗口
@@ -140,7 +145,7 @@ public class CubicAlgorithm implements CongestionControlAlgorithm {
         ssthresh = cwnd;
         
         // 记录拥塞时间
-        lastCongestionTime = System.currentTimeMillis();
+        lastCongestionTime = clock.currentTimeMillis();
         
         // 进入快速恢复
         state = CongestionState.FAST_RECOVERY;
@@ -216,6 +221,25 @@ public class CubicAlgorithm implements CongestionControlAlgorithm {
         return currentRtt;
     }
     
+    /**
+     * 用路径状态初始化：窗口和 wMax 取历史窗口，直接进入拥塞避免（从立方曲线的平台段开始）
+     */
+    @Override
+    public void seed(PathState pathState) {
+        this.cwnd = Math.max(congestionConfig.getMinCwnd(), Math.min(pathState.getCwnd(), congestionConfig.getMaxCwnd()));
+        this.ssthresh = cwnd;
+        this.wMax = cwnd;
+        this.lastCongestionTime = clock.currentTimeMillis();
+        this.currentRtt = pathState.getMinRtt();
+        this.state = CongestionState.CONGESTION_AVOIDANCE;
+        log.debug("CUBIC使用路径状态初始化 - cwnd: {}字节, rtt: {}ms", cwnd, currentRtt);
+    }
+    
+    @Override
+    public void setClock(CongestionClock clock) {
+        this.clock = clock;
+    }
+    
     @Override
     public void reset() {
         initialize();
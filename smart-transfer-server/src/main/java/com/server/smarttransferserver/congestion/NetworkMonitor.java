@@ -0,0 +1,227 @@
+package com.server.smarttransferserver.congestion;
+
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 网络监测器
+ * 集成RTT测量、带宽估算、丢包检测；按任务、按用户分别创建实例，
+ * 一个用户的传输不会影响其他用户看到的带宽和丢包率。
+ * 同一任务的并发分片请求会同时写入，方法按实例加锁（每个实例只有少数几个写入线程）
+ */
+@Slf4j
+public class NetworkMonitor implements NetworkMonitorView {
+
+    private final RttMeasurement rttMeasurement = new RttMeasurement();
+    private final BandwidthEstimator bandwidthEstimator = new BandwidthEstimator();
+    private final PacketLossDetector lossDetector = new PacketLossDetector();
+
+    /**
+     * 总发送数据包数
+     */
+    private long totalSentPackets;
+
+    /**
+     * 总接收ACK数
+     */
+    private long totalReceivedAcks;
+
+    /**
+     * 最近一次写入时间（毫秒）
+     */
+    private volatile long lastActiveTime = System.currentTimeMillis();
+
+    /**
+     * 记录一个分片交付成功
+     *
+     * @param bytes 分片字节数
+     * @param rttMs 分片RTT（毫秒），不大于0时只统计带宽
+     */
+    public synchronized void recordDelivered(long bytes, long rttMs) {
+        totalSentPackets++;
+        totalReceivedAcks++;
+        bandwidthEstimator.recordSent(bytes);
+        if (rttMs > 0) {
+            rttMeasurement.addSample(rttMs);
+        }
+        lastActiveTime = System.currentTimeMillis();
+    }
+
+    /**
+     * 记录一个分片交付失败
+     *
+     * @param bytes 分片字节数
+     */
+    public synchronized void recordLoss(long bytes) {
+        totalSentPackets++;
+        lossDetector.recordLoss();
+        lastActiveTime = System.currentTimeMillis();
+    }
+
+    /**
+     * 记录数据包发送（按序列号跟踪）
+     *
+     * @param sequenceNumber 序列号
+     * @param size           数据包大小
+     */
+    public synchronized void recordPacketSent(long sequenceNumber, long size) {
+        totalSentPackets++;
+        rttMeasurement.recordSendTime(sequenceNumber);
+        bandwidthEstimator.recordSent(size);
+        lossDetector.recordSent(sequenceNumber, size, rttMeasurement.calculateRto());
+        lastActiveTime = System.currentTimeMillis();
+    }
+
+    /**
+     * 记录ACK接收（按序列号跟踪）
+     *
+     * @param sequenceNumber 序列号
+     * @return 测量的RTT值
+     */
+    public synchronized long recordAckReceived(long sequenceNumber) {
+        totalReceivedAcks++;
+        long rtt = rttMeasurement.recordAck(sequenceNumber);
+        if (lossDetector.recordAck(sequenceNumber)) {
+            log.warn("检测到丢包 - ACK序列号: {}", sequenceNumber);
+        }
+        lastActiveTime = System.currentTimeMillis();
+        return rtt;
+    }
+
+    /**
+     * 检查超时丢包
+     *
+     * @return 超时的数据包数
+     */
+    public synchronized int checkTimeoutLoss() {
+        ConcurrentHashMap<Long, PacketLossDetector.PacketInfo> lostPackets = lossDetector.checkTimeout();
+        return lostPackets.size();
+    }
+
+    @Override
+    public synchronized long getCurrentRtt() {
+        return rttMeasurement.getSmoothedRtt();
+    }
+
+    @Override
+    public synchronized long getMinRtt() {
+        return rttMeasurement.getMinRtt();
+    }
+
+    @Override
+    public synchronized long getEstimatedBandwidth() {
+        return bandwidthEstimator.getEstimatedBandwidth();
+    }
+
+    @Override
+    public synchronized double getLossRate() {
+        return lossDetector.getLossRate(totalSentPackets);
+    }
+
+    @Override
+    public synchronized int getInflightCount() {
+        return lossDetector.getInflightCount();
+    }
+
+    @Override
+    public synchronized long getInflightBytes() {
+        return lossDetector.getInflightBytes();
+    }
+
+    @Override
+    public synchronized NetworkQuality evaluateNetworkQuality() {
+        return NetworkQuality.evaluate(totalSentPackets, totalReceivedAcks, getLossRate(),
+                getCurrentRtt(), getEstimatedBandwidth());
+    }
+
+    @Override
+    public synchronized NetworkStats getStats() {
+        NetworkStats stats = new NetworkStats();
+        stats.setRttStats(rttMeasurement.getStats());
+        stats.setBandwidthStats(bandwidthEstimator.getStats());
+        stats.setLossStats(lossDetector.getStats());
+        stats.setTotalSentPackets(totalSentPackets);
+        stats.setTotalReceivedAcks(totalReceivedAcks);
+        stats.setNetworkQuality(evaluateNetworkQuality());
+        return stats;
+    }
+
+    /**
+     * 重置所有监测器
+     */
+    public synchronized void reset() {
+        rttMeasurement.reset();
+        bandwidthEstimator.reset();
+        lossDetector.reset();
+        totalSentPackets = 0;
+        totalReceivedAcks = 0;
+    }
+
+    public long getLastActiveTime() {
+        return lastActiveTime;
+    }
+
+    /**
+     * 网络质量等级
+     */
+    public enum NetworkQuality {
+        EXCELLENT("优秀"),
+        GOOD("良好"),
+        FAIR("一般"),
+        POOR("差");
+
+        private final String description;
+
+        NetworkQuality(String description) {
+            this.description = description;
+        }
+
+        public String getDescription() {
+            return description;
+        }
+
+        /**
+         * 按丢包率、RTT、带宽评估网络质量
+         *
+         * @return 网络质量等级，样本不足或还没有RTT/带宽测量时返回null
+         */
+        public static NetworkQuality evaluate(long totalSentPackets, long totalReceivedAcks,
+                                              double lossRate, long rtt, long bandwidth) {
+            // 数据不足，返回null（调用者会处理为"未知"）
+            if (totalSentPackets < 10 || totalReceivedAcks < 5) {
+                return null;
+            }
+            if (rtt <= 0 || bandwidth <= 0) {
+                return null;
+            }
+            // 优秀：丢包率<0.5%，RTT<50ms，带宽>10MB/s
+            if (lossRate < 0.005 && rtt < 50 && bandwidth > 10 * 1024 * 1024) {
+                return EXCELLENT;
+            }
+            // 良好：丢包率<1%，RTT<100ms，带宽>5MB/s
+            if (lossRate < 0.01 && rtt < 100 && bandwidth > 5 * 1024 * 1024) {
+                return GOOD;
+            }
+            // 一般：丢包率<3%，RTT<200ms，带宽>1MB/s
+            if (lossRate < 0.03 && rtt < 200 && bandwidth > 1024 * 1024) {
+                return FAIR;
+            }
+            return POOR;
+        }
+    }
+
+    /**
+     * 网络统计信息
+     */
+    @Data
+    public static class NetworkStats {
+        private RttMeasurement.RttStats rttStats;
+        private BandwidthEstimator.BandwidthStats bandwidthStats;
+        private PacketLossDetector.LossStats lossStats;
+        private long totalSentPackets;
+        private long totalReceivedAcks;
+        private NetworkQuality networkQuality;
+    }
+}
@@ -0,0 +1,64 @@
+package com.server.smarttransferserver.congestion;
+
+/**
+ * 网络监测只读视图
+ * 单个任务、单个用户的监测器和全局汇总都实现该接口，拥塞指标按同一套字段读取
+ */
+public interface NetworkMonitorView {
+
+    /**
+     * 获取当前RTT
+     *
+     * @return 平滑RTT（毫秒）
+     */
+    long getCurrentRtt();
+
+    /**
+     * 获取最小RTT
+     *
+     * @return 最小RTT（毫秒）
+     */
+    long getMinRtt();
+
+    /**
+     * 获取估算带宽
+     *
+     * @return 带宽（字节/秒）
+     */
+    long getEstimatedBandwidth();
+
+    /**
+     * 获取丢包率
+     *
+     * @return 丢包率
+     */
+    double getLossRate();
+
+    /**
+     * 获取在途数据包数量
+     *
+     * @return 在途数据包数
+     */
+    int getInflightCount();
+
+    /**
+     * 获取在途数据总字节数
+     *
+     * @return 在途数据字节数
+     */
+    long getInflightBytes();
+
+    /**
+     * 评估网络质量
+     *
+     * @return 网络质量等级，数据不足时返回null
+     */
+    NetworkMonitor.NetworkQuality evaluateNetworkQuality();
+
+    /**
+     * 获取网络监测统计信息
+     *
+     * @return 网络统计
+     */
+    NetworkMonitor.NetworkStats getStats();
+}
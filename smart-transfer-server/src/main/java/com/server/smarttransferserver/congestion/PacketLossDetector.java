@@ -2,7 +2,6 @@ package com.server.smarttransferserver.congestion;
 
 import lombok.Data;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.stereotype.Component;
 
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentSkipListSet;
@@ -12,7 +11,6 @@ import java.util.concurrent.ConcurrentSkipListSet;
  * 使用超时和重复ACK检测丢包
  */
 @Slf4j
-@Component
 public class PacketLossDetector {
     
     /**
@@ -46,6 +44,7 @@ public class PacketLossDetector {
     private long totalLostPackets;
     private long timeoutLostPackets;
     private long fastRetransmitLostPackets;
+    private long reportedLostPackets;
     
     /**
      * 构造方法
@@ -58,6 +57,7 @@ public class PacketLossDetector {
         this.totalLostPackets = 0;
         this.timeoutLostPackets = 0;
         this.fastRetransmitLostPackets = 0;
+        this.reportedLostPackets = 0;
     }
     
     /**
@@ -167,6 +167,14 @@ public class PacketLossDetector {
         return lossDetected;
     }
     
+    /**
+     * 记录由传输层直接上报的丢包（分片上传/下载失败），不经过序列号跟踪
+     */
+    public void recordLoss() {
+        totalLostPackets++;
+        reportedLostPackets++;
+    }
+    
     /**
      * 标记数据包为重传
      *
@@ -227,6 +235,7 @@ public class PacketLossDetector {
         totalLostPackets = 0;
         timeoutLostPackets = 0;
         fastRetransmitLostPackets = 0;
+        reportedLostPackets = 0;
     }
     
     /**
@@ -239,6 +248,7 @@ public class PacketLossDetector {
         stats.setTotalLostPackets(totalLostPackets);
         stats.setTimeoutLostPackets(timeoutLostPackets);
         stats.setFastRetransmitLostPackets(fastRetransmitLostPackets);
+        stats.setReportedLostPackets(reportedLostPackets);
         stats.setInflightCount(getInflightCount());
         stats.setInflightBytes(getInflightBytes());
         return stats;
@@ -264,6 +274,7 @@ public class PacketLossDetector {
         private long totalLostPackets;
         private long timeoutLostPackets;
         private long fastRetransmitLostPackets;
+        private long reportedLostPackets;
         private int inflightCount;
         private long inflightBytes;
     }
@@ -0,0 +1,53 @@
+package com.server.smarttransferserver.congestion;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * 路径状态（不可变）
+ * 任务结束时从算法实例中取出，按用户+客户端网段缓存，新任务的算法实例用它初始化，跳过慢启动
+ */
+@Getter
+@ToString
+@AllArgsConstructor
+public class PathState {
+
+    /**
+     * 瓶颈带宽（字节/秒）
+     */
+    private final long bandwidth;
+
+    /**
+     * 最小RTT（毫秒）
+     */
+    private final long minRtt;
+
+    /**
+     * 拥塞窗口（字节）
+     */
+    private final long cwnd;
+
+    /**
+     * 丢包率 [0, 1]
+     */
+    private final double lossRate;
+
+    /**
+     * 记录时间（毫秒）
+     */
+    private final long updatedAt;
+
+    /**
+     * 按记录时长衰减带宽和窗口（RTT和丢包率不衰减）
+     *
+     * @param now          当前时间（毫秒）
+     * @param halfLifeMs   半衰期（毫秒）
+     * @return 衰减后的状态
+     */
+    public PathState aged(long now, long halfLifeMs) {
+        long age = Math.max(0, now - updatedAt);
+        double factor = Math.pow(0.5, (double) age / Math.max(1, halfLifeMs));
+        return new PathState((long) (bandwidth * factor), minRtt, (long) (cwnd * factor), lossRate, updatedAt);
+    }
+}
@@ -52,6 +52,11 @@ public class RenoAlgorithm implements CongestionControlAlgorithm {
     @Autowired
     private CongestionConfig congestionConfig;
     
+    /**
+     * 时钟（网络模拟时替换为虚拟时钟）
+     */
+    private CongestionClock clock = CongestionClock.SYSTEM;
+    
     /**
      * 初始化TCP Reno算法
      */
@@ -63,7 +68,7 @@ public class RenoAlgorithm implements CongestionControlAlgorithm {
         this.cwnd = Math.min(congestionConfig.getInitialCwnd(), MSS * 10); // 初始窗口不超过10 MSS
         this.ssthresh = congestionConfig.getSsthresh();
         this.currentRtt = 0;
-        this.lastCwndUpdateTime = System.currentTimeMillis();
+        this.lastCwndUpdateTime = clock.currentTimeMillis();
         this.state = CongestionState.SLOW_START;
         
         log.info("TCP Reno算法初始化 - cwnd: {}字节, ssthresh: {}字节", cwnd, ssthresh);
@@ -96,7 +101,7 @@ public class RenoAlgorithm implements CongestionControlAlgorithm {
             // 拥塞避免阶段：每RTT增加1 MSS（线性增长）
             // 公式：每收到ACK，cwnd = cwnd + MSS^2 / cwnd
             // 这样平均每RTT增加1 MSS
-            long now = System.currentTimeMillis();
+            long now = clock.currentTimeMillis();
             long timeDelta = now - lastCwndUpdateTime;
             
             if (timeDelta >= currentRtt) {
@@ -202,6 +207,24 @@ public class RenoAlgorithm implements CongestionControlAlgorithm {
         return currentRtt;
     }
     
+    /**
+     * 用路径状态初始化：窗口取历史窗口，直接进入拥塞避免
+     */
+    @Override
+    public void seed(PathState pathState) {
+        this.cwnd = Math.max(congestionConfig.getMinCwnd(), Math.min(pathState.getCwnd(), congestionConfig.getMaxCwnd()));
+        this.ssthresh = cwnd;
+        this.currentRtt = pathState.getMinRtt();
+        this.lastCwndUpdateTime = clock.currentTimeMillis();
+        this.state = CongestionState.CONGESTION_AVOIDANCE;
+        log.debug("TCP Reno使用路径状态初始化 - cwnd: {}字节, rtt: {}ms", cwnd, currentRtt);
+    }
+    
+    @Override
+    public void setClock(CongestionClock clock) {
+        this.clock = clock;
+    }
+    
     @Override
     public void reset() {
         initialize();
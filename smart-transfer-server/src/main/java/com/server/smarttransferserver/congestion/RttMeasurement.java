@@ -1,11 +1,9 @@
 package com.server.smarttransferserver.congestion;
 
+import com.server.smarttransferserver.util.LongRingBuffer;
 import lombok.Data;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.stereotype.Component;
 
-import java.util.LinkedList;
-import java.util.Queue;
 import java.util.concurrent.ConcurrentHashMap;
 
 /**
@@ -13,7 +11,6 @@ import java.util.concurrent.ConcurrentHashMap;
  * 用于测量往返时延
  */
 @Slf4j
-@Component
 public class RttMeasurement {
     
     /**
@@ -24,7 +21,7 @@ public class RttMeasurement {
     /**
      * RTT样本队列
      */
-    private final Queue<Long> rttSamples;
+    private final LongRingBuffer rttSamples;
     
     /**
      * 数据包发送时间映射 <序列号, 发送时间>
@@ -55,7 +52,7 @@ public class RttMeasurement {
      * 构造方法
      */
     public RttMeasurement() {
-        this.rttSamples = new LinkedList<>();
+        this.rttSamples = new LongRingBuffer(SAMPLE_WINDOW);
         this.sendTimeMap = new ConcurrentHashMap<>();
         this.smoothedRtt = 0;
         this.rttVar = 0;
@@ -96,10 +93,7 @@ public class RttMeasurement {
      */
     public void addSample(long rtt) {
         // 添加到样本队列
-        rttSamples.offer(rtt);
-        if (rttSamples.size() > SAMPLE_WINDOW) {
-            rttSamples.poll();
-        }
+        rttSamples.add(rtt);
         
         // 更新最小、最大RTT
         minRtt = Math.min(minRtt, rtt);
@@ -165,13 +159,7 @@ public class RttMeasurement {
      * @return 平均RTT
      */
     public long getAverageRtt() {
-        if (rttSamples.isEmpty()) {
-            return 0;
-        }
-        return (long) rttSamples.stream()
-                .mapToLong(Long::longValue)
-                .average()
-                .orElse(0);
+        return (long) rttSamples.mean();
     }
     
     /**
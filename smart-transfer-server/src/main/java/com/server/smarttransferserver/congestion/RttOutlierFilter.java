@@ -1,11 +1,9 @@
 package com.server.smarttransferserver.congestion;
 
+import com.server.smarttransferserver.util.LongRingBuffer;
 import lombok.extern.slf4j.Slf4j;
 
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.List;
-import java.util.Queue;
+import java.util.Arrays;
 
 /**
  * RTT异常值过滤器
@@ -30,47 +28,37 @@ public class RttOutlierFilter {
     
     /**
      * 过滤异常值
-     * 使用四分位法：过滤超出 [Q1-1.5IQR, Q3+1.5IQR] 范围的数据
+     * 使用四分位法：过滤超出 [Q1-1.5IQR, Q3+1.5IQR] 范围的数据。
+     * 结果写入调用方复用的数组，每次评估都不分配新的集合
      *
-     * @param rttSamples RTT样本队列
-     * @return 过滤后的RTT样本列表
+     * @param rttSamples RTT样本窗口
+     * @param out        结果数组，长度不小于样本窗口大小
+     * @return 过滤后的样本数，结果位于 out[0, 返回值)
      */
-    public List<Long> filterOutliers(Queue<Long> rttSamples) {
-        if (!enabled || rttSamples.isEmpty()) {
-            // **修复：过滤null值后返回**
-            List<Long> result = new ArrayList<>();
-            for (Long rtt : rttSamples) {
-                if (rtt != null && rtt > 0) {
-                    result.add(rtt);
-                }
+    public int filterOutliers(LongRingBuffer rttSamples, long[] out) {
+        // **修复：先过滤无效值**
+        int n = 0;
+        for (int i = 0; i < rttSamples.size(); i++) {
+            long rtt = rttSamples.get(i);
+            if (rtt > 0) {
+                out[n++] = rtt;
             }
-            return result;
         }
         
-        // **修复：先过滤null值和无效值**
-        List<Long> validSamples = new ArrayList<>();
-        for (Long rtt : rttSamples) {
-            if (rtt != null && rtt > 0) {
-                validSamples.add(rtt);
-            }
-        }
-        
-        if (validSamples.size() < 4) {
-            // 样本太少，不进行过滤
-            return validSamples;
+        if (!enabled || n < 4) {
+            // 未启用或样本太少，不进行过滤
+            return n;
         }
         
-        // 转换为列表并排序
-        List<Long> sorted = new ArrayList<>(validSamples);
-        Collections.sort(sorted);
+        // 原地排序
+        Arrays.sort(out, 0, n);
         
         // 计算四分位数
-        int n = sorted.size();
         double q1Index = (n + 1) * 0.25;
         double q3Index = (n + 1) * 0.75;
         
-        long q1 = getPercentile(sorted, q1Index);
-        long q3 = getPercentile(sorted, q3Index);
+        long q1 = getPercentile(out, n, q1Index);
+        long q3 = getPercentile(out, n, q3Index);
         
         // 计算IQR（四分位距）
         long iqr = q3 - q1;
@@ -79,20 +67,19 @@ public class RttOutlierFilter {
         long lowerBound = (long) (q1 - 1.5 * iqr);
         long upperBound = (long) (q3 + 1.5 * iqr);
         
-        // 过滤异常值
-        List<Long> filtered = new ArrayList<>();
-        int outlierCount = 0;
-        for (Long rtt : sorted) {
+        // 过滤异常值（已排序，原地前移保留的样本）
+        int filtered = 0;
+        for (int i = 0; i < n; i++) {
+            long rtt = out[i];
             if (rtt >= lowerBound && rtt <= upperBound) {
-                filtered.add(rtt);
-            } else {
-                outlierCount++;
+                out[filtered++] = rtt;
             }
         }
         
+        int outlierCount = n - filtered;
         if (outlierCount > 0) {
             log.debug("RTT异常值过滤 - 原始样本: {}, 过滤后: {}, 异常值: {}, Q1: {}, Q3: {}, IQR: {}", 
-                     n, filtered.size(), outlierCount, q1, q3, iqr);
+                     n, filtered, outlierCount, q1, q3, iqr);
         }
         
         return filtered;
@@ -101,16 +88,17 @@ public class RttOutlierFilter {
     /**
      * 获取百分位数
      *
-     * @param sorted 已排序的列表
+     * @param sorted 已排序的数组
+     * @param n      有效样本数
      * @param index 索引（可以是小数）
      * @return 百分位数值
      */
-    private long getPercentile(List<Long> sorted, double index) {
+    private long getPercentile(long[] sorted, int n, double index) {
         if (index <= 0) {
-            return sorted.get(0);
+            return sorted[0];
         }
-        if (index >= sorted.size()) {
-            return sorted.get(sorted.size() - 1);
+        if (index >= n) {
+            return sorted[n - 1];
         }
         
         int lower = (int) Math.floor(index) - 1;
@@ -119,16 +107,16 @@ public class RttOutlierFilter {
         if (lower < 0) {
             lower = 0;
         }
-        if (upper >= sorted.size()) {
-            upper = sorted.size() - 1;
+        if (upper >= n) {
+            upper = n - 1;
         }
         
         if (lower == upper) {
-            return sorted.get(lower);
+            return sorted[lower];
         }
         
         // 线性插值
         double fraction = index - Math.floor(index);
-        return (long) (sorted.get(lower) * (1 - fraction) + sorted.get(upper) * fraction);
+        return (long) (sorted[lower] * (1 - fraction) + sorted[upper] * fraction);
     }
 }
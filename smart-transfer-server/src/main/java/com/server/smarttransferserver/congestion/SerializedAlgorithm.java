@@ -0,0 +1,143 @@
+package com.server.smarttransferserver.congestion;
+
+/**
+ * 单写者算法代理
+ * 同一任务的并发分片请求在不同 Tomcat 线程上回调 onAck/onLoss，直接修改算法实例会出现计数和样本窗口竞争。
+ * 代理把所有修改操作作为事件交给任务所在分片的事件循环，由循环线程串行执行；
+ * getCwnd/getRate 等读取操作返回循环线程最近发布的不可变快照，读写之间没有锁竞争。
+ * 修改操作是异步的：onAck 之后立即读取的窗口可能还是上一批事件处理后的值
+ */
+public class SerializedAlgorithm implements CongestionControlAlgorithm {
+
+    private final String taskId;
+    private final CongestionControlAlgorithm delegate;
+    private final CongestionEventLoop loop;
+
+    private volatile AlgorithmSnapshot snapshot;
+
+    /**
+     * 是否已加入本批待发布快照的列表（仅事件循环线程读写）
+     */
+    boolean dirty;
+
+    /**
+     * @param taskId   任务ID
+     * @param delegate 算法实例，交给代理后不能再被其他线程直接修改
+     * @param loop     任务所在分片的事件循环
+     */
+    public SerializedAlgorithm(String taskId, CongestionControlAlgorithm delegate, CongestionEventLoop loop) {
+        this.taskId = taskId;
+        this.delegate = delegate;
+        this.loop = loop;
+        this.snapshot = AlgorithmSnapshot.of(delegate);
+    }
+
+    public String getTaskId() {
+        return taskId;
+    }
+
+    /**
+     * 在事件循环线程中执行事件
+     */
+    void apply(byte type, long first, long second, Object ref) {
+        switch (type) {
+            case CongestionEventLoop.ACK:
+                delegate.onAck(first, second, (Long) ref);
+                break;
+            case CongestionEventLoop.LOSS:
+                delegate.onLoss(first);
+                break;
+            case CongestionEventLoop.TOTAL_CHUNKS:
+                delegate.setTotalChunks((int) first);
+                break;
+            case CongestionEventLoop.SEED:
+                delegate.seed((PathState) ref);
+                break;
+            case CongestionEventLoop.INITIALIZE:
+                delegate.initialize();
+                break;
+            case CongestionEventLoop.RESET:
+                delegate.reset();
+                break;
+            default:
+                throw new IllegalArgumentException("未知的事件类型: " + type);
+        }
+    }
+
+    /**
+     * 在事件循环线程中生成并发布快照
+     */
+    void publishSnapshot() {
+        snapshot = AlgorithmSnapshot.of(delegate);
+    }
+
+    @Override
+    public void initialize() {
+        loop.publish(this, CongestionEventLoop.INITIALIZE, 0, 0, null);
+    }
+
+    @Override
+    public void onAck(long ackedBytes, long fullRttMs, Long propagationRttMs) {
+        loop.publish(this, CongestionEventLoop.ACK, ackedBytes, fullRttMs, propagationRttMs);
+    }
+
+    @Override
+    public void onLoss(long lostBytes) {
+        loop.publish(this, CongestionEventLoop.LOSS, lostBytes, 0, null);
+    }
+
+    @Override
+    public void setTotalChunks(int totalChunks) {
+        // 只有自适应算法使用；每个分片都会注入同一个值，未变化时不入队
+        AlgorithmSnapshot current = snapshot;
+        if (!current.isAdaptive() || current.getTotalChunks() == totalChunks) {
+            return;
+        }
+        loop.publish(this, CongestionEventLoop.TOTAL_CHUNKS, totalChunks, 0, null);
+    }
+
+    @Override
+    public void seed(PathState pathState) {
+        loop.publish(this, CongestionEventLoop.SEED, 0, 0, pathState);
+    }
+
+    @Override
+    public void reset() {
+        loop.publish(this, CongestionEventLoop.RESET, 0, 0, null);
+    }
+
+    @Override
+    public AlgorithmSnapshot snapshot() {
+        return snapshot;
+    }
+
+    @Override
+    public long getCwnd() {
+        return snapshot.getCwnd();
+    }
+
+    @Override
+    public long getRate() {
+        return snapshot.getRate();
+    }
+
+    @Override
+    public CongestionState getState() {
+        return snapshot.getState();
+    }
+
+    @Override
+    public String getAlgorithmName() {
+        return snapshot.getAlgorithmName();
+    }
+
+    @Override
+    public long getSsthresh() {
+        return snapshot.getSsthresh();
+    }
+
+    @Override
+    public long getRtt() {
+        return snapshot.getRtt();
+    }
+}
@@ -1,13 +1,12 @@
 package com.server.smarttransferserver.congestion;
 
 import com.server.smarttransferserver.config.CongestionConfig;
+import com.server.smarttransferserver.util.LongRingBuffer;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import javax.annotation.PostConstruct;
-import java.util.LinkedList;
-import java.util.Queue;
 
 /**
  * TCP Vegas拥塞控制算法实现
@@ -62,12 +61,12 @@ public class VegasAlgorithm implements CongestionControlAlgorithm {
     /**
      * RTT样本队列（用于计算基础RTT和检测延迟变化）
      */
-    private final Queue<Long> rttSamples;
+    private final LongRingBuffer rttSamples;
     
     /**
      * 窗口样本队列（用于计算期望吞吐量）
      */
-    private final Queue<Long> windowSamples;
+    private final LongRingBuffer windowSamples;
     
     /**
      * 上次窗口更新时的RTT
@@ -80,12 +79,17 @@ public class VegasAlgorithm implements CongestionControlAlgorithm {
     @Autowired
     private CongestionConfig congestionConfig;
     
+    /**
+     * 时钟（网络模拟时替换为虚拟时钟）
+     */
+    private CongestionClock clock = CongestionClock.SYSTEM;
+    
     /**
      * 构造方法
      */
     public VegasAlgorithm() {
-        this.rttSamples = new LinkedList<>();
-        this.windowSamples = new LinkedList<>();
+        this.rttSamples = new LongRingBuffer(20);
+        this.windowSamples = new LongRingBuffer(10);
     }
     
     /**
@@ -128,10 +132,7 @@ public class VegasAlgorithm implements CongestionControlAlgorithm {
         }
         
         // 更新窗口样本
-        windowSamples.offer(cwnd);
-        if (windowSamples.size() > 10) {
-            windowSamples.poll();
-        }
+        windowSamples.add(cwnd);
         
         if (state == CongestionState.SLOW_START) {
             cwnd += ackedBytes;
@@ -227,16 +228,10 @@ public class VegasAlgorithm implements CongestionControlAlgorithm {
     private void updateRttSample(long rtt) {
         // **修复：过滤无效RTT值**
         if (rtt > 0 && rtt < 10000) {
-            rttSamples.offer(rtt);
-            if (rttSamples.size() > 20) {
-                rttSamples.poll();
-            }
+            rttSamples.add(rtt);
             
-            // 更新基础RTT（取历史最小值，过滤null值）
-            long minRtt = rttSamples.stream()
-                    .filter(r -> r != null && r > 0)
-                    .min(Long::compare)
-                    .orElse(rtt);
+            // 更新基础RTT（取历史最小值，入样时已过滤无效值）
+            long minRtt = rttSamples.min();
             if (minRtt < baseRtt) {
                 baseRtt = minRtt;
             }
@@ -283,6 +278,26 @@ public class VegasAlgorithm implements CongestionControlAlgorithm {
         return baseRtt != Long.MAX_VALUE ? baseRtt : currentRtt;
     }
     
+    /**
+     * 用路径状态初始化：窗口取历史窗口，基准RTT取历史最小RTT，直接进入拥塞避免
+     */
+    @Override
+    public void seed(PathState pathState) {
+        this.cwnd = Math.max(congestionConfig.getMinCwnd(), Math.min(pathState.getCwnd(), congestionConfig.getMaxCwnd()));
+        this.ssthresh = cwnd;
+        if (pathState.getMinRtt() > 0) {
+            this.baseRtt = pathState.getMinRtt();
+            this.currentRtt = pathState.getMinRtt();
+        }
+        this.state = CongestionState.CONGESTION_AVOIDANCE;
+        log.debug("TCP Vegas使用路径状态初始化 - cwnd: {}字节, baseRtt: {}ms", cwnd, baseRtt);
+    }
+    
+    @Override
+    public void setClock(CongestionClock clock) {
+        this.clock = clock;
+    }
+    
     @Override
     public void reset() {
         initialize();
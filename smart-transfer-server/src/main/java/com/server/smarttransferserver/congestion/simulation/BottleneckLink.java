@@ -0,0 +1,110 @@
+package com.server.smarttransferserver.congestion.simulation;
+
+/**
+ * 瓶颈链路（尾部丢弃的FIFO队列）
+ * 不为每个数据包建队列节点：链路空闲时刻 freeAtMicros 之前排着的数据量 = 剩余排队时间 × 带宽，
+ * 新数据包超过缓冲区时直接丢弃，否则排到队尾，离开时刻 = max(到达时刻, 空闲时刻) + 发送时长
+ */
+public class BottleneckLink {
+
+    /**
+     * 带宽（字节/秒）
+     */
+    private long bandwidth;
+
+    /**
+     * 单向传播时延（微秒）
+     */
+    private long propagationMicros;
+
+    /**
+     * 缓冲区大小（字节）
+     */
+    private final long bufferBytes;
+
+    /**
+     * 链路空闲时刻（微秒）
+     */
+    private long freeAtMicros;
+
+    /**
+     * 累计发送时长（微秒），用于计算链路利用率
+     */
+    private long busyMicros;
+
+    /**
+     * 缓冲区溢出丢弃的数据包数
+     */
+    private long overflowDrops;
+
+    public BottleneckLink(long bandwidth, long propagationMicros, long bufferBytes) {
+        this.bandwidth = bandwidth;
+        this.propagationMicros = propagationMicros;
+        this.bufferBytes = bufferBytes;
+    }
+
+    /**
+     * 数据包到达瓶颈队列
+     *
+     * @param nowMicros 到达时刻
+     * @param bytes     数据包大小
+     * @return 离开链路的时刻（微秒），缓冲区溢出时返回 -1
+     */
+    public long enqueue(long nowMicros, long bytes) {
+        long waitMicros = Math.max(0, freeAtMicros - nowMicros);
+        long queuedBytes = waitMicros * bandwidth / 1_000_000L;
+        // 队列为空时总能直接发送，缓冲区比一个数据包还小也不会把链路堵死
+        if (queuedBytes > 0 && queuedBytes + bytes > bufferBytes) {
+            overflowDrops++;
+            return -1;
+        }
+        long transmitMicros = transmitMicros(bytes);
+        freeAtMicros = nowMicros + waitMicros + transmitMicros;
+        busyMicros += transmitMicros;
+        return freeAtMicros;
+    }
+
+    /**
+     * 当前排队时延
+     *
+     * @param nowMicros 当前时刻
+     * @return 微秒
+     */
+    public long queueDelayMicros(long nowMicros) {
+        return Math.max(0, freeAtMicros - nowMicros);
+    }
+
+    /**
+     * 按当前带宽计算发送时长
+     *
+     * @param bytes 字节数
+     * @return 微秒
+     */
+    public long transmitMicros(long bytes) {
+        return Math.max(1, bytes * 1_000_000L / bandwidth);
+    }
+
+    public long getBandwidth() {
+        return bandwidth;
+    }
+
+    public void setBandwidth(long bandwidth) {
+        this.bandwidth = Math.max(1, bandwidth);
+    }
+
+    public long getPropagationMicros() {
+        return propagationMicros;
+    }
+
+    public void setPropagationMicros(long propagationMicros) {
+        this.propagationMicros = Math.max(0, propagationMicros);
+    }
+
+    public long getBusyMicros() {
+        return busyMicros;
+    }
+
+    public long getOverflowDrops() {
+        return overflowDrops;
+    }
+}
@@ -0,0 +1,55 @@
+package com.server.smarttransferserver.congestion.simulation;
+
+/**
+ * 排队时延直方图（100微秒一个桶，超出范围的计入最后一个桶，最大值单独精确记录）
+ * 长时间模拟的样本数可达数百万，用定长直方图代替保存全部样本
+ */
+class DelayHistogram {
+
+    private static final long BUCKET_MICROS = 100;
+    private static final int BUCKETS = 100_000;
+
+    private final long[] counts = new long[BUCKETS];
+    private long count;
+    private long sumMicros;
+    private long maxMicros;
+
+    void record(long micros) {
+        int bucket = (int) Math.min(BUCKETS - 1, micros / BUCKET_MICROS);
+        counts[bucket]++;
+        count++;
+        sumMicros += micros;
+        if (micros > maxMicros) {
+            maxMicros = micros;
+        }
+    }
+
+    double meanMs() {
+        return count > 0 ? sumMicros / 1000.0 / count : 0;
+    }
+
+    double maxMs() {
+        return maxMicros / 1000.0;
+    }
+
+    /**
+     * 百分位（取桶上界）
+     *
+     * @param percentile 0~1
+     * @return 毫秒
+     */
+    double percentileMs(double percentile) {
+        if (count == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(percentile * count);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(maxMicros, (i + 1) * BUCKET_MICROS) / 1000.0;
+            }
+        }
+        return maxMs();
+    }
+}
@@ -0,0 +1,57 @@
+package com.server.smarttransferserver.congestion.simulation;
+
+import java.util.Random;
+
+/**
+ * 链路丢包模型
+ * 随机丢包：每个数据包独立按 lossRate 丢弃；
+ * 突发丢包：Gilbert-Elliott 两状态马尔可夫链，好状态按 lossRate 丢包，坏状态按 badLossRate 丢包，
+ * 每个数据包到达时按 goodToBad / badToGood 概率转移状态
+ */
+public class LossModel {
+
+    private final Random random;
+    private final boolean bursty;
+    private final double goodToBad;
+    private final double badToGood;
+    private final double badLossRate;
+    private double lossRate;
+    private boolean bad;
+
+    public LossModel(SimulationConfig config, Random random) {
+        this.random = random;
+        this.bursty = config.isBurstLoss();
+        this.goodToBad = config.getGoodToBadProbability();
+        this.badToGood = config.getBadToGoodProbability();
+        this.badLossRate = config.getBadLossRate();
+        this.lossRate = config.getLossRate();
+    }
+
+    /**
+     * 判断下一个数据包是否丢弃
+     *
+     * @return true 表示丢弃
+     */
+    public boolean nextLost() {
+        if (bursty) {
+            if (bad) {
+                if (random.nextDouble() < badToGood) {
+                    bad = false;
+                }
+            } else if (random.nextDouble() < goodToBad) {
+                bad = true;
+            }
+            return random.nextDouble() < (bad ? badLossRate : lossRate);
+        }
+        return lossRate > 0 && random.nextDouble() < lossRate;
+    }
+
+    /**
+     * 替换好状态（或随机模型）下的丢包率，回放轨迹时使用
+     *
+     * @param lossRate 丢包率
+     */
+    public void setLossRate(double lossRate) {
+        this.lossRate = lossRate;
+    }
+}
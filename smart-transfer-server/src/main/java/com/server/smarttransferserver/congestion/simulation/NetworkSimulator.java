@@ -0,0 +1,471 @@
+package com.server.smarttransferserver.congestion.simulation;
+
+import com.server.smarttransferserver.congestion.CongestionControlAlgorithm;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Random;
+
+/**
+ * 离散事件网络模拟器
+ * 在虚拟时钟上用一条瓶颈链路驱动若干条拥塞控制流：事件按（时刻，入队序号）排序，
+ * 随机数只来自配置的种子，相同配置 + 相同种子的结果逐字节一致。
+ * <p>
+ * 每个数据包经过瓶颈队列（尾部丢弃）和丢包模型，交付后经过 2 × 传播时延 + 抖动回到发送方，
+ * 发送方调用 onAck(字节数, 完整RTT, 探测RTT)：完整RTT 含本包的发送时长，探测RTT = 2 × 传播时延 + 排队时延 + 抖动，
+ * 与线上分片的两种RTT含义一致；丢失的数据包在约一个RTT后被发现，调用 onLoss 并重传。
+ * 非线程安全，一个实例只运行一次
+ */
+public class NetworkSimulator {
+
+    private static final int EVENT_TRACE = 0;
+    private static final int EVENT_START = 1;
+    private static final int EVENT_SEND = 2;
+    private static final int EVENT_ACK = 3;
+    private static final int EVENT_LOSS = 4;
+    private static final int EVENT_SAMPLE = 5;
+
+    /**
+     * 收敛判定：采样吞吐量与最终稳定均值的允许偏差
+     */
+    private static final double CONVERGENCE_BAND = 0.2;
+
+    /**
+     * 最终稳定均值取活跃采样点的最后这部分
+     */
+    private static final double STEADY_TAIL_RATIO = 0.2;
+
+    private final SimulationConfig config;
+    private final VirtualClock clock;
+    private final Random random;
+    private final BottleneckLink link;
+    private final LossModel lossModel;
+    private final List<SimulatedFlow> flows = new ArrayList<>();
+    private final PriorityQueue<Event> events = new PriorityQueue<>();
+    private final DelayHistogram queueDelay = new DelayHistogram();
+    private final long durationMicros;
+    private final long sampleMicros;
+    private final long jitterMicros;
+    private final long maxEvents;
+    private final List<SimulationResult.Sample> series;
+
+    private long sequence;
+    private long eventCount;
+    private long randomDrops;
+    private int sampleCount;
+
+    /**
+     * @param config       模拟配置
+     * @param algorithms   与 config.flows 一一对应的算法实例（新建的，不能是线上正在使用的实例）
+     * @param originMillis 虚拟时钟起点（毫秒）
+     * @param maxEvents    事件数上限，超过时中止
+     */
+    public NetworkSimulator(SimulationConfig config, List<CongestionControlAlgorithm> algorithms,
+                            long originMillis, long maxEvents) {
+        if (config.getFlows() == null || config.getFlows().isEmpty()) {
+            throw new IllegalArgumentException("至少需要一条流");
+        }
+        if (algorithms.size() != config.getFlows().size()) {
+            throw new IllegalArgumentException("算法实例数与流数不一致");
+        }
+        this.config = config;
+        this.clock = new VirtualClock(originMillis);
+        this.random = new Random(config.getSeed());
+        this.durationMicros = Math.round(config.getDurationSeconds() * 1_000_000L);
+        this.sampleMicros = config.getSampleIntervalMs() * 1000;
+        this.jitterMicros = Math.round(config.getJitterMs() * 1000);
+        this.maxEvents = maxEvents;
+        this.series = config.isIncludeSeries() ? new ArrayList<>() : null;
+
+        long propagationMicros = Math.round(config.getPropagationDelayMs() * 1000);
+        long bufferBytes = config.getBufferBytes();
+        if (bufferBytes <= 0) {
+            bufferBytes = Math.max(config.getSegmentBytes(), config.getBandwidth() * 2 * propagationMicros / 1_000_000L);
+        }
+        this.link = new BottleneckLink(config.getBandwidth(), propagationMicros, bufferBytes);
+        this.lossModel = new LossModel(config, random);
+
+        for (int i = 0; i < algorithms.size(); i++) {
+            SimulationConfig.FlowConfig flowConfig = config.getFlows().get(i);
+            CongestionControlAlgorithm algorithm = algorithms.get(i);
+            // 时钟替换后重新初始化，算法内部的时间戳都从虚拟时钟取
+            algorithm.setClock(clock);
+            algorithm.initialize();
+            flows.add(new SimulatedFlow(i, flowConfig.getAlgorithm(), algorithm,
+                    flowConfig.getStartMs() * 1000, flowConfig.getSizeBytes()));
+        }
+    }
+
+    /**
+     * 运行模拟
+     *
+     * @return 模拟结果
+     */
+    public SimulationResult run() {
+        long wallStart = System.nanoTime();
+        List<SimulationConfig.TracePoint> trace = config.getTrace();
+        if (trace != null) {
+            for (int i = 0; i < trace.size(); i++) {
+                schedule(Math.max(0, trace.get(i).getOffsetMs()) * 1000, EVENT_TRACE, null, i, 0, 0);
+            }
+        }
+        for (SimulatedFlow flow : flows) {
+            schedule(flow.startMicros, EVENT_START, flow, 0, 0, 0);
+        }
+        schedule(sampleMicros, EVENT_SAMPLE, null, 0, 0, 0);
+
+        long endMicros = durationMicros;
+        while (!events.isEmpty()) {
+            Event event = events.poll();
+            if (event.time > durationMicros) {
+                break;
+            }
+            clock.advanceTo(event.time);
+            if (++eventCount > maxEvents) {
+                throw new IllegalStateException("模拟事件数超过上限: " + maxEvents);
+            }
+            dispatch(event);
+            if (allFinished()) {
+                endMicros = clock.nowMicros();
+                break;
+            }
+        }
+
+        long wallNanos = System.nanoTime() - wallStart;
+        return buildResult(endMicros, wallNanos);
+    }
+
+    private void dispatch(Event event) {
+        SimulatedFlow flow = event.flow;
+        switch (event.type) {
+            case EVENT_TRACE:
+                applyTracePoint(config.getTrace().get(event.arg));
+                break;
+            case EVENT_START:
+                flow.started = true;
+                trySend(flow);
+                break;
+            case EVENT_SEND:
+                flow.sendScheduled = false;
+                trySend(flow);
+                break;
+            case EVENT_ACK:
+                onAck(flow, event);
+                break;
+            case EVENT_LOSS:
+                onLoss(flow, event.bytes);
+                break;
+            case EVENT_SAMPLE:
+                onSample();
+                break;
+            default:
+                throw new IllegalStateException("未知事件类型: " + event.type);
+        }
+    }
+
+    private void applyTracePoint(SimulationConfig.TracePoint point) {
+        if (point.getBandwidth() > 0) {
+            link.setBandwidth(point.getBandwidth());
+        }
+        if (point.getRttMs() > 0) {
+            link.setPropagationMicros(point.getRttMs() * 500);
+        }
+        if (point.getLossRate() >= 0) {
+            lossModel.setLossRate(point.getLossRate());
+        }
+    }
+
+    /**
+     * 在拥塞窗口（和节拍）允许的范围内尽量发送
+     */
+    private void trySend(SimulatedFlow flow) {
+        long now = clock.nowMicros();
+        while (flow.started && !flow.finished() && flow.remainingBytes > 0) {
+            long bytes = Math.min(config.getSegmentBytes(), flow.remainingBytes);
+            // 窗口小于一个分片时，没有在途数据也允许发一个，否则流会停住
+            if (flow.inflightBytes > 0 && flow.inflightBytes + bytes > flow.algorithm.getCwnd()) {
+                return;
+            }
+            if (config.isPacing()) {
+                long rate = flow.algorithm.getRate();
+                if (rate > 0) {
+                    if (flow.nextSendMicros > now) {
+                        if (!flow.sendScheduled) {
+                            flow.sendScheduled = true;
+                            schedule(flow.nextSendMicros, EVENT_SEND, flow, 0, 0, 0);
+                        }
+                        return;
+                    }
+                    flow.nextSendMicros = Math.max(now, flow.nextSendMicros) + Math.max(1, bytes * 1_000_000L / rate);
+                }
+            }
+            send(flow, bytes, now);
+        }
+    }
+
+    private void send(SimulatedFlow flow, long bytes, long now) {
+        flow.inflightBytes += bytes;
+        if (flow.sizeBytes > 0) {
+            flow.remainingBytes -= bytes;
+        }
+        flow.sentPackets++;
+
+        long propagation = link.getPropagationMicros();
+        long waitMicros = link.queueDelayMicros(now);
+        long departure = link.enqueue(now, bytes);
+        if (departure < 0) {
+            // 缓冲区溢出：按后续数据包的ACK暴露空洞估算，约一个RTT后发现
+            long detectAt = now + waitMicros + link.transmitMicros(bytes) + 2 * propagation;
+            schedule(detectAt, EVENT_LOSS, flow, 0, bytes, 0);
+            return;
+        }
+        queueDelay.record(waitMicros);
+        flow.queueDelay.record(waitMicros);
+        if (lossModel.nextLost()) {
+            randomDrops++;
+            schedule(departure + 2 * propagation, EVENT_LOSS, flow, 0, bytes, 0);
+            return;
+        }
+        long jitter = jitterMicros > 0 ? (long) (random.nextDouble() * jitterMicros) : 0;
+        long probeMicros = 2 * propagation + waitMicros + jitter;
+        Event ack = schedule(departure + 2 * propagation + jitter, EVENT_ACK, flow, 0, bytes, probeMicros);
+        ack.sendMicros = now;
+    }
+
+    private void onAck(SimulatedFlow flow, Event event) {
+        long now = clock.nowMicros();
+        long fullRttMicros = now - event.sendMicros;
+        flow.inflightBytes -= event.bytes;
+        flow.deliveredBytes += event.bytes;
+        flow.rttSumMicros += fullRttMicros;
+        flow.rttCount++;
+        flow.algorithm.onAck(event.bytes, toMillis(fullRttMicros), toMillis(event.probeMicros));
+        if (flow.sizeBytes > 0 && flow.deliveredBytes >= flow.sizeBytes) {
+            flow.finishMicros = now;
+            return;
+        }
+        trySend(flow);
+    }
+
+    private void onLoss(SimulatedFlow flow, long bytes) {
+        flow.inflightBytes -= bytes;
+        flow.lostPackets++;
+        if (flow.sizeBytes > 0) {
+            flow.remainingBytes += bytes;
+        }
+        flow.algorithm.onLoss(bytes);
+        trySend(flow);
+    }
+
+    private void onSample() {
+        long now = clock.nowMicros();
+        SimulationResult.Sample sample = null;
+        if (series != null) {
+            sample = new SimulationResult.Sample();
+            sample.setTimeMs(now / 1000);
+            sample.setThroughput(new long[flows.size()]);
+            sample.setCwnd(new long[flows.size()]);
+            sample.setQueueDelayMs(link.queueDelayMicros(now) / 1000.0);
+            series.add(sample);
+        }
+        for (SimulatedFlow flow : flows) {
+            flow.recordSample();
+            if (sample != null) {
+                sample.getThroughput()[flow.index] = flow.intervalBytes[sampleCount] * 1_000_000L / sampleMicros;
+                sample.getCwnd()[flow.index] = flow.algorithm.getCwnd();
+            }
+        }
+        sampleCount++;
+        if (now + sampleMicros <= durationMicros) {
+            schedule(now + sampleMicros, EVENT_SAMPLE, null, 0, 0, 0);
+        }
+    }
+
+    private boolean allFinished() {
+        for (SimulatedFlow flow : flows) {
+            if (!flow.finished()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private Event schedule(long time, int type, SimulatedFlow flow, int arg, long bytes, long probeMicros) {
+        Event event = new Event(time, sequence++, type, flow, arg, bytes, probeMicros);
+        events.add(event);
+        return event;
+    }
+
+    private static long toMillis(long micros) {
+        return Math.max(1, (micros + 500) / 1000);
+    }
+
+    // ==================== 结果统计 ====================
+
+    private SimulationResult buildResult(long endMicros, long wallNanos) {
+        SimulationResult result = new SimulationResult();
+        double simulatedSeconds = endMicros / 1_000_000.0;
+        result.setSimulatedSeconds(simulatedSeconds);
+        result.setWallTimeMs(wallNanos / 1_000_000);
+        result.setSpeedup(wallNanos > 0 ? simulatedSeconds / (wallNanos / 1e9) : 0);
+        result.setEventCount(eventCount);
+        result.setLinkUtilization(endMicros > 0 ? Math.min(1.0, (double) link.getBusyMicros() / endMicros) : 0);
+        result.setOverflowDrops(link.getOverflowDrops());
+        result.setRandomDrops(randomDrops);
+        result.setMeanQueueDelayMs(queueDelay.meanMs());
+        result.setP95QueueDelayMs(queueDelay.percentileMs(0.95));
+        result.setMaxQueueDelayMs(queueDelay.maxMs());
+
+        long convergence = 0;
+        for (SimulatedFlow flow : flows) {
+            SimulationResult.FlowResult flowResult = buildFlowResult(flow, endMicros);
+            result.getFlows().add(flowResult);
+            if (convergence >= 0) {
+                convergence = flowResult.getConvergenceTimeMs() < 0
+                        ? -1 : Math.max(convergence, flowResult.getConvergenceTimeMs());
+            }
+        }
+        result.setConvergenceTimeMs(convergence);
+        result.setJainFairness(jainFairness());
+        result.setSeries(series);
+        return result;
+    }
+
+    private SimulationResult.FlowResult buildFlowResult(SimulatedFlow flow, long endMicros) {
+        SimulationResult.FlowResult result = new SimulationResult.FlowResult();
+        result.setIndex(flow.index);
+        result.setAlgorithm(flow.algorithmType);
+        result.setFinalAlgorithm(flow.algorithm.getAlgorithmName());
+        result.setAlgorithmSwitches(flow.algorithmSwitches);
+        result.setStartMs(flow.startMicros / 1000);
+        result.setFinishMs(flow.finished() ? flow.finishMicros / 1000 : -1);
+        result.setDeliveredBytes(flow.deliveredBytes);
+        long activeMicros = (flow.finished() ? flow.finishMicros : endMicros) - flow.startMicros;
+        result.setThroughput(activeMicros > 0 ? flow.deliveredBytes * 1_000_000L / activeMicros : 0);
+        result.setSentPackets(flow.sentPackets);
+        result.setLostPackets(flow.lostPackets);
+        result.setMeanRttMs(flow.rttCount > 0 ? flow.rttSumMicros / 1000.0 / flow.rttCount : 0);
+        result.setMeanQueueDelayMs(flow.queueDelay.meanMs());
+        result.setP95QueueDelayMs(flow.queueDelay.percentileMs(0.95));
+        result.setMaxQueueDelayMs(flow.queueDelay.maxMs());
+        result.setConvergenceTimeMs(convergenceTime(flow));
+        result.setFinalCwnd(flow.algorithm.getCwnd());
+        return result;
+    }
+
+    /**
+     * 流完整覆盖的第一个采样间隔
+     */
+    private int firstSample(SimulatedFlow flow) {
+        return (int) ((flow.startMicros + sampleMicros - 1) / sampleMicros);
+    }
+
+    /**
+     * 流完整覆盖的最后一个采样间隔（包含）
+     */
+    private int lastSample(SimulatedFlow flow) {
+        int last = flow.sampleCount - 1;
+        if (flow.finished()) {
+            last = Math.min(last, (int) (flow.finishMicros / sampleMicros) - 1);
+        }
+        return last;
+    }
+
+    /**
+     * 收敛时间：从流开始到吞吐量进入并一直保持在最终稳定均值 ±20% 以内
+     *
+     * @return 毫秒，采样点不足或最后一个采样点都不在范围内时返回 -1
+     */
+    private long convergenceTime(SimulatedFlow flow) {
+        int first = firstSample(flow);
+        int last = lastSample(flow);
+        int count = last - first + 1;
+        if (count < 5) {
+            return -1;
+        }
+        int tail = Math.max(1, (int) (count * STEADY_TAIL_RATIO));
+        double steady = 0;
+        for (int i = last - tail + 1; i <= last; i++) {
+            steady += flow.intervalBytes[i];
+        }
+        steady /= tail;
+        if (steady <= 0) {
+            return -1;
+        }
+        int converged = last + 1;
+        while (converged > first
+                && Math.abs(flow.intervalBytes[converged - 1] - steady) <= steady * CONVERGENCE_BAND) {
+            converged--;
+        }
+        if (converged > last) {
+            return -1;
+        }
+        return Math.max(0, converged * sampleMicros - flow.startMicros) / 1000;
+    }
+
+    /**
+     * Jain 公平性指数：(Σx)² / (n·Σx²)，x 为各流在共同活跃区间内的平均吞吐量；
+     * 没有共同活跃区间时用各流整个活跃期间的平均吞吐量
+     */
+    private double jainFairness() {
+        int n = flows.size();
+        if (n < 2) {
+            return 1.0;
+        }
+        int from = 0;
+        int to = Integer.MAX_VALUE;
+        for (SimulatedFlow flow : flows) {
+            from = Math.max(from, firstSample(flow));
+            to = Math.min(to, lastSample(flow));
+        }
+        double sum = 0;
+        double sumSquares = 0;
+        for (SimulatedFlow flow : flows) {
+            double x;
+            if (from <= to) {
+                long bytes = 0;
+                for (int i = from; i <= to; i++) {
+                    bytes += flow.intervalBytes[i];
+                }
+                x = (double) bytes / (to - from + 1);
+            } else {
+                long activeMicros = (flow.finished() ? flow.finishMicros : clock.nowMicros()) - flow.startMicros;
+                x = activeMicros > 0 ? (double) flow.deliveredBytes / activeMicros : 0;
+            }
+            sum += x;
+            sumSquares += x * x;
+        }
+        return sumSquares > 0 ? sum * sum / (n * sumSquares) : 1.0;
+    }
+
+    /**
+     * 事件（同一时刻按入队顺序处理，保证确定性）
+     */
+    private static final class Event implements Comparable<Event> {
+        final long time;
+        final long seq;
+        final int type;
+        final SimulatedFlow flow;
+        final int arg;
+        final long bytes;
+        final long probeMicros;
+        long sendMicros;
+
+        Event(long time, long seq, int type, SimulatedFlow flow, int arg, long bytes, long probeMicros) {
+            this.time = time;
+            this.seq = seq;
+            this.type = type;
+            this.flow = flow;
+            this.arg = arg;
+            this.bytes = bytes;
+            this.probeMicros = probeMicros;
+        }
+
+        @Override
+        public int compareTo(Event other) {
+            int byTime = Long.compare(time, other.time);
+            return byTime != 0 ? byTime : Long.compare(seq, other.seq);
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.server.smarttransferserver.congestion.simulation;
+
+import com.server.smarttransferserver.congestion.CongestionControlAlgorithm;
+
+import java.util.Arrays;
+
+/**
+ * 模拟中的一条流：按拥塞窗口（可选按速率节拍）发送，丢失的数据包重传
+ */
+class SimulatedFlow {
+
+    final int index;
+    final String algorithmType;
+    final CongestionControlAlgorithm algorithm;
+    final long startMicros;
+
+    /**
+     * 总字节数，0 表示无限
+     */
+    final long sizeBytes;
+
+    /**
+     * 待发送字节数（含待重传）
+     */
+    long remainingBytes;
+    long inflightBytes;
+    long deliveredBytes;
+    long sentPackets;
+    long lostPackets;
+    long rttSumMicros;
+    long rttCount;
+
+    /**
+     * 节拍发送的下一个允许时刻
+     */
+    long nextSendMicros;
+    boolean sendScheduled;
+    boolean started;
+    long finishMicros = -1;
+
+    final DelayHistogram queueDelay = new DelayHistogram();
+
+    /**
+     * 每个采样间隔内交付的字节数（按全局采样序号）
+     */
+    long[] intervalBytes = new long[64];
+    int sampleCount;
+    long deliveredAtLastSample;
+    String lastAlgorithmName;
+    int algorithmSwitches;
+
+    SimulatedFlow(int index, String algorithmType, CongestionControlAlgorithm algorithm, long startMicros, long sizeBytes) {
+        this.index = index;
+        this.algorithmType = algorithmType;
+        this.algorithm = algorithm;
+        this.startMicros = startMicros;
+        this.sizeBytes = sizeBytes;
+        this.remainingBytes = sizeBytes > 0 ? sizeBytes : Long.MAX_VALUE;
+    }
+
+    boolean finished() {
+        return finishMicros >= 0;
+    }
+
+    void recordSample() {
+        if (sampleCount == intervalBytes.length) {
+            intervalBytes = Arrays.copyOf(intervalBytes, sampleCount * 2);
+        }
+        intervalBytes[sampleCount++] = deliveredBytes - deliveredAtLastSample;
+        deliveredAtLastSample = deliveredBytes;
+        String name = algorithm.getAlgorithmName();
+        if (lastAlgorithmName != null && !lastAlgorithmName.equals(name)) {
+            algorithmSwitches++;
+        }
+        lastAlgorithmName = name;
+    }
+}
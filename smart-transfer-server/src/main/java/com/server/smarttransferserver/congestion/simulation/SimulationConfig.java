@@ -0,0 +1,170 @@
+package com.server.smarttransferserver.congestion.simulation;
+
+import lombok.Data;
+
+import javax.validation.Valid;
+import javax.validation.constraints.DecimalMax;
+import javax.validation.constraints.DecimalMin;
+import javax.validation.constraints.Min;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 网络模拟配置
+ * 一条瓶颈链路 + 若干条竞争流，时间单位均为模拟时间
+ */
+@Data
+public class SimulationConfig {
+
+    /**
+     * 瓶颈带宽（字节/秒），默认 1Gbps
+     */
+    @Min(value = 1024, message = "带宽不能小于1KB/s")
+    private long bandwidth = 125_000_000L;
+
+    /**
+     * 单向传播时延（毫秒）
+     */
+    @Min(value = 0, message = "传播时延不能为负")
+    private double propagationDelayMs = 25;
+
+    /**
+     * 瓶颈缓冲区（字节），0 表示取一个BDP
+     */
+    @Min(value = 0, message = "缓冲区不能为负")
+    private long bufferBytes;
+
+    /**
+     * 随机丢包率（突发模型下为好状态丢包率）
+     */
+    @DecimalMin("0")
+    @DecimalMax("1")
+    private double lossRate;
+
+    /**
+     * 是否使用 Gilbert-Elliott 突发丢包模型
+     */
+    private boolean burstLoss;
+
+    /**
+     * 好状态 → 坏状态的转移概率（每个数据包）
+     */
+    @DecimalMin("0")
+    @DecimalMax("1")
+    private double goodToBadProbability = 0.01;
+
+    /**
+     * 坏状态 → 好状态的转移概率（每个数据包）
+     */
+    @DecimalMin("0")
+    @DecimalMax("1")
+    private double badToGoodProbability = 0.3;
+
+    /**
+     * 坏状态丢包率
+     */
+    @DecimalMin("0")
+    @DecimalMax("1")
+    private double badLossRate = 0.5;
+
+    /**
+     * 返回路径的随机抖动上限（毫秒），每个ACK在 [0, jitterMs] 内均匀取值
+     */
+    @Min(value = 0, message = "抖动不能为负")
+    private double jitterMs;
+
+    /**
+     * 数据包（分片）大小（字节）
+     */
+    @Min(value = 1024, message = "分片大小不能小于1KB")
+    private long segmentBytes = 1024 * 1024;
+
+    /**
+     * 是否按算法给出的速率节拍发送（否则只受拥塞窗口限制）
+     */
+    private boolean pacing;
+
+    /**
+     * 模拟时长（秒）
+     */
+    @DecimalMin(value = "0.001", message = "模拟时长必须大于0")
+    private double durationSeconds = 60;
+
+    /**
+     * 采样间隔（毫秒），吞吐量序列、收敛时间和公平性都按采样点计算
+     */
+    @Min(value = 1, message = "采样间隔不能小于1ms")
+    private long sampleIntervalMs = 100;
+
+    /**
+     * 是否在结果中返回采样序列
+     */
+    private boolean includeSeries;
+
+    /**
+     * 随机种子，相同配置 + 相同种子的结果完全一致
+     */
+    private long seed = 1;
+
+    /**
+     * 竞争流
+     */
+    @Valid
+    private List<FlowConfig> flows = new ArrayList<>();
+
+    /**
+     * 链路轨迹（回放时由拥塞指标记录生成），按时间升序，为空时链路参数固定
+     */
+    private List<TracePoint> trace = new ArrayList<>();
+
+    /**
+     * 单条流配置
+     */
+    @Data
+    public static class FlowConfig {
+
+        /**
+         * 算法类型：RENO / VEGAS / CUBIC / BBR / ADAPTIVE
+         */
+        private String algorithm = "ADAPTIVE";
+
+        /**
+         * 开始时间（毫秒）
+         */
+        @Min(value = 0, message = "开始时间不能为负")
+        private long startMs;
+
+        /**
+         * 传输总字节数，0 表示一直发送到模拟结束
+         */
+        @Min(value = 0, message = "传输大小不能为负")
+        private long sizeBytes;
+    }
+
+    /**
+     * 链路轨迹点：从 offsetMs 开始链路按该点的参数工作，直到下一个点
+     */
+    @Data
+    public static class TracePoint {
+
+        /**
+         * 相对模拟开始的时间（毫秒）
+         */
+        private long offsetMs;
+
+        /**
+         * 带宽（字节/秒），不大于0时保持不变
+         */
+        private long bandwidth;
+
+        /**
+         * 往返传播时延（毫秒），不大于0时保持不变
+         */
+        private long rttMs;
+
+        /**
+         * 丢包率，小于0时保持不变
+         */
+        private double lossRate = -1;
+    }
+}
@@ -0,0 +1,142 @@
+package com.server.smarttransferserver.congestion.simulation;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 网络模拟结果
+ */
+@Data
+public class SimulationResult {
+
+    /**
+     * 实际模拟时长（秒），所有有限流提前结束时小于配置时长
+     */
+    private double simulatedSeconds;
+
+    /**
+     * 真实耗时（毫秒）
+     */
+    private long wallTimeMs;
+
+    /**
+     * 模拟秒数 / 真实秒数
+     */
+    private double speedup;
+
+    /**
+     * 处理的事件数
+     */
+    private long eventCount;
+
+    /**
+     * 瓶颈链路利用率（发送时长 / 模拟时长）
+     */
+    private double linkUtilization;
+
+    /**
+     * 缓冲区溢出丢弃的数据包数
+     */
+    private long overflowDrops;
+
+    /**
+     * 丢包模型丢弃的数据包数
+     */
+    private long randomDrops;
+
+    /**
+     * 所有数据包的排队时延（毫秒）
+     */
+    private double meanQueueDelayMs;
+    private double p95QueueDelayMs;
+    private double maxQueueDelayMs;
+
+    /**
+     * Jain 公平性指数（所有流共同活跃的时间段内的平均吞吐量），单条流时为1
+     */
+    private double jainFairness;
+
+    /**
+     * 收敛时间（毫秒）：各条流收敛时间的最大值，有流未收敛时为 -1
+     */
+    private long convergenceTimeMs;
+
+    private List<FlowResult> flows = new ArrayList<>();
+
+    /**
+     * 采样序列（配置 includeSeries 时返回）
+     */
+    private List<Sample> series;
+
+    /**
+     * 单条流的结果
+     */
+    @Data
+    public static class FlowResult {
+        private int index;
+        private String algorithm;
+
+        /**
+         * 结束时的算法名（自适应算法为当前选用的子算法）
+         */
+        private String finalAlgorithm;
+
+        /**
+         * 自适应算法切换次数（按采样点观察）
+         */
+        private int algorithmSwitches;
+
+        private long startMs;
+
+        /**
+         * 完成时间（毫秒），未完成为 -1
+         */
+        private long finishMs;
+
+        private long deliveredBytes;
+
+        /**
+         * 活跃期间的平均吞吐量（字节/秒）
+         */
+        private long throughput;
+
+        private long sentPackets;
+        private long lostPackets;
+        private double meanRttMs;
+        private double meanQueueDelayMs;
+        private double p95QueueDelayMs;
+        private double maxQueueDelayMs;
+
+        /**
+         * 收敛时间（毫秒，相对流开始）：之后每个采样点的吞吐量都在最终稳定均值 ±20% 以内，未收敛为 -1
+         */
+        private long convergenceTimeMs;
+
+        private long finalCwnd;
+    }
+
+    /**
+     * 采样点
+     */
+    @Data
+    public static class Sample {
+        private long timeMs;
+
+        /**
+         * 各流在该采样间隔内的吞吐量（字节/秒）
+         */
+        private long[] throughput;
+
+        /**
+         * 各流的拥塞窗口（字节）
+         */
+        private long[] cwnd;
+
+        /**
+         * 采样时刻的瓶颈排队时延（毫秒）
+         */
+        private double queueDelayMs;
+    }
+}
@@ -0,0 +1,50 @@
+package com.server.smarttransferserver.congestion.simulation;
+
+import com.server.smarttransferserver.congestion.CongestionClock;
+
+/**
+ * 模拟器虚拟时钟
+ * 内部以微秒推进，只在事件处理时前进；算法读到的毫秒时间 = 起点 + 已模拟时长
+ */
+public class VirtualClock implements CongestionClock {
+
+    /**
+     * 起点（毫秒），取模拟开始时的真实时间，保证算法里按墙钟计算的间隔从合理的基准开始
+     */
+    private final long originMillis;
+
+    /**
+     * 已模拟时长（微秒）
+     */
+    private long nowMicros;
+
+    public VirtualClock(long originMillis) {
+        this.originMillis = originMillis;
+    }
+
+    @Override
+    public long currentTimeMillis() {
+        return originMillis + nowMicros / 1000;
+    }
+
+    /**
+     * 已模拟时长
+     *
+     * @return 微秒
+     */
+    public long nowMicros() {
+        return nowMicros;
+    }
+
+    /**
+     * 推进到指定时刻（不允许倒退）
+     *
+     * @param micros 模拟时刻（微秒）
+     */
+    void advanceTo(long micros) {
+        if (micros < nowMicros) {
+            throw new IllegalStateException("虚拟时钟不能倒退: " + micros + " < " + nowMicros);
+        }
+        nowMicros = micros;
+    }
+}
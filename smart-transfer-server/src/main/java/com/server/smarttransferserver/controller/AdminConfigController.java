@@ -2,6 +2,7 @@ package com.server.smarttransferserver.controller;
 
 import com.server.smarttransferserver.annotation.RequireAdmin;
 import com.server.smarttransferserver.common.Result;
+import com.server.smarttransferserver.dto.BandwidthConfigDTO;
 import com.server.smarttransferserver.dto.CongestionConfigDTO;
 import com.server.smarttransferserver.entity.SystemConfig;
 import com.server.smarttransferserver.service.SystemConfigService;
@@ -56,6 +57,36 @@ public class AdminConfigController {
         }
     }
     
+    /**
+     * 获取分级带宽限制配置
+     */
+    @GetMapping("/bandwidth")
+    public Result<Map<String, String>> getBandwidthConfig() {
+        log.info("获取分级带宽限制配置");
+        try {
+            Map<String, String> config = configService.getBandwidthConfig();
+            return Result.success(config);
+        } catch (Exception e) {
+            log.error("获取分级带宽限制配置失败", e);
+            return Result.error("获取配置失败: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * 更新分级带宽限制配置（全局 → 角色 → 用户 → 任务的权重和上限）
+     */
+    @PostMapping("/bandwidth")
+    public Result<String> updateBandwidthConfig(@Valid @RequestBody BandwidthConfigDTO dto) {
+        log.info("更新分级带宽限制配置 - 启用: {}", dto.getEnabled());
+        try {
+            configService.updateBandwidthConfig(dto);
+            return Result.success("配置更新成功");
+        } catch (Exception e) {
+            log.error("更新分级带宽限制配置失败", e);
+            return Result.error("配置更新失败: " + e.getMessage());
+        }
+    }
+    
     /**
      * 刷新配置（从数据库重新加载）
      */
@@ -4,6 +4,12 @@ import com.server.smarttransferserver.annotation.RequireAdmin;
 import com.server.smarttransferserver.common.Result;
 import com.server.smarttransferserver.domain.SystemActivity;
 import com.server.smarttransferserver.service.DashboardService;
+import com.server.smarttransferserver.service.BandwidthLimitService;
+import com.server.smarttransferserver.service.CongestionAlgorithmManager;
+import com.server.smarttransferserver.service.CongestionMetricsWriterService;
+import com.server.smarttransferserver.service.FairShareService;
+import com.server.smarttransferserver.service.HashFilterService;
+import com.server.smarttransferserver.service.PathStateService;
 import com.server.smarttransferserver.service.SystemActivityService;
 import com.server.smarttransferserver.vo.DashboardVO;
 import lombok.extern.slf4j.Slf4j;
@@ -14,6 +20,7 @@ import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import java.util.List;
+import java.util.Map;
 
 /**
  * 管理员仪表盘控制器
@@ -31,6 +38,24 @@ public class AdminDashboardController {
     @Autowired
     private SystemActivityService systemActivityService;
     
+    @Autowired
+    private HashFilterService hashFilterService;
+    
+    @Autowired
+    private BandwidthLimitService bandwidthLimitService;
+    
+    @Autowired
+    private FairShareService fairShareService;
+    
+    @Autowired
+    private PathStateService pathStateService;
+    
+    @Autowired
+    private CongestionAlgorithmManager algorithmManager;
+    
+    @Autowired
+    private CongestionMetricsWriterService metricsWriter;
+    
     /**
      * 获取仪表盘数据
      */
@@ -59,4 +84,60 @@ public class AdminDashboardController {
             return Result.error("获取最近动态失败: " + e.getMessage());
         }
     }
+    
+    /**
+     * 获取文件哈希过滤器统计（元素数、预期/实际误判率、跳过的数据库查询数）
+     */
+    @GetMapping("/hash-filter")
+    public Result<Map<String, Object>> getHashFilterStats() {
+        return Result.success(hashFilterService.getStats());
+    }
+    
+    /**
+     * 获取分级带宽限制的当前分配（全局 → 角色 → 用户 → 任务各级速率）
+     */
+    @GetMapping("/bandwidth")
+    public Result<Map<String, Object>> getBandwidthStats() {
+        return Result.success(bandwidthLimitService.getStats());
+    }
+    
+    /**
+     * 获取全局公平带宽分配（容量估计、各任务需求和份额）
+     */
+    @GetMapping("/fair-share")
+    public Result<Map<String, Object>> getFairShareStats() {
+        return Result.success(fairShareService.getStats());
+    }
+    
+    /**
+     * 获取路径状态缓存统计（缓存路径数、命中/未命中次数）
+     */
+    @GetMapping("/path-cache")
+    public Result<Map<String, Object>> getPathCacheStats() {
+        return Result.success(pathStateService.getStats());
+    }
+    
+    /**
+     * 获取拥塞控制事件循环统计（分片数、积压事件数）
+     */
+    @GetMapping("/congestion-loop")
+    public Result<Map<String, Object>> getCongestionLoopStats() {
+        return Result.success(algorithmManager.getEventLoopStats());
+    }
+    
+    /**
+     * 获取网络监测统计（任务/用户监测器数量和全局汇总）
+     */
+    @GetMapping("/network-monitor")
+    public Result<Map<String, Object>> getNetworkMonitorStats() {
+        return Result.success(algorithmManager.getMonitorStats());
+    }
+    
+    /**
+     * 获取拥塞指标写入统计（缓冲区深度、丢弃样本数、降采样比、刷新耗时）
+     */
+    @GetMapping("/metrics-writer")
+    public Result<Map<String, Object>> getMetricsWriterStats() {
+        return Result.success(metricsWriter.getStats());
+    }
 }
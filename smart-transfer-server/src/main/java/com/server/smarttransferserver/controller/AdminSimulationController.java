@@ -0,0 +1,64 @@
+package com.server.smarttransferserver.controller;
+
+import com.server.smarttransferserver.annotation.RequireAdmin;
+import com.server.smarttransferserver.common.Result;
+import com.server.smarttransferserver.congestion.simulation.SimulationConfig;
+import com.server.smarttransferserver.congestion.simulation.SimulationResult;
+import com.server.smarttransferserver.service.SimulationService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import javax.validation.Valid;
+import java.util.Map;
+
+/**
+ * 管理员网络模拟控制器
+ * 在虚拟时钟上模拟瓶颈链路，比较各拥塞控制算法的吞吐量、排队时延、公平性和收敛时间
+ */
+@Slf4j
+@RestController
+@RequestMapping("/admin/simulation")
+@RequireAdmin
+public class AdminSimulationController {
+    
+    @Autowired
+    private SimulationService simulationService;
+    
+    /**
+     * 运行模拟
+     */
+    @PostMapping("/run")
+    public Result<SimulationResult> run(@Valid @RequestBody SimulationConfig config) {
+        log.info("运行网络模拟 - 带宽: {}B/s, 单向时延: {}ms, 流数: {}, 时长: {}s",
+                config.getBandwidth(), config.getPropagationDelayMs(),
+                config.getFlows() != null ? config.getFlows().size() : 0, config.getDurationSeconds());
+        try {
+            return Result.success(simulationService.run(config));
+        } catch (Exception e) {
+            log.error("网络模拟失败", e);
+            return Result.error("网络模拟失败: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * 回放任务记录的拥塞指标
+     */
+    @PostMapping("/replay/{taskId}")
+    public Result<Map<String, Object>> replay(@PathVariable String taskId,
+                                              @RequestParam(required = false) String algorithm,
+                                              @RequestParam(defaultValue = "1") long seed) {
+        log.info("回放拥塞指标 - 任务ID: {}, 算法: {}", taskId, algorithm);
+        try {
+            return Result.success(simulationService.replay(taskId, algorithm, seed));
+        } catch (Exception e) {
+            log.error("回放拥塞指标失败 - 任务ID: {}", taskId, e);
+            return Result.error("回放失败: " + e.getMessage());
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package com.server.smarttransferserver.controller;
 
 import com.baomidou.mybatisplus.core.metadata.IPage;
+import com.server.smarttransferserver.common.BandwidthLimitExceededException;
 import com.server.smarttransferserver.common.Result;
 import com.server.smarttransferserver.dto.*;
 import com.server.smarttransferserver.service.DownloadCompleteService;
@@ -8,17 +9,22 @@ import com.server.smarttransferserver.service.FileDownloadService;
 import com.server.smarttransferserver.service.FileInfoService;
 import com.server.smarttransferserver.service.FileMergeService;
 import com.server.smarttransferserver.service.FileUploadService;
+import com.server.smarttransferserver.service.MergeJobService;
 import com.server.smarttransferserver.service.SystemConfigService;
 import com.server.smarttransferserver.service.TransferTaskService;
+import com.server.smarttransferserver.service.TreeHashService;
 import com.server.smarttransferserver.util.UserContextHolder;
 import com.server.smarttransferserver.vo.ChunkUploadVO;
 import com.server.smarttransferserver.vo.FileDownloadInitVO;
 import com.server.smarttransferserver.vo.FileMergeVO;
 import com.server.smarttransferserver.vo.FileInfoVO;
 import com.server.smarttransferserver.vo.FileUploadInitVO;
+import com.server.smarttransferserver.vo.MergeJobVO;
 import com.server.smarttransferserver.vo.TransferTaskVO;
+import com.server.smarttransferserver.vo.TreeHashVO;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.io.FileSystemResource;
 import org.springframework.util.unit.DataSize;
 import org.springframework.core.io.Resource;
@@ -26,6 +32,7 @@ import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.DeferredResult;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
@@ -37,6 +44,7 @@ import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipOutputStream;
 
@@ -54,6 +62,13 @@ public class FileController {
     @Autowired
     private FileMergeService mergeService;
     
+    @Autowired
+    private MergeJobService mergeJobService;
+    
+    /** 同步合并接口等待合并完成的最长时间（毫秒），超时后客户端可按任务ID查询 */
+    @Value("${transfer.merge.wait-timeout-ms:1800000}")
+    private long mergeWaitTimeoutMs;
+    
     @Autowired
     private TransferTaskService taskService;
     
@@ -68,6 +83,9 @@ public class FileController {
     
     @Autowired
     private DownloadCompleteService downloadCompleteService;
+    
+    @Autowired
+    private TreeHashService treeHashService;
 
     @Autowired
     private SystemConfigService systemConfigService;
@@ -176,30 +194,119 @@ public class FileController {
         try {
             ChunkUploadVO vo = uploadService.uploadChunk(fileId, chunkNumber, chunkHash, file, clientRttMs, clientRetryCount);
             return Result.success(vo);
+        } catch (BandwidthLimitExceededException e) {
+            throw e;
         } catch (Exception e) {
             log.error("分片上传失败", e);
             return Result.error("分片上传失败: " + e.getMessage());
         }
     }
-    
+
+    /**
+     * 上传分片（原始请求体）
+     * 请求体为 application/octet-stream 的分片数据，元数据放在请求头，
+     * 不经过 multipart 解析，数据直接流式写入存储；返回值与 POST /upload/chunk 一致
+     *
+     * @param fileId      文件ID
+     * @param chunkNumber 分片序号
+     * @param chunkHash   分片哈希（X-Chunk-Hash）
+     * @param request     请求（读取请求体和 Content-Length）
+     * @return 上传结果
+     */
+    @PutMapping(value = "/upload/chunk/{fileId}/{chunkNumber}", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public Result<ChunkUploadVO> uploadChunkStream(
+            @PathVariable Long fileId,
+            @PathVariable Integer chunkNumber,
+            @RequestHeader(value = "X-Chunk-Hash", required = false) String chunkHash,
+            @RequestHeader(value = "X-Last-RTT-Ms", required = false) String clientRttMsStr,
+            @RequestHeader(value = "X-Chunk-Retry-Count", required = false) String clientRetryCountStr,
+            HttpServletRequest request) {
+        long contentLength = request.getContentLengthLong();
+        if (contentLength < 0) {
+            return Result.error("分片上传失败: 缺少 Content-Length");
+        }
+        Long clientRttMs = parseLongHeader(clientRttMsStr);
+        Integer clientRetryCount = parseIntHeader(clientRetryCountStr);
+        try {
+            ChunkUploadVO vo = uploadService.uploadChunkStream(fileId, chunkNumber, chunkHash,
+                    request.getInputStream(), contentLength, clientRttMs, clientRetryCount);
+            return Result.success(vo);
+        } catch (BandwidthLimitExceededException e) {
+            throw e;
+        } catch (Exception e) {
+            log.error("分片上传失败", e);
+            return Result.error("分片上传失败: " + e.getMessage());
+        }
+    }
+
     /**
      * 合并文件
+     * 合并提交到合并线程池执行，请求线程立即释放，合并完成后再写回响应（返回值与同步合并一致）
      *
      * @param dto 合并请求DTO
      * @return 合并结果
      */
     @PostMapping("/merge")
-    public Result<FileMergeVO> mergeFile(@Valid @RequestBody FileMergeDTO dto) {
+    public DeferredResult<Result<FileMergeVO>> mergeFile(@Valid @RequestBody FileMergeDTO dto) {
         log.info("合并文件 - 文件ID: {}", dto.getFileId());
-        try {
-            FileMergeVO vo = mergeService.mergeFile(dto);
-            return Result.success(vo);
+        DeferredResult<Result<FileMergeVO>> deferred = new DeferredResult<>(mergeWaitTimeoutMs);
+        try {
+            MergeJobVO job = mergeJobService.submit(dto);
+            deferred.onTimeout(() -> deferred.setResult(
+                    Result.error("合并仍在进行，请通过任务ID查询合并进度: " + job.getTaskId())));
+            CompletableFuture<FileMergeVO> future = mergeJobService.awaitResult(job.getTaskId());
+            if (future == null) {
+                // 任务已过期清理
+                deferred.setResult(Result.error("合并任务不存在或已过期"));
+                return deferred;
+            }
+            future.whenComplete((vo, e) -> {
+                if (e != null) {
+                    deferred.setResult(Result.error("文件合并失败: " + e.getMessage()));
+                } else {
+                    deferred.setResult(Result.success(vo));
+                }
+            });
         } catch (Exception e) {
             log.error("文件合并失败", e);
-            return Result.error("文件合并失败: " + e.getMessage());
+            deferred.setResult(Result.error("文件合并失败: " + e.getMessage()));
+        }
+        return deferred;
+    }
+    
+    /**
+     * 提交合并任务（不等待完成）
+     * 进度通过监控 WebSocket（type=merge）推送，或调用 GET /file/merge/job/{taskId} 查询
+     *
+     * @param dto 合并请求DTO
+     * @return 合并任务
+     */
+    @PostMapping("/merge/async")
+    public Result<MergeJobVO> submitMerge(@Valid @RequestBody FileMergeDTO dto) {
+        log.info("提交合并任务 - 文件ID: {}", dto.getFileId());
+        try {
+            return Result.success(mergeJobService.submit(dto));
+        } catch (Exception e) {
+            log.error("提交合并任务失败", e);
+            return Result.error("提交合并任务失败: " + e.getMessage());
         }
     }
     
+    /**
+     * 查询合并任务
+     *
+     * @param taskId 任务ID
+     * @return 合并任务（状态、结果）
+     */
+    @GetMapping("/merge/job/{taskId}")
+    public Result<MergeJobVO> getMergeJob(@PathVariable String taskId) {
+        MergeJobVO job = mergeJobService.getJob(taskId);
+        if (job == null) {
+            return Result.error("合并任务不存在或已过期");
+        }
+        return Result.success(job);
+    }
+    
     /**
      * 取消上传
      * 清理未完成的上传数据
@@ -408,7 +515,7 @@ public class FileController {
      * @return 二进制数据流（元数据在响应头中）
      */
     @GetMapping("/download/chunk/{id}/{chunkNumber}")
-    public ResponseEntity<byte[]> downloadChunk(
+    public ResponseEntity<?> downloadChunk(
             @PathVariable Long id,
             @PathVariable Integer chunkNumber,
             @RequestParam(value = "startByte", required = false) Long startByte,
@@ -420,12 +527,36 @@ public class FileController {
         Integer clientRetryCount = parseIntHeader(clientRetryCountStr);
         try {
             return downloadService.downloadChunk(id, chunkNumber, startByte, endByte, clientRttMs, clientRetryCount);
+        } catch (BandwidthLimitExceededException e) {
+            throw e;
         } catch (Exception e) {
             log.error("下载分块失败", e);
             return downloadService.handleDownloadChunkError(e);
         }
     }
     
+    /**
+     * 获取文件的树哈希叶子（SHA256_TREE 模式上传的文件）
+     * 叶子 i 覆盖 [i * leafSize, (i + 1) * leafSize)，下载端可对每个下载分块单独校验
+     *
+     * @param id 文件ID
+     * @param fromLeaf 起始叶子序号（可选，默认0）
+     * @param leafCount 叶子数（可选，默认到末尾）
+     * @return 叶子哈希
+     */
+    @GetMapping("/download/tree/{id}")
+    public Result<TreeHashVO> getTreeLeaves(
+            @PathVariable Long id,
+            @RequestParam(value = "fromLeaf", required = false) Integer fromLeaf,
+            @RequestParam(value = "leafCount", required = false) Integer leafCount) {
+        try {
+            return Result.success(treeHashService.getLeaves(id, fromLeaf, leafCount));
+        } catch (Exception e) {
+            log.error("获取树哈希失败 - 文件ID: {}", id, e);
+            return Result.error("获取树哈希失败: " + e.getMessage());
+        }
+    }
+    
     /**
      * 标记下载任务完成
      *
@@ -470,7 +601,7 @@ public class FileController {
      * @return 文件流
      */
     @GetMapping("/download/{id}")
-    public ResponseEntity<Resource> downloadFile(
+    public ResponseEntity<?> downloadFile(
             @PathVariable Long id,
             @RequestHeader(value = "Range", required = false) String rangeHeader) {
         log.info("下载文件 - ID: {}, Range: {}", id, rangeHeader);
@@ -0,0 +1,154 @@
+package com.server.smarttransferserver.domain;
+
+import com.server.smarttransferserver.congestion.CongestionControlAlgorithm;
+import lombok.Getter;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 下载会话（仅存在于内存）
+ * initDownload 时创建，保存分块下载需要的全部信息，分块下载时不再查询数据库和 Redis；
+ * 已完成分块先记录在内存位图中，再由 DownloadSessionService 异步写入 Redis（断点续传、多节点共享）
+ */
+@Getter
+public class DownloadSession {
+
+    /**
+     * 任务ID
+     */
+    private final String taskId;
+
+    /**
+     * 文件ID
+     */
+    private final Long fileId;
+
+    /**
+     * 文件绝对路径
+     */
+    private final Path filePath;
+
+    /**
+     * 初始化时的文件大小
+     */
+    private final long fileSize;
+
+    /**
+     * 分块大小
+     */
+    private final long chunkSize;
+
+    /**
+     * 总分块数
+     */
+    private final int totalChunks;
+
+    /**
+     * 任务的拥塞控制算法实例（任务完成/取消时与会话一起移除）
+     */
+    private final CongestionControlAlgorithm algorithm;
+
+    /**
+     * 已完成分块
+     */
+    @Getter(lombok.AccessLevel.NONE)
+    private final BitSet completed;
+
+    @Getter(lombok.AccessLevel.NONE)
+    private int completedCount;
+
+    /**
+     * 尚未写入 Redis 的已完成分块
+     */
+    @Getter(lombok.AccessLevel.NONE)
+    private List<Integer> pendingFlush = new ArrayList<>();
+
+    /**
+     * 会话已关闭（任务完成或取消），不再写入 Redis
+     */
+    private volatile boolean closed;
+
+    public DownloadSession(String taskId, Long fileId, Path filePath, long fileSize, long chunkSize,
+                           CongestionControlAlgorithm algorithm, Collection<Integer> completedChunks) {
+        this.taskId = taskId;
+        this.fileId = fileId;
+        this.filePath = filePath;
+        this.fileSize = fileSize;
+        this.chunkSize = chunkSize;
+        this.totalChunks = (int) ((fileSize + chunkSize - 1) / chunkSize);
+        this.algorithm = algorithm;
+        this.completed = new BitSet(totalChunks);
+        for (Integer chunkNumber : completedChunks) {
+            if (chunkNumber != null && chunkNumber >= 0 && chunkNumber < totalChunks) {
+                completed.set(chunkNumber);
+            }
+        }
+        this.completedCount = completed.cardinality();
+    }
+
+    /**
+     * 标记分块已完成
+     *
+     * @param chunkNumber 分块编号
+     * @return 本次标记后待写入列表由空变为非空（需要加入刷新队列）
+     */
+    public synchronized boolean markCompleted(int chunkNumber) {
+        if (completed.get(chunkNumber)) {
+            return false;
+        }
+        completed.set(chunkNumber);
+        completedCount++;
+        pendingFlush.add(chunkNumber);
+        return pendingFlush.size() == 1;
+    }
+
+    /**
+     * 已完成分块数
+     */
+    public synchronized int getCompletedCount() {
+        return completedCount;
+    }
+
+    /**
+     * 已完成分块编号
+     */
+    public synchronized List<Integer> getCompletedChunks() {
+        List<Integer> chunks = new ArrayList<>(completedCount);
+        for (int i = completed.nextSetBit(0); i >= 0; i = completed.nextSetBit(i + 1)) {
+            chunks.add(i);
+        }
+        return chunks;
+    }
+
+    /**
+     * 取出待写入 Redis 的分块
+     *
+     * @return 待写入分块，没有时为空列表
+     */
+    public synchronized List<Integer> drainPending() {
+        if (pendingFlush.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<Integer> drained = pendingFlush;
+        pendingFlush = new ArrayList<>();
+        return drained;
+    }
+
+    /**
+     * 写入失败时放回待写入列表
+     *
+     * @param chunks 写入失败的分块
+     */
+    public synchronized void restorePending(List<Integer> chunks) {
+        pendingFlush.addAll(chunks);
+    }
+
+    public void close() {
+        closed = true;
+    }
+}
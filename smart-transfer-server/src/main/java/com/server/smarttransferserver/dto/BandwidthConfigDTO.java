@@ -0,0 +1,86 @@
+package com.server.smarttransferserver.dto;
+
+import lombok.Data;
+
+import javax.validation.Valid;
+import javax.validation.constraints.DecimalMin;
+import javax.validation.constraints.Min;
+import java.util.Map;
+
+/**
+ * 分级带宽限制配置DTO
+ * 速率单位为字节/秒，0 表示不限；字段允许为null，支持部分更新配置
+ */
+@Data
+public class BandwidthConfigDTO {
+
+    /**
+     * 是否启用
+     */
+    private Boolean enabled;
+
+    /**
+     * 全局上传上限
+     */
+    @Min(value = 0, message = "全局上传上限不能为负数")
+    private Long uploadGlobalCeiling;
+
+    /**
+     * 全局下载上限
+     */
+    @Min(value = 0, message = "全局下载上限不能为负数")
+    private Long downloadGlobalCeiling;
+
+    /**
+     * 用户默认权重
+     */
+    @DecimalMin(value = "0.01", message = "用户默认权重不能小于0.01")
+    private Double userDefaultWeight;
+
+    /**
+     * 用户默认上限
+     */
+    @Min(value = 0, message = "用户默认上限不能为负数")
+    private Long userDefaultCeiling;
+
+    /**
+     * 单个任务上限
+     */
+    @Min(value = 0, message = "任务上限不能为负数")
+    private Long taskCeiling;
+
+    /**
+     * 允许的排队时长（毫秒），需要等待更久时返回429
+     */
+    @Min(value = 0, message = "排队时长不能为负数")
+    private Long maxDelayMs;
+
+    /**
+     * 各角色的权重和上限，Key: 角色（ADMIN / USER）
+     */
+    private Map<String, @Valid Limit> roles;
+
+    /**
+     * 单个用户的权重和上限（覆盖默认值），Key: 用户ID；权重和上限都为null时删除该用户的设置
+     */
+    private Map<Long, @Valid Limit> users;
+
+    /**
+     * 权重和上限
+     */
+    @Data
+    public static class Limit {
+
+        /**
+         * 权重
+         */
+        @DecimalMin(value = "0.01", message = "权重不能小于0.01")
+        private Double weight;
+
+        /**
+         * 上限
+         */
+        @Min(value = 0, message = "上限不能为负数")
+        private Long ceiling;
+    }
+}
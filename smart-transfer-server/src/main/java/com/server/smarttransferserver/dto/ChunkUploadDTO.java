@@ -6,6 +6,7 @@ import org.springframework.web.multipart.MultipartFile;
 import javax.validation.constraints.Min;
 import javax.validation.constraints.NotBlank;
 import javax.validation.constraints.NotNull;
+import java.io.InputStream;
 
 /**
  * 分片上传DTO
@@ -27,17 +28,26 @@ public class ChunkUploadDTO {
     private Integer chunkNumber;
     
     /**
-     * 分片哈希值
+     * 分片哈希值（分片MD5，服务端写入时校验；非32位十六进制时视为占位值，不校验）
      */
     @NotBlank(message = "分片哈希值不能为空")
     private String chunkHash;
     
     /**
-     * 分片文件
+     * 分片文件（multipart 上传）
      */
-    @NotNull(message = "分片文件不能为空")
     private MultipartFile file;
     
+    /**
+     * 分片数据流（原始请求体上传，与 file 二选一）
+     */
+    private InputStream content;
+    
+    /**
+     * 分片数据流的字节数，由请求头 Content-Length 传入
+     */
+    private Long contentLength;
+    
     /**
      * 客户端测量的上一分片 RTT（毫秒），用于拥塞算法使用真实网络往返时延
      * 由请求头 X-Last-RTT-Ms 传入，可选
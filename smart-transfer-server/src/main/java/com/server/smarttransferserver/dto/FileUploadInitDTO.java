@@ -26,7 +26,7 @@ public class FileUploadInitDTO {
     private Long fileSize;
     
     /**
-     * 文件哈希值（MD5或SHA256）
+     * 文件哈希值（MD5，或 SHA256_TREE 模式下的树根哈希）
      */
     @NotBlank(message = "文件哈希值不能为空")
     private String fileHash;
@@ -49,5 +49,10 @@ public class FileUploadInitDTO {
      * 目标文件夹ID，0表示根目录
      */
     private Long folderId;
+    
+    /**
+     * 完整性校验算法：MD5（默认）或 SHA256_TREE（1MB叶子的 SHA-256 Merkle 树，可多核并行计算）
+     */
+    private String hashAlgorithm;
 }
 
@@ -0,0 +1,57 @@
+package com.server.smarttransferserver.entity;
+
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableField;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * 内容寻址存储引用计数实体类
+ * 对应数据库表 blob_ref，相同哈希的文件共用 blobs/ab/cd/{hash} 下的一份物理数据
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@TableName("blob_ref")
+public class BlobRef implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * 内容哈希（小写）
+     */
+    @TableId(value = "blob_hash", type = IdType.INPUT)
+    private String blobHash;
+
+    /**
+     * 内容大小（字节）
+     */
+    @TableField("file_size")
+    private Long fileSize;
+
+    /**
+     * 引用计数
+     */
+    @TableField("ref_count")
+    private Integer refCount;
+
+    /**
+     * 创建时间
+     */
+    @TableField("create_time")
+    private LocalDateTime createTime;
+
+    /**
+     * 更新时间
+     */
+    @TableField("update_time")
+    private LocalDateTime updateTime;
+}
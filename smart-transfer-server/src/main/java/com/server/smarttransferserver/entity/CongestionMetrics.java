@@ -71,6 +71,36 @@ public class CongestionMetrics implements Serializable {
     @TableField("loss_rate")
     private BigDecimal lossRate;
 
+    /**
+     * 降采样窗口内的最小拥塞窗口
+     */
+    @TableField("cwnd_min")
+    private Long cwndMin;
+
+    /**
+     * 降采样窗口内的最大拥塞窗口
+     */
+    @TableField("cwnd_max")
+    private Long cwndMax;
+
+    /**
+     * 降采样窗口内的最小RTT
+     */
+    @TableField("rtt_min")
+    private Long rttMin;
+
+    /**
+     * 降采样窗口内的最大RTT
+     */
+    @TableField("rtt_max")
+    private Long rttMax;
+
+    /**
+     * 降采样窗口内的样本数（其余字段为窗口内最后一个样本的值）
+     */
+    @TableField("sample_count")
+    private Integer sampleCount;
+
     /**
      * 记录时间
      */
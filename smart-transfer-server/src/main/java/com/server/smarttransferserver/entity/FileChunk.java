@@ -11,7 +11,7 @@ import java.time.LocalDateTime;
 
 /**
  * 文件分片实体类
- * 对应数据库表 file_chunk
+ * 对应数据库表 file_chunk，保存各分片的哈希（合并时批量写入），上传进度见 FileInfo.chunkBitmap
  */
 @Data
 @Builder
@@ -47,7 +47,7 @@ public class FileChunk implements Serializable {
     private Long chunkSize;
 
     /**
-     * 分片哈希值
+     * 分片哈希值（服务端写入时计算的MD5）
      */
     @TableField("chunk_hash")
     private String chunkHash;
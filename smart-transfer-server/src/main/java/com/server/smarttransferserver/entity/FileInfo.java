@@ -53,11 +53,17 @@ public class FileInfo implements Serializable {
     private Long fileSize;
 
     /**
-     * 文件哈希值（MD5/SHA256）
+     * 文件哈希值（MD5，或 SHA256_TREE 模式下的树根哈希）
      */
     @TableField("file_hash")
     private String fileHash;
 
+    /**
+     * 完整性校验算法：MD5/SHA256_TREE
+     */
+    @TableField("hash_algorithm")
+    private String hashAlgorithm;
+
     /**
      * 文件存储路径
      */
@@ -82,6 +88,25 @@ public class FileInfo implements Serializable {
     @TableField("upload_status")
     private String uploadStatus;
 
+    /**
+     * 总分片数（分片上传时记录）
+     */
+    @TableField("total_chunks")
+    private Integer totalChunks;
+
+    /**
+     * 分片大小（字节，分片上传时记录）
+     */
+    @TableField("chunk_size")
+    private Long chunkSize;
+
+    /**
+     * 分片上传位图，每个分片1位（位序同 Redis SETBIT）
+     * 只在 insert 时整体写入，之后通过 FileInfoMapper 按位更新；默认查询不加载
+     */
+    @TableField(value = "chunk_bitmap", select = false, updateStrategy = FieldStrategy.NEVER)
+    private byte[] chunkBitmap;
+
     /**
      * 删除标志（0正常 1已删除）
      */
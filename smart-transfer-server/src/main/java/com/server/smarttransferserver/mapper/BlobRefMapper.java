@@ -0,0 +1,57 @@
+package com.server.smarttransferserver.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.server.smarttransferserver.entity.BlobRef;
+import org.apache.ibatis.annotations.Delete;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
+
+/**
+ * 内容寻址存储引用计数Mapper接口
+ */
+@Mapper
+public interface BlobRefMapper extends BaseMapper<BlobRef> {
+
+    /**
+     * 增加引用（记录不存在时以1创建）
+     *
+     * @param blobHash 内容哈希
+     * @param fileSize 内容大小
+     * @return 影响行数
+     */
+    @Insert("INSERT INTO blob_ref (blob_hash, file_size, ref_count, create_time, update_time) "
+            + "VALUES (#{blobHash}, #{fileSize}, 1, NOW(), NOW()) "
+            + "ON DUPLICATE KEY UPDATE ref_count = ref_count + 1, update_time = NOW()")
+    int retain(@Param("blobHash") String blobHash, @Param("fileSize") Long fileSize);
+
+    /**
+     * 减少引用
+     *
+     * @param blobHash 内容哈希
+     * @return 影响行数
+     */
+    @Update("UPDATE blob_ref SET ref_count = ref_count - 1, update_time = NOW() "
+            + "WHERE blob_hash = #{blobHash} AND ref_count > 0")
+    int release(@Param("blobHash") String blobHash);
+
+    /**
+     * 删除已无引用的记录
+     *
+     * @param blobHash 内容哈希
+     * @return 影响行数，1 表示可以删除物理数据
+     */
+    @Delete("DELETE FROM blob_ref WHERE blob_hash = #{blobHash} AND ref_count <= 0")
+    int deleteUnreferenced(@Param("blobHash") String blobHash);
+
+    /**
+     * 查询引用计数
+     *
+     * @param blobHash 内容哈希
+     * @return 引用计数，记录不存在时返回null
+     */
+    @Select("SELECT ref_count FROM blob_ref WHERE blob_hash = #{blobHash}")
+    Integer selectRefCount(@Param("blobHash") String blobHash);
+}
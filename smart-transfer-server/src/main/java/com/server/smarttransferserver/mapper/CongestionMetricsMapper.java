@@ -3,6 +3,7 @@ package com.server.smarttransferserver.mapper;
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.server.smarttransferserver.entity.CongestionMetrics;
 import org.apache.ibatis.annotations.Delete;
+import org.apache.ibatis.annotations.Insert;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
 import org.apache.ibatis.annotations.Select;
@@ -76,6 +77,8 @@ public interface CongestionMetricsMapper extends BaseMapper<CongestionMetrics> {
      * @return 删除的记录数
      */
     @Delete("DELETE FROM congestion_metrics WHERE record_time < DATE_SUB(NOW(), INTERVAL #{days} DAY)")
+    @Delete(value = "DELETE FROM congestion_metrics WHERE record_time < DATEADD('DAY', -CAST(#{days} AS INT), NOW())",
+            databaseId = "h2")
     int deleteOldMetrics(@Param("days") int days);
     
     /**
@@ -86,4 +89,20 @@ public interface CongestionMetricsMapper extends BaseMapper<CongestionMetrics> {
      */
     @Delete("DELETE FROM congestion_metrics WHERE task_id = #{taskId}")
     int deleteByTaskId(@Param("taskId") String taskId);
+    
+    /**
+     * 批量写入拥塞指标（一条多行 INSERT）
+     *
+     * @param metrics 指标列表
+     * @return 影响行数
+     */
+    @Insert("<script>"
+            + "INSERT INTO congestion_metrics (task_id, algorithm, cwnd, ssthresh, rtt, bandwidth, loss_rate,"
+            + " cwnd_min, cwnd_max, rtt_min, rtt_max, sample_count, record_time) VALUES "
+            + "<foreach collection='metrics' item='m' separator=','>"
+            + "(#{m.taskId}, #{m.algorithm}, #{m.cwnd}, #{m.ssthresh}, #{m.rtt}, #{m.bandwidth}, #{m.lossRate},"
+            + " #{m.cwndMin}, #{m.cwndMax}, #{m.rttMin}, #{m.rttMax}, #{m.sampleCount}, #{m.recordTime})"
+            + "</foreach>"
+            + "</script>")
+    int insertBatch(@Param("metrics") List<CongestionMetrics> metrics);
 }
@@ -2,6 +2,7 @@ package com.server.smarttransferserver.mapper;
 
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.server.smarttransferserver.entity.FileChunk;
+import org.apache.ibatis.annotations.Insert;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
 import org.apache.ibatis.annotations.Select;
@@ -10,46 +11,32 @@ import java.util.List;
 
 /**
  * 文件分片Mapper接口
+ * 上传进度由 file_info.chunk_bitmap 记录，本表只保存各分片的哈希，在合并时批量写入
  */
 @Mapper
 public interface FileChunkMapper extends BaseMapper<FileChunk> {
 
     /**
-     * 根据文件ID和分片序号查询分片
+     * 批量写入分片哈希（合并时一次写入，已存在则覆盖哈希）
      *
-     * @param fileId      文件ID
-     * @param chunkNumber 分片序号
-     * @return 分片信息
+     * @param chunks 分片列表
+     * @return 影响行数
      */
-    @Select("SELECT * FROM file_chunk WHERE file_id = #{fileId} AND chunk_number = #{chunkNumber} LIMIT 1")
-    FileChunk selectByFileIdAndChunkNumber(@Param("fileId") Long fileId, @Param("chunkNumber") Integer chunkNumber);
+    @Insert("<script>"
+            + "INSERT INTO file_chunk (file_id, chunk_number, chunk_size, chunk_hash, upload_status, create_time) VALUES "
+            + "<foreach collection='chunks' item='c' separator=','>"
+            + "(#{c.fileId}, #{c.chunkNumber}, #{c.chunkSize}, #{c.chunkHash}, #{c.uploadStatus}, #{c.createTime})"
+            + "</foreach>"
+            + " ON DUPLICATE KEY UPDATE chunk_hash = VALUES(chunk_hash), chunk_size = VALUES(chunk_size)"
+            + "</script>")
+    int insertBatch(@Param("chunks") List<FileChunk> chunks);
 
     /**
-     * 根据文件ID和上传状态查询分片列表
-     *
-     * @param fileId       文件ID
-     * @param uploadStatus 上传状态
-     * @return 分片列表
-     */
-    @Select("SELECT * FROM file_chunk WHERE file_id = #{fileId} AND upload_status = #{uploadStatus}")
-    List<FileChunk> selectByFileIdAndUploadStatus(@Param("fileId") Long fileId, @Param("uploadStatus") String uploadStatus);
-
-    /**
-     * 统计文件的分片数量
+     * 查询文件的所有分片哈希
      *
      * @param fileId 文件ID
-     * @return 分片数量
-     */
-    @Select("SELECT COUNT(*) FROM file_chunk WHERE file_id = #{fileId}")
-    Long countByFileId(@Param("fileId") Long fileId);
-
-    /**
-     * 统计文件已完成的分片数量
-     *
-     * @param fileId       文件ID
-     * @param uploadStatus 上传状态
-     * @return 完成数量
+     * @return 分片列表
      */
-    @Select("SELECT COUNT(*) FROM file_chunk WHERE file_id = #{fileId} AND upload_status = #{uploadStatus}")
-    Long countByFileIdAndStatus(@Param("fileId") Long fileId, @Param("uploadStatus") String uploadStatus);
+    @Select("SELECT * FROM file_chunk WHERE file_id = #{fileId}")
+    List<FileChunk> selectByFileId(@Param("fileId") Long fileId);
 }
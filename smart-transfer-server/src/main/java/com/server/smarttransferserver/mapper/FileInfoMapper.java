@@ -31,6 +31,24 @@ public interface FileInfoMapper extends BaseMapper<FileInfo> {
     @Select("SELECT * FROM file_info WHERE file_hash = #{fileHash} AND del_flag = 0 LIMIT 1")
     FileInfo selectByFileHash(@Param("fileHash") String fileHash);
 
+    /**
+     * 按主键游标分页读取文件哈希（构建哈希过滤器用，包含回收站中的记录）
+     *
+     * @param lastId 上一页最后一条记录的ID，首页传0
+     * @param limit  每页条数
+     * @return 只包含 id、file_hash 的文件列表
+     */
+    @Select("SELECT id, file_hash FROM file_info WHERE id > #{lastId} AND file_hash IS NOT NULL ORDER BY id LIMIT #{limit}")
+    List<FileInfo> selectHashesAfter(@Param("lastId") Long lastId, @Param("limit") int limit);
+
+    /**
+     * 统计有文件哈希的记录数（包含回收站中的记录）
+     *
+     * @return 记录数
+     */
+    @Select("SELECT COUNT(*) FROM file_info WHERE file_hash IS NOT NULL")
+    Long countHashes();
+
     /**
      * 根据上传状态查询文件列表
      *
@@ -104,4 +122,62 @@ public interface FileInfoMapper extends BaseMapper<FileInfo> {
      */
     @Update("UPDATE file_info SET del_flag = 0, delete_batch_num = NULL, update_time = #{now} WHERE id = #{fileId}")
     int restoreByFileId(@Param("fileId") Long fileId, @Param("now") LocalDateTime now);
+
+    /**
+     * 查询分片上传位图
+     *
+     * @param fileId 文件ID
+     * @return 位图，不存在返回null
+     */
+    @Select("SELECT chunk_bitmap FROM file_info WHERE id = #{fileId}")
+    byte[] selectChunkBitmap(@Param("fileId") Long fileId);
+
+    /**
+     * 按位或更新分片位图（置位），并发上传不同分片时互不覆盖。
+     * H2（perf 环境）不支持二进制串位运算，改用 ChunkBitmap 注册的 BITMAP_OR/BITMAP_AND 函数
+     *
+     * @param fileId 文件ID
+     * @param mask   与位图等长、只包含待置位分片的掩码
+     * @return 影响行数
+     */
+    @Update("UPDATE file_info SET chunk_bitmap = chunk_bitmap | #{mask} WHERE id = #{fileId}")
+    @Update(value = "UPDATE file_info SET chunk_bitmap = BITMAP_OR(chunk_bitmap, #{mask}) WHERE id = #{fileId}",
+            databaseId = "h2")
+    int setChunkBits(@Param("fileId") Long fileId, @Param("mask") byte[] mask);
+
+    /**
+     * 按位与更新分片位图（清位），用于标记需要重传的分片
+     *
+     * @param fileId 文件ID
+     * @param mask   与位图等长、待清位分片为0其余为1的掩码
+     * @return 影响行数
+     */
+    @Update("UPDATE file_info SET chunk_bitmap = chunk_bitmap & #{mask} WHERE id = #{fileId}")
+    @Update(value = "UPDATE file_info SET chunk_bitmap = BITMAP_AND(chunk_bitmap, #{mask}) WHERE id = #{fileId}",
+            databaseId = "h2")
+    int clearChunkBits(@Param("fileId") Long fileId, @Param("mask") byte[] mask);
+
+    /**
+     * 先清位再置位，一条语句应用一批分片状态变更（上传写回批量刷新时使用）
+     *
+     * @param fileId   文件ID
+     * @param keepMask 待清位分片为0其余为1的掩码
+     * @param setMask  待置位分片的掩码
+     * @return 影响行数
+     */
+    @Update("UPDATE file_info SET chunk_bitmap = (chunk_bitmap & #{keepMask}) | #{setMask} WHERE id = #{fileId}")
+    @Update(value = "UPDATE file_info SET chunk_bitmap = BITMAP_OR(BITMAP_AND(chunk_bitmap, #{keepMask}), #{setMask})"
+            + " WHERE id = #{fileId}", databaseId = "h2")
+    int updateChunkBits(@Param("fileId") Long fileId, @Param("keepMask") byte[] keepMask,
+                        @Param("setMask") byte[] setMask);
+
+    /**
+     * 整体替换分片位图（崩溃恢复时以磁盘分片日志为准）
+     *
+     * @param fileId 文件ID
+     * @param bitmap 位图
+     * @return 影响行数
+     */
+    @Update("UPDATE file_info SET chunk_bitmap = #{bitmap} WHERE id = #{fileId}")
+    int updateChunkBitmap(@Param("fileId") Long fileId, @Param("bitmap") byte[] bitmap);
 }
@@ -6,7 +6,9 @@ import org.apache.ibatis.annotations.Delete;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
 import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
 
+import java.math.BigDecimal;
 import java.util.List;
 
 /**
@@ -119,4 +121,14 @@ public interface TransferTaskMapper extends BaseMapper<TransferTask> {
             "AND transfer_status IN ('PENDING', 'PROCESSING', 'PAUSED', 'FAILED') " +
             "ORDER BY start_time DESC")
     List<TransferTask> selectIncompleteDownloadTasksByUserId(@Param("userId") Long userId);
+
+    /**
+     * 更新任务进度（上传写回批量刷新时使用）
+     *
+     * @param taskId   任务ID
+     * @param progress 进度百分比
+     * @return 影响行数
+     */
+    @Update("UPDATE transfer_task SET progress = #{progress} WHERE task_id = #{taskId}")
+    int updateProgress(@Param("taskId") String taskId, @Param("progress") BigDecimal progress);
 }
@@ -29,7 +29,16 @@ public class AlgorithmFactory {
      * @return 新的算法实例
      */
     public CongestionControlAlgorithm createAlgorithm() {
-        String algorithmType = congestionConfig.getAlgorithm();
+        return createAlgorithm(congestionConfig.getAlgorithm());
+    }
+    
+    /**
+     * 按指定类型创建算法实例（网络模拟器按每条流的配置创建）
+     *
+     * @param algorithmType 算法类型：RENO/VEGAS/CUBIC/BBR/ADAPTIVE，为空时使用自适应算法
+     * @return 新的算法实例
+     */
+    public CongestionControlAlgorithm createAlgorithm(String algorithmType) {
         if (algorithmType == null || algorithmType.isEmpty()) {
             algorithmType = "ADAPTIVE"; // 默认使用自适应算法
         }
@@ -0,0 +1,40 @@
+package com.server.smarttransferserver.service;
+
+import com.server.smarttransferserver.common.enums.TransferDirection;
+
+import java.util.Map;
+
+/**
+ * 分级带宽限制服务
+ * 按 全局 → 用户角色 → 用户 → 任务 四级令牌桶限制上传和下载分块的速率：
+ * 每级的速率由上一级按权重在活跃的下级之间分配（加权最大最小公平，受各自上限约束），
+ * 权重和上限由管理员通过系统配置修改（见 BandwidthLimitConfig）
+ */
+public interface BandwidthLimitService {
+
+    /**
+     * 申请传输一个分块
+     * 用户和角色取自当前请求上下文；各级令牌都足够时立即返回，
+     * 需要等待且不超过 max-delay-ms 时等待后返回（延迟响应），超过时不预留令牌并抛出异常（429）
+     *
+     * @param direction 传输方向
+     * @param taskId    任务ID
+     * @param bytes     分块字节数
+     * @throws com.server.smarttransferserver.common.BandwidthLimitExceededException 需要等待的时间超过允许的排队时长，或等待被中断
+     */
+    void acquire(TransferDirection direction, String taskId, long bytes);
+
+    /**
+     * 移除任务的令牌桶（任务完成或取消时调用）
+     *
+     * @param taskId 任务ID
+     */
+    void removeTask(String taskId);
+
+    /**
+     * 当前各级的分配速率
+     *
+     * @return 统计信息
+     */
+    Map<String, Object> getStats();
+}
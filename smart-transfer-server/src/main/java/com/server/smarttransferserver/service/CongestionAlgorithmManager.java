@@ -1,6 +1,9 @@
 package com.server.smarttransferserver.service;
 
 import com.server.smarttransferserver.congestion.CongestionControlAlgorithm;
+import com.server.smarttransferserver.congestion.NetworkMonitor;
+
+import java.util.Map;
 
 /**
  * 拥塞控制算法管理器
@@ -25,6 +28,13 @@ public interface CongestionAlgorithmManager {
      */
     CongestionControlAlgorithm getAlgorithm(String taskId);
     
+    /**
+     * 获取所有任务的算法实例（只读视图）
+     *
+     * @return Key: 任务ID, Value: 算法实例
+     */
+    Map<String, CongestionControlAlgorithm> getAllAlgorithms();
+    
     /**
      * 移除任务的算法实例（任务完成或失败时调用）
      *
@@ -36,4 +46,51 @@ public interface CongestionAlgorithmManager {
      * 移除所有算法实例（清理资源）
      */
     void clearAll();
+    
+    /**
+     * 记录任务的一个分片交付成功（写入任务、用户的监测器和全局汇总）
+     *
+     * @param taskId 任务ID
+     * @param bytes  分片字节数
+     * @param rttMs  分片RTT（毫秒）
+     */
+    void recordDelivered(String taskId, long bytes, long rttMs);
+    
+    /**
+     * 记录任务的一个分片交付失败（写入任务、用户的监测器和全局汇总）
+     *
+     * @param taskId 任务ID
+     * @param bytes  分片字节数
+     */
+    void recordLoss(String taskId, long bytes);
+    
+    /**
+     * 获取任务的网络监测器
+     *
+     * @param taskId 任务ID
+     * @return 监测器，任务不存在时返回null
+     */
+    NetworkMonitor getTaskMonitor(String taskId);
+    
+    /**
+     * 获取用户的网络监测器
+     *
+     * @param userId 用户ID
+     * @return 监测器，用户最近没有传输时返回null
+     */
+    NetworkMonitor getUserMonitor(Long userId);
+    
+    /**
+     * 网络监测统计（任务/用户监测器数量和全局汇总）
+     *
+     * @return 统计信息
+     */
+    Map<String, Object> getMonitorStats();
+    
+    /**
+     * 事件循环统计（分片数、积压事件数）
+     *
+     * @return 统计信息
+     */
+    Map<String, Object> getEventLoopStats();
 }
@@ -31,6 +31,15 @@ public interface CongestionMetricsService extends IService<CongestionMetrics> {
      */
     CongestionMetricsVO getCurrentMetrics(CongestionControlAlgorithm algorithm, Long userId);
     
+    /**
+     * 获取任务的拥塞控制指标，带宽、丢包率等网络数据只来自该任务自己的监测器
+     *
+     * @param taskId 任务ID
+     * @param userId 用户ID，不为 null 时优先用该用户的 probe RTT 作为传播时延
+     * @return 指标VO，任务没有算法实例时返回空指标
+     */
+    CongestionMetricsVO getTaskMetrics(String taskId, Long userId);
+    
     /**
      * 获取当前拥塞控制指标（自动获取当前算法）
      * 
@@ -0,0 +1,37 @@
+package com.server.smarttransferserver.service;
+
+import java.util.Map;
+
+/**
+ * 拥塞指标写入服务
+ * 分片上传/下载每个ACK和丢包都会产生一个指标样本；热路径只把样本写入无锁环形缓冲区，
+ * 后台线程按任务、按时间窗口降采样（末值 + 最小/最大值）后用多行 INSERT 写入 congestion_metrics；
+ * 关闭（transfer.metrics-writer.enabled=false）时每个样本直接写库
+ */
+public interface CongestionMetricsWriterService {
+
+    /**
+     * 记录一个指标样本（不阻塞，缓冲区满时丢弃）
+     *
+     * @param taskId    任务ID
+     * @param algorithm 算法名称
+     * @param cwnd      拥塞窗口（字节）
+     * @param ssthresh  慢启动阈值（字节）
+     * @param rtt       RTT（毫秒）
+     * @param bandwidth 带宽（字节/秒）
+     * @param lossRate  丢包率
+     */
+    void record(String taskId, String algorithm, long cwnd, long ssthresh, long rtt, long bandwidth, double lossRate);
+
+    /**
+     * 立即写入缓冲区中的样本和所有未结束的窗口（服务关闭时调用）
+     */
+    void flush();
+
+    /**
+     * 写入统计（缓冲区深度、丢弃数、降采样比、刷新耗时）
+     *
+     * @return 统计信息
+     */
+    Map<String, Object> getStats();
+}
@@ -0,0 +1,42 @@
+package com.server.smarttransferserver.service;
+
+import com.server.smarttransferserver.domain.DownloadSession;
+
+/**
+ * 下载会话服务
+ * 下载会话保存在本地有界缓存中（按文件ID查找，一段时间未访问自动过期），
+ * 已完成分块由后台线程批量写入 Redis；本节点没有会话时由调用方从数据库/Redis 重建
+ */
+public interface DownloadSessionService {
+
+    /**
+     * 获取文件的下载会话
+     *
+     * @param fileId 文件ID
+     * @return 会话，不存在返回null
+     */
+    DownloadSession get(Long fileId);
+
+    /**
+     * 保存下载会话（替换该文件已有的会话）
+     *
+     * @param session 会话
+     */
+    void put(DownloadSession session);
+
+    /**
+     * 标记分块已完成，异步写入 Redis
+     *
+     * @param session     会话
+     * @param chunkNumber 分块编号
+     * @return 已完成分块数
+     */
+    int markCompleted(DownloadSession session, int chunkNumber);
+
+    /**
+     * 移除任务的下载会话（任务完成或取消时调用，未写入的分块不再写入 Redis）
+     *
+     * @param taskId 任务ID
+     */
+    void remove(String taskId);
+}
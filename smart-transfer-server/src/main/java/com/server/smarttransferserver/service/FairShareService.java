@@ -0,0 +1,49 @@
+package com.server.smarttransferserver.service;
+
+import com.server.smarttransferserver.common.enums.TransferDirection;
+
+import java.util.Map;
+
+/**
+ * 全局公平带宽分配服务
+ * 每个任务的拥塞控制算法独立探测带宽，多个任务并发时会一起抢占整条链路；
+ * 本服务统计所有活跃任务的实际交付速率，估计链路容量，在任务的需求（算法速率）之和超过容量时
+ * 按加权最大最小公平计算每个任务的份额，作为该任务发送速率和拥塞窗口的上限
+ */
+public interface FairShareService {
+
+    /**
+     * 记录任务交付的字节数（分块确认时调用）
+     *
+     * @param direction 传输方向
+     * @param taskId    任务ID
+     * @param bytes     字节数
+     */
+    void onDelivered(TransferDirection direction, String taskId, long bytes);
+
+    /**
+     * 按任务份额限制速率
+     *
+     * @param taskId 任务ID
+     * @param rate   算法给出的速率（字节/秒）
+     * @return 不超过份额的速率；没有竞争时原样返回
+     */
+    long clampRate(String taskId, long rate);
+
+    /**
+     * 按任务份额限制拥塞窗口（份额 × RTT，不小于一个分块）
+     *
+     * @param taskId 任务ID
+     * @param cwnd   算法给出的拥塞窗口（字节）
+     * @param rttMs  RTT（毫秒）
+     * @return 不超过份额对应窗口的拥塞窗口；没有竞争时原样返回
+     */
+    long clampCwnd(String taskId, long cwnd, long rttMs);
+
+    /**
+     * 当前容量估计和各任务份额
+     *
+     * @return 统计信息
+     */
+    Map<String, Object> getStats();
+}
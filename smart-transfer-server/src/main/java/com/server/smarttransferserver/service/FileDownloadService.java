@@ -24,6 +24,7 @@ public interface FileDownloadService {
      * 下载文件分块（二进制流传输）
      * 集成拥塞控制算法，在下载成功/失败时触发算法响应
      * **优化：直接返回二进制数据，元数据通过响应头传输**
+     * 成功时响应体为 FileRegion，由 sendfile / FileChannel.transferTo 从文件直接写出，不在堆上缓冲分块
      *
      * @param fileId 文件ID
      * @param chunkNumber 分块编号
@@ -31,9 +32,9 @@ public interface FileDownloadService {
      * @param endByte 结束字节位置
      * @param clientRttMs 客户端测量的上一分片 RTT（毫秒），可选，用于拥塞算法使用真实网络往返时延
      * @param clientRetryCount 上一分片在客户端的重试次数，可选，用于应用层丢包率统计
-     * @return ResponseEntity包含二进制数据和元数据响应头
+     * @return ResponseEntity包含文件区间（失败时为错误信息）和元数据响应头
      */
-    ResponseEntity<byte[]> downloadChunk(Long fileId, Integer chunkNumber, Long startByte, Long endByte, Long clientRttMs, Integer clientRetryCount);
+    ResponseEntity<?> downloadChunk(Long fileId, Integer chunkNumber, Long startByte, Long endByte, Long clientRttMs, Integer clientRetryCount);
     
     /**
      * 处理下载分块错误
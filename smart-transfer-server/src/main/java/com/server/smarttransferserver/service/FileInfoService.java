@@ -135,7 +135,7 @@ public interface FileInfoService extends IService<FileInfo> {
      * @param rangeHeader Range请求头
      * @return ResponseEntity包含文件流
      */
-    org.springframework.http.ResponseEntity<org.springframework.core.io.Resource> downloadFile(Long fileId, String rangeHeader);
+    org.springframework.http.ResponseEntity<?> downloadFile(Long fileId, String rangeHeader);
     
     /**
      * 预览文件
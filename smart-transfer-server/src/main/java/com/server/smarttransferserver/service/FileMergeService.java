@@ -1,8 +1,11 @@
 package com.server.smarttransferserver.service;
 
+import com.server.smarttransferserver.common.enums.MergeJobState;
 import com.server.smarttransferserver.dto.FileMergeDTO;
 import com.server.smarttransferserver.vo.FileMergeVO;
 
+import java.util.function.Consumer;
+
 /**
  * 文件合并服务接口
  * 提供分片文件合并、完整性校验等功能
@@ -18,6 +21,15 @@ public interface FileMergeService {
      */
     FileMergeVO mergeFile(FileMergeDTO dto);
     
+    /**
+     * 合并文件分片，并在进入校验、合并阶段时回调（供合并任务上报进度）
+     *
+     * @param dto           文件合并请求
+     * @param stageListener 阶段回调（VERIFYING、MERGING）
+     * @return 文件合并结果
+     */
+    FileMergeVO mergeFile(FileMergeDTO dto, Consumer<MergeJobState> stageListener);
+    
     /**
      * 取消上传
      * 清理未完成的上传数据（分片、文件记录等）
@@ -1,5 +1,6 @@
 package com.server.smarttransferserver.service;
 
+import java.util.Map;
 import java.util.Set;
 
 /**
@@ -32,13 +33,21 @@ public interface FileUploadCacheService {
     void deleteFileHashCache(String fileHash);
     
     /**
-     * 记录已上传的分片
+     * 记录已上传的分片（位图置位）
      * 
      * @param fileId      文件ID
      * @param chunkNumber 分片序号
      */
     void markChunkUploaded(Long fileId, Integer chunkNumber);
     
+    /**
+     * 取消分片的已上传标记（分片校验失败，需要重传）
+     * 
+     * @param fileId      文件ID
+     * @param chunkNumber 分片序号
+     */
+    void unmarkChunkUploaded(Long fileId, Integer chunkNumber);
+    
     /**
      * 获取已上传的分片列表
      * 
@@ -48,12 +57,76 @@ public interface FileUploadCacheService {
     Set<Integer> getUploadedChunks(Long fileId);
     
     /**
-     * 删除分片上传记录（合并完成后清理）
+     * 统计已上传的分片数（BITCOUNT）
+     * 
+     * @param fileId 文件ID
+     * @return 已上传分片数
+     */
+    long countUploadedChunks(Long fileId);
+    
+    /**
+     * 获取分片上传位图
+     * 
+     * @param fileId 文件ID
+     * @return 位图，不存在返回null
+     */
+    byte[] getChunkBitmap(Long fileId);
+    
+    /**
+     * 用数据库中的位图恢复缓存（Redis 数据丢失或过期后断点续传）
+     * 
+     * @param fileId 文件ID
+     * @param bitmap 位图
+     */
+    void restoreChunkBitmap(Long fileId, byte[] bitmap);
+    
+    /**
+     * 删除分片上传记录（位图和分片哈希，合并完成或取消后清理）
      * 
      * @param fileId 文件ID
      */
     void deleteChunkUploadRecord(Long fileId);
     
+    /**
+     * 缓存分片哈希（合并时批量写入 file_chunk）
+     * 
+     * @param fileId      文件ID
+     * @param chunkNumber 分片序号
+     * @param chunkHash   分片MD5
+     */
+    void cacheChunkHash(Long fileId, Integer chunkNumber, String chunkHash);
+    
+    /**
+     * 获取已缓存的分片哈希
+     * 
+     * @param fileId 文件ID
+     * @return 分片序号 -> MD5
+     */
+    Map<Integer, String> getChunkHashes(Long fileId);
+    
+    /**
+     * 缓存增量MD5状态（断点续传/服务重启后继续计算，无需全量重新哈希）
+     * 
+     * @param fileId 文件ID
+     * @param state  增量哈希状态
+     */
+    void cacheHashState(Long fileId, String state);
+    
+    /**
+     * 获取增量MD5状态
+     * 
+     * @param fileId 文件ID
+     * @return 增量哈希状态，不存在返回null
+     */
+    String getHashState(Long fileId);
+    
+    /**
+     * 删除增量MD5状态
+     * 
+     * @param fileId 文件ID
+     */
+    void deleteHashState(Long fileId);
+    
     /**
      * 尝试获取文件上传锁（防止并发上传同一文件）
      * 
@@ -5,6 +5,8 @@ import com.server.smarttransferserver.vo.ChunkUploadVO;
 import com.server.smarttransferserver.vo.FileUploadInitVO;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.InputStream;
+
 /**
  * 文件上传服务接口
  * 提供文件上传初始化、分片上传等功能
@@ -43,5 +45,21 @@ public interface FileUploadService {
      * @return 分片上传结果
      */
     ChunkUploadVO uploadChunk(Long fileId, Integer chunkNumber, String chunkHash, MultipartFile file, Long clientRttMs, Integer clientRetryCount);
+    
+    /**
+     * 上传文件分片（原始请求体流式写入）
+     * 不经过 multipart 解析，请求体直接写入存储，返回值与 multipart 上传一致
+     *
+     * @param fileId 文件ID
+     * @param chunkNumber 分片编号
+     * @param chunkHash 分片哈希
+     * @param content 分片数据流（请求体）
+     * @param contentLength 分片大小（Content-Length）
+     * @param clientRttMs 客户端测量的上一分片 RTT（毫秒），可选
+     * @param clientRetryCount 上一分片在客户端的重试次数，可选
+     * @return 分片上传结果
+     */
+    ChunkUploadVO uploadChunkStream(Long fileId, Integer chunkNumber, String chunkHash, InputStream content,
+                                    long contentLength, Long clientRttMs, Integer clientRetryCount);
 }
 
@@ -0,0 +1,47 @@
+package com.server.smarttransferserver.service;
+
+import java.util.Map;
+
+/**
+ * 文件哈希过滤器服务
+ * 内存布隆过滤器覆盖 file_info 中所有 file_hash，判定"不存在"时秒传/断点续传检查直接跳过数据库查询；
+ * 过滤器快照和增量保存在 Redis 中，多个节点共享同一份过滤器
+ */
+public interface HashFilterService {
+
+    /**
+     * 文件哈希是否可能已存在
+     * 过滤器未就绪或与 Redis 同步中断时一律返回true（回退到查数据库）
+     *
+     * @param fileHash 文件哈希
+     * @return false 表示一定不存在
+     */
+    boolean mightExist(String fileHash);
+
+    /**
+     * 记录一次误判（过滤器判定可能存在，但数据库未查到）
+     */
+    void recordMiss();
+
+    /**
+     * 新增文件哈希（创建文件记录或合并完成时调用）
+     *
+     * @param fileHash 文件哈希
+     */
+    void add(String fileHash);
+
+    /**
+     * 记录被物理删除的文件记录数
+     * 布隆过滤器无法删除元素，累计到一定比例后提前重建
+     *
+     * @param count 删除的记录数
+     */
+    void onRemoved(int count);
+
+    /**
+     * 过滤器统计（元素数、预期误判率、实际误判率等）
+     *
+     * @return 统计数据
+     */
+    Map<String, Object> getStats();
+}
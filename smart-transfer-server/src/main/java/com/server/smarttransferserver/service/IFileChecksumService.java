@@ -29,6 +29,15 @@ public interface IFileChecksumService {
      */
     String calculateSHA256(String filePath) throws IOException;
     
+    /**
+     * 计算文件的 SHA-256 Merkle 树根哈希（SHA256_TREE，按1MB叶子多核并行计算）
+     *
+     * @param filePath 文件路径
+     * @return 根哈希
+     * @throws IOException IO异常
+     */
+    String calculateTreeHash(String filePath) throws IOException;
+    
     /**
      * 计算MultipartFile的MD5
      *
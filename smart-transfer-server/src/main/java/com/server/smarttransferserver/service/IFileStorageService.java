@@ -3,6 +3,7 @@ package com.server.smarttransferserver.service;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.util.Map;
 
 /**
  * 文件存储服务接口
@@ -16,21 +17,45 @@ public interface IFileStorageService {
      * @param fileId      文件ID
      * @param chunkNumber 分片序号
      * @param file        分片文件
-     * @return 分片文件路径
+     * @return 分片数据的MD5（写入过程中计算）
      * @throws IOException IO异常
      */
     String saveChunk(Long fileId, Integer chunkNumber, MultipartFile file) throws IOException;
     
     /**
-     * 合并分片文件
+     * 保存分片数据流（原始请求体上传，不经过 multipart 缓冲）
      *
      * @param fileId      文件ID
-     * @param fileName    文件名
+     * @param chunkNumber 分片序号
+     * @param in          分片数据流，调用方负责关闭
+     * @param length      分片大小（字节），数据不足或超出均视为失败
+     * @return 分片数据的MD5（写入过程中计算）
+     * @throws IOException IO异常
+     */
+    String saveChunk(Long fileId, Integer chunkNumber, java.io.InputStream in, long length) throws IOException;
+    
+    /**
+     * 合并分片文件并存入内容寻址存储（内容已存在时只增加引用）
+     *
+     * @param fileId      文件ID
+     * @param fileHash    文件哈希
      * @param totalChunks 总分片数
-     * @return 合并后的文件路径
+     * @return 合并后的文件路径（blobs/ab/cd/{hash}）
      * @throws IOException IO异常
      */
-    String mergeChunks(Long fileId, String fileName, Integer totalChunks) throws IOException;
+    String mergeChunks(Long fileId, String fileHash, Integer totalChunks) throws IOException;
+    
+    /**
+     * 预分配目标文件（直接落盘模式）
+     * 预留 fileSize 大小的稀疏文件，分片按 chunkNumber * chunkSize 直接写入，合并时只需重命名
+     * 未开启直接落盘模式时不做任何操作
+     *
+     * @param fileId    文件ID
+     * @param fileSize  文件总大小
+     * @param chunkSize 分片大小
+     * @throws IOException IO异常
+     */
+    void preallocateFile(Long fileId, long fileSize, long chunkSize) throws IOException;
     
     /**
      * 删除临时分片文件
@@ -40,7 +65,7 @@ public interface IFileStorageService {
     void deleteTempChunks(Long fileId);
     
     /**
-     * 检查分片是否存在
+     * 检查分片是否存在（仅分片文件模式）
      *
      * @param fileId      文件ID
      * @param chunkNumber 分片序号
@@ -58,6 +83,59 @@ public interface IFileStorageService {
      */
     long getChunkSize(Long fileId, Integer chunkNumber) throws IOException;
     
+    /**
+     * 打开已写入分片的数据流（用于增量哈希等需要回读分片的场景）
+     * 直接落盘模式读取预分配文件中对应区间，分片文件模式读取 chunk_N
+     *
+     * @param fileId      文件ID
+     * @param chunkNumber 分片序号
+     * @return 分片数据流，调用方负责关闭
+     * @throws IOException IO异常
+     */
+    java.io.InputStream openChunkStream(Long fileId, Integer chunkNumber) throws IOException;
+    
+    /**
+     * 追加分片日志（临时目录下的 chunks.journal，每行 "分片序号,MD5"）
+     * 分片数据校验通过后追加，chunkHash 为空表示撤销该分片；崩溃恢复时以日志重建分片状态
+     *
+     * @param fileId      文件ID
+     * @param chunkNumber 分片序号
+     * @param chunkHash   分片MD5，null 表示撤销
+     * @throws IOException IO异常
+     */
+    void appendChunkJournal(Long fileId, Integer chunkNumber, String chunkHash) throws IOException;
+    
+    /**
+     * 读取分片日志（不依赖当前登录用户，供启动恢复使用）
+     * 同一分片以最后一条记录为准，已撤销的分片不返回；末尾写了一半的行会被忽略
+     *
+     * @param userId 用户ID
+     * @param fileId 文件ID
+     * @return 分片序号 -> MD5，日志不存在时返回空Map
+     * @throws IOException IO异常
+     */
+    Map<Integer, String> readChunkJournal(Long userId, Long fileId) throws IOException;
+    
+    /**
+     * 保存树哈希的叶子哈希（按根哈希存放在 .tree/{前两位}/{根哈希}.leaves，内容相同的文件共用）
+     *
+     * @param rootHash 根哈希
+     * @param leaves   叶子哈希（每个32字节）
+     * @throws IOException IO异常
+     */
+    void saveTreeLeaves(String rootHash, byte[][] leaves) throws IOException;
+    
+    /**
+     * 读取树哈希的叶子哈希
+     *
+     * @param rootHash  根哈希
+     * @param fromLeaf  起始叶子序号
+     * @param leafCount 叶子数，超出范围的部分不返回
+     * @return 连续的叶子哈希（每个32字节），未保存时返回null
+     * @throws IOException IO异常
+     */
+    byte[] readTreeLeaves(String rootHash, int fromLeaf, int leafCount) throws IOException;
+    
     /**
      * 检查文件是否存在
      *
@@ -68,6 +146,7 @@ public interface IFileStorageService {
     
     /**
      * 删除文件
+     * 内容寻址存储中的文件只减少引用，引用归零时才删除物理数据（在事务中调用时于提交后删除）
      *
      * @param filePath 文件路径
      */
@@ -92,15 +171,32 @@ public interface IFileStorageService {
     java.nio.file.Path getAbsoluteFilePath(String filePath);
     
     /**
-     * 保存文件（用于复制/解压等场景）
-     * 将源文件保存到用户存储目录，返回相对路径
+     * 存入内容寻址存储并增加引用（解压等产生新内容的场景）
      *
-     * @param sourceFile 源文件
-     * @param fileName 目标文件名
-     * @param userId 用户ID
-     * @return 相对路径（相对于storagePath，格式：userId/fileName）
+     * @param source   源文件
+     * @param fileHash 内容哈希
+     * @param move     true 时移动源文件，false 时硬链接或复制
+     * @return 相对路径（blobs/ab/cd/{hash}）
      * @throws IOException IO异常
      */
-    String saveFile(java.io.File sourceFile, String fileName, Long userId) throws IOException;
+    String putBlob(java.nio.file.Path source, String fileHash, boolean move) throws IOException;
+    
+    /**
+     * 为已存储的文件增加一个引用（复制、跨用户秒传等只新增文件记录的场景，不复制数据）
+     *
+     * @param filePath 已有文件的路径
+     * @param fileHash 内容哈希
+     * @return 新文件记录应使用的路径
+     * @throws IOException IO异常
+     */
+    String retainBlob(String filePath, String fileHash) throws IOException;
+    
+    /**
+     * 是否为内容寻址存储路径（blobs/ 开头）
+     *
+     * @param filePath 文件路径
+     * @return 是否为内容寻址存储路径
+     */
+    boolean isBlobPath(String filePath);
 }
 
@@ -1,14 +1,31 @@
 package com.server.smarttransferserver.service;
 
-import com.server.smarttransferserver.service.impl.NetworkMonitorServiceImpl.NetworkQuality;
-import com.server.smarttransferserver.service.impl.NetworkMonitorServiceImpl.NetworkStats;
+import com.server.smarttransferserver.congestion.NetworkMonitorView;
 
 /**
- * 网络监测服务接口
- * 集成RTT测量、带宽估算、丢包检测
+ * 网络监测服务接口（全局汇总）
+ * 集成RTT测量、带宽估算、丢包检测；各任务、各用户的监测器由算法管理器持有，
+ * 这里汇总所有任务的数据，供管理员查看全局网络状况
  */
-public interface INetworkMonitorService {
-    
+public interface INetworkMonitorService extends NetworkMonitorView {
+
+    /**
+     * 记录一个分片交付成功
+     *
+     * @param taskId 任务ID（决定写入的分片锁）
+     * @param bytes  分片字节数
+     * @param rttMs  分片RTT（毫秒）
+     */
+    void recordDelivered(String taskId, long bytes, long rttMs);
+
+    /**
+     * 记录一个分片交付失败
+     *
+     * @param taskId 任务ID（决定写入的分片锁）
+     * @param bytes  分片字节数
+     */
+    void recordLoss(String taskId, long bytes);
+
     /**
      * 记录数据包发送
      *
@@ -16,7 +33,7 @@ public interface INetworkMonitorService {
      * @param size           数据包大小
      */
     void recordPacketSent(long sequenceNumber, long size);
-    
+
     /**
      * 记录ACK接收
      *
@@ -24,71 +41,14 @@ public interface INetworkMonitorService {
      * @return 测量的RTT值
      */
     long recordAckReceived(long sequenceNumber);
-    
+
     /**
      * 检查超时丢包
      */
     void checkTimeoutLoss();
-    
-    /**
-     * 获取当前RTT
-     *
-     * @return RTT（毫秒）
-     */
-    long getCurrentRtt();
-    
-    /**
-     * 获取最小RTT
-     *
-     * @return 最小RTT（毫秒）
-     */
-    long getMinRtt();
-    
-    /**
-     * 获取估算带宽
-     *
-     * @return 带宽（字节/秒）
-     */
-    long getEstimatedBandwidth();
-    
-    /**
-     * 获取丢包率
-     *
-     * @return 丢包率
-     */
-    double getLossRate();
-    
-    /**
-     * 获取在途数据包数量
-     *
-     * @return 在途数据包数
-     */
-    int getInflightCount();
-    
-    /**
-     * 获取在途数据总字节数
-     *
-     * @return 在途数据字节数
-     */
-    long getInflightBytes();
-    
-    /**
-     * 评估网络质量
-     *
-     * @return 网络质量等级，如果数据不足可能返回null
-     */
-    NetworkQuality evaluateNetworkQuality();
-    
+
     /**
      * 重置所有监测器
      */
     void reset();
-    
-    /**
-     * 获取网络监测统计信息
-     *
-     * @return 网络统计
-     */
-    NetworkStats getStats();
 }
-
@@ -0,0 +1,34 @@
+package com.server.smarttransferserver.service;
+
+/**
+ * 增量哈希服务接口
+ * 在分片到达时按顺序推进整文件MD5，合并时摘要已就绪，无需再全量读取合并后的文件
+ */
+public interface IncrementalHashService {
+    
+    /**
+     * 分片已写入存储
+     * 若该分片恰好是连续前缀的下一个分片，则推进摘要，并追赶此前乱序到达的后续分片
+     *
+     * @param fileId      文件ID
+     * @param chunkNumber 分片序号
+     */
+    void onChunkLanded(Long fileId, Integer chunkNumber);
+    
+    /**
+     * 完成摘要计算（合并前调用，需在分片数据被移动/删除之前）
+     * 补算尚未纳入摘要的分片后返回最终MD5
+     *
+     * @param fileId      文件ID
+     * @param totalChunks 总分片数
+     * @return 整文件MD5（小写十六进制），计算失败返回null
+     */
+    String finish(Long fileId, int totalChunks);
+    
+    /**
+     * 清理上传的增量哈希状态（合并成功、取消或失败时调用）
+     *
+     * @param fileId 文件ID
+     */
+    void clear(Long fileId);
+}
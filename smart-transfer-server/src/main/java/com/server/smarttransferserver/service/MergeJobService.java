@@ -0,0 +1,40 @@
+package com.server.smarttransferserver.service;
+
+import com.server.smarttransferserver.dto.FileMergeDTO;
+import com.server.smarttransferserver.vo.FileMergeVO;
+import com.server.smarttransferserver.vo.MergeJobVO;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 合并任务服务接口
+ * 合并提交到有界线程池异步执行，不占用请求线程和数据库连接；
+ * 状态变化通过监控 WebSocket 推送（type=merge），也可按任务ID查询
+ */
+public interface MergeJobService {
+
+    /**
+     * 提交合并任务（同一任务重复提交时返回正在执行的任务）
+     *
+     * @param dto 合并请求
+     * @return 合并任务
+     * @throws RuntimeException 文件不存在、不属于当前用户（管理员除外）或合并队列已满
+     */
+    MergeJobVO submit(FileMergeDTO dto);
+
+    /**
+     * 等待合并完成
+     *
+     * @param taskId 任务ID
+     * @return 合并结果，任务不存在或不属于当前用户（管理员除外）时返回 null
+     */
+    CompletableFuture<FileMergeVO> awaitResult(String taskId);
+
+    /**
+     * 查询合并任务
+     *
+     * @param taskId 任务ID
+     * @return 合并任务，不存在、已过保留期或不属于当前用户（管理员除外）时返回 null
+     */
+    MergeJobVO getJob(String taskId);
+}
@@ -0,0 +1,39 @@
+package com.server.smarttransferserver.service;
+
+import com.server.smarttransferserver.congestion.CongestionControlAlgorithm;
+import com.server.smarttransferserver.util.FileRegion;
+
+import java.io.IOException;
+
+/**
+ * 发送速率控制服务
+ * 每个传输任务一个令牌桶，按拥塞控制算法的当前速率（getRate）补充令牌，限制服务端实际写出的字节数；
+ * 等待由共享的时间轮唤醒，不为每个传输单独创建定时线程；
+ * 但限速写出期间仍占用该下载的请求线程，同时限速的写出数有上限，超出时不限速
+ */
+public interface PacingService {
+
+    /**
+     * 获取任务的发送速率控制
+     *
+     * @param taskId    任务ID
+     * @param algorithm 任务的拥塞控制算法
+     * @return 速率控制，未启用时返回null（不限速）
+     */
+    FileRegion.Pacer pacer(String taskId, CongestionControlAlgorithm algorithm);
+
+    /**
+     * 等待指定时长（由共享时间轮唤醒，供带宽限制等其他限速使用）
+     *
+     * @param delayNanos 等待纳秒数
+     * @throws IOException 等待被中断或超时
+     */
+    void await(long delayNanos) throws IOException;
+
+    /**
+     * 移除任务的令牌桶（任务完成或取消时调用）
+     *
+     * @param taskId 任务ID
+     */
+    void remove(String taskId);
+}
@@ -0,0 +1,44 @@
+package com.server.smarttransferserver.service;
+
+import com.server.smarttransferserver.congestion.CongestionControlAlgorithm;
+import com.server.smarttransferserver.congestion.PathState;
+
+import java.util.Map;
+
+/**
+ * 路径状态缓存服务
+ * 按 用户ID + 客户端网段 缓存最近结束任务的瓶颈带宽、最小RTT、拥塞窗口和丢包率（类似 TCP 控制块共享），
+ * 同一用户连续传输多个文件时，新任务的算法实例直接从历史状态开始，不再每个任务都经历一次慢启动
+ */
+public interface PathStateService {
+
+    /**
+     * 当前请求的路径键（用户ID + 客户端网段）
+     *
+     * @return 路径键，不在请求线程中或未登录时返回null
+     */
+    String currentPathKey();
+
+    /**
+     * 获取路径状态（已按时间衰减）
+     *
+     * @param pathKey 路径键
+     * @return 路径状态，没有记录或已过期返回null
+     */
+    PathState lookup(String pathKey);
+
+    /**
+     * 记录任务结束时的算法状态
+     *
+     * @param pathKey   路径键
+     * @param algorithm 算法实例
+     */
+    void record(String pathKey, CongestionControlAlgorithm algorithm);
+
+    /**
+     * 缓存统计
+     *
+     * @return 统计信息
+     */
+    Map<String, Object> getStats();
+}
@@ -1,6 +1,7 @@
 package com.server.smarttransferserver.service;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
 
@@ -84,6 +85,11 @@ public interface RedisService {
      */
     Long hIncrement(String key, String hashKey, long delta);
     
+    /**
+     * Hash 获取所有键值
+     */
+    Map<Object, Object> hGetAll(String key);
+    
     // ========== Set 操作 ==========
     
     /**
@@ -111,6 +117,30 @@ public interface RedisService {
      */
     Long sSize(String key);
     
+    // ========== Bitmap 操作 ==========
+    
+    /**
+     * 设置位（SETBIT），offset 0 为首字节的最高位
+     *
+     * @return 设置前的值
+     */
+    Boolean setBit(String key, long offset, boolean value);
+    
+    /**
+     * 统计值为1的位数（BITCOUNT）
+     */
+    Long bitCount(String key);
+    
+    /**
+     * 以原始字节读取位图（不经过值序列化），不存在返回null
+     */
+    byte[] getBytes(String key);
+    
+    /**
+     * 以原始字节写入位图（不经过值序列化）
+     */
+    void setBytes(String key, byte[] value, long timeout, TimeUnit unit);
+    
     // ========== 分布式锁 ==========
     
     /**
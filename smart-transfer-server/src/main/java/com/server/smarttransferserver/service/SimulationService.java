@@ -0,0 +1,31 @@
+package com.server.smarttransferserver.service;
+
+import com.server.smarttransferserver.congestion.simulation.SimulationConfig;
+import com.server.smarttransferserver.congestion.simulation.SimulationResult;
+
+import java.util.Map;
+
+/**
+ * 网络模拟服务
+ * 在虚拟时钟上用离散事件模拟器驱动拥塞控制算法，调参不再依赖真实传输和 Windows 上的弱网工具
+ */
+public interface SimulationService {
+
+    /**
+     * 按配置的瓶颈链路和竞争流运行模拟
+     *
+     * @param config 模拟配置
+     * @return 模拟结果
+     */
+    SimulationResult run(SimulationConfig config);
+
+    /**
+     * 回放任务记录的拥塞指标：链路带宽、RTT、丢包率按记录时间变化，用指定算法重新跑一遍
+     *
+     * @param taskId    任务ID
+     * @param algorithm 算法类型，为空时使用当前配置的算法
+     * @param seed      随机种子
+     * @return 模拟结果（simulation）和记录值汇总（recorded）
+     */
+    Map<String, Object> replay(String taskId, String algorithm, long seed);
+}
@@ -1,6 +1,7 @@
 package com.server.smarttransferserver.service;
 
 import com.baomidou.mybatisplus.extension.service.IService;
+import com.server.smarttransferserver.dto.BandwidthConfigDTO;
 import com.server.smarttransferserver.dto.CongestionConfigDTO;
 import com.server.smarttransferserver.entity.SystemConfig;
 
@@ -28,6 +29,21 @@ public interface SystemConfigService extends IService<SystemConfig> {
      */
     void updateCongestionConfig(CongestionConfigDTO dto);
     
+    /**
+     * 获取分级带宽限制配置
+     *
+     * @return 配置映射（键不含 bandwidth. 前缀）
+     */
+    Map<String, String> getBandwidthConfig();
+    
+    /**
+     * 更新分级带宽限制配置
+     * 包括更新数据库配置和刷新内存配置
+     *
+     * @param dto 配置DTO
+     */
+    void updateBandwidthConfig(BandwidthConfigDTO dto);
+    
     /**
      * 根据配置键获取配置值
      *
@@ -0,0 +1,69 @@
+package com.server.smarttransferserver.service;
+
+import com.server.smarttransferserver.vo.TreeHashVO;
+
+/**
+ * 树哈希服务接口（SHA256_TREE 模式）
+ * 分片到达时在并行线程池中计算其覆盖的叶子哈希，合并时只补算缺失的叶子再求根哈希；
+ * 合并成功后保存叶子哈希，供下载端按区间校验
+ */
+public interface TreeHashService {
+
+    /**
+     * 文件是否使用树哈希校验
+     *
+     * @param fileId 文件ID
+     * @return 是否为 SHA256_TREE 模式
+     */
+    boolean isTreeHashed(Long fileId);
+
+    /**
+     * 分片已写入存储，异步计算其叶子哈希（不阻塞上传线程）
+     *
+     * @param fileId      文件ID
+     * @param chunkNumber 分片序号
+     */
+    void onChunkLanded(Long fileId, Integer chunkNumber);
+
+    /**
+     * 分片数据已失效（校验失败待重传），丢弃其叶子哈希
+     *
+     * @param fileId      文件ID
+     * @param chunkNumber 分片序号
+     */
+    void invalidateChunk(Long fileId, Integer chunkNumber);
+
+    /**
+     * 完成树哈希（合并前调用，需在分片数据被移动/删除之前）
+     * 并行补算尚未计算的分片后返回根哈希
+     *
+     * @param fileId 文件ID
+     * @return 根哈希（小写十六进制），计算失败返回null
+     */
+    String finish(Long fileId);
+
+    /**
+     * 保存叶子哈希并清理状态（校验通过后调用）
+     *
+     * @param fileId   文件ID
+     * @param rootHash 根哈希
+     */
+    void commit(Long fileId, String rootHash);
+
+    /**
+     * 清理上传的树哈希状态（取消或失败时调用）
+     *
+     * @param fileId 文件ID
+     */
+    void clear(Long fileId);
+
+    /**
+     * 获取已完成文件的叶子哈希（下载端按区间校验）
+     *
+     * @param fileId    文件ID
+     * @param fromLeaf  起始叶子序号
+     * @param leafCount 叶子数，null 表示到末尾
+     * @return 叶子哈希
+     */
+    TreeHashVO getLeaves(Long fileId, Integer fromLeaf, Integer leafCount);
+}
@@ -0,0 +1,48 @@
+package com.server.smarttransferserver.service;
+
+/**
+ * 上传写回服务
+ * 分片上传热路径只更新内存和 Redis，分片完成状态、任务进度由本服务按批写入 MySQL
+ * （拥塞指标由 CongestionMetricsWriterService 降采样后写入）；
+ * 关闭写回（transfer.write-behind.enabled=false）时各方法直接写库
+ */
+public interface UploadWriteBehindService {
+
+    /**
+     * 是否启用写回
+     *
+     * @return 是否启用
+     */
+    boolean isEnabled();
+
+    /**
+     * 记录分片完成（file_info.chunk_bitmap 置位）
+     *
+     * @param fileId      文件ID
+     * @param totalChunks 总分片数
+     * @param chunkNumber 分片序号
+     */
+    void chunkCompleted(Long fileId, int totalChunks, int chunkNumber);
+
+    /**
+     * 撤销分片完成状态（file_info.chunk_bitmap 清位，分片需要重传）
+     *
+     * @param fileId      文件ID
+     * @param totalChunks 总分片数
+     * @param chunkNumber 分片序号
+     */
+    void chunkReverted(Long fileId, int totalChunks, int chunkNumber);
+
+    /**
+     * 记录任务进度（同一任务只保留最新值）
+     *
+     * @param taskId   任务ID
+     * @param progress 进度百分比
+     */
+    void taskProgress(String taskId, double progress);
+
+    /**
+     * 立即写入所有待写数据（合并前、服务关闭时调用）
+     */
+    void flush();
+}
@@ -0,0 +1,347 @@
+package com.server.smarttransferserver.service.impl;
+
+import com.server.smarttransferserver.common.BandwidthLimitExceededException;
+import com.server.smarttransferserver.common.enums.TransferDirection;
+import com.server.smarttransferserver.config.BandwidthLimitConfig;
+import com.server.smarttransferserver.service.BandwidthLimitService;
+import com.server.smarttransferserver.service.PacingService;
+import com.server.smarttransferserver.util.MaxMinFairShare;
+import com.server.smarttransferserver.util.TokenBucket;
+import com.server.smarttransferserver.util.UserContextHolder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 分级带宽限制服务实现
+ * 1. 每个方向一棵树：全局 → 角色 → 用户 → 任务，每个节点一个令牌桶；分块需要在从任务到全局的每一级都预留令牌
+ * 2. 节点速率由后台线程定期自上而下重新分配：父节点速率按权重在活跃（active-window-ms 内有传输）的子节点之间注水分配，
+ *    子节点不超过自身上限，用不完的部分分给其他子节点；新节点变为活跃时立即重新分配
+ * 3. 需要等待的时间不超过 bandwidth.max-delay-ms 时在时间轮上等待后继续（延迟响应），
+ *    超过时不预留令牌、直接返回 429，避免大量请求线程阻塞在限速上
+ */
+@Slf4j
+@Service
+public class BandwidthLimitServiceImpl implements BandwidthLimitService {
+
+    @Autowired
+    private BandwidthLimitConfig config;
+
+    @Autowired
+    private PacingService pacingService;
+
+    /** 重新分配速率的间隔（毫秒） */
+    @Value("${transfer.bandwidth.reallocate-interval-ms:500}")
+    private long reallocateIntervalMs;
+
+    /** 最近多久内有传输视为活跃（毫秒） */
+    @Value("${transfer.bandwidth.active-window-ms:3000}")
+    private long activeWindowMs;
+
+    /** 令牌桶容量对应的时长（毫秒） */
+    @Value("${transfer.bandwidth.burst-ms:1000}")
+    private long burstMs;
+
+    /** 节点空闲多久后移除（分钟） */
+    @Value("${transfer.bandwidth.idle-expire-minutes:10}")
+    private long idleExpireMinutes;
+
+    /** 令牌桶最小容量：一个分块 */
+    @Value("${transfer.chunk-size:5242880}")
+    private long chunkSize;
+
+    private static final String DEFAULT_ROLE = "USER";
+
+    private final Map<TransferDirection, Node> roots = new EnumMap<>(TransferDirection.class);
+
+    /** 任务节点索引，Key: 任务ID（上传和下载任务ID不重复） */
+    private final Map<String, Node> taskNodes = new ConcurrentHashMap<>();
+
+    private volatile boolean running = true;
+    private Thread reallocateThread;
+
+    @PostConstruct
+    public void init() {
+        for (TransferDirection direction : TransferDirection.values()) {
+            roots.put(direction, new Node(direction.name().toLowerCase(), null, newBucket()));
+        }
+        reallocateThread = new Thread(this::reallocateLoop, "bandwidth-reallocate");
+        reallocateThread.setDaemon(true);
+        reallocateThread.start();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        if (reallocateThread != null) {
+            reallocateThread.interrupt();
+        }
+    }
+
+    @Override
+    public void acquire(TransferDirection direction, String taskId, long bytes) {
+        if (!config.isEnabled() || taskId == null || bytes <= 0) {
+            return;
+        }
+        Node task = taskNode(direction, taskId);
+        long now = System.nanoTime();
+        boolean newlyActive = false;
+        for (Node node = task; node != null; node = node.parent) {
+            newlyActive |= now - node.lastActiveNanos > TimeUnit.MILLISECONDS.toNanos(activeWindowMs);
+            node.lastActiveNanos = now;
+        }
+        if (newlyActive) {
+            reallocate(direction);
+        }
+
+        // 先检查再预留：超过排队时长的请求不占用令牌
+        long maxDelayNanos = TimeUnit.MILLISECONDS.toNanos(config.getMaxDelayMs());
+        long delayNanos = 0;
+        for (Node node = task; node != null; node = node.parent) {
+            long rate = node.rate;
+            if (rate > 0) {
+                delayNanos = Math.max(delayNanos, node.bucket.peek(bytes, rate));
+            }
+        }
+        if (delayNanos > maxDelayNanos) {
+            throw new BandwidthLimitExceededException("带宽已达上限，请稍后重试",
+                    TimeUnit.NANOSECONDS.toMillis(delayNanos) + 1);
+        }
+        delayNanos = 0;
+        for (Node node = task; node != null; node = node.parent) {
+            long rate = node.rate;
+            if (rate > 0) {
+                delayNanos = Math.max(delayNanos, node.bucket.reserve(bytes, rate));
+            }
+        }
+        if (delayNanos <= 0) {
+            return;
+        }
+        long waitNanos = Math.min(delayNanos, maxDelayNanos);
+        try {
+            pacingService.await(waitNanos);
+        } catch (IOException e) {
+            // 等待被中断或超时属于限速，不是网络丢包：同样按 429 返回，调用方不计入拥塞控制
+            log.warn("带宽限制等待失败 - 任务ID: {}, 错误: {}", taskId, e.getMessage());
+            throw new BandwidthLimitExceededException("带宽已达上限，请稍后重试",
+                    TimeUnit.NANOSECONDS.toMillis(waitNanos) + 1);
+        }
+    }
+
+    @Override
+    public void removeTask(String taskId) {
+        Node task = taskNodes.remove(taskId);
+        if (task != null) {
+            task.detached = true;
+            task.parent.children.remove(task.name, task);
+        }
+    }
+
+    @Override
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", config.isEnabled());
+        stats.put("maxDelayMs", config.getMaxDelayMs());
+        long now = System.nanoTime();
+        for (TransferDirection direction : TransferDirection.values()) {
+            stats.put(direction.name().toLowerCase(), describe(roots.get(direction), now));
+        }
+        return stats;
+    }
+
+    /**
+     * 查找或创建任务节点
+     * 创建与 pruneIdle 在同一把锁（方向的根节点）下进行，避免新任务挂到刚被移除的用户节点上；
+     * 快速路径拿到的节点若已被移除（detached）则重新创建
+     */
+    private Node taskNode(TransferDirection direction, String taskId) {
+        Node task = taskNodes.get(taskId);
+        if (task != null && !task.detached) {
+            return task;
+        }
+        String role = UserContextHolder.getRole() != null ? UserContextHolder.getRole() : DEFAULT_ROLE;
+        Long userId = UserContextHolder.getUserId();
+        Node root = roots.get(direction);
+        synchronized (root) {
+            task = taskNodes.get(taskId);
+            if (task != null && !task.detached) {
+                return task;
+            }
+            Node roleNode = root.children.computeIfAbsent(role, name -> new Node(name, root, newBucket()));
+            Node userNode = roleNode.children.computeIfAbsent(String.valueOf(userId), name -> {
+                Node node = new Node(name, roleNode, newBucket());
+                node.userId = userId;
+                return node;
+            });
+            task = userNode.children.computeIfAbsent(taskId, name -> new Node(name, userNode, newBucket()));
+            taskNodes.put(taskId, task);
+            return task;
+        }
+    }
+
+    private TokenBucket newBucket() {
+        return new TokenBucket(burstMs, chunkSize);
+    }
+
+    private void reallocateLoop() {
+        while (running) {
+            try {
+                Thread.sleep(reallocateIntervalMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            try {
+                for (TransferDirection direction : TransferDirection.values()) {
+                    reallocate(direction);
+                }
+                pruneIdle();
+            } catch (Exception e) {
+                log.error("带宽重新分配异常", e);
+            }
+        }
+    }
+
+    /**
+     * 自上而下重新分配各级速率
+     */
+    private void reallocate(TransferDirection direction) {
+        Node root = roots.get(direction);
+        synchronized (root) {
+            long ceiling = config.getGlobalCeiling(direction);
+            long activeSince = System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(activeWindowMs);
+            allocate(root, ceiling > 0 ? ceiling : MaxMinFairShare.UNLIMITED, 0, activeSince);
+        }
+    }
+
+    /**
+     * 设置节点速率，并把速率分配给活跃的子节点
+     *
+     * @param depth 节点深度：0 全局，1 角色，2 用户，3 任务
+     */
+    private void allocate(Node node, long capacity, int depth, long activeSince) {
+        node.rate = capacity == MaxMinFairShare.UNLIMITED ? 0 : Math.max(1, capacity);
+        if (depth >= 3) {
+            return;
+        }
+        List<Node> active = new ArrayList<>();
+        for (Node child : node.children.values()) {
+            if (child.lastActiveNanos - activeSince > 0) {
+                active.add(child);
+            }
+        }
+        if (active.isEmpty()) {
+            return;
+        }
+        double[] weights = new double[active.size()];
+        long[] caps = new long[active.size()];
+        for (int i = 0; i < active.size(); i++) {
+            Node child = active.get(i);
+            long childCeiling;
+            if (depth == 0) {
+                weights[i] = config.getRoleWeight(child.name);
+                childCeiling = config.getRoleCeiling(child.name);
+            } else if (depth == 1) {
+                weights[i] = config.getUserWeight(child.userId);
+                childCeiling = config.getUserCeiling(child.userId);
+            } else {
+                weights[i] = 1.0;
+                childCeiling = config.getTaskCeiling();
+            }
+            caps[i] = childCeiling > 0 ? childCeiling : MaxMinFairShare.UNLIMITED;
+        }
+        long[] shares = MaxMinFairShare.allocate(capacity, weights, caps);
+        for (int i = 0; i < active.size(); i++) {
+            allocate(active.get(i), shares[i], depth + 1, activeSince);
+        }
+    }
+
+    /**
+     * 移除长时间空闲的任务和用户节点（任务完成/取消时已主动移除，这里兜底异常中断的任务）
+     * 与 taskNode 的创建路径持有同一把锁
+     */
+    private void pruneIdle() {
+        long idleBefore = System.nanoTime() - TimeUnit.MINUTES.toNanos(idleExpireMinutes);
+        for (Node root : roots.values()) {
+            synchronized (root) {
+                for (Node roleNode : root.children.values()) {
+                    roleNode.children.values().removeIf(user -> {
+                        user.children.values().removeIf(task -> {
+                            if (!task.idleSince(idleBefore)) {
+                                return false;
+                            }
+                            task.detached = true;
+                            taskNodes.remove(task.name, task);
+                            return true;
+                        });
+                        return user.children.isEmpty() && user.idleSince(idleBefore);
+                    });
+                }
+            }
+        }
+    }
+
+    private Map<String, Object> describe(Node node, long now) {
+        Map<String, Object> info = new LinkedHashMap<>();
+        info.put("name", node.name);
+        info.put("rate", node.rate);
+        info.put("idleMs", TimeUnit.NANOSECONDS.toMillis(now - node.lastActiveNanos));
+        if (!node.children.isEmpty()) {
+            List<Map<String, Object>> children = new ArrayList<>();
+            for (Node child : node.children.values()) {
+                children.add(describe(child, now));
+            }
+            info.put("children", children);
+        }
+        return info;
+    }
+
+    /**
+     * 限速树节点
+     */
+    private static final class Node {
+
+        final String name;
+        final Node parent;
+        final TokenBucket bucket;
+        final Map<String, Node> children = new ConcurrentHashMap<>();
+
+        /** 用户节点对应的用户ID */
+        volatile Long userId;
+
+        /** 分配的速率（字节/秒），0 表示不限 */
+        volatile long rate;
+
+        volatile long lastActiveNanos;
+
+        /** 任务节点已从树中移除 */
+        volatile boolean detached;
+
+        /** 创建时间：新节点在第一次传输前 lastActiveNanos 是一天前，不能据此判断空闲 */
+        final long createdNanos;
+
+        Node(String name, Node parent, TokenBucket bucket) {
+            this.name = name;
+            this.parent = parent;
+            this.bucket = bucket;
+            this.createdNanos = System.nanoTime();
+            this.lastActiveNanos = createdNanos - TimeUnit.DAYS.toNanos(1);
+        }
+
+        boolean idleSince(long idleBefore) {
+            return lastActiveNanos - idleBefore < 0 && createdNanos - idleBefore < 0;
+        }
+    }
+}
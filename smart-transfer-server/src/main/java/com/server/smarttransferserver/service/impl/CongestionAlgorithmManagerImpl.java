@@ -1,23 +1,42 @@
 package com.server.smarttransferserver.service.impl;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.server.smarttransferserver.congestion.AdaptiveAlgorithm;
 import com.server.smarttransferserver.congestion.BBRAlgorithm;
 import com.server.smarttransferserver.congestion.CongestionControlAlgorithm;
+import com.server.smarttransferserver.congestion.CongestionEventLoop;
 import com.server.smarttransferserver.congestion.CubicAlgorithm;
+import com.server.smarttransferserver.congestion.NetworkMonitor;
+import com.server.smarttransferserver.congestion.PathState;
 import com.server.smarttransferserver.congestion.RenoAlgorithm;
+import com.server.smarttransferserver.congestion.SerializedAlgorithm;
 import com.server.smarttransferserver.congestion.VegasAlgorithm;
 import com.server.smarttransferserver.service.AlgorithmFactory;
 import com.server.smarttransferserver.service.CongestionAlgorithmManager;
+import com.server.smarttransferserver.service.INetworkMonitorService;
+import com.server.smarttransferserver.service.PathStateService;
+import com.server.smarttransferserver.util.UserContextHolder;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
 
 /**
  * 拥塞控制算法管理器实现
- * 为每个传输任务维护独立的算法实例，确保不同任务的网络状态互不干扰
+ * 为每个传输任务维护独立的算法实例，确保不同任务的网络状态互不干扰；
+ * 任务结束时把算法状态写入路径状态缓存，同一路径上的新任务从该状态开始；
+ * 任务按ID哈希到固定的事件循环分片，算法实例由分片线程单线程修改，请求线程只入队事件和读取快照；
+ * 同时为每个任务、每个用户维护独立的网络监测器，并写入全局汇总，用户看到的带宽和丢包率只反映自己的路径
  */
 @Slf4j
 @Service
@@ -29,6 +48,26 @@ public class CongestionAlgorithmManagerImpl implements CongestionAlgorithmManage
      */
     private final Map<String, CongestionControlAlgorithm> algorithmMap = new ConcurrentHashMap<>();
     
+    /**
+     * 任务ID到路径键（用户ID + 客户端网段）的映射，创建算法实例时记录，移除时据此写回路径状态
+     */
+    private final Map<String, String> pathKeyMap = new ConcurrentHashMap<>();
+    
+    /**
+     * 任务ID到网络监测器的映射，与算法实例同时创建、同时移除
+     */
+    private final Map<String, NetworkMonitor> taskMonitorMap = new ConcurrentHashMap<>();
+    
+    /**
+     * 任务ID到用户ID的映射，交付数据同时写入该用户的监测器
+     */
+    private final Map<String, Long> taskUserMap = new ConcurrentHashMap<>();
+    
+    /**
+     * 用户ID到网络监测器的缓存，用户空闲超过 user-idle-minutes 后移除
+     */
+    private Cache<Long, NetworkMonitor> userMonitors;
+    
     @Autowired(required = false)
     private RenoAlgorithm renoAlgorithm;
     
@@ -44,6 +83,53 @@ public class CongestionAlgorithmManagerImpl implements CongestionAlgorithmManage
     @Autowired
     private AlgorithmFactory algorithmFactory;
     
+    @Autowired
+    private PathStateService pathStateService;
+    
+    @Autowired
+    private INetworkMonitorService networkMonitorService;
+    
+    /**
+     * 用户监测器空闲移除时间（分钟）
+     */
+    @Value("${transfer.network-monitor.user-idle-minutes:10}")
+    private long userIdleMinutes;
+    
+    /**
+     * 事件循环分片数，0 表示取CPU核数
+     */
+    @Value("${transfer.congestion-loop.shards:0}")
+    private int shardCount;
+    
+    /**
+     * 每个分片的事件队列容量
+     */
+    @Value("${transfer.congestion-loop.queue-capacity:4096}")
+    private int queueCapacity;
+    
+    private CongestionEventLoop[] loops;
+    
+    @PostConstruct
+    public void startLoops() {
+        int count = shardCount > 0 ? shardCount : Runtime.getRuntime().availableProcessors();
+        loops = new CongestionEventLoop[count];
+        for (int i = 0; i < count; i++) {
+            loops[i] = new CongestionEventLoop("congestion-loop-" + i, queueCapacity);
+            loops[i].start();
+        }
+        log.info("拥塞控制事件循环已启动 - 分片数: {}, 队列容量: {}", count, queueCapacity);
+        userMonitors = CacheBuilder.newBuilder()
+                .expireAfterAccess(userIdleMinutes, TimeUnit.MINUTES)
+                .build();
+    }
+    
+    @PreDestroy
+    public void stopLoops() {
+        for (CongestionEventLoop loop : loops) {
+            loop.shutdown();
+        }
+    }
+    
     /**
      * 为任务创建或获取算法实例
      * 根据系统配置的当前算法，为每个任务创建独立的算法实例
@@ -56,11 +142,114 @@ public class CongestionAlgorithmManagerImpl implements CongestionAlgorithmManage
         return algorithmMap.computeIfAbsent(taskId, k -> {
             // 创建新的算法实例（根据当前系统配置的算法类型）
             CongestionControlAlgorithm newAlgorithm = createNewAlgorithmInstance();
+            taskMonitorMap.put(taskId, new NetworkMonitor());
+            Long userId = UserContextHolder.getUserId();
+            if (userId != null) {
+                taskUserMap.put(taskId, userId);
+            }
+            // 同一用户、同一网段最近有任务结束时，用其路径状态初始化，跳过慢启动
+            String pathKey = pathStateService.currentPathKey();
+            if (pathKey != null) {
+                pathKeyMap.put(taskId, pathKey);
+                PathState pathState = pathStateService.lookup(pathKey);
+                if (pathState != null) {
+                    newAlgorithm.seed(pathState);
+                    log.info("为任务创建算法实例 - 任务ID: {}, 算法: {}, 使用路径状态初始化: {}",
+                            taskId, newAlgorithm.getAlgorithmName(), pathState);
+                    return serialize(taskId, newAlgorithm);
+                }
+            }
             log.info("为任务创建算法实例 - 任务ID: {}, 算法: {}", taskId, newAlgorithm.getAlgorithmName());
-            return newAlgorithm;
+            return serialize(taskId, newAlgorithm);
         });
     }
     
+    /**
+     * 交给任务所在分片的事件循环驱动；工厂不可用时退回的共享单例不能被单个分片独占，保持原样
+     */
+    private CongestionControlAlgorithm serialize(String taskId, CongestionControlAlgorithm algorithm) {
+        if (algorithm == cubicAlgorithm) {
+            return algorithm;
+        }
+        CongestionEventLoop loop = loops[Math.floorMod(taskId.hashCode(), loops.length)];
+        return new SerializedAlgorithm(taskId, algorithm, loop);
+    }
+    
+    @Override
+    public void recordDelivered(String taskId, long bytes, long rttMs) {
+        NetworkMonitor taskMonitor = taskMonitorMap.get(taskId);
+        if (taskMonitor != null) {
+            taskMonitor.recordDelivered(bytes, rttMs);
+        }
+        NetworkMonitor userMonitor = userMonitorOf(taskId);
+        if (userMonitor != null) {
+            userMonitor.recordDelivered(bytes, rttMs);
+        }
+        networkMonitorService.recordDelivered(taskId, bytes, rttMs);
+    }
+    
+    @Override
+    public void recordLoss(String taskId, long bytes) {
+        NetworkMonitor taskMonitor = taskMonitorMap.get(taskId);
+        if (taskMonitor != null) {
+            taskMonitor.recordLoss(bytes);
+        }
+        NetworkMonitor userMonitor = userMonitorOf(taskId);
+        if (userMonitor != null) {
+            userMonitor.recordLoss(bytes);
+        }
+        networkMonitorService.recordLoss(taskId, bytes);
+    }
+    
+    private NetworkMonitor userMonitorOf(String taskId) {
+        Long userId = taskUserMap.get(taskId);
+        if (userId == null) {
+            return null;
+        }
+        try {
+            return userMonitors.get(userId, NetworkMonitor::new);
+        } catch (ExecutionException e) {
+            return null;
+        }
+    }
+    
+    @Override
+    public NetworkMonitor getTaskMonitor(String taskId) {
+        return taskMonitorMap.get(taskId);
+    }
+    
+    @Override
+    public NetworkMonitor getUserMonitor(Long userId) {
+        return userId != null ? userMonitors.getIfPresent(userId) : null;
+    }
+    
+    @Override
+    public Map<String, Object> getMonitorStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("taskMonitors", taskMonitorMap.size());
+        stats.put("userMonitors", userMonitors.size());
+        stats.put("global", networkMonitorService.getStats());
+        return stats;
+    }
+    
+    @Override
+    public Map<String, Object> getEventLoopStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        long pending = 0;
+        long maxPending = 0;
+        for (CongestionEventLoop loop : loops) {
+            long shardPending = loop.pending();
+            pending += shardPending;
+            maxPending = Math.max(maxPending, shardPending);
+        }
+        stats.put("shards", loops.length);
+        stats.put("queueCapacity", queueCapacity);
+        stats.put("tasks", algorithmMap.size());
+        stats.put("pending", pending);
+        stats.put("maxShardPending", maxPending);
+        return stats;
+    }
+    
     /**
      * 获取任务对应的算法实例
      *
@@ -72,6 +261,16 @@ public class CongestionAlgorithmManagerImpl implements CongestionAlgorithmManage
         return algorithmMap.get(taskId);
     }
     
+    /**
+     * 获取所有任务的算法实例（只读视图）
+     *
+     * @return Key: 任务ID, Value: 算法实例
+     */
+    @Override
+    public Map<String, CongestionControlAlgorithm> getAllAlgorithms() {
+        return Collections.unmodifiableMap(algorithmMap);
+    }
+    
     /**
      * 移除任务的算法实例（任务完成或失败时调用）
      *
@@ -80,6 +279,12 @@ public class CongestionAlgorithmManagerImpl implements CongestionAlgorithmManage
     @Override
     public void removeAlgorithm(String taskId) {
         CongestionControlAlgorithm removed = algorithmMap.remove(taskId);
+        String pathKey = pathKeyMap.remove(taskId);
+        taskMonitorMap.remove(taskId);
+        taskUserMap.remove(taskId);
+        if (removed != null && pathKey != null) {
+            pathStateService.record(pathKey, removed);
+        }
         if (removed != null) {
             log.info("移除任务算法实例 - 任务ID: {}, 算法: {}", taskId, removed.getAlgorithmName());
         }
@@ -92,6 +297,9 @@ public class CongestionAlgorithmManagerImpl implements CongestionAlgorithmManage
     public void clearAll() {
         int count = algorithmMap.size();
         algorithmMap.clear();
+        pathKeyMap.clear();
+        taskMonitorMap.clear();
+        taskUserMap.clear();
         log.info("清理所有算法实例 - 清理数量: {}", count);
     }
     
@@ -4,8 +4,10 @@ import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
 import com.server.smarttransferserver.congestion.*;
 import com.server.smarttransferserver.entity.CongestionMetrics;
 import com.server.smarttransferserver.mapper.CongestionMetricsMapper;
+import com.server.smarttransferserver.service.CongestionAlgorithmManager;
 import com.server.smarttransferserver.service.CongestionAlgorithmService;
 import com.server.smarttransferserver.service.CongestionMetricsService;
+import com.server.smarttransferserver.service.CongestionMetricsWriterService;
 import com.server.smarttransferserver.service.INetworkMonitorService;
 import com.server.smarttransferserver.service.ProbeRttStore;
 import com.server.smarttransferserver.vo.CongestionMetricsVO;
@@ -14,8 +16,6 @@ import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
-import java.math.BigDecimal;
-import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -43,6 +43,12 @@ public class CongestionMetricsServiceImpl extends ServiceImpl<CongestionMetricsM
     @Autowired(required = false)
     private ProbeRttStore probeRttStore;
     
+    @Autowired
+    private CongestionAlgorithmManager algorithmManager;
+    
+    @Autowired
+    private CongestionMetricsWriterService metricsWriter;
+    
     /** 记录拥塞指标日志采样间隔：每 N 次记录打印一次，减少大量分片时的刷屏 */
     private static final int RECORD_LOG_SAMPLE_INTERVAL = 50;
     
@@ -62,15 +68,37 @@ public class CongestionMetricsServiceImpl extends ServiceImpl<CongestionMetricsM
     
     @Override
     public CongestionMetricsVO getCurrentMetrics(CongestionControlAlgorithm algorithm, Long userId) {
+        // 有用户时使用该用户自己的监测器，否则使用全局汇总
+        NetworkMonitorView userMonitor = algorithmManager.getUserMonitor(userId);
+        return buildMetrics(algorithm, userMonitor != null ? userMonitor : networkMonitor, userId);
+    }
+    
+    @Override
+    public CongestionMetricsVO getTaskMetrics(String taskId, Long userId) {
+        CongestionControlAlgorithm algorithm = algorithmManager.getAlgorithm(taskId);
+        NetworkMonitorView monitor = algorithmManager.getTaskMonitor(taskId);
+        if (monitor == null) {
+            monitor = algorithmManager.getUserMonitor(userId);
+        }
+        return buildMetrics(algorithm, monitor != null ? monitor : networkMonitor, userId);
+    }
+    
+    /**
+     * 按算法快照和指定范围（任务/用户/全局）的网络监测数据构建指标
+     */
+    private CongestionMetricsVO buildMetrics(CongestionControlAlgorithm algorithm, NetworkMonitorView networkMonitor,
+                                             Long userId) {
         if (algorithm == null || networkMonitor == null) {
             return buildEmptyMetrics();
         }
+        // 读取一次快照，各字段来自同一时刻的算法状态
+        AlgorithmSnapshot snapshot = algorithm.snapshot();
         
         // 评估网络质量：优先用 NetworkMonitor；若为 null 且为自适应算法，则用算法侧的网络质量描述（优秀/良好/一般/差）
-        NetworkMonitorServiceImpl.NetworkQuality quality = networkMonitor.evaluateNetworkQuality();
+        NetworkMonitor.NetworkQuality quality = networkMonitor.evaluateNetworkQuality();
         String qualityDesc = quality != null ? quality.getDescription() : "-";
-        if ("-".equals(qualityDesc) && algorithm instanceof AdaptiveAlgorithm) {
-            String adaptiveQuality = ((AdaptiveAlgorithm) algorithm).getMetrics().getNetworkQuality();
+        if ("-".equals(qualityDesc) && snapshot.isAdaptive()) {
+            String adaptiveQuality = snapshot.getNetworkQuality();
             if (adaptiveQuality != null && !adaptiveQuality.isEmpty()) {
                 qualityDesc = adaptiveQuality;
             }
@@ -78,19 +106,19 @@ public class CongestionMetricsServiceImpl extends ServiceImpl<CongestionMetricsM
         
         // 计算RTT抖动
         long rttJitter = 0;
-        if (networkMonitor.getStats() != null && networkMonitor.getStats().getRttStats() != null) {
-            rttJitter = networkMonitor.getStats().getRttStats().getRttVar();
+        NetworkMonitor.NetworkStats networkStats = networkMonitor.getStats();
+        if (networkStats != null && networkStats.getRttStats() != null) {
+            rttJitter = networkStats.getRttStats().getRttVar();
         }
         
         // 如果是自适应算法，使用其计算的RTT抖动（更准确，包含异常值过滤）
-        if (algorithm instanceof AdaptiveAlgorithm) {
-            AdaptiveAlgorithm adaptiveAlg = (AdaptiveAlgorithm) algorithm;
-            rttJitter = adaptiveAlg.getRttJitter();
+        if (snapshot.isAdaptive()) {
+            rttJitter = snapshot.getRttJitter();
         }
         
         // 计算BDP（带宽时延积）
         long bandwidth = networkMonitor.getEstimatedBandwidth();
-        long rtt = algorithm.getRtt();
+        long rtt = snapshot.getRtt();
         long rttForDisplay = rtt;
         // 传播时延：有 userId 时优先用该用户的独立探测 RTT（往返，与 Clumsy 一致），供 WebSocket 推送与前端显示一致
         if (userId != null && probeRttStore != null) {
@@ -99,31 +127,29 @@ public class CongestionMetricsServiceImpl extends ServiceImpl<CongestionMetricsM
                 rttForDisplay = probeRtt;
             }
         }
-        if (rttForDisplay == rtt && algorithm instanceof AdaptiveAlgorithm) {
-            AdaptiveAlgorithm adaptiveAlg = (AdaptiveAlgorithm) algorithm;
-            rttForDisplay = adaptiveAlg.getDisplayRtt();
+        if (rttForDisplay == rtt && snapshot.isAdaptive()) {
+            rttForDisplay = snapshot.getDisplayRtt();
         }
         double lossRateForVo = networkMonitor.getLossRate();
-        if (algorithm instanceof AdaptiveAlgorithm) {
-            lossRateForVo = ((AdaptiveAlgorithm) algorithm).getDisplayLossRate();
+        if (snapshot.isAdaptive()) {
+            lossRateForVo = snapshot.getDisplayLossRate();
         }
         long bdp = bandwidth > 0 && rtt > 0 ? (bandwidth * rtt / 1000) : 0;
         
         // 获取网络趋势和预热状态（如果是自适应算法）
         String networkTrend = null;
         Boolean isWarmingUp = null;
-        if (algorithm instanceof AdaptiveAlgorithm) {
-            AdaptiveAlgorithm adaptiveAlg = (AdaptiveAlgorithm) algorithm;
-            networkTrend = adaptiveAlg.getNetworkTrend();
-            isWarmingUp = adaptiveAlg.isWarmingUp();
+        if (snapshot.isAdaptive()) {
+            networkTrend = snapshot.getNetworkTrend();
+            isWarmingUp = snapshot.isWarmingUp();
         }
         
         CongestionMetricsVO vo = CongestionMetricsVO.builder()
-                .algorithm(algorithm.getAlgorithmName())
-                .cwnd(algorithm.getCwnd())
-                .ssthresh(algorithm.getSsthresh())
-                .rate(algorithm.getRate())
-                .state(algorithm.getState().getDescription())
+                .algorithm(snapshot.getAlgorithmName())
+                .cwnd(snapshot.getCwnd())
+                .ssthresh(snapshot.getSsthresh())
+                .rate(snapshot.getRate())
+                .state(snapshot.getState().getDescription())
                 .rtt(rttForDisplay)
                 .minRtt(networkMonitor.getMinRtt())
                 .lossRate(lossRateForVo)
@@ -202,22 +228,17 @@ public class CongestionMetricsServiceImpl extends ServiceImpl<CongestionMetricsM
         if (algorithm == null || networkMonitor == null) {
             return;
         }
+        AlgorithmSnapshot snapshot = algorithm.snapshot();
+        // 使用该任务自己的监测数据，其他任务的传输不影响记录的带宽和丢包率
+        NetworkMonitorView taskMonitor = algorithmManager.getTaskMonitor(taskId);
+        NetworkMonitorView networkMonitor = taskMonitor != null ? taskMonitor : this.networkMonitor;
         double lossRateForRecord = networkMonitor.getLossRate();
-        if (algorithm instanceof AdaptiveAlgorithm) {
-            lossRateForRecord = ((AdaptiveAlgorithm) algorithm).getCurrentLossRate();
+        if (snapshot.isAdaptive()) {
+            lossRateForRecord = snapshot.getCurrentLossRate();
         }
-        CongestionMetrics metrics = CongestionMetrics.builder()
-                .taskId(taskId)
-                .algorithm(algorithm.getAlgorithmName())
-                .cwnd(algorithm.getCwnd())
-                .ssthresh(algorithm.getSsthresh())
-                .rtt(algorithm.getRtt())
-                .bandwidth(networkMonitor.getEstimatedBandwidth())
-                .lossRate(BigDecimal.valueOf(lossRateForRecord))
-                .recordTime(LocalDateTime.now())
-                .build();
-        
-        recordMetrics(metrics);
+        // 分片上传/下载路径上每个ACK都会记录，只写入缓冲区，由写入线程降采样后批量插入
+        metricsWriter.record(taskId, snapshot.getAlgorithmName(), snapshot.getCwnd(), snapshot.getSsthresh(),
+                snapshot.getRtt(), networkMonitor.getEstimatedBandwidth(), lossRateForRecord);
         
         long n = recordCountByTask.computeIfAbsent(taskId, k -> new AtomicLong(0)).incrementAndGet();
         if (n == 1 || n % RECORD_LOG_SAMPLE_INTERVAL == 1) {
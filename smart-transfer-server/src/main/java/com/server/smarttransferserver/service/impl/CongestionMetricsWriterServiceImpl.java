@@ -0,0 +1,330 @@
+package com.server.smarttransferserver.service.impl;
+
+import com.server.smarttransferserver.entity.CongestionMetrics;
+import com.server.smarttransferserver.mapper.CongestionMetricsMapper;
+import com.server.smarttransferserver.service.CongestionMetricsWriterService;
+import com.server.smarttransferserver.util.MpscRingBuffer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 拥塞指标写入服务实现
+ * 1. 热路径：样本写入 {@link MpscRingBuffer}，只有一次 CAS，满时丢弃并计数
+ * 2. 后台线程每 flush-interval-ms 取空缓冲区，按任务累积到 window-ms 对齐的时间窗口，
+ *    窗口结束后生成一行：各字段取窗口内最后一个样本，另记 cwnd/RTT 的最小、最大值和样本数
+ * 3. 结束的窗口按 batch-size 一条多行 INSERT；整批失败（如任务已删除触发外键约束）时逐行重试，只丢弃失败的行
+ * 窗口和待写行只在持有刷新锁时访问
+ */
+@Slf4j
+@Service
+public class CongestionMetricsWriterServiceImpl implements CongestionMetricsWriterService {
+
+    @Autowired
+    private CongestionMetricsMapper metricsMapper;
+
+    @Value("${transfer.metrics-writer.enabled:true}")
+    private boolean enabled;
+
+    /** 环形缓冲区容量（取2的幂） */
+    @Value("${transfer.metrics-writer.ring-capacity:65536}")
+    private int ringCapacity;
+
+    /** 降采样窗口（毫秒） */
+    @Value("${transfer.metrics-writer.window-ms:1000}")
+    private long windowMs;
+
+    /** 刷新间隔（毫秒） */
+    @Value("${transfer.metrics-writer.flush-interval-ms:500}")
+    private long flushIntervalMs;
+
+    /** 单条 INSERT 最多行数 */
+    @Value("${transfer.metrics-writer.batch-size:500}")
+    private int batchSize;
+
+    private MpscRingBuffer<Sample> ring;
+
+    /** 未结束的窗口，Key: 任务ID */
+    private final Map<String, Window> windows = new HashMap<>();
+
+    private final List<CongestionMetrics> pendingRows = new ArrayList<>();
+
+    /** 刷新锁，后台线程与 flush() 调用方互斥，也保证环形缓冲区只有一个消费者 */
+    private final ReentrantLock flushLock = new ReentrantLock();
+
+    private final LongAdder enqueued = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+
+    private volatile long samplesAggregated;
+    private volatile long rowsWritten;
+    private volatile long rowsFailed;
+    private volatile long flushes;
+    private volatile long totalFlushNanos;
+    private volatile long lastFlushNanos;
+    private volatile long maxFlushNanos;
+    private volatile int openWindows;
+
+    private volatile boolean running = true;
+    private Thread writerThread;
+
+    @PostConstruct
+    public void startWriterThread() {
+        if (!enabled) {
+            log.info("拥塞指标降采样写入未启用，每个样本直接写库");
+            return;
+        }
+        ring = new MpscRingBuffer<>(ringCapacity);
+        writerThread = new Thread(this::writeLoop, "congestion-metrics-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+        log.info("拥塞指标写入线程已启动（缓冲区 {}，窗口 {}ms，每 {}ms 刷新）", ring.capacity(), windowMs, flushIntervalMs);
+    }
+
+    @PreDestroy
+    public void stopWriterThread() {
+        running = false;
+        if (writerThread != null) {
+            writerThread.interrupt();
+        }
+        // 关闭前写入剩余样本和未结束的窗口
+        flush();
+    }
+
+    @Override
+    public void record(String taskId, String algorithm, long cwnd, long ssthresh, long rtt, long bandwidth,
+                       double lossRate) {
+        Sample sample = new Sample(taskId, algorithm, cwnd, ssthresh, rtt, bandwidth, lossRate,
+                System.currentTimeMillis());
+        if (!enabled) {
+            metricsMapper.insert(new Window(sample.time).add(sample).toRow(sample.taskId));
+            return;
+        }
+        if (ring.offer(sample)) {
+            enqueued.increment();
+            return;
+        }
+        dropped.increment();
+        long count = dropped.sum();
+        if (count == 1 || count % 10000 == 0) {
+            log.warn("拥塞指标缓冲区已满（{}），丢弃新样本 - 累计丢弃: {}", ring.capacity(), count);
+        }
+    }
+
+    @Override
+    public void flush() {
+        if (enabled) {
+            flush(true);
+        }
+    }
+
+    @Override
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("windowMs", windowMs);
+        stats.put("ringCapacity", ring != null ? ring.capacity() : 0);
+        stats.put("queueDepth", ring != null ? ring.size() : 0);
+        stats.put("enqueued", enqueued.sum());
+        stats.put("dropped", dropped.sum());
+        stats.put("openWindows", openWindows);
+        stats.put("samplesAggregated", samplesAggregated);
+        stats.put("rowsWritten", rowsWritten);
+        stats.put("rowsFailed", rowsFailed);
+        stats.put("downsampleRatio", rowsWritten > 0 ? (double) samplesAggregated / rowsWritten : 0);
+        stats.put("flushes", flushes);
+        stats.put("lastFlushMs", lastFlushNanos / 1e6);
+        stats.put("avgFlushMs", flushes > 0 ? totalFlushNanos / 1e6 / flushes : 0);
+        stats.put("maxFlushMs", maxFlushNanos / 1e6);
+        return stats;
+    }
+
+    /**
+     * 写入循环：固定间隔取空缓冲区并写出已结束的窗口
+     */
+    private void writeLoop() {
+        while (running) {
+            try {
+                Thread.sleep(flushIntervalMs);
+                flush(false);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                if (!running) {
+                    break;
+                }
+            } catch (Exception e) {
+                log.error("拥塞指标写入失败: {}", e.getMessage(), e);
+            }
+        }
+        log.info("拥塞指标写入线程已退出");
+    }
+
+    /**
+     * @param closeAll 是否写出所有窗口（包括未结束的）
+     */
+    private void flush(boolean closeAll) {
+        flushLock.lock();
+        try {
+            long aggregated = 0;
+            int drained;
+            do {
+                drained = ring.drain(this::aggregate, ring.capacity());
+                aggregated += drained;
+            } while (drained > 0 && closeAll);
+            samplesAggregated += aggregated;
+
+            long now = System.currentTimeMillis();
+            Iterator<Map.Entry<String, Window>> iterator = windows.entrySet().iterator();
+            while (iterator.hasNext()) {
+                Map.Entry<String, Window> entry = iterator.next();
+                if (closeAll || entry.getValue().start + windowMs <= now) {
+                    pendingRows.add(entry.getValue().toRow(entry.getKey()));
+                    iterator.remove();
+                }
+            }
+            openWindows = windows.size();
+            writeRows();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * 样本计入所属任务的窗口，样本跨入新窗口时上一个窗口结束
+     */
+    private void aggregate(Sample sample) {
+        long start = sample.time - sample.time % windowMs;
+        Window window = windows.get(sample.taskId);
+        if (window != null && window.start != start) {
+            pendingRows.add(window.toRow(sample.taskId));
+            window = null;
+        }
+        if (window == null) {
+            window = new Window(start);
+            windows.put(sample.taskId, window);
+        }
+        window.add(sample);
+    }
+
+    private void writeRows() {
+        if (pendingRows.isEmpty()) {
+            return;
+        }
+        long begin = System.nanoTime();
+        long written = 0;
+        long failed = 0;
+        for (int from = 0; from < pendingRows.size(); from += batchSize) {
+            List<CongestionMetrics> batch = pendingRows.subList(from, Math.min(from + batchSize, pendingRows.size()));
+            try {
+                metricsMapper.insertBatch(batch);
+                written += batch.size();
+            } catch (Exception e) {
+                log.warn("批量写入拥塞指标失败，逐行重试 {} 条 - 错误: {}", batch.size(), e.getMessage());
+                for (CongestionMetrics row : batch) {
+                    try {
+                        metricsMapper.insert(row);
+                        written++;
+                    } catch (Exception rowError) {
+                        // 指标只用于监控展示，写入失败直接丢弃，不影响传输
+                        failed++;
+                        log.debug("丢弃拥塞指标 - 任务ID: {}, 错误: {}", row.getTaskId(), rowError.getMessage());
+                    }
+                }
+            }
+        }
+        pendingRows.clear();
+        long cost = System.nanoTime() - begin;
+        rowsWritten += written;
+        rowsFailed += failed;
+        flushes++;
+        totalFlushNanos += cost;
+        lastFlushNanos = cost;
+        maxFlushNanos = Math.max(maxFlushNanos, cost);
+    }
+
+    /**
+     * 指标样本
+     */
+    private static final class Sample {
+        final String taskId;
+        final String algorithm;
+        final long cwnd;
+        final long ssthresh;
+        final long rtt;
+        final long bandwidth;
+        final double lossRate;
+        final long time;
+
+        Sample(String taskId, String algorithm, long cwnd, long ssthresh, long rtt, long bandwidth, double lossRate,
+               long time) {
+            this.taskId = taskId;
+            this.algorithm = algorithm;
+            this.cwnd = cwnd;
+            this.ssthresh = ssthresh;
+            this.rtt = rtt;
+            this.bandwidth = bandwidth;
+            this.lossRate = lossRate;
+            this.time = time;
+        }
+    }
+
+    /**
+     * 单个任务一个时间窗口内的聚合：末值 + cwnd/RTT 最小、最大值
+     */
+    private static final class Window {
+        final long start;
+        Sample last;
+        int count;
+        long cwndMin = Long.MAX_VALUE;
+        long cwndMax = Long.MIN_VALUE;
+        long rttMin = Long.MAX_VALUE;
+        long rttMax = Long.MIN_VALUE;
+
+        Window(long start) {
+            this.start = start;
+        }
+
+        Window add(Sample sample) {
+            last = sample;
+            count++;
+            cwndMin = Math.min(cwndMin, sample.cwnd);
+            cwndMax = Math.max(cwndMax, sample.cwnd);
+            rttMin = Math.min(rttMin, sample.rtt);
+            rttMax = Math.max(rttMax, sample.rtt);
+            return this;
+        }
+
+        CongestionMetrics toRow(String taskId) {
+            return CongestionMetrics.builder()
+                    .taskId(taskId)
+                    .algorithm(last.algorithm)
+                    .cwnd(last.cwnd)
+                    .ssthresh(last.ssthresh)
+                    .rtt(last.rtt)
+                    .bandwidth(last.bandwidth)
+                    .lossRate(BigDecimal.valueOf(last.lossRate))
+                    .cwndMin(cwndMin)
+                    .cwndMax(cwndMax)
+                    .rttMin(rttMin)
+                    .rttMax(rttMax)
+                    .sampleCount(count)
+                    .recordTime(LocalDateTime.ofInstant(Instant.ofEpochMilli(last.time), ZoneId.systemDefault()))
+                    .build();
+        }
+    }
+}
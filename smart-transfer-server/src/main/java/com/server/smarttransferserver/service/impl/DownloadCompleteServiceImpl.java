@@ -1,7 +1,10 @@
 package com.server.smarttransferserver.service.impl;
 
+import com.server.smarttransferserver.service.BandwidthLimitService;
 import com.server.smarttransferserver.service.CongestionAlgorithmManager;
 import com.server.smarttransferserver.service.DownloadCompleteService;
+import com.server.smarttransferserver.service.DownloadSessionService;
+import com.server.smarttransferserver.service.PacingService;
 import com.server.smarttransferserver.service.RedisService;
 import com.server.smarttransferserver.service.TransferTaskService;
 import lombok.extern.slf4j.Slf4j;
@@ -25,6 +28,15 @@ public class DownloadCompleteServiceImpl implements DownloadCompleteService {
     @Autowired
     private RedisService redisService;
     
+    @Autowired
+    private DownloadSessionService downloadSessionService;
+    
+    @Autowired
+    private PacingService pacingService;
+    
+    @Autowired
+    private BandwidthLimitService bandwidthLimitService;
+    
     /**
      * Redis key前缀：存储已完成下载的分块集合
      */
@@ -40,8 +52,11 @@ public class DownloadCompleteServiceImpl implements DownloadCompleteService {
         // 1. 更新任务状态为COMPLETED
         transferTaskService.updateTaskStatus(taskId, "COMPLETED");
         
-        // 2. 清理算法实例
+        // 2. 清理算法实例和下载会话
         algorithmManager.removeAlgorithm(taskId);
+        downloadSessionService.remove(taskId);
+        pacingService.remove(taskId);
+        bandwidthLimitService.removeTask(taskId);
         
         // 3. **修复P1-1：清理Redis中的已完成分块记录和任务配置（释放内存）**
         try {
@@ -69,9 +84,12 @@ public class DownloadCompleteServiceImpl implements DownloadCompleteService {
             log.warn("更新任务状态失败 - 任务ID: {}, 错误: {}", taskId, e.getMessage());
         }
         
-        // 2. 清理算法实例
+        // 2. 清理算法实例和下载会话
         try {
             algorithmManager.removeAlgorithm(taskId);
+            downloadSessionService.remove(taskId);
+            pacingService.remove(taskId);
+            bandwidthLimitService.removeTask(taskId);
             log.debug("清理算法实例 - 任务ID: {}", taskId);
         } catch (Exception e) {
             log.warn("清理算法实例失败 - 任务ID: {}, 错误: {}", taskId, e.getMessage());
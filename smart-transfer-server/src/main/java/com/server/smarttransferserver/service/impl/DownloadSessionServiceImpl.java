@@ -0,0 +1,156 @@
+package com.server.smarttransferserver.service.impl;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.server.smarttransferserver.domain.DownloadSession;
+import com.server.smarttransferserver.service.DownloadSessionService;
+import com.server.smarttransferserver.service.RedisService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 下载会话服务实现
+ * 会话按文件ID缓存（与 getTaskIdByFileId 一致，一个文件同时只有一个进行中的下载任务），
+ * 后台线程每 flush-interval-ms 把各会话新完成的分块用一条 SADD 写入 Redis；
+ * 会话过期被移出缓存时，刷新队列仍持有其引用，未写入的分块不会丢失
+ */
+@Slf4j
+@Service
+public class DownloadSessionServiceImpl implements DownloadSessionService {
+
+    /**
+     * Redis key前缀：存储已完成下载的分块集合
+     */
+    private static final String DOWNLOAD_COMPLETED_CHUNKS_KEY_PREFIX = "download:completed:chunks:";
+
+    /**
+     * Redis key过期时间：24小时
+     */
+    private static final long DOWNLOAD_CHUNKS_CACHE_EXPIRE_HOURS = 24;
+
+    @Autowired
+    private RedisService redisService;
+
+    /** 最多缓存的会话数 */
+    @Value("${transfer.download.session.max-size:10000}")
+    private long maxSessions;
+
+    /** 会话多久未访问后过期（分钟） */
+    @Value("${transfer.download.session.expire-minutes:30}")
+    private long expireMinutes;
+
+    /** 已完成分块写入 Redis 的间隔（毫秒） */
+    @Value("${transfer.download.session.flush-interval-ms:1000}")
+    private long flushIntervalMs;
+
+    private Cache<Long, DownloadSession> sessions;
+
+    /** 有待写入分块的会话 */
+    private final ConcurrentLinkedQueue<DownloadSession> dirtySessions = new ConcurrentLinkedQueue<>();
+
+    private volatile boolean running = true;
+    private Thread flushThread;
+
+    @PostConstruct
+    public void init() {
+        sessions = CacheBuilder.newBuilder()
+                .maximumSize(maxSessions)
+                .expireAfterAccess(expireMinutes, TimeUnit.MINUTES)
+                .build();
+        flushThread = new Thread(this::flushLoop, "download-session-flush");
+        flushThread.setDaemon(true);
+        flushThread.start();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        if (flushThread != null) {
+            flushThread.interrupt();
+        }
+        // 关闭前写入剩余分块
+        flush();
+    }
+
+    @Override
+    public DownloadSession get(Long fileId) {
+        DownloadSession session = sessions.getIfPresent(fileId);
+        return session != null && !session.isClosed() ? session : null;
+    }
+
+    @Override
+    public void put(DownloadSession session) {
+        DownloadSession previous = sessions.asMap().put(session.getFileId(), session);
+        if (previous != null && previous != session && !previous.getTaskId().equals(session.getTaskId())) {
+            previous.close();
+        }
+    }
+
+    @Override
+    public int markCompleted(DownloadSession session, int chunkNumber) {
+        if (session.markCompleted(chunkNumber)) {
+            dirtySessions.add(session);
+        }
+        return session.getCompletedCount();
+    }
+
+    @Override
+    public void remove(String taskId) {
+        sessions.asMap().values().removeIf(session -> {
+            if (session.getTaskId().equals(taskId)) {
+                session.close();
+                return true;
+            }
+            return false;
+        });
+    }
+
+    private void flushLoop() {
+        while (running) {
+            try {
+                Thread.sleep(flushIntervalMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            try {
+                flush();
+            } catch (Exception e) {
+                log.error("下载分块状态写入Redis异常", e);
+            }
+        }
+    }
+
+    private void flush() {
+        DownloadSession session;
+        while ((session = dirtySessions.poll()) != null) {
+            if (session.isClosed()) {
+                continue;
+            }
+            List<Integer> chunks = session.drainPending();
+            if (chunks.isEmpty()) {
+                continue;
+            }
+            String key = DOWNLOAD_COMPLETED_CHUNKS_KEY_PREFIX + session.getTaskId();
+            try {
+                redisService.sAdd(key, chunks.stream().map(String::valueOf).toArray());
+                redisService.expire(key, DOWNLOAD_CHUNKS_CACHE_EXPIRE_HOURS, TimeUnit.HOURS);
+            } catch (Exception e) {
+                // Redis 不可用时放回队列，下次再写
+                log.warn("下载分块状态写入Redis失败 - 任务ID: {}, 分块数: {}, 错误: {}",
+                        session.getTaskId(), chunks.size(), e.getMessage());
+                session.restorePending(chunks);
+                dirtySessions.add(session);
+                return;
+            }
+        }
+    }
+}
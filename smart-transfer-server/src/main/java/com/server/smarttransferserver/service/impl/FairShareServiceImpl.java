@@ -0,0 +1,327 @@
+package com.server.smarttransferserver.service.impl;
+
+import com.server.smarttransferserver.common.enums.TransferDirection;
+import com.server.smarttransferserver.config.BandwidthLimitConfig;
+import com.server.smarttransferserver.congestion.CongestionControlAlgorithm;
+import com.server.smarttransferserver.service.CongestionAlgorithmManager;
+import com.server.smarttransferserver.service.FairShareService;
+import com.server.smarttransferserver.util.MaxMinFairShare;
+import com.server.smarttransferserver.util.UserContextHolder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 全局公平带宽分配服务实现
+ * 1. 分块确认时累加任务的交付字节数，后台线程每 interval-ms 计算各任务的交付速率和每个方向的总交付速率
+ * 2. 链路容量 = 最近 capacity-window-ms 内总交付速率的最大值 × (1 + probe-gain)，
+ *    留出的余量让容量估计能随实际带宽增长；配置了固定容量时使用配置值
+ * 3. 某个方向活跃任务不少于2个、且各任务需求（算法速率）之和超过容量时，按加权最大最小公平分配容量：
+ *    需求小于公平份额的任务按需求分配，剩余容量在其他任务之间按权重分配（权重取分级带宽限制中的角色权重 × 用户权重）；
+ *    否则不限制
+ * 4. 份额通过发送速率控制（PacingService）和返回给客户端的速率/拥塞窗口生效，不修改算法内部状态
+ */
+@Slf4j
+@Service
+public class FairShareServiceImpl implements FairShareService {
+
+    @Autowired
+    private CongestionAlgorithmManager algorithmManager;
+
+    @Autowired
+    private BandwidthLimitConfig bandwidthLimitConfig;
+
+    @Value("${transfer.fair-share.enabled:true}")
+    private boolean enabled;
+
+    /** 重新计算份额的间隔（毫秒） */
+    @Value("${transfer.fair-share.interval-ms:500}")
+    private long intervalMs;
+
+    /** 最近多久内有交付视为活跃（毫秒） */
+    @Value("${transfer.fair-share.active-window-ms:3000}")
+    private long activeWindowMs;
+
+    /** 容量估计取最大值的时间窗口（毫秒） */
+    @Value("${transfer.fair-share.capacity-window-ms:10000}")
+    private long capacityWindowMs;
+
+    /** 容量估计的探测余量 */
+    @Value("${transfer.fair-share.probe-gain:0.05}")
+    private double probeGain;
+
+    /** 固定上传容量（字节/秒），0 表示按交付速率估计 */
+    @Value("${transfer.fair-share.capacity.upload:0}")
+    private long uploadCapacity;
+
+    /** 固定下载容量（字节/秒），0 表示按交付速率估计 */
+    @Value("${transfer.fair-share.capacity.download:0}")
+    private long downloadCapacity;
+
+    /** 份额下限（字节/秒） */
+    @Value("${transfer.fair-share.min-share:65536}")
+    private long minShare;
+
+    /** 拥塞窗口下限：一个分块 */
+    @Value("${transfer.chunk-size:5242880}")
+    private long chunkSize;
+
+    /** 交付速率平滑系数 */
+    private static final double RATE_ALPHA = 0.5;
+
+    private static final String DEFAULT_ROLE = "USER";
+
+    /** 任务状态，Key: 任务ID */
+    private final Map<String, TaskShare> tasks = new ConcurrentHashMap<>();
+
+    private final Map<TransferDirection, CapacityEstimator> capacities = new EnumMap<>(TransferDirection.class);
+
+    private volatile boolean running = true;
+    private Thread allocatorThread;
+
+    @PostConstruct
+    public void init() {
+        int windowSamples = (int) Math.max(1, capacityWindowMs / intervalMs);
+        for (TransferDirection direction : TransferDirection.values()) {
+            capacities.put(direction, new CapacityEstimator(windowSamples));
+        }
+        if (!enabled) {
+            log.info("全局公平带宽分配未启用");
+            return;
+        }
+        allocatorThread = new Thread(this::allocateLoop, "fair-share-allocator");
+        allocatorThread.setDaemon(true);
+        allocatorThread.start();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        if (allocatorThread != null) {
+            allocatorThread.interrupt();
+        }
+    }
+
+    @Override
+    public void onDelivered(TransferDirection direction, String taskId, long bytes) {
+        if (!enabled || taskId == null || bytes <= 0) {
+            return;
+        }
+        TaskShare task = tasks.computeIfAbsent(taskId, id -> new TaskShare(direction, currentWeight()));
+        task.delivered.add(bytes);
+        task.lastDeliveryNanos = System.nanoTime();
+    }
+
+    @Override
+    public long clampRate(String taskId, long rate) {
+        TaskShare task = taskId != null ? tasks.get(taskId) : null;
+        if (task == null || task.share <= 0 || rate <= 0) {
+            return rate;
+        }
+        return Math.min(rate, task.share);
+    }
+
+    @Override
+    public long clampCwnd(String taskId, long cwnd, long rttMs) {
+        TaskShare task = taskId != null ? tasks.get(taskId) : null;
+        if (task == null || task.share <= 0 || rttMs <= 0) {
+            return cwnd;
+        }
+        long shareCwnd = Math.max(chunkSize, task.share * rttMs / 1000);
+        return Math.min(cwnd, shareCwnd);
+    }
+
+    @Override
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        for (TransferDirection direction : TransferDirection.values()) {
+            CapacityEstimator capacity = capacities.get(direction);
+            Map<String, Object> info = new LinkedHashMap<>();
+            info.put("capacity", capacity.capacity);
+            info.put("aggregateRate", capacity.aggregateRate);
+            info.put("contended", capacity.contended);
+            List<Map<String, Object>> taskStats = new ArrayList<>();
+            tasks.forEach((taskId, task) -> {
+                if (task.direction != direction) {
+                    return;
+                }
+                Map<String, Object> t = new LinkedHashMap<>();
+                t.put("taskId", taskId);
+                t.put("weight", task.weight);
+                t.put("deliveryRate", (long) task.deliveryRate);
+                t.put("demand", task.demand);
+                t.put("share", task.share);
+                taskStats.add(t);
+            });
+            info.put("tasks", taskStats);
+            stats.put(direction.name().toLowerCase(), info);
+        }
+        return stats;
+    }
+
+    /**
+     * 当前请求用户的权重（角色权重 × 用户权重）
+     */
+    private double currentWeight() {
+        String role = UserContextHolder.getRole() != null ? UserContextHolder.getRole() : DEFAULT_ROLE;
+        return bandwidthLimitConfig.getRoleWeight(role) * bandwidthLimitConfig.getUserWeight(UserContextHolder.getUserId());
+    }
+
+    private void allocateLoop() {
+        long lastNanos = System.nanoTime();
+        while (running) {
+            try {
+                Thread.sleep(intervalMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            long now = System.nanoTime();
+            try {
+                allocate(now, now - lastNanos);
+            } catch (Exception e) {
+                log.error("公平带宽分配异常", e);
+            }
+            lastNanos = now;
+        }
+    }
+
+    /**
+     * 更新交付速率和容量估计，重新计算份额
+     */
+    private void allocate(long now, long elapsedNanos) {
+        Map<String, CongestionControlAlgorithm> algorithms = algorithmManager.getAllAlgorithms();
+        long activeSince = now - TimeUnit.MILLISECONDS.toNanos(activeWindowMs);
+        Map<TransferDirection, List<TaskShare>> active = new EnumMap<>(TransferDirection.class);
+        Map<TransferDirection, Double> aggregate = new EnumMap<>(TransferDirection.class);
+        for (TransferDirection direction : TransferDirection.values()) {
+            active.put(direction, new ArrayList<>());
+            aggregate.put(direction, 0.0);
+        }
+
+        tasks.entrySet().removeIf(entry -> {
+            TaskShare task = entry.getValue();
+            CongestionControlAlgorithm algorithm = algorithms.get(entry.getKey());
+            // 算法实例已移除（任务完成/取消）或长时间没有交付的任务不再跟踪
+            if (algorithm == null || task.lastDeliveryNanos - activeSince < 0) {
+                return true;
+            }
+            double instantRate = task.delivered.sumThenReset() * 1e9 / Math.max(1, elapsedNanos);
+            task.deliveryRate = RATE_ALPHA * instantRate + (1 - RATE_ALPHA) * task.deliveryRate;
+            task.demand = algorithm.getRate();
+            active.get(task.direction).add(task);
+            aggregate.merge(task.direction, instantRate, Double::sum);
+            return false;
+        });
+
+        for (TransferDirection direction : TransferDirection.values()) {
+            CapacityEstimator estimator = capacities.get(direction);
+            long configured = direction == TransferDirection.UPLOAD ? uploadCapacity : downloadCapacity;
+            estimator.update(aggregate.get(direction), configured);
+            assignShares(active.get(direction), estimator);
+        }
+    }
+
+    private void assignShares(List<TaskShare> active, CapacityEstimator estimator) {
+        long capacity = estimator.capacity;
+        long demandSum = 0;
+        boolean unknownDemand = false;
+        for (TaskShare task : active) {
+            if (task.demand <= 0) {
+                unknownDemand = true;
+            } else {
+                demandSum += task.demand;
+            }
+        }
+        boolean contended = active.size() >= 2 && capacity > 0 && (unknownDemand || demandSum > capacity);
+        estimator.contended = contended;
+        if (!contended) {
+            for (TaskShare task : active) {
+                task.share = 0;
+            }
+            return;
+        }
+        double[] weights = new double[active.size()];
+        long[] caps = new long[active.size()];
+        for (int i = 0; i < active.size(); i++) {
+            TaskShare task = active.get(i);
+            weights[i] = task.weight;
+            caps[i] = task.demand > 0 ? task.demand : MaxMinFairShare.UNLIMITED;
+        }
+        long[] shares = MaxMinFairShare.allocate(capacity, weights, caps);
+        for (int i = 0; i < active.size(); i++) {
+            active.get(i).share = Math.max(minShare, shares[i]);
+        }
+    }
+
+    /**
+     * 任务的交付统计和份额
+     */
+    private static final class TaskShare {
+
+        final TransferDirection direction;
+        final double weight;
+        final LongAdder delivered = new LongAdder();
+
+        volatile long lastDeliveryNanos = System.nanoTime();
+
+        /** 平滑后的交付速率（字节/秒），仅由分配线程写入 */
+        volatile double deliveryRate;
+
+        /** 算法速率（字节/秒） */
+        volatile long demand;
+
+        /** 份额（字节/秒），0 表示不限制 */
+        volatile long share;
+
+        TaskShare(TransferDirection direction, double weight) {
+            this.direction = direction;
+            this.weight = weight;
+        }
+    }
+
+    /**
+     * 链路容量估计：总交付速率的窗口最大值
+     */
+    private final class CapacityEstimator {
+
+        private final long[] samples;
+        private int index;
+
+        volatile long aggregateRate;
+        volatile long capacity;
+        volatile boolean contended;
+
+        CapacityEstimator(int windowSamples) {
+            this.samples = new long[windowSamples];
+        }
+
+        void update(double aggregate, long configured) {
+            aggregateRate = (long) aggregate;
+            samples[index] = aggregateRate;
+            index = (index + 1) % samples.length;
+            if (configured > 0) {
+                capacity = configured;
+                return;
+            }
+            long max = 0;
+            for (long sample : samples) {
+                max = Math.max(max, sample);
+            }
+            capacity = (long) (max * (1 + probeGain));
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package com.server.smarttransferserver.service.impl;
 
 import com.server.smarttransferserver.service.IFileChecksumService;
+import com.server.smarttransferserver.util.MerkleTree;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.codec.digest.DigestUtils;
 import org.springframework.stereotype.Service;
@@ -14,6 +15,7 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * 文件校验服务实现
@@ -55,6 +57,21 @@ public class FileChecksumServiceImpl implements IFileChecksumService {
         }
     }
     
+    /**
+     * 计算文件的 SHA-256 Merkle 树根哈希
+     * 叶子按文件偏移并行读取，使用公共 ForkJoinPool，耗时随CPU核数下降
+     *
+     * @param filePath 文件路径
+     * @return 根哈希
+     * @throws IOException IO异常
+     */
+    @Override
+    public String calculateTreeHash(String filePath) throws IOException {
+        String root = MerkleTree.hashFile(Paths.get(filePath), ForkJoinPool.commonPool());
+        log.debug("计算文件树哈希 - 文件: {}, 根哈希: {}", filePath, root);
+        return root;
+    }
+    
     /**
      * 计算MultipartFile的MD5
      *
@@ -103,6 +120,8 @@ public class FileChecksumServiceImpl implements IFileChecksumService {
                 actualHash = calculateMD5(filePath);
             } else if ("SHA256".equalsIgnoreCase(algorithm)) {
                 actualHash = calculateSHA256(filePath);
+            } else if (MerkleTree.ALGORITHM.equalsIgnoreCase(algorithm)) {
+                actualHash = calculateTreeHash(filePath);
             } else {
                 log.error("不支持的哈希算法: {}", algorithm);
                 return false;
@@ -1,17 +1,25 @@
 package com.server.smarttransferserver.service.impl;
 
+import com.server.smarttransferserver.common.BandwidthLimitExceededException;
+import com.server.smarttransferserver.common.enums.TransferDirection;
 import com.server.smarttransferserver.congestion.CongestionControlAlgorithm;
+import com.server.smarttransferserver.domain.DownloadSession;
 import com.server.smarttransferserver.entity.FileInfo;
 import com.server.smarttransferserver.entity.TransferTask;
 import com.server.smarttransferserver.mapper.FileInfoMapper;
 import com.server.smarttransferserver.mapper.TransferTaskMapper;
+import com.server.smarttransferserver.service.BandwidthLimitService;
 import com.server.smarttransferserver.service.CongestionAlgorithmManager;
 import com.server.smarttransferserver.service.CongestionMetricsService;
+import com.server.smarttransferserver.service.DownloadSessionService;
+import com.server.smarttransferserver.service.FairShareService;
 import com.server.smarttransferserver.service.FileDownloadService;
 import com.server.smarttransferserver.service.ProbeRttStore;
 import com.server.smarttransferserver.service.IFileStorageService;
+import com.server.smarttransferserver.service.PacingService;
 import com.server.smarttransferserver.service.RedisService;
 import com.server.smarttransferserver.util.CongestionClientMetricsConstants;
+import com.server.smarttransferserver.util.FileRegion;
 import com.server.smarttransferserver.util.UserContextHolder;
 import com.server.smarttransferserver.vo.FileDownloadInitVO;
 import org.springframework.http.HttpHeaders;
@@ -61,6 +69,18 @@ public class FileDownloadServiceImpl implements FileDownloadService {
     @Autowired
     private ProbeRttStore probeRttStore;
     
+    @Autowired
+    private DownloadSessionService downloadSessionService;
+    
+    @Autowired
+    private PacingService pacingService;
+    
+    @Autowired
+    private BandwidthLimitService bandwidthLimitService;
+    
+    @Autowired
+    private FairShareService fairShareService;
+    
     /**
      * Redis key前缀：存储已完成下载的分块集合
      */
@@ -142,25 +162,12 @@ public class FileDownloadServiceImpl implements FileDownloadService {
         }
         
         // 4. **修复P0-2：从Redis获取已下载的分块列表（实现断点续传）**
-        List<Integer> downloaded = new ArrayList<>();
-        String completedChunksKey = DOWNLOAD_COMPLETED_CHUNKS_KEY_PREFIX + taskId;
-        try {
-            Set<Object> completedChunksObj = redisService.sMembers(completedChunksKey);
-            if (completedChunksObj != null && !completedChunksObj.isEmpty()) {
-                for (Object chunkObj : completedChunksObj) {
-                    try {
-                        Integer chunkNum = Integer.parseInt(chunkObj.toString());
-                        downloaded.add(chunkNum);
-                    } catch (NumberFormatException e) {
-                        log.warn("无效的分块编号格式 - taskId: {}, chunk: {}", taskId, chunkObj);
-                    }
-                }
-                log.info("从Redis获取已下载分块 - 任务ID: {}, 已下载分块数: {}", taskId, downloaded.size());
-            }
-        } catch (Exception e) {
-            log.warn("从Redis获取已下载分块失败 - 任务ID: {}, 错误: {}", taskId, e.getMessage());
-            // 如果Redis获取失败，返回空列表（重新下载）
-        }
+        List<Integer> downloaded = loadCompletedChunks(taskId);
+        
+        // 5. 创建下载会话，后续分块下载直接使用
+        Path filePath = storageService.getAbsoluteFilePath(fileInfo.getFilePath());
+        downloadSessionService.put(new DownloadSession(taskId, fileId, filePath, fileSize, actualChunkSize,
+                algorithmManager.getOrCreateAlgorithm(taskId), downloaded));
         
         return FileDownloadInitVO.builder()
                 .fileId(fileId)
@@ -169,6 +176,7 @@ public class FileDownloadServiceImpl implements FileDownloadService {
                 .totalChunks(totalChunks)
                 .chunkSize(actualChunkSize)
                 .downloaded(downloaded)
+                .hashAlgorithm(fileInfo.getHashAlgorithm())
                 .taskId(taskId)
                 .message("开始下载")
                 .build();
@@ -176,11 +184,12 @@ public class FileDownloadServiceImpl implements FileDownloadService {
     
     @Override
     @Transactional
-    public ResponseEntity<byte[]> downloadChunk(Long fileId, Integer chunkNumber, Long startByte, Long endByte, Long clientRttMs, Integer clientRetryCount) {
+    public ResponseEntity<?> downloadChunk(Long fileId, Integer chunkNumber, Long startByte, Long endByte, Long clientRttMs, Integer clientRetryCount) {
         log.info("下载分块 - 文件ID: {}, 分块: {}, 范围: {}-{}", fileId, chunkNumber, startByte, endByte);
         
-        // 获取任务ID
-        String taskId = getTaskIdByFileId(fileId, "DOWNLOAD");
+        // 下载会话：initDownload 时创建，稳态下分块下载不再查询数据库和 Redis
+        DownloadSession session = downloadSessionService.get(fileId);
+        String taskId = session != null ? session.getTaskId() : getTaskIdByFileId(fileId, "DOWNLOAD");
         if (taskId == null) {
             log.error("无法获取任务ID，分块下载失败 - 文件ID: {}", fileId);
             return ResponseEntity.status(HttpStatus.BAD_REQUEST)
@@ -188,7 +197,8 @@ public class FileDownloadServiceImpl implements FileDownloadService {
         }
         
         // 获取任务对应的算法实例
-        CongestionControlAlgorithm algorithm = algorithmManager.getOrCreateAlgorithm(taskId);
+        CongestionControlAlgorithm algorithm = session != null
+                ? session.getAlgorithm() : algorithmManager.getOrCreateAlgorithm(taskId);
         // **修复P0-3：提前检查algorithm是否为null，避免后续NPE**
         // 注意：getOrCreateAlgorithm通常不会返回null，但防御性编程更安全
         if (algorithm == null) {
@@ -205,81 +215,24 @@ public class FileDownloadServiceImpl implements FileDownloadService {
         try {
             chunkStartTimes.put(chunkKey, startTime);
             
-            // **修复m2: 验证分块编号是否在有效范围内**
-            // 1. 获取文件信息
-            FileInfo fileInfo = fileInfoMapper.selectById(fileId);
-            if (fileInfo == null) {
-                throw new RuntimeException("文件不存在");
-            }
-            
-            // 2. **修复C1: 从Redis获取chunkSize（与initDownload保持一致）**
-            // **修复P1: 增强Redis返回值格式验证，防止NumberFormatException**
-            long chunkSize = DEFAULT_CHUNK_SIZE;
-            try {
-                String chunkSizeKey = DOWNLOAD_CHUNK_SIZE_KEY_PREFIX + taskId;
-                Object chunkSizeObj = redisService.get(chunkSizeKey);
-                if (chunkSizeObj != null) {
-                    String chunkSizeStr = chunkSizeObj.toString().trim();
-                    if (!chunkSizeStr.isEmpty()) {
-                        try {
-                            chunkSize = Long.parseLong(chunkSizeStr);
-                            if (chunkSize <= 0) {
-                                log.warn("Redis中的chunkSize无效 - 任务ID: {}, 值: {}, 使用默认值", taskId, chunkSizeStr);
-                                chunkSize = DEFAULT_CHUNK_SIZE;
-                            }
-                        } catch (NumberFormatException e) {
-                            log.warn("Redis中的chunkSize格式错误 - 任务ID: {}, 值: {}, 使用默认值, 错误: {}", taskId, chunkSizeStr, e.getMessage());
-                            chunkSize = DEFAULT_CHUNK_SIZE;
-                        }
-                    }
-                }
-            } catch (Exception e) {
-                log.warn("从Redis获取chunkSize失败 - 任务ID: {}, 使用默认值: {}字节, 错误: {}", taskId, DEFAULT_CHUNK_SIZE, e.getMessage());
-            }
-            
-            // 3. **修复C2: 验证文件大小是否与initDownload时一致**
-            Path filePath = storageService.getAbsoluteFilePath(fileInfo.getFilePath());
-            if (!Files.exists(filePath)) {
-                throw new RuntimeException("文件不存在或已被删除");
+            // 1. 本节点没有会话（会话过期、服务重启或请求落到其他节点）时，从数据库和 Redis 重建
+            if (session == null) {
+                session = loadSession(fileId, taskId, algorithm);
             }
+            long chunkSize = session.getChunkSize();
+            int totalChunks = session.getTotalChunks();
+            Path filePath = session.getFilePath();
             
+            // 2. **修复C2: 验证文件大小是否与initDownload时一致**（本地 stat，文件已删除时抛出异常）
             long currentFileSize = Files.size(filePath);
-            long initialFileSize = fileInfo.getFileSize();
-            
-            // 从Redis获取初始文件大小（更准确）
-            // **修复P1: 增强Redis返回值格式验证，防止NumberFormatException**
-            try {
-                String fileSizeKey = DOWNLOAD_FILE_SIZE_KEY_PREFIX + taskId;
-                Object fileSizeObj = redisService.get(fileSizeKey);
-                if (fileSizeObj != null) {
-                    String fileSizeStr = fileSizeObj.toString().trim();
-                    if (!fileSizeStr.isEmpty()) {
-                        try {
-                            long redisFileSize = Long.parseLong(fileSizeStr);
-                            if (redisFileSize > 0) {
-                                initialFileSize = redisFileSize;
-                            } else {
-                                log.warn("Redis中的文件大小无效 - 任务ID: {}, 值: {}, 使用数据库值", taskId, fileSizeStr);
-                            }
-                        } catch (NumberFormatException e) {
-                            log.warn("Redis中的文件大小格式错误 - 任务ID: {}, 值: {}, 使用数据库值, 错误: {}", taskId, fileSizeStr, e.getMessage());
-                        }
-                    }
-                }
-            } catch (Exception e) {
-                log.warn("从Redis获取初始文件大小失败 - 任务ID: {}, 使用数据库值, 错误: {}", taskId, e.getMessage());
-            }
-            
-            // 验证文件大小是否变化（允许小范围差异，可能是由于文件系统或时间戳问题）
+            long initialFileSize = session.getFileSize();
             if (Math.abs(currentFileSize - initialFileSize) > 1024) { // 允许1KB的差异
                 log.error("文件大小已变化 - 任务ID: {}, 初始大小: {}字节, 当前大小: {}字节, 差异: {}字节", 
                          taskId, initialFileSize, currentFileSize, Math.abs(currentFileSize - initialFileSize));
                 throw new RuntimeException("文件大小已变化，请重新初始化下载");
             }
             
-            // **修复m2: 验证分块编号是否在有效范围内**
-            // **修复C1: 计算totalChunks（用于验证和进度计算）**
-            int totalChunks = (int) Math.ceil((double) initialFileSize / chunkSize);
+            // 3. **修复m2: 验证分块编号是否在有效范围内**
             if (chunkNumber < 0 || chunkNumber >= totalChunks) {
                 log.error("分块编号无效 - 任务ID: {}, 分块编号: {}, 有效范围: [0, {}]", taskId, chunkNumber, totalChunks - 1);
                 throw new RuntimeException("分块编号无效: " + chunkNumber + ", 有效范围: [0, " + (totalChunks - 1) + "]");
@@ -289,58 +242,24 @@ public class FileDownloadServiceImpl implements FileDownloadService {
             long actualStart = Math.max(0, startByte != null ? startByte : chunkNumber * chunkSize);
             long actualEnd = Math.min(currentFileSize - 1, endByte != null ? endByte : Math.min(actualStart + chunkSize - 1, currentFileSize - 1));
             long actualChunkSize = actualEnd - actualStart + 1;
-            
-            // 读取文件分块
-            // **修复P4: 验证文件读取完整性，确保读取的字节数与预期一致**
-            byte[] chunkData;
-            try (java.io.FileInputStream fis = new java.io.FileInputStream(filePath.toFile())) {
-                // 跳过到起始位置（验证实际跳过的字节数）
-                long skipped = fis.skip(actualStart);
-                if (skipped != actualStart) {
-                    log.warn("文件跳过字节数不完整 - 任务ID: {}, 预期: {}字节, 实际: {}字节", taskId, actualStart, skipped);
-                    // 如果跳过不完整，尝试继续跳过
-                    long remainingSkip = actualStart - skipped;
-                    while (remainingSkip > 0) {
-                        long skippedMore = fis.skip(remainingSkip);
-                        if (skippedMore <= 0) {
-                            throw new RuntimeException("无法跳过到文件起始位置: " + actualStart);
-                        }
-                        remainingSkip -= skippedMore;
-                    }
-                }
-                
-                // 使用缓冲区读取，避免一次性分配大内存
-                java.io.ByteArrayOutputStream baos = new java.io.ByteArrayOutputStream((int) actualChunkSize);
-                byte[] buffer = new byte[8192]; // 8KB缓冲区
-                long remaining = actualChunkSize;
-                int read;
-                while (remaining > 0 && (read = fis.read(buffer, 0, (int) Math.min(buffer.length, remaining))) != -1) {
-                    baos.write(buffer, 0, read);
-                    remaining -= read;
-                }
-                
-                // **修复P4: 验证读取的字节数是否与预期一致**
-                if (remaining > 0) {
-                    log.error("文件读取不完整 - 任务ID: {}, 分块: {}, 预期: {}字节, 实际: {}字节, 缺失: {}字节", 
-                             taskId, chunkNumber, actualChunkSize, (actualChunkSize - remaining), remaining);
-                    throw new RuntimeException("文件读取不完整 - 预期: " + actualChunkSize + "字节, 实际: " + (actualChunkSize - remaining) + "字节, 缺失: " + remaining + "字节");
-                }
-                
-                chunkData = baos.toByteArray();
-                
-                // 双重验证：确保数组长度与预期一致
-                if (chunkData.length != actualChunkSize) {
-                    log.error("分块数据大小不匹配 - 任务ID: {}, 分块: {}, 预期: {}字节, 实际: {}字节", 
-                             taskId, chunkNumber, actualChunkSize, chunkData.length);
-                    throw new RuntimeException("分块数据大小不匹配 - 预期: " + actualChunkSize + "字节, 实际: " + chunkData.length + "字节");
-                }
+            if (actualChunkSize <= 0) {
+                throw new RuntimeException("下载范围无效: " + actualStart + "-" + actualEnd);
             }
             
+            // 分级带宽限制：排队时长内延迟响应，超过则 429（不计入丢包）
+            bandwidthLimitService.acquire(TransferDirection.DOWNLOAD, taskId, actualChunkSize);
+            
+            // 分块数据不读入内存，响应时由 sendfile / FileChannel.transferTo 从文件直接写出，
+            // 写出速率受任务拥塞控制算法的速率限制
+            FileRegion chunkRegion = new FileRegion(filePath, actualStart, actualChunkSize,
+                    pacingService.pacer(taskId, algorithm));
+            
             // 3. 丢包率优化：上一分片在客户端的重试次数视为应用层“丢包”，计入滑动窗口（上限防恶意/异常值，与前端 RETRY_COUNT_MAX 一致）
             if (clientRetryCount != null && clientRetryCount > 0) {
                 int capped = Math.min(clientRetryCount, CongestionClientMetricsConstants.RETRY_COUNT_CAP);
                 for (int i = 0; i < capped; i++) {
                     algorithm.onLoss(actualChunkSize);
+                    algorithmManager.recordLoss(taskId, actualChunkSize);
                 }
                 log.debug("下载应用层丢包统计 - 上一分片重试{}次，计入{}次丢包", clientRetryCount, capped);
             }
@@ -365,10 +284,12 @@ public class FileDownloadServiceImpl implements FileDownloadService {
                 }
             }
             // 仅当 totalChunks > 0 时设置，保证丢包率分母正确（totalChunks 来自 init 文件大小与分块大小）
-            if (algorithm instanceof com.server.smarttransferserver.congestion.AdaptiveAlgorithm && totalChunks > 0) {
-                ((com.server.smarttransferserver.congestion.AdaptiveAlgorithm) algorithm).setTotalChunks(totalChunks);
+            if (totalChunks > 0) {
+                algorithm.setTotalChunks(totalChunks);
             }
             algorithm.onAck(actualChunkSize, rtt, propagationRttMs);
+            fairShareService.onDelivered(TransferDirection.DOWNLOAD, taskId, actualChunkSize);
+            algorithmManager.recordDelivered(taskId, actualChunkSize, rtt);
             log.debug("拥塞控制响应ACK - 任务ID: {}, 算法: {}, 分块: {}字节, fullRtt: {}ms, propRtt: {}ms, cwnd: {}字节",
                      taskId, algorithm.getAlgorithmName(), actualChunkSize, rtt, propagationRttMs, algorithm.getCwnd());
             
@@ -377,38 +298,14 @@ public class FileDownloadServiceImpl implements FileDownloadService {
                 ((CongestionMetricsServiceImpl) metricsService).recordMetrics(taskId, algorithm);
             }
             
-            // 7. **修复P0-1：使用Redis记录真实的已完成分块数（修复进度计算）**
-            String completedChunksKey = DOWNLOAD_COMPLETED_CHUNKS_KEY_PREFIX + taskId;
-            // **修复C1: 使用一致的chunkSize计算totalChunks（使用之前计算的totalChunks变量）**
-            int completedChunks;
-            double progress;
-            
-            try {
-                // 将当前分块添加到Redis集合（原子操作，如果已存在不会重复添加）
-                redisService.sAdd(completedChunksKey, chunkNumber.toString());
-                // 设置过期时间（24小时）
-                redisService.expire(completedChunksKey, DOWNLOAD_CHUNKS_CACHE_EXPIRE_HOURS, TimeUnit.HOURS);
-                
-                // 从Redis获取真实的已完成分块数
-                Long completedChunksCount = redisService.sSize(completedChunksKey);
-                completedChunks = completedChunksCount != null ? completedChunksCount.intValue() : 1;
-                
-                // 计算真实的进度（使用之前计算的totalChunks变量）
-                progress = totalChunks > 0 ? (double) completedChunks / totalChunks * 100 : 0;
-                
-                log.debug("下载进度更新 - 任务ID: {}, 已完成: {}/{}, 进度: {}%", 
-                         taskId, completedChunks, totalChunks, String.format("%.2f", progress));
-            } catch (Exception e) {
-                log.warn("记录已完成分块到Redis失败 - 任务ID: {}, 分块: {}, 错误: {}", taskId, chunkNumber, e.getMessage());
-                // **修复M2: Redis失败降级处理 - 使用保守估计（由于并发下载，不能简单使用chunkNumber + 1）**
-                // 实际进度可能略低于真实值，但不会导致功能错误
-                completedChunks = Math.max(1, chunkNumber + 1); // 至少为1（当前分块）
-                progress = totalChunks > 0 ? (double) completedChunks / totalChunks * 100 : 0;
-                log.warn("Redis失败，使用降级进度计算 - 任务ID: {}, 进度: {}%", taskId, String.format("%.2f", progress));
-            }
+            // 7. 记录已完成分块：内存位图计数，由下载会话服务异步写入Redis（断点续传）
+            int completedChunks = downloadSessionService.markCompleted(session, chunkNumber);
+            double progress = totalChunks > 0 ? (double) completedChunks / totalChunks * 100 : 0;
+            log.debug("下载进度更新 - 任务ID: {}, 已完成: {}/{}, 进度: {}%", 
+                     taskId, completedChunks, totalChunks, String.format("%.2f", progress));
             
             // 7. 获取当前拥塞窗口大小
-            long currentCwnd = algorithm.getCwnd();
+            long currentCwnd = fairShareService.clampCwnd(taskId, algorithm.getCwnd(), rtt);
             
             // 8. **优化：直接返回二进制数据，元数据通过响应头传输（标准做法）**
             // 不再使用Base64编码，减少33%的数据传输量
@@ -418,7 +315,7 @@ public class FileDownloadServiceImpl implements FileDownloadService {
             // 构建响应头，包含元数据
             HttpHeaders headers = new HttpHeaders();
             headers.setContentType(MediaType.APPLICATION_OCTET_STREAM);
-            headers.setContentLength(chunkData.length);
+            headers.setContentLength(actualChunkSize);
             // 元数据通过自定义响应头传输
             headers.set("X-File-Id", String.valueOf(fileId));
             headers.set("X-Chunk-Number", String.valueOf(chunkNumber));
@@ -435,8 +332,10 @@ public class FileDownloadServiceImpl implements FileDownloadService {
             
             return ResponseEntity.ok()
                     .headers(headers)
-                    .body(chunkData);  // 直接返回二进制数据
+                    .body(chunkRegion);  // 直接从文件写出二进制数据
                     
+        } catch (BandwidthLimitExceededException e) {
+            throw e;
         } catch (IOException | RuntimeException e) {
             log.error("分块下载失败 - 文件ID: {}, 分块: {}, 错误: {}", fileId, chunkNumber, e.getMessage());
             
@@ -445,6 +344,7 @@ public class FileDownloadServiceImpl implements FileDownloadService {
             long failedChunkSize = DEFAULT_CHUNK_SIZE; // 使用默认分块大小
             
             algorithm.onLoss(failedChunkSize);
+            algorithmManager.recordLoss(taskId, failedChunkSize);
             long currentCwnd = algorithm.getCwnd();
             log.warn("拥塞控制响应丢包 - 任务ID: {}, 算法: {}, 分块大小: {}字节, 当前cwnd: {}字节",
                     taskId, algorithm.getAlgorithmName(), failedChunkSize, currentCwnd);
@@ -472,6 +372,84 @@ public class FileDownloadServiceImpl implements FileDownloadService {
         }
     }
     
+    /**
+     * 从数据库和 Redis 重建下载会话（本节点没有会话时调用）
+     * 分块大小、文件大小以 initDownload 写入 Redis 的值为准，已完成分块从 Redis 集合恢复
+     */
+    private DownloadSession loadSession(Long fileId, String taskId, CongestionControlAlgorithm algorithm) {
+        FileInfo fileInfo = fileInfoMapper.selectById(fileId);
+        if (fileInfo == null) {
+            throw new RuntimeException("文件不存在");
+        }
+        Path filePath = storageService.getAbsoluteFilePath(fileInfo.getFilePath());
+        if (!Files.exists(filePath)) {
+            throw new RuntimeException("文件不存在或已被删除");
+        }
+        // **修复C1: 从Redis获取chunkSize和初始文件大小（与initDownload保持一致）**
+        long chunkSize = readPositiveLong(DOWNLOAD_CHUNK_SIZE_KEY_PREFIX + taskId, DEFAULT_CHUNK_SIZE);
+        long fileSize = readPositiveLong(DOWNLOAD_FILE_SIZE_KEY_PREFIX + taskId, fileInfo.getFileSize());
+        DownloadSession session = new DownloadSession(taskId, fileId, filePath, fileSize, chunkSize,
+                algorithm, loadCompletedChunks(taskId));
+        downloadSessionService.put(session);
+        log.info("重建下载会话 - 文件ID: {}, 任务ID: {}, 分块大小: {}字节, 已完成分块数: {}",
+                fileId, taskId, chunkSize, session.getCompletedCount());
+        return session;
+    }
+    
+    /**
+     * 读取Redis中的正整数配置
+     * **修复P1: 增强Redis返回值格式验证，防止NumberFormatException**
+     *
+     * @param key          Redis key
+     * @param defaultValue 不存在、格式错误或Redis不可用时的默认值
+     * @return 配置值
+     */
+    private long readPositiveLong(String key, long defaultValue) {
+        try {
+            Object value = redisService.get(key);
+            if (value == null || value.toString().trim().isEmpty()) {
+                return defaultValue;
+            }
+            long parsed = Long.parseLong(value.toString().trim());
+            if (parsed > 0) {
+                return parsed;
+            }
+            log.warn("Redis中的值无效 - key: {}, 值: {}, 使用默认值: {}", key, value, defaultValue);
+        } catch (NumberFormatException e) {
+            log.warn("Redis中的值格式错误 - key: {}, 使用默认值: {}, 错误: {}", key, defaultValue, e.getMessage());
+        } catch (Exception e) {
+            log.warn("从Redis读取失败 - key: {}, 使用默认值: {}, 错误: {}", key, defaultValue, e.getMessage());
+        }
+        return defaultValue;
+    }
+    
+    /**
+     * 从Redis获取已下载的分块列表
+     *
+     * @param taskId 任务ID
+     * @return 已下载分块编号，Redis不可用时为空列表（重新下载）
+     */
+    private List<Integer> loadCompletedChunks(String taskId) {
+        List<Integer> downloaded = new ArrayList<>();
+        String completedChunksKey = DOWNLOAD_COMPLETED_CHUNKS_KEY_PREFIX + taskId;
+        try {
+            Set<Object> completedChunksObj = redisService.sMembers(completedChunksKey);
+            if (completedChunksObj != null && !completedChunksObj.isEmpty()) {
+                for (Object chunkObj : completedChunksObj) {
+                    try {
+                        downloaded.add(Integer.parseInt(chunkObj.toString()));
+                    } catch (NumberFormatException e) {
+                        log.warn("无效的分块编号格式 - taskId: {}, chunk: {}", taskId, chunkObj);
+                    }
+                }
+                log.info("从Redis获取已下载分块 - 任务ID: {}, 已下载分块数: {}", taskId, downloaded.size());
+            }
+        } catch (Exception e) {
+            log.warn("从Redis获取已下载分块失败 - 任务ID: {}, 错误: {}", taskId, e.getMessage());
+        }
+        return downloaded;
+    }
+    
     /**
      * 获取或创建传输任务ID
      */
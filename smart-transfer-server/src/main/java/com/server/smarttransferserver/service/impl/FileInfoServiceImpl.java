@@ -9,12 +9,17 @@ import com.server.smarttransferserver.entity.FileInfo;
 import com.server.smarttransferserver.entity.User;
 import com.server.smarttransferserver.mapper.FileInfoMapper;
 import com.server.smarttransferserver.mapper.UserMapper;
+import com.server.smarttransferserver.domain.DownloadSession;
 import com.server.smarttransferserver.domain.Folder;
 import com.server.smarttransferserver.mapper.FolderMapper;
+import com.server.smarttransferserver.service.DownloadSessionService;
 import com.server.smarttransferserver.service.FileInfoService;
 import com.server.smarttransferserver.service.FolderService;
+import com.server.smarttransferserver.service.HashFilterService;
 import com.server.smarttransferserver.service.IFileStorageService;
+import com.server.smarttransferserver.service.PacingService;
 import com.server.smarttransferserver.service.RecoveryFileService;
+import com.server.smarttransferserver.util.FileRegion;
 import com.server.smarttransferserver.util.UserContextHolder;
 import com.server.smarttransferserver.vo.FileInfoVO;
 import lombok.extern.slf4j.Slf4j;
@@ -49,6 +54,15 @@ public class FileInfoServiceImpl extends ServiceImpl<FileInfoMapper, FileInfo> i
     @Autowired
     private FileInfoMapper fileInfoMapper;
     
+    @Autowired
+    private HashFilterService hashFilterService;
+    
+    @Autowired
+    private DownloadSessionService downloadSessionService;
+    
+    @Autowired
+    private PacingService pacingService;
+    
     @Autowired
     private UserMapper userMapper;
     
@@ -170,7 +184,14 @@ public class FileInfoServiceImpl extends ServiceImpl<FileInfoMapper, FileInfo> i
      */
     @Override
     public FileInfo getByFileHash(String fileHash) {
-        return fileInfoMapper.selectByFileHash(fileHash);
+        if (!hashFilterService.mightExist(fileHash)) {
+            return null;
+        }
+        FileInfo fileInfo = fileInfoMapper.selectByFileHash(fileHash);
+        if (fileInfo == null) {
+            hashFilterService.recordMiss();
+        }
+        return fileInfo;
     }
     
     /**
@@ -385,6 +406,7 @@ public class FileInfoServiceImpl extends ServiceImpl<FileInfoMapper, FileInfo> i
     
     /**
      * 复制文件
+     * 只新增文件记录并增加存储引用，不复制物理数据
      *
      * @param fileId 文件ID
      * @param targetFolderId 目标文件夹ID
@@ -398,7 +420,7 @@ public class FileInfoServiceImpl extends ServiceImpl<FileInfoMapper, FileInfo> i
         }
         
         try {
-            // 复制物理文件（获取绝对路径，兼容相对路径和绝对路径）
+            // 检查源文件数据（获取绝对路径，兼容相对路径和绝对路径）
             Path sourcePath = fileStorageService.getAbsoluteFilePath(sourceFile.getFilePath());
             File source = sourcePath.toFile();
             if (!source.exists()) {
@@ -437,8 +459,8 @@ public class FileInfoServiceImpl extends ServiceImpl<FileInfoMapper, FileInfo> i
             String newFileName = checkAndRenameDuplicateFileForCopy(
                     sourceFile.getFileName(), normalizedTargetFolderId, userId);
             
-            // 使用FileStorageService保存文件，返回相对路径
-            String relativePath = fileStorageService.saveFile(source, newFileName, userId);
+            // 内容相同，只增加存储引用，不复制数据
+            String relativePath = fileStorageService.retainBlob(sourceFile.getFilePath(), sourceFile.getFileHash());
             
             FileInfo newFile = new FileInfo();
             newFile.setUserId(userId);
@@ -446,6 +468,7 @@ public class FileInfoServiceImpl extends ServiceImpl<FileInfoMapper, FileInfo> i
             newFile.setExtendName(sourceFile.getExtendName());
             newFile.setFileSize(sourceFile.getFileSize());
             newFile.setFileHash(sourceFile.getFileHash());
+            newFile.setHashAlgorithm(sourceFile.getHashAlgorithm());
             newFile.setFilePath(relativePath);
             newFile.setIsDir(0);
             newFile.setFolderId(normalizedTargetFolderId);
@@ -454,7 +477,13 @@ public class FileInfoServiceImpl extends ServiceImpl<FileInfoMapper, FileInfo> i
             newFile.setCreateTime(LocalDateTime.now());
             newFile.setUpdateTime(LocalDateTime.now());
             
-            save(newFile);
+            try {
+                save(newFile);
+            } catch (RuntimeException e) {
+                // 记录未插入，撤销刚增加的引用
+                fileStorageService.deleteFile(relativePath);
+                throw e;
+            }
             log.info("文件复制成功 - 源ID: {}, 新ID: {}, 目标文件夹: {}, 文件名: {}", 
                     fileId, newFile.getId(), normalizedTargetFolderId, newFileName);
             
@@ -720,8 +749,8 @@ public class FileInfoServiceImpl extends ServiceImpl<FileInfoMapper, FileInfo> i
                     String finalEntryName = checkAndRenameDuplicateFileForUnzip(
                             entryName, destFolderId, userId);
                     
-                    // 使用FileStorageService保存文件，返回相对路径
-                    String relativePath = fileStorageService.saveFile(tempFile, finalEntryName, userId);
+                    // 按内容哈希存放，与已有文件内容相同时只增加引用
+                    String relativePath = fileStorageService.putBlob(tempFile.toPath(), fileHash, true);
                     
                     FileInfo extractedFile = new FileInfo();
                     extractedFile.setUserId(userId);
@@ -738,6 +767,7 @@ public class FileInfoServiceImpl extends ServiceImpl<FileInfoMapper, FileInfo> i
                     extractedFile.setUpdateTime(LocalDateTime.now());
                     
                     save(extractedFile);
+                    hashFilterService.add(fileHash);
                     log.info("解压文件 - 文件名: {}, ID: {}", finalEntryName, extractedFile.getId());
                 } finally {
                     // 修复：清理临时文件，确保删除成功
@@ -821,7 +851,7 @@ public class FileInfoServiceImpl extends ServiceImpl<FileInfoMapper, FileInfo> i
     }
     
     @Override
-    public org.springframework.http.ResponseEntity<org.springframework.core.io.Resource> downloadFile(Long fileId, String rangeHeader) {
+    public org.springframework.http.ResponseEntity<?> downloadFile(Long fileId, String rangeHeader) {
         FileInfoVO fileInfo = getFileById(fileId);
         if (fileInfo == null) {
             return org.springframework.http.ResponseEntity.notFound().build();
@@ -875,67 +905,14 @@ public class FileInfoServiceImpl extends ServiceImpl<FileInfoMapper, FileInfo> i
             if (end >= fileLength) {
                 end = fileLength - 1;
             }
+            if (end < start) {
+                return org.springframework.http.ResponseEntity.status(416).build(); // Range Not Satisfiable
+            }
             
             final long contentLength = end - start + 1;
-            final long startPos = start;
             
-            // 使用InputStreamResource返回部分内容
-            org.springframework.core.io.InputStreamResource resource;
-            FileInputStream fis = null;
-            try {
-                fis = new FileInputStream(file);
-                fis.skip(startPos);
-                
-                final FileInputStream finalFis = fis;
-                fis = null; // 转移所有权给FilterInputStream，避免在finally中关闭
-                resource = new org.springframework.core.io.InputStreamResource(
-                        new java.io.FilterInputStream(finalFis) {
-                            private long remaining = contentLength;
-                            
-                            @Override
-                            public int read() throws java.io.IOException {
-                                if (remaining <= 0) {
-                                    close();
-                                    return -1;
-                                }
-                                remaining--;
-                                return super.read();
-                            }
-                            
-                            @Override
-                            public int read(byte[] b, int off, int len) throws java.io.IOException {
-                                if (remaining <= 0) {
-                                    close();
-                                    return -1;
-                                }
-                                len = (int) Math.min(len, remaining);
-                                int read = super.read(b, off, len);
-                                if (read > 0) remaining -= read;
-                                return read;
-                            }
-                            
-                            @Override
-                            public void close() throws java.io.IOException {
-                                super.close();
-                            }
-                        });
-            } catch (java.io.FileNotFoundException e) {
-                // 文件路径存在但文件不存在，这是系统状态不一致的问题，返回500
-                log.error("文件未找到（系统错误）: {}", file.getAbsolutePath(), e);
-                return org.springframework.http.ResponseEntity.status(500).build();
-            } catch (java.io.IOException e) {
-                log.error("读取文件失败: {}", file.getAbsolutePath(), e);
-                return org.springframework.http.ResponseEntity.status(500).build();
-            } finally {
-                // 修复：确保在异常情况下关闭FileInputStream
-                if (fis != null) {
-                    try {
-                        fis.close();
-                    } catch (java.io.IOException e) {
-                        log.warn("关闭FileInputStream失败", e);
-                    }
-                }
-            }
+            // 从文件直接写出部分内容（不经过堆内存）
+            FileRegion region = new FileRegion(filePath, start, contentLength, downloadPacer(fileId));
             
             return org.springframework.http.ResponseEntity.status(206) // Partial Content
                     .header(org.springframework.http.HttpHeaders.CONTENT_DISPOSITION, "attachment; filename*=UTF-8''" + encodedFileName)
@@ -943,18 +920,29 @@ public class FileInfoServiceImpl extends ServiceImpl<FileInfoMapper, FileInfo> i
                     .header(org.springframework.http.HttpHeaders.ACCEPT_RANGES, "bytes")
                     .contentType(org.springframework.http.MediaType.APPLICATION_OCTET_STREAM)
                     .contentLength(contentLength)
-                    .body(resource);
+                    .body(region);
         }
         
         // 普通下载（无Range请求）
-        org.springframework.core.io.Resource resource = new org.springframework.core.io.FileSystemResource(file);
+        FileRegion region = new FileRegion(filePath, 0, fileLength, downloadPacer(fileId));
         
         return org.springframework.http.ResponseEntity.ok()
                 .header(org.springframework.http.HttpHeaders.CONTENT_DISPOSITION, "attachment; filename*=UTF-8''" + encodedFileName)
                 .header(org.springframework.http.HttpHeaders.ACCEPT_RANGES, "bytes")
                 .contentType(org.springframework.http.MediaType.APPLICATION_OCTET_STREAM)
                 .contentLength(fileLength)
-                .body(resource);
+                .body(region);
+    }
+    
+    /**
+     * 整文件下载的发送速率控制：文件有进行中的分块下载任务时，与分块下载共用该任务的令牌桶和拥塞控制速率
+     *
+     * @param fileId 文件ID
+     * @return 速率控制，没有进行中的下载任务时返回null（不限速）
+     */
+    private FileRegion.Pacer downloadPacer(Long fileId) {
+        DownloadSession session = downloadSessionService.get(fileId);
+        return session != null ? pacingService.pacer(session.getTaskId(), session.getAlgorithm()) : null;
     }
     
     @Override
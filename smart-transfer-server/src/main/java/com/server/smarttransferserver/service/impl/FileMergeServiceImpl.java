@@ -1,6 +1,7 @@
 package com.server.smarttransferserver.service.impl;
 
 import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.server.smarttransferserver.common.enums.MergeJobState;
 import com.server.smarttransferserver.dto.FileMergeDTO;
 import com.server.smarttransferserver.entity.FileChunk;
 import com.server.smarttransferserver.entity.FileInfo;
@@ -9,24 +10,40 @@ import com.server.smarttransferserver.mapper.CongestionMetricsMapper;
 import com.server.smarttransferserver.mapper.FileChunkMapper;
 import com.server.smarttransferserver.mapper.FileInfoMapper;
 import com.server.smarttransferserver.mapper.TransferTaskMapper;
+import com.server.smarttransferserver.service.BandwidthLimitService;
 import com.server.smarttransferserver.service.CongestionAlgorithmManager;
-import com.server.smarttransferserver.service.IFileChecksumService;
 import com.server.smarttransferserver.service.FileMergeService;
+import com.server.smarttransferserver.service.FileUploadCacheService;
+import com.server.smarttransferserver.service.IncrementalHashService;
+import com.server.smarttransferserver.service.HashFilterService;
 import com.server.smarttransferserver.service.IFileStorageService;
 import com.server.smarttransferserver.service.TransferTaskService;
+import com.server.smarttransferserver.service.TreeHashService;
+import com.server.smarttransferserver.service.UploadWriteBehindService;
+import com.server.smarttransferserver.util.ChunkBitmap;
+import com.server.smarttransferserver.util.MerkleTree;
 import com.server.smarttransferserver.util.UserContextHolder;
 import com.server.smarttransferserver.vo.FileMergeVO;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.codec.digest.DigestUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.function.Consumer;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import java.util.stream.Collectors;
 
 /**
  * 文件合并服务实现
@@ -54,11 +71,31 @@ public class FileMergeServiceImpl implements FileMergeService {
     private IFileStorageService storageService;
     
     @Autowired
-    private IFileChecksumService checksumService;
+    private FileUploadCacheService uploadCacheService;
     
     @Autowired
     private CongestionAlgorithmManager algorithmManager;
     
+    @Autowired
+    private IncrementalHashService incrementalHashService;
+    
+    @Autowired
+    private UploadWriteBehindService writeBehindService;
+    
+    @Autowired
+    private TreeHashService treeHashService;
+    
+    @Autowired
+    private HashFilterService hashFilterService;
+    
+    @Autowired
+    private BandwidthLimitService bandwidthLimitService;
+    
+    /**
+     * 合并前全量校验时的读取缓冲大小
+     */
+    private static final int SCAN_BUFFER_SIZE = 64 * 1024;
+    
     /**
      * 合并文件
      *
@@ -66,10 +103,26 @@ public class FileMergeServiceImpl implements FileMergeService {
      * @return 合并结果
      */
     @Override
-    @Transactional
     public FileMergeVO mergeFile(FileMergeDTO dto) {
+        return mergeFile(dto, stage -> { });
+    }
+    
+    /**
+     * 合并文件
+     * 不开启事务：校验和合并可能耗时数分钟，期间不占用数据库连接。
+     * 只有哈希校验失败（无法定位损坏分片）时由 cleanupFailedUpload 清理整个上传；
+     * 数据库、磁盘等其他异常保留分片和上传记录，客户端可以重新发起合并
+     *
+     * @param dto           合并请求DTO
+     * @param stageListener 阶段回调
+     * @return 合并结果
+     */
+    @Override
+    public FileMergeVO mergeFile(FileMergeDTO dto, Consumer<MergeJobState> stageListener) {
         log.info("开始合并文件 - 文件ID: {}, 哈希: {}", dto.getFileId(), dto.getFileHash());
         
+        String filePath = null;
+        boolean recorded = false;
         try {
             // 1. 获取文件信息
             FileInfo fileInfo = fileInfoMapper.selectById(dto.getFileId());
@@ -107,22 +160,29 @@ public class FileMergeServiceImpl implements FileMergeService {
                         .build();
             }
             
-            // 2. 检查所有分片是否上传完成
-            QueryWrapper<FileChunk> queryWrapper = new QueryWrapper<>();
-            queryWrapper.eq("file_id", dto.getFileId());
-            List<FileChunk> allChunks = fileChunkMapper.selectList(queryWrapper);
-            
-            long completedChunks = allChunks.stream()
-                    .filter(c -> "COMPLETED".equals(c.getUploadStatus()))
-                    .count();
+            // 2. 检查所有分片是否上传完成（读取 file_info 中的分片位图，总分片数/8 字节）
+            int totalChunks = fileInfo.getTotalChunks() != null ? fileInfo.getTotalChunks() : 0;
+            if (totalChunks <= 0) {
+                return FileMergeVO.builder()
+                        .fileId(dto.getFileId())
+                        .success(false)
+                        .message("分片信息缺失，请重新上传")
+                        .build();
+            }
+            // 先写入写回服务中尚未落库的分片状态
+            writeBehindService.flush();
+            byte[] chunkBitmap = fileInfoMapper.selectChunkBitmap(dto.getFileId());
+            List<Integer> unfinishedChunks = ChunkBitmap.missingChunks(chunkBitmap, totalChunks);
+            int completedChunks = totalChunks - unfinishedChunks.size();
             
-            if (completedChunks < allChunks.size()) {
+            if (!unfinishedChunks.isEmpty()) {
                 log.warn("分片未全部上传 - 文件ID: {}, 已完成: {}/{}", 
-                         dto.getFileId(), completedChunks, allChunks.size());
+                         dto.getFileId(), completedChunks, totalChunks);
                 return FileMergeVO.builder()
                         .fileId(dto.getFileId())
                         .success(false)
-                        .message("分片未全部上传，已完成 " + completedChunks + "/" + allChunks.size())
+                        .retryChunks(unfinishedChunks)
+                        .message("分片未全部上传，已完成 " + completedChunks + "/" + totalChunks)
                         .build();
             }
             
@@ -134,21 +194,43 @@ public class FileMergeServiceImpl implements FileMergeService {
                 fileInfo.setFileName(finalFileName);
             }
             
-            // 4. 合并分片文件
-            String filePath = storageService.mergeChunks(
-                    dto.getFileId(), 
-                    finalFileName, 
-                    allChunks.size());
+            stageListener.accept(MergeJobState.VERIFYING);
             
-            // 5. 校验文件完整性（需要绝对路径）
-            // mergeChunks返回的是相对路径，需要转换为绝对路径才能用于文件操作
-            java.nio.file.Path absolutePath = storageService.getAbsoluteFilePath(filePath);
-            String absolutePathStr = absolutePath.toString();
-            boolean verified = checksumService.verifyHash(absolutePathStr, dto.getFileHash(), "MD5");
+            // 4. 完成整文件哈希（需在合并移动分片数据之前）：
+            //    树哈希模式下叶子已在上传时并行计算，这里并行补算缺失的部分再求根；否则完成增量MD5（只补算剩余分片）
+            boolean treeHashed = MerkleTree.ALGORITHM.equals(fileInfo.getHashAlgorithm());
+            String fileHash = treeHashed
+                    ? treeHashService.finish(dto.getFileId())
+                    : incrementalHashService.finish(dto.getFileId(), totalChunks);
+            
+            // 5. 校验文件完整性：优先使用上传过程中计算的哈希，缺失或不一致时（如已计入摘要的分片被重传覆盖）回退为全量校验
+            //    全量校验在合并前按分片读取，同时比对每个分片写入时记录的MD5，校验失败时只要求重传损坏的分片
+            //    树哈希已覆盖全部分片，不一致时全量扫描只用于定位损坏的分片
+            boolean verified = fileHash != null && fileHash.equalsIgnoreCase(dto.getFileHash());
+            Map<Integer, String> chunkHashes = uploadCacheService.getChunkHashes(dto.getFileId());
+            if (!verified) {
+                log.info("{}不可用或不一致，回退为全量校验 - 文件ID: {}", treeHashed ? "树哈希" : "增量MD5", dto.getFileId());
+                List<Integer> corruptedChunks = new ArrayList<>();
+                String fullMd5 = scanChunks(dto.getFileId(), totalChunks, loadChunkHashes(dto.getFileId(), chunkHashes),
+                        corruptedChunks);
+                verified = !treeHashed && fullMd5.equalsIgnoreCase(dto.getFileHash());
+                
+                if (!verified && !corruptedChunks.isEmpty()) {
+                    log.warn("文件校验失败，定位到损坏分片 - 文件ID: {}, 分片: {}", dto.getFileId(), corruptedChunks);
+                    markChunksSuspect(dto.getFileId(), totalChunks, corruptedChunks);
+                    return FileMergeVO.builder()
+                            .fileId(dto.getFileId())
+                            .success(false)
+                            .verified(false)
+                            .retryChunks(corruptedChunks)
+                            .message("文件校验失败，需重传 " + corruptedChunks.size() + " 个分片")
+                            .build();
+                }
+            }
             if (!verified) {
+                // 所有分片与写入时一致但整体哈希不符，无法定位损坏位置，只能整体重传
                 log.error("文件校验失败 - 文件ID: {}", dto.getFileId());
-                // 清理所有相关数据
-                cleanupFailedUpload(dto.getFileId(), filePath);
+                cleanupFailedUpload(dto.getFileId(), null);
                 return FileMergeVO.builder()
                         .fileId(dto.getFileId())
                         .success(false)
@@ -157,16 +239,32 @@ public class FileMergeServiceImpl implements FileMergeService {
                         .build();
             }
             
-            // 6. 更新文件记录（包含可能的重命名）
+            // 6. 合并分片文件，按内容哈希存放（相同内容已存在时只增加引用）
+            stageListener.accept(MergeJobState.MERGING);
+            filePath = storageService.mergeChunks(
+                    dto.getFileId(), 
+                    fileInfo.getFileHash(), 
+                    totalChunks);
+            
+            // 7. 更新文件记录（包含可能的重命名）
             fileInfo.setFilePath(filePath);
             fileInfo.setUploadStatus("COMPLETED");
             fileInfo.setUpdateTime(LocalDateTime.now());
             fileInfoMapper.updateById(fileInfo);
+            recorded = true;
+            hashFilterService.add(fileInfo.getFileHash());
             
-            // 7. 删除临时分片
+            // 8. 分片哈希批量落库，删除临时分片、分片位图缓存和增量哈希状态
+            saveChunkHashes(fileInfo, chunkHashes);
             storageService.deleteTempChunks(dto.getFileId());
+            uploadCacheService.deleteChunkUploadRecord(dto.getFileId());
+            incrementalHashService.clear(dto.getFileId());
+            if (treeHashed) {
+                // 叶子哈希按根哈希保存，供下载端按区间校验
+                treeHashService.commit(dto.getFileId(), fileHash.toLowerCase());
+            }
             
-            // 8. 查找并更新已有的活跃传输任务，如果没有则创建新任务
+            // 9. 查找并更新已有的活跃传输任务，如果没有则创建新任务
             String taskId = null;
             List<TransferTask> existingTasks = transferTaskMapper.selectByFileId(dto.getFileId());
             if (existingTasks != null && !existingTasks.isEmpty()) {
@@ -186,6 +284,7 @@ public class FileMergeServiceImpl implements FileMergeService {
                         algorithmManager.removeAlgorithm(taskId);
                         log.debug("清理任务算法实例 - 任务ID: {}", taskId);
                     }
+                    bandwidthLimitService.removeTask(taskId);
                 }
             }
             
@@ -211,8 +310,13 @@ public class FileMergeServiceImpl implements FileMergeService {
             
         } catch (Exception e) {
             log.error("文件合并失败 - 文件ID: {}, 错误: {}", dto.getFileId(), e.getMessage(), e);
-            // 清理所有相关数据
-            cleanupFailedUpload(dto.getFileId(), null);
+            if (filePath != null && !recorded) {
+                // 分片数据已移入内容寻址存储但文件记录未更新，无法再次合并，只能整体清理
+                cleanupFailedUpload(dto.getFileId(), filePath);
+            } else {
+                // 其他异常不是数据损坏：保留分片、位图和上传记录，重新发起合并即可
+                log.info("保留已上传分片，可重新合并 - 文件ID: {}", dto.getFileId());
+            }
             return FileMergeVO.builder()
                     .fileId(dto.getFileId())
                     .success(false)
@@ -246,6 +350,9 @@ public class FileMergeServiceImpl implements FileMergeService {
                     algorithmManager.removeAlgorithm(task.getTaskId());
                     log.debug("取消上传时清理算法实例 - 任务ID: {}", task.getTaskId());
                 }
+                if (task.getTaskId() != null) {
+                    bandwidthLimitService.removeTask(task.getTaskId());
+                }
             }
             
             FileInfo fileInfo = fileInfoMapper.selectById(fileId);
@@ -281,8 +388,11 @@ public class FileMergeServiceImpl implements FileMergeService {
                 storageService.deleteFile(filePath);
             }
             
-            // 2. 删除临时分片文件
+            // 2. 删除临时分片文件、分片位图缓存和增量哈希状态
             storageService.deleteTempChunks(fileId);
+            uploadCacheService.deleteChunkUploadRecord(fileId);
+            incrementalHashService.clear(fileId);
+            treeHashService.clear(fileId);
             
             // 3. 删除分片记录
             QueryWrapper<FileChunk> chunkWrapper = new QueryWrapper<>();
@@ -307,7 +417,7 @@ public class FileMergeServiceImpl implements FileMergeService {
             }
             
             // 5. 物理删除文件记录（因为文件从未成功上传）
-            fileInfoMapper.deletePhysically(fileId);
+            hashFilterService.onRemoved(fileInfoMapper.deletePhysically(fileId));
             
             log.info("清理上传失败的文件数据完成 - 文件ID: {}", fileId);
         } catch (Exception e) {
@@ -315,6 +425,102 @@ public class FileMergeServiceImpl implements FileMergeService {
         }
     }
     
+    /**
+     * 按分片顺序读取已上传的数据，计算整文件MD5，同时比对每个分片写入时记录的MD5
+     *
+     * @param fileId          文件ID
+     * @param totalChunks     总分片数
+     * @param chunkHashes     写入时记录的分片MD5
+     * @param corruptedChunks 输出：数据与写入时不一致或无法读取的分片序号
+     * @return 整文件MD5
+     */
+    private String scanChunks(Long fileId, int totalChunks, Map<Integer, String> chunkHashes,
+                              List<Integer> corruptedChunks) {
+        MessageDigest fileDigest = DigestUtils.getMd5Digest();
+        MessageDigest chunkDigest = DigestUtils.getMd5Digest();
+        byte[] buffer = new byte[SCAN_BUFFER_SIZE];
+        
+        for (int chunkNumber = 0; chunkNumber < totalChunks; chunkNumber++) {
+            chunkDigest.reset();
+            try (InputStream is = storageService.openChunkStream(fileId, chunkNumber)) {
+                int n;
+                while ((n = is.read(buffer)) != -1) {
+                    fileDigest.update(buffer, 0, n);
+                    chunkDigest.update(buffer, 0, n);
+                }
+            } catch (IOException e) {
+                log.warn("读取分片失败 - 文件ID: {}, 分片: {}, 错误: {}", fileId, chunkNumber, e.getMessage());
+                corruptedChunks.add(chunkNumber);
+                continue;
+            }
+            String expected = chunkHashes.get(chunkNumber);
+            String actual = Hex.encodeHexString(chunkDigest.digest());
+            if (expected != null && expected.length() == 32 && !expected.equalsIgnoreCase(actual)) {
+                corruptedChunks.add(chunkNumber);
+            }
+        }
+        return Hex.encodeHexString(fileDigest.digest());
+    }
+    
+    /**
+     * 获取分片哈希：Redis 缓存缺失时读取 file_chunk 中已落库的记录
+     */
+    private Map<Integer, String> loadChunkHashes(Long fileId, Map<Integer, String> cached) {
+        if (!cached.isEmpty()) {
+            return cached;
+        }
+        return fileChunkMapper.selectByFileId(fileId).stream()
+                .filter(c -> c.getChunkHash() != null)
+                .collect(Collectors.toMap(FileChunk::getChunkNumber, FileChunk::getChunkHash, (a, b) -> b));
+    }
+    
+    /**
+     * 将损坏的分片标记为待重传（清除位图中对应的位），保留其余分片和上传记录
+     *
+     * @param fileId          文件ID
+     * @param totalChunks     总分片数
+     * @param corruptedChunks 损坏的分片序号
+     */
+    private void markChunksSuspect(Long fileId, int totalChunks, List<Integer> corruptedChunks) {
+        fileInfoMapper.clearChunkBits(fileId, ChunkBitmap.inverseMask(totalChunks, corruptedChunks));
+        for (Integer chunkNumber : corruptedChunks) {
+            uploadCacheService.unmarkChunkUploaded(fileId, chunkNumber);
+            treeHashService.invalidateChunk(fileId, chunkNumber);
+            // 分片日志同步撤销，否则崩溃恢复会把损坏分片重新标记为已上传
+            try {
+                storageService.appendChunkJournal(fileId, chunkNumber, null);
+            } catch (IOException e) {
+                log.warn("追加分片日志失败 - 文件ID: {}, 分片: {}, 错误: {}", fileId, chunkNumber, e.getMessage());
+            }
+        }
+        // 增量摘要已包含损坏数据，重传后从头计算
+        incrementalHashService.clear(fileId);
+    }
+    
+    /**
+     * 分片哈希批量写入 file_chunk（一条多行 INSERT）
+     *
+     * @param fileInfo    文件信息
+     * @param chunkHashes 分片序号 -> MD5
+     */
+    private void saveChunkHashes(FileInfo fileInfo, Map<Integer, String> chunkHashes) {
+        if (chunkHashes.isEmpty() || fileInfo.getChunkSize() == null) {
+            return;
+        }
+        long chunkSize = fileInfo.getChunkSize();
+        LocalDateTime now = LocalDateTime.now();
+        List<FileChunk> chunks = new ArrayList<>(chunkHashes.size());
+        chunkHashes.forEach((chunkNumber, hash) -> chunks.add(FileChunk.builder()
+                .fileId(fileInfo.getId())
+                .chunkNumber(chunkNumber)
+                .chunkSize(Math.min(chunkSize, fileInfo.getFileSize() - chunkNumber * chunkSize))
+                .chunkHash(hash)
+                .uploadStatus("COMPLETED")
+                .createTime(now)
+                .build()));
+        fileChunkMapper.insertBatch(chunks);
+    }
+    
     /**
      * 检查同名文件并自动重命名
      * 如果同一文件夹下已存在同名文件，自动生成新文件名（如：图片(1).jpg）
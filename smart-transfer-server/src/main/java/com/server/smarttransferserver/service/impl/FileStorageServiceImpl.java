@@ -1,11 +1,20 @@
 package com.server.smarttransferserver.service.impl;
 
+import com.google.common.util.concurrent.Striped;
+import com.server.smarttransferserver.mapper.BlobRefMapper;
 import com.server.smarttransferserver.service.IFileStorageService;
+import com.server.smarttransferserver.util.ByteBufferPool;
 import com.server.smarttransferserver.util.UserContextHolder;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.input.BoundedInputStream;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.web.multipart.MultipartFile;
 
 import javax.annotation.PostConstruct;
@@ -13,20 +22,41 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
 import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Lock;
 
 /**
  * 文件存储服务实现
- * 负责文件和分片的物理存储
+ * 负责文件和分片的物理存储；完成的文件按内容哈希存放在 blobs/ab/cd/{hash}，
+ * 相同内容只保存一份，由 blob_ref 记录引用数
  */
 @Slf4j
 @Service
 public class FileStorageServiceImpl implements IFileStorageService {
     
+    @Autowired
+    private BlobRefMapper blobRefMapper;
+    
     /**
      * 文件存储根路径
      */
@@ -38,6 +68,64 @@ public class FileStorageServiceImpl implements IFileStorageService {
      */
     @Value("${transfer.temp-path:./file-storage/temp}")
     private String tempPath;
+    
+    /**
+     * 是否启用直接落盘模式
+     * 开启后 initUpload 预分配目标大小的稀疏文件，分片按 chunkNumber * chunkSize 定位写入，合并只需重命名
+     */
+    @Value("${transfer.direct-placement:true}")
+    private boolean directPlacement;
+    
+    /**
+     * 直接落盘模式下的预分配文件名：temp/{userId}/{fileId}/data.part
+     */
+    private static final String PLACEMENT_FILE_NAME = "data.part";
+    
+    /**
+     * 直接落盘模式下的元数据文件名（记录分片大小和文件大小，服务重启后可恢复）
+     */
+    private static final String PLACEMENT_META_NAME = "placement.meta";
+    
+    /**
+     * 分片读写缓冲池：每个请求借用一个64KB缓冲，最多保留256个（约16MB）
+     */
+    private static final ByteBufferPool CHUNK_BUFFER_POOL = new ByteBufferPool(64 * 1024, 256);
+    
+    /**
+     * 分片日志文件名
+     */
+    private static final String CHUNK_JOURNAL_NAME = "chunks.journal";
+
+    /**
+     * 内容寻址存储目录（相对于storagePath），文件存放在 blobs/ab/cd/{hash}
+     */
+    private static final String BLOB_DIR_NAME = "blobs";
+
+    /**
+     * 分片文件模式下合并输出的临时文件名
+     */
+    private static final String MERGED_FILE_NAME = "merged.part";
+
+    /**
+     * 按内容哈希分段加锁，保证同一内容的写入、引用变更与删除串行
+     */
+    private static final Striped<Lock> BLOB_LOCKS = Striped.lock(64);
+
+    /**
+     * 树哈希叶子文件目录（相对于storagePath）
+     */
+    private static final String TREE_DIR_NAME = ".tree";
+
+    /**
+     * 单个树哈希节点的字节数（SHA-256）
+     */
+    private static final int TREE_HASH_LENGTH = 32;
+    
+    /**
+     * 直接落盘元数据缓存，避免每个分片都读取元数据文件
+     * Key: 文件ID, Value: 落盘元数据
+     */
+    private final Map<Long, PlacementMeta> placementMetaCache = new ConcurrentHashMap<>();
 
     /**
      * 初始化：将相对路径转为绝对路径，并创建目录
@@ -72,21 +160,47 @@ public class FileStorageServiceImpl implements IFileStorageService {
     
     /**
      * 保存分片文件
+     * 写入的同时计算分片MD5，不需要再回读一遍
      *
      * @param fileId      文件ID
      * @param chunkNumber 分片序号
      * @param file        分片文件
-     * @return 分片文件路径
+     * @return 分片数据的MD5（32位小写十六进制）
      * @throws IOException IO异常
      */
     @Override
     public String saveChunk(Long fileId, Integer chunkNumber, MultipartFile file) throws IOException {
+        try (InputStream is = file.getInputStream()) {
+            return saveChunk(fileId, chunkNumber, is, file.getSize());
+        }
+    }
+    
+    /**
+     * 保存分片数据流
+     * 通过池化的小缓冲从输入流读取、计算MD5并写入 FileChannel，内存占用与分片大小无关
+     *
+     * @param fileId      文件ID
+     * @param chunkNumber 分片序号
+     * @param in          分片数据流（调用方负责关闭）
+     * @param length      分片大小（字节）
+     * @return 分片数据的MD5（32位小写十六进制）
+     * @throws IOException IO异常
+     */
+    @Override
+    public String saveChunk(Long fileId, Integer chunkNumber, InputStream in, long length) throws IOException {
         // 获取用户ID，按用户隔离临时文件
         Long userId = UserContextHolder.getUserId();
         String userDir = userId != null ? userId.toString() : "default";
         
         // 创建临时目录：temp/{userId}/{fileId}/
         Path chunkDir = Paths.get(tempPath, userDir, fileId.toString());
+        
+        // 已预分配目标文件：直接定位写入，不再生成分片文件
+        PlacementMeta meta = getPlacementMeta(fileId, chunkDir);
+        if (meta != null) {
+            return writeChunkInPlace(fileId, chunkNumber, in, length, chunkDir, meta);
+        }
+        
         Files.createDirectories(chunkDir);
         
         // 分片文件名：chunk_0, chunk_1, ...
@@ -94,36 +208,92 @@ public class FileStorageServiceImpl implements IFileStorageService {
         Path chunkPath = chunkDir.resolve(chunkFileName);
         
         // 保存分片
-        file.transferTo(chunkPath.toFile());
+        MessageDigest digest = DigestUtils.getMd5Digest();
+        try (FileChannel target = FileChannel.open(chunkPath, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            copyChunk(chunkNumber, in, length, target, 0, digest);
+        }
         
         log.info("保存分片 - 用户ID: {}, 文件ID: {}, 分片: {}, 大小: {}字节", 
-                 userId, fileId, chunkNumber, file.getSize());
+                 userId, fileId, chunkNumber, length);
         
-        return chunkPath.toString();
+        return Hex.encodeHexString(digest.digest());
     }
     
     /**
-     * 合并分片文件
+     * 从输入流复制分片数据到文件指定位置，同时计算MD5
+     * 数据必须恰好为 length 字节，不足或超出均视为分片损坏
+     *
+     * @param chunkNumber 分片序号
+     * @param in          分片数据流
+     * @param length      分片大小
+     * @param target      目标文件
+     * @param position    写入起始位置
+     * @param digest      MD5摘要
+     * @throws IOException IO异常或分片大小不符
+     */
+    private void copyChunk(Integer chunkNumber, InputStream in, long length, FileChannel target,
+                           long position, MessageDigest digest) throws IOException {
+        ByteBuffer buffer = CHUNK_BUFFER_POOL.acquire();
+        try {
+            byte[] array = buffer.array();
+            long written = 0;
+            while (written < length) {
+                int n = in.read(array, 0, (int) Math.min(array.length, length - written));
+                if (n < 0) {
+                    break;
+                }
+                digest.update(array, 0, n);
+                // 强转为 Buffer：JDK 9+ 编译出的 ByteBuffer.clear()/limit() 在 Java 8 上找不到方法
+                ((Buffer) buffer).clear();
+                ((Buffer) buffer).limit(n);
+                while (buffer.hasRemaining()) {
+                    written += target.write(buffer, position + written);
+                }
+            }
+            if (written != length) {
+                throw new IOException(String.format("分片写入不完整: chunk_%d, 期望: %d, 实际: %d",
+                        chunkNumber, length, written));
+            }
+            if (in.read() != -1) {
+                throw new IOException(String.format("分片数据超出声明大小: chunk_%d, 大小: %d",
+                        chunkNumber, length));
+            }
+        } finally {
+            CHUNK_BUFFER_POOL.release(buffer);
+        }
+    }
+    
+    /**
+     * 合并分片文件并存入内容寻址存储
      *
      * @param fileId      文件ID
-     * @param fileName    文件名
+     * @param fileHash    文件哈希
      * @param totalChunks 总分片数
-     * @return 合并后的文件路径
+     * @return 合并后的文件路径（blobs/ab/cd/{hash}）
      * @throws IOException IO异常
      */
     @Override
-    public String mergeChunks(Long fileId, String fileName, Integer totalChunks) throws IOException {
-        // 获取用户ID，按用户隔离文件存储
+    public String mergeChunks(Long fileId, String fileHash, Integer totalChunks) throws IOException {
+        // 获取用户ID，临时目录按用户隔离
         Long userId = UserContextHolder.getUserId();
         String userDir = userId != null ? userId.toString() : "default";
+        Path chunkDir = Paths.get(tempPath, userDir, fileId.toString());
         
-        // 创建用户存储目录：storage/{userId}/
-        Path storageDir = Paths.get(storagePath, userDir);
-        Files.createDirectories(storageDir);
+        // 直接落盘模式：数据已在预分配文件中，只需校验大小
+        PlacementMeta meta = getPlacementMeta(fileId, chunkDir);
+        if (meta != null) {
+            Path placementPath = chunkDir.resolve(PLACEMENT_FILE_NAME);
+            checkPlacementFile(placementPath, meta);
+            placementMetaCache.remove(fileId);
+            String relativePath = putBlob(placementPath, fileHash, true);
+            log.info("文件合并完成（直接落盘） - 文件ID: {}, 目标: {}, 大小: {}字节", fileId, relativePath, meta.fileSize);
+            return relativePath;
+        }
         
-        // 目标文件路径：storage/{userId}/{fileName}
-        Path targetPath = storageDir.resolve(fileName);
-        File targetFile = targetPath.toFile();
+        // 分片文件模式：先在临时目录拼接，再移入内容寻址存储
+        Path mergedPath = chunkDir.resolve(MERGED_FILE_NAME);
+        File targetFile = mergedPath.toFile();
         
         // 使用FileChannel进行高效合并
         try (FileOutputStream fos = new FileOutputStream(targetFile);
@@ -135,7 +305,7 @@ public class FileStorageServiceImpl implements IFileStorageService {
             // **修复ISSUE-4: 需要先获取文件大小才能验证分片大小（暂时无法验证，但至少检查文件存在）**
             // 注意：文件大小验证在mergeChunks调用前已完成（通过FileChunk记录），这里主要检查文件完整性
             for (int i = 0; i < totalChunks; i++) {
-                Path chunkPath = Paths.get(tempPath, userDir, fileId.toString(), "chunk_" + i);
+                Path chunkPath = chunkDir.resolve("chunk_" + i);
                 File chunkFile = chunkPath.toFile();
                 
                 if (!chunkFile.exists()) {
@@ -163,11 +333,20 @@ public class FileStorageServiceImpl implements IFileStorageService {
             }
         }
         
-        log.info("文件合并完成 - 文件ID: {}, 文件名: {}, 大小: {}字节", 
-                 fileId, fileName, targetFile.length());
-        
-        // 返回相对路径（相对于storagePath），兼容不同部署环境
-        // 格式：{userId}/{fileName}
+        long mergedSize = targetFile.length();
+        String relativePath = putBlob(mergedPath, fileHash, true);
+        log.info("文件合并完成 - 文件ID: {}, 目标: {}, 大小: {}字节", fileId, relativePath, mergedSize);
+        return relativePath;
+    }
+    
+    /**
+     * 转换为相对路径（相对于storagePath），兼容不同部署环境
+     * 格式：{userId}/{fileName}
+     *
+     * @param targetPath 绝对路径
+     * @return 相对路径
+     */
+    private String toRelativePath(Path targetPath) {
         Path relativePath = Paths.get(storagePath).relativize(targetPath);
         String relativePathStr = relativePath.toString().replace("\\", "/"); // 统一使用 / 分隔符
         
@@ -175,6 +354,152 @@ public class FileStorageServiceImpl implements IFileStorageService {
         return relativePathStr;
     }
     
+    /**
+     * 预分配目标文件（直接落盘模式）
+     * 创建 fileSize 大小的稀疏文件，并记录分片大小，后续分片按偏移直接写入
+     *
+     * @param fileId    文件ID
+     * @param fileSize  文件总大小
+     * @param chunkSize 分片大小
+     * @throws IOException IO异常
+     */
+    @Override
+    public void preallocateFile(Long fileId, long fileSize, long chunkSize) throws IOException {
+        if (!directPlacement) {
+            return;
+        }
+        Long userId = UserContextHolder.getUserId();
+        String userDir = userId != null ? userId.toString() : "default";
+        
+        Path chunkDir = Paths.get(tempPath, userDir, fileId.toString());
+        Files.createDirectories(chunkDir);
+        
+        // setLength 在 Linux/NTFS 上只修改文件长度，不实际写入数据（稀疏文件）
+        Path placementPath = chunkDir.resolve(PLACEMENT_FILE_NAME);
+        try (RandomAccessFile raf = new RandomAccessFile(placementPath.toFile(), "rw")) {
+            raf.setLength(fileSize);
+        }
+        
+        PlacementMeta meta = new PlacementMeta(fileSize, chunkSize);
+        writePlacementMeta(chunkDir.resolve(PLACEMENT_META_NAME), meta);
+        placementMetaCache.put(fileId, meta);
+        
+        log.info("预分配目标文件 - 用户ID: {}, 文件ID: {}, 大小: {}字节, 分片大小: {}字节",
+                 userId, fileId, fileSize, chunkSize);
+    }
+    
+    /**
+     * 将分片按偏移写入预分配文件
+     * 偏移 = chunkNumber * chunkSize，使用 FileChannel 定位写入，多个分片可并发写入不同区间
+     *
+     * @param fileId      文件ID
+     * @param chunkNumber 分片序号
+     * @param in          分片数据流
+     * @param length      分片大小
+     * @param chunkDir    临时目录
+     * @param meta        落盘元数据
+     * @return 分片数据的MD5
+     * @throws IOException IO异常
+     */
+    private String writeChunkInPlace(Long fileId, Integer chunkNumber, InputStream in, long length,
+                                     Path chunkDir, PlacementMeta meta) throws IOException {
+        long position = chunkNumber * meta.chunkSize;
+        
+        // 分片必须落在文件范围内，且非末尾分片大小必须等于分片大小，否则偏移会错位
+        if (position + length > meta.fileSize) {
+            throw new IOException(String.format("分片越界: chunk_%d, 偏移: %d, 大小: %d, 文件大小: %d",
+                    chunkNumber, position, length, meta.fileSize));
+        }
+        if (position + length < meta.fileSize && length != meta.chunkSize) {
+            throw new IOException(String.format("分片大小不一致: chunk_%d, 期望: %d, 实际: %d",
+                    chunkNumber, meta.chunkSize, length));
+        }
+        
+        Path placementPath = chunkDir.resolve(PLACEMENT_FILE_NAME);
+        MessageDigest digest = DigestUtils.getMd5Digest();
+        try (FileChannel target = FileChannel.open(placementPath, StandardOpenOption.WRITE)) {
+            copyChunk(chunkNumber, in, length, target, position, digest);
+        }
+        
+        log.info("定位写入分片 - 文件ID: {}, 分片: {}, 偏移: {}, 大小: {}字节",
+                 fileId, chunkNumber, position, length);
+        return Hex.encodeHexString(digest.digest());
+    }
+    
+    /**
+     * 校验预分配文件（直接落盘模式下的合并）
+     *
+     * @param placementPath 预分配文件路径
+     * @param meta          落盘元数据
+     * @throws IOException 文件不存在或大小不一致
+     */
+    private void checkPlacementFile(Path placementPath, PlacementMeta meta) throws IOException {
+        if (!Files.exists(placementPath)) {
+            throw new IOException("预分配文件不存在: " + placementPath);
+        }
+        long actualSize = Files.size(placementPath);
+        if (actualSize != meta.fileSize) {
+            throw new IOException(String.format("预分配文件大小不一致, 期望: %d, 实际: %d", meta.fileSize, actualSize));
+        }
+    }
+    
+    /**
+     * 获取落盘元数据（优先缓存，缓存未命中时读取元数据文件，兼容服务重启）
+     *
+     * @param fileId   文件ID
+     * @param chunkDir 临时目录
+     * @return 落盘元数据，未预分配（分片文件模式）时返回null
+     */
+    private PlacementMeta getPlacementMeta(Long fileId, Path chunkDir) {
+        PlacementMeta cached = placementMetaCache.get(fileId);
+        if (cached != null) {
+            return cached;
+        }
+        Path metaPath = chunkDir.resolve(PLACEMENT_META_NAME);
+        if (!Files.exists(metaPath) || !Files.exists(chunkDir.resolve(PLACEMENT_FILE_NAME))) {
+            return null;
+        }
+        try {
+            PlacementMeta meta = readPlacementMeta(metaPath);
+            placementMetaCache.put(fileId, meta);
+            return meta;
+        } catch (IOException | NumberFormatException e) {
+            log.error("读取落盘元数据失败 - 文件ID: {}, 错误: {}", fileId, e.getMessage());
+            return null;
+        }
+    }
+    
+    private void writePlacementMeta(Path metaPath, PlacementMeta meta) throws IOException {
+        Properties props = new Properties();
+        props.setProperty("fileSize", String.valueOf(meta.fileSize));
+        props.setProperty("chunkSize", String.valueOf(meta.chunkSize));
+        try (Writer writer = Files.newBufferedWriter(metaPath, StandardCharsets.UTF_8)) {
+            props.store(writer, null);
+        }
+    }
+    
+    private PlacementMeta readPlacementMeta(Path metaPath) throws IOException {
+        Properties props = new Properties();
+        try (Reader reader = Files.newBufferedReader(metaPath, StandardCharsets.UTF_8)) {
+            props.load(reader);
+        }
+        return new PlacementMeta(Long.parseLong(props.getProperty("fileSize")),
+                Long.parseLong(props.getProperty("chunkSize")));
+    }
+    
+    /**
+     * 直接落盘元数据
+     */
+    private static class PlacementMeta {
+        final long fileSize;
+        final long chunkSize;
+        
+        PlacementMeta(long fileSize, long chunkSize) {
+            this.fileSize = fileSize;
+            this.chunkSize = chunkSize;
+        }
+    }
+    
     /**
      * 删除临时分片文件
      *
@@ -187,6 +512,7 @@ public class FileStorageServiceImpl implements IFileStorageService {
             Long userId = UserContextHolder.getUserId();
             String userDir = userId != null ? userId.toString() : "default";
             
+            placementMetaCache.remove(fileId);
             Path chunkDir = Paths.get(tempPath, userDir, fileId.toString());
             if (Files.exists(chunkDir)) {
                 FileUtils.deleteDirectory(chunkDir.toFile());
@@ -199,6 +525,7 @@ public class FileStorageServiceImpl implements IFileStorageService {
     
     /**
      * 检查分片是否存在
+     * 仅适用于分片文件模式，直接落盘模式下分片不单独成文件
      *
      * @param fileId      文件ID
      * @param chunkNumber 分片序号
@@ -228,6 +555,161 @@ public class FileStorageServiceImpl implements IFileStorageService {
         return Files.size(chunkPath);
     }
     
+    /**
+     * 打开已写入分片的数据流
+     *
+     * @param fileId      文件ID
+     * @param chunkNumber 分片序号
+     * @return 分片数据流
+     * @throws IOException IO异常
+     */
+    @Override
+    public InputStream openChunkStream(Long fileId, Integer chunkNumber) throws IOException {
+        Long userId = UserContextHolder.getUserId();
+        String userDir = userId != null ? userId.toString() : "default";
+        Path chunkDir = Paths.get(tempPath, userDir, fileId.toString());
+        
+        PlacementMeta meta = getPlacementMeta(fileId, chunkDir);
+        if (meta == null) {
+            return Files.newInputStream(chunkDir.resolve("chunk_" + chunkNumber));
+        }
+        
+        long position = chunkNumber * meta.chunkSize;
+        if (position >= meta.fileSize) {
+            throw new IOException("分片超出文件范围: chunk_" + chunkNumber);
+        }
+        long length = Math.min(meta.chunkSize, meta.fileSize - position);
+        FileChannel channel = FileChannel.open(chunkDir.resolve(PLACEMENT_FILE_NAME), StandardOpenOption.READ);
+        channel.position(position);
+        return new BoundedInputStream(Channels.newInputStream(channel), length);
+    }
+    
+    /**
+     * 追加分片日志
+     *
+     * @param fileId      文件ID
+     * @param chunkNumber 分片序号
+     * @param chunkHash   分片MD5，null 表示撤销
+     * @throws IOException IO异常
+     */
+    @Override
+    public void appendChunkJournal(Long fileId, Integer chunkNumber, String chunkHash) throws IOException {
+        Long userId = UserContextHolder.getUserId();
+        String userDir = userId != null ? userId.toString() : "default";
+        Path chunkDir = Paths.get(tempPath, userDir, fileId.toString());
+        Files.createDirectories(chunkDir);
+        
+        // 单行一次写入，O_APPEND 保证并发分片的行不会交错
+        String line = chunkNumber + "," + (chunkHash != null ? chunkHash : "") + "\n";
+        Files.write(chunkDir.resolve(CHUNK_JOURNAL_NAME), line.getBytes(StandardCharsets.US_ASCII),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+    
+    /**
+     * 读取分片日志
+     *
+     * @param userId 用户ID
+     * @param fileId 文件ID
+     * @return 分片序号 -> MD5
+     * @throws IOException IO异常
+     */
+    @Override
+    public Map<Integer, String> readChunkJournal(Long userId, Long fileId) throws IOException {
+        String userDir = userId != null ? userId.toString() : "default";
+        Path journalPath = Paths.get(tempPath, userDir, fileId.toString(), CHUNK_JOURNAL_NAME);
+        Map<Integer, String> chunks = new HashMap<>();
+        if (!Files.exists(journalPath)) {
+            return chunks;
+        }
+        
+        String content = new String(Files.readAllBytes(journalPath), StandardCharsets.US_ASCII);
+        // 最后一个换行之后是崩溃时未写完的行
+        int end = content.lastIndexOf('\n');
+        if (end < 0) {
+            return chunks;
+        }
+        for (String line : content.substring(0, end).split("\n")) {
+            int sep = line.indexOf(',');
+            if (sep <= 0) {
+                continue;
+            }
+            int chunkNumber;
+            try {
+                chunkNumber = Integer.parseInt(line.substring(0, sep));
+            } catch (NumberFormatException e) {
+                continue;
+            }
+            String hash = line.substring(sep + 1);
+            if (hash.isEmpty()) {
+                chunks.remove(chunkNumber);
+            } else if (hash.length() == 32) {
+                chunks.put(chunkNumber, hash);
+            }
+        }
+        return chunks;
+    }
+    
+    /**
+     * 保存树哈希的叶子哈希
+     * 先写临时文件再原子替换，读取方不会看到写了一半的内容
+     *
+     * @param rootHash 根哈希
+     * @param leaves   叶子哈希
+     * @throws IOException IO异常
+     */
+    @Override
+    public void saveTreeLeaves(String rootHash, byte[][] leaves) throws IOException {
+        Path leavesPath = getTreeLeavesPath(rootHash);
+        if (Files.exists(leavesPath)) {
+            return;
+        }
+        Files.createDirectories(leavesPath.getParent());
+        ByteBuffer buffer = ByteBuffer.allocate(leaves.length * TREE_HASH_LENGTH);
+        for (byte[] leaf : leaves) {
+            buffer.put(leaf);
+        }
+        Path tmpPath = leavesPath.resolveSibling(rootHash + ".tmp");
+        Files.write(tmpPath, buffer.array());
+        try {
+            Files.move(tmpPath, leavesPath, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tmpPath, leavesPath, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+    
+    /**
+     * 读取树哈希的叶子哈希
+     *
+     * @param rootHash  根哈希
+     * @param fromLeaf  起始叶子序号
+     * @param leafCount 叶子数
+     * @return 叶子哈希，未保存时返回null
+     * @throws IOException IO异常
+     */
+    @Override
+    public byte[] readTreeLeaves(String rootHash, int fromLeaf, int leafCount) throws IOException {
+        Path leavesPath = getTreeLeavesPath(rootHash);
+        if (!Files.exists(leavesPath)) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(leavesPath, StandardOpenOption.READ)) {
+            long position = (long) fromLeaf * TREE_HASH_LENGTH;
+            long length = Math.min((long) leafCount * TREE_HASH_LENGTH, Math.max(0, channel.size() - position));
+            ByteBuffer buffer = ByteBuffer.allocate((int) length);
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, position + buffer.position()) < 0) {
+                    break;
+                }
+            }
+            return buffer.array();
+        }
+    }
+    
+    private Path getTreeLeavesPath(String rootHash) {
+        String name = rootHash.toLowerCase();
+        return Paths.get(storagePath, TREE_DIR_NAME, name.substring(0, 2), name + ".leaves");
+    }
+    
     /**
      * 检查文件是否存在
      *
@@ -242,11 +724,16 @@ public class FileStorageServiceImpl implements IFileStorageService {
     
     /**
      * 删除文件
+     * 内容寻址存储中的文件只减少引用，引用归零时才删除物理数据
      *
      * @param filePath 文件路径（支持相对路径和绝对路径，兼容旧数据）
      */
     @Override
     public void deleteFile(String filePath) {
+        if (isBlobPath(filePath)) {
+            releaseBlob(filePath);
+            return;
+        }
         try {
             Path path = getAbsolutePath(filePath);
             
@@ -297,37 +784,146 @@ public class FileStorageServiceImpl implements IFileStorageService {
     }
     
     /**
-     * 保存文件（用于复制/解压等场景）
-     * 将源文件保存到用户存储目录，返回相对路径
+     * 存入内容寻址存储并增加引用
+     * 相同哈希的内容只保存一份：已存在时丢弃（move）或忽略源文件，只增加引用计数
      *
-     * @param sourceFile 源文件
-     * @param fileName 目标文件名
-     * @param userId 用户ID
-     * @return 相对路径（相对于storagePath，格式：userId/fileName）
+     * @param source   源文件
+     * @param fileHash 内容哈希
+     * @param move     true 时移动源文件（合并/解压的临时文件），false 时硬链接或复制
+     * @return 相对路径（blobs/ab/cd/{hash}）
      * @throws IOException IO异常
      */
     @Override
-    public String saveFile(File sourceFile, String fileName, Long userId) throws IOException {
-        if (userId == null) {
-            throw new IllegalArgumentException("用户ID不能为空");
+    public String putBlob(Path source, String fileHash, boolean move) throws IOException {
+        String key = fileHash.toLowerCase();
+        Path blobPath = getBlobPath(key);
+        long size = Files.size(source);
+        Lock lock = BLOB_LOCKS.get(key);
+        lock.lock();
+        try {
+            if (!Files.exists(blobPath)) {
+                Files.createDirectories(blobPath.getParent());
+                // 先写入同目录临时名再原子重命名，读取方不会看到不完整的内容
+                Path tmpPath = blobPath.resolveSibling(key + "." + UUID.randomUUID() + ".tmp");
+                if (move) {
+                    Files.move(source, tmpPath);
+                } else {
+                    linkOrCopy(source, tmpPath);
+                }
+                try {
+                    Files.move(tmpPath, blobPath, StandardCopyOption.ATOMIC_MOVE);
+                } catch (AtomicMoveNotSupportedException e) {
+                    Files.move(tmpPath, blobPath, StandardCopyOption.REPLACE_EXISTING);
+                }
+                log.info("新增存储内容 - 哈希: {}, 大小: {}字节", key, size);
+            } else if (move) {
+                Files.deleteIfExists(source);
+            }
+            blobRefMapper.retain(key, size);
+        } finally {
+            lock.unlock();
         }
-        
-        // 创建用户存储目录
-        String userDir = userId.toString();
-        Path userStorageDir = Paths.get(storagePath, userDir);
-        Files.createDirectories(userStorageDir);
-        
-        // 目标文件路径
-        Path targetPath = userStorageDir.resolve(fileName);
-        
-        // 复制文件
-        Files.copy(sourceFile.toPath(), targetPath, StandardCopyOption.REPLACE_EXISTING);
-        
-        // 返回相对路径（格式：userId/fileName）
-        String relativePath = userDir + "/" + fileName;
-        log.info("保存文件成功 - 用户ID: {}, 文件名: {}, 相对路径: {}", userId, fileName, relativePath);
-        
-        return relativePath;
+        return toRelativePath(blobPath);
+    }
+    
+    /**
+     * 为已存储的文件增加一个引用（复制、跨用户秒传等只增加元数据的场景）
+     * 旧版按用户目录存放的文件先以硬链接收入内容寻址存储，原文件及其记录保持不变
+     *
+     * @param filePath 已有文件的路径
+     * @param fileHash 内容哈希
+     * @return 新记录应使用的路径（blobs/ab/cd/{hash}）
+     * @throws IOException IO异常
+     */
+    @Override
+    public String retainBlob(String filePath, String fileHash) throws IOException {
+        if (!isBlobPath(filePath)) {
+            return putBlob(getAbsolutePath(filePath), fileHash, false);
+        }
+        String key = getBlobKey(filePath);
+        Path blobPath = getBlobPath(key);
+        Lock lock = BLOB_LOCKS.get(key);
+        lock.lock();
+        try {
+            if (!Files.exists(blobPath)) {
+                throw new IOException("存储内容不存在: " + filePath);
+            }
+            blobRefMapper.retain(key, Files.size(blobPath));
+        } finally {
+            lock.unlock();
+        }
+        return filePath;
+    }
+    
+    /**
+     * 是否为内容寻址存储路径
+     *
+     * @param filePath 文件路径
+     * @return 是否以 blobs/ 开头
+     */
+    @Override
+    public boolean isBlobPath(String filePath) {
+        return filePath != null && filePath.replace("\\", "/").startsWith(BLOB_DIR_NAME + "/");
+    }
+    
+    /**
+     * 减少内容引用，引用归零时删除物理数据（以及同一哈希的树哈希叶子）
+     * 在事务中调用时等事务提交后再删除数据，回滚时引用计数恢复、数据仍在
+     */
+    private void releaseBlob(String filePath) {
+        String key = getBlobKey(filePath);
+        blobRefMapper.release(key);
+        if (blobRefMapper.deleteUnreferenced(key) == 0) {
+            log.debug("存储内容仍被引用 - 哈希: {}", key);
+            return;
+        }
+        Runnable remove = () -> {
+            Lock lock = BLOB_LOCKS.get(key);
+            lock.lock();
+            try {
+                // 删除前其他请求可能已重新引用
+                if (blobRefMapper.selectRefCount(key) != null) {
+                    return;
+                }
+                Files.deleteIfExists(getBlobPath(key));
+                Files.deleteIfExists(getTreeLeavesPath(key));
+                log.info("存储内容已无引用，删除物理数据 - 哈希: {}", key);
+            } catch (IOException e) {
+                log.error("删除存储内容失败 - 哈希: {}, 错误: {}", key, e.getMessage());
+            } finally {
+                lock.unlock();
+            }
+        };
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    remove.run();
+                }
+            });
+        } else {
+            remove.run();
+        }
+    }
+    
+    /**
+     * 优先创建硬链接（不占用额外空间），文件系统不支持时复制
+     */
+    private void linkOrCopy(Path source, Path target) throws IOException {
+        try {
+            Files.createLink(target, source);
+        } catch (UnsupportedOperationException | IOException e) {
+            log.debug("硬链接失败，改为复制 - 源: {}, 原因: {}", source, e.getMessage());
+            Files.copy(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+    
+    private Path getBlobPath(String key) {
+        return Paths.get(storagePath, BLOB_DIR_NAME, key.substring(0, 2), key.substring(2, 4), key);
+    }
+    
+    private String getBlobKey(String filePath) {
+        String normalized = filePath.replace("\\", "/");
+        return normalized.substring(normalized.lastIndexOf('/') + 1);
     }
 }
-
@@ -2,14 +2,17 @@ package com.server.smarttransferserver.service.impl;
 
 import com.server.smarttransferserver.service.FileUploadCacheService;
 import com.server.smarttransferserver.service.RedisService;
+import com.server.smarttransferserver.util.ChunkBitmap;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
-import java.util.stream.Collectors;
 
 /**
  * 文件上传缓存服务实现
@@ -27,9 +30,19 @@ public class FileUploadCacheServiceImpl implements FileUploadCacheService {
     private static final String FILE_HASH_PREFIX = "file:hash:";
     
     /**
-     * 分片上传记录前缀
+     * 分片上传位图前缀（每个分片1位，file:bitmap:{fileId}）
      */
-    private static final String CHUNK_UPLOAD_PREFIX = "file:chunks:";
+    private static final String CHUNK_BITMAP_PREFIX = "file:bitmap:";
+    
+    /**
+     * 分片哈希前缀（Hash：分片序号 -> MD5，合并时批量落库）
+     */
+    private static final String CHUNK_HASH_PREFIX = "file:chunkhash:";
+    
+    /**
+     * 增量MD5状态前缀（与分片上传记录放在一起：file:md5:{fileId}）
+     */
+    private static final String HASH_STATE_PREFIX = "file:md5:";
     
     /**
      * 文件上传锁前缀
@@ -78,32 +91,92 @@ public class FileUploadCacheServiceImpl implements FileUploadCacheService {
     
     @Override
     public void markChunkUploaded(Long fileId, Integer chunkNumber) {
-        String key = CHUNK_UPLOAD_PREFIX + fileId;
-        redisService.sAdd(key, chunkNumber);
+        String key = CHUNK_BITMAP_PREFIX + fileId;
+        redisService.setBit(key, chunkNumber, true);
         // 设置过期时间
         redisService.expire(key, CACHE_EXPIRE_HOURS, TimeUnit.HOURS);
         log.debug("标记分片已上传 - fileId: {}, chunk: {}", fileId, chunkNumber);
     }
     
+    @Override
+    public void unmarkChunkUploaded(Long fileId, Integer chunkNumber) {
+        String key = CHUNK_BITMAP_PREFIX + fileId;
+        redisService.setBit(key, chunkNumber, false);
+        log.debug("取消分片已上传标记 - fileId: {}, chunk: {}", fileId, chunkNumber);
+    }
+    
     @Override
     public Set<Integer> getUploadedChunks(Long fileId) {
-        String key = CHUNK_UPLOAD_PREFIX + fileId;
-        Set<Object> chunks = redisService.sMembers(key);
-        if (chunks != null) {
-            return chunks.stream()
-                    .map(obj -> Integer.valueOf(obj.toString()))
-                    .collect(Collectors.toSet());
+        byte[] bitmap = getChunkBitmap(fileId);
+        if (bitmap == null) {
+            return Collections.emptySet();
         }
-        return Collections.emptySet();
+        return new HashSet<>(ChunkBitmap.setChunks(bitmap, bitmap.length * 8));
+    }
+    
+    @Override
+    public long countUploadedChunks(Long fileId) {
+        Long count = redisService.bitCount(CHUNK_BITMAP_PREFIX + fileId);
+        return count != null ? count : 0L;
+    }
+    
+    @Override
+    public byte[] getChunkBitmap(Long fileId) {
+        return redisService.getBytes(CHUNK_BITMAP_PREFIX + fileId);
+    }
+    
+    @Override
+    public void restoreChunkBitmap(Long fileId, byte[] bitmap) {
+        redisService.setBytes(CHUNK_BITMAP_PREFIX + fileId, bitmap, CACHE_EXPIRE_HOURS, TimeUnit.HOURS);
+        log.debug("恢复分片位图 - fileId: {}, 字节数: {}", fileId, bitmap.length);
     }
     
     @Override
     public void deleteChunkUploadRecord(Long fileId) {
-        String key = CHUNK_UPLOAD_PREFIX + fileId;
-        redisService.delete(key);
+        redisService.delete(CHUNK_BITMAP_PREFIX + fileId);
+        redisService.delete(CHUNK_HASH_PREFIX + fileId);
         log.debug("删除分片上传记录 - fileId: {}", fileId);
     }
     
+    @Override
+    public void cacheChunkHash(Long fileId, Integer chunkNumber, String chunkHash) {
+        String key = CHUNK_HASH_PREFIX + fileId;
+        redisService.hSet(key, chunkNumber.toString(), chunkHash);
+        redisService.expire(key, CACHE_EXPIRE_HOURS, TimeUnit.HOURS);
+    }
+    
+    @Override
+    public Map<Integer, String> getChunkHashes(Long fileId) {
+        Map<Object, Object> entries = redisService.hGetAll(CHUNK_HASH_PREFIX + fileId);
+        if (entries == null || entries.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        Map<Integer, String> hashes = new HashMap<>(entries.size() * 2);
+        entries.forEach((k, v) -> hashes.put(Integer.valueOf(k.toString()), v.toString()));
+        return hashes;
+    }
+    
+    @Override
+    public void cacheHashState(Long fileId, String state) {
+        String key = HASH_STATE_PREFIX + fileId;
+        redisService.set(key, state, CACHE_EXPIRE_HOURS, TimeUnit.HOURS);
+        log.debug("缓存增量MD5状态 - fileId: {}", fileId);
+    }
+    
+    @Override
+    public String getHashState(Long fileId) {
+        String key = HASH_STATE_PREFIX + fileId;
+        Object value = redisService.get(key);
+        return value != null ? value.toString() : null;
+    }
+    
+    @Override
+    public void deleteHashState(Long fileId) {
+        String key = HASH_STATE_PREFIX + fileId;
+        redisService.delete(key);
+        log.debug("删除增量MD5状态 - fileId: {}", fileId);
+    }
+    
     @Override
     public Boolean tryLockFileUpload(String fileHash, String lockId) {
         String key = UPLOAD_LOCK_PREFIX + fileHash;
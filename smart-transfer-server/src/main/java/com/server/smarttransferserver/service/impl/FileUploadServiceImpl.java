@@ -1,24 +1,28 @@
 package com.server.smarttransferserver.service.impl;
 
-import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
-import com.server.smarttransferserver.congestion.AdaptiveAlgorithm;
-import com.server.smarttransferserver.congestion.BandwidthEstimator;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.server.smarttransferserver.common.enums.TransferDirection;
 import com.server.smarttransferserver.congestion.CongestionControlAlgorithm;
 import com.server.smarttransferserver.dto.ChunkUploadDTO;
 import com.server.smarttransferserver.dto.FileUploadInitDTO;
-import com.server.smarttransferserver.entity.FileChunk;
 import com.server.smarttransferserver.entity.FileInfo;
 import com.server.smarttransferserver.entity.TransferTask;
-import com.server.smarttransferserver.mapper.FileChunkMapper;
 import com.server.smarttransferserver.mapper.FileInfoMapper;
 import com.server.smarttransferserver.mapper.TransferTaskMapper;
+import com.server.smarttransferserver.service.BandwidthLimitService;
 import com.server.smarttransferserver.service.CongestionAlgorithmManager;
 import com.server.smarttransferserver.service.CongestionMetricsService;
+import com.server.smarttransferserver.service.FairShareService;
 import com.server.smarttransferserver.service.FileUploadCacheService;
+import com.server.smarttransferserver.service.IncrementalHashService;
 import com.server.smarttransferserver.service.ProbeRttStore;
+import com.server.smarttransferserver.service.HashFilterService;
 import com.server.smarttransferserver.service.IFileStorageService;
 import com.server.smarttransferserver.service.FileUploadService;
 import com.server.smarttransferserver.service.TransferTaskService;
+import com.server.smarttransferserver.service.TreeHashService;
+import com.server.smarttransferserver.service.UploadWriteBehindService;
 import com.server.smarttransferserver.vo.ChunkUploadVO;
 import com.server.smarttransferserver.vo.FileUploadInitVO;
 import lombok.extern.slf4j.Slf4j;
@@ -27,17 +31,22 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
 
+import com.server.smarttransferserver.util.ChunkBitmap;
 import com.server.smarttransferserver.util.CongestionClientMetricsConstants;
+import com.server.smarttransferserver.util.MerkleTree;
 import com.server.smarttransferserver.util.UserContextHolder;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.stream.Collectors;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
 
 /**
  * 文件上传服务实现
@@ -49,18 +58,12 @@ public class FileUploadServiceImpl implements FileUploadService {
     @Autowired
     private FileInfoMapper fileInfoMapper;
     
-    @Autowired
-    private FileChunkMapper fileChunkMapper;
-    
     @Autowired
     private IFileStorageService storageService;
     
     @Autowired
     private FileUploadCacheService uploadCacheService;
 
-    @Autowired
-    private BandwidthEstimator bandwidthEstimator;
-    
     @Autowired
     private TransferTaskService transferTaskService;
     
@@ -76,6 +79,24 @@ public class FileUploadServiceImpl implements FileUploadService {
     @Autowired
     private ProbeRttStore probeRttStore;
     
+    @Autowired
+    private IncrementalHashService incrementalHashService;
+    
+    @Autowired
+    private UploadWriteBehindService writeBehindService;
+    
+    @Autowired
+    private TreeHashService treeHashService;
+    
+    @Autowired
+    private HashFilterService hashFilterService;
+    
+    @Autowired
+    private BandwidthLimitService bandwidthLimitService;
+    
+    @Autowired
+    private FairShareService fairShareService;
+    
     /**
      * 记录每个分片上传的开始时间，用于计算RTT
      */
@@ -86,9 +107,22 @@ public class FileUploadServiceImpl implements FileUploadService {
      */
     private final ConcurrentHashMap<Long, Integer> fileIdToTotalChunks = new ConcurrentHashMap<>();
     
+    /**
+     * 文件ID -> 任务ID，分片上传时不再逐片查询 transfer_task；initUpload/断点续传时刷新
+     */
+    private final Cache<Long, String> fileIdToTaskId = CacheBuilder.newBuilder()
+            .expireAfterAccess(24, TimeUnit.HOURS)
+            .build();
+    
     /** 分片日志采样间隔：每 N 个分片或首/尾分片才打印进度类日志，减少大量分片时的刷屏 */
     private static final int CHUNK_LOG_SAMPLE_INTERVAL = 5;
     
+    /** 分片MD5格式，其他格式（空串、"{fileHash}_{i}" 等旧客户端占位值）不做校验 */
+    private static final Pattern MD5_HEX = Pattern.compile("^[0-9a-fA-F]{32}$");
+    
+    /** 树根哈希格式 */
+    private static final Pattern SHA256_HEX = Pattern.compile("^[0-9a-fA-F]{64}$");
+    
     /**
      * 初始化文件上传
      * 检查是否秒传或断点续传
@@ -99,13 +133,18 @@ public class FileUploadServiceImpl implements FileUploadService {
     @Override
     @Transactional
     public FileUploadInitVO initUpload(FileUploadInitDTO dto) {
-        log.info("初始化文件上传 - 文件名: {}, 大小: {}字节, 哈希: {}", 
-                 dto.getFileName(), dto.getFileSize(), dto.getFileHash());
+        log.info("初始化文件上传 - 文件名: {}, 大小: {}字节, 哈希: {}, 算法: {}", 
+                 dto.getFileName(), dto.getFileSize(), dto.getFileHash(), dto.getHashAlgorithm());
+        String hashAlgorithm = resolveHashAlgorithm(dto);
         
         // 1. 检查文件是否已存在（秒传）
-        FileInfo existingFile = fileInfoMapper.selectByFileHash(dto.getFileHash());
+        FileInfo existingFile = findByFileHash(dto.getFileHash());
         if (existingFile != null && "COMPLETED".equals(existingFile.getUploadStatus())) {
-            // 秒传
+            // 秒传：其他用户的文件只新增一条文件记录，共用同一份存储数据
+            Long currentUserId = UserContextHolder.getUserId();
+            if (currentUserId != null && !currentUserId.equals(existingFile.getUserId())) {
+                existingFile = createQuickUploadCopy(existingFile, dto, currentUserId);
+            }
             log.info("文件已存在，秒传 - 文件ID: {}", existingFile.getId());
             return FileUploadInitVO.builder()
                     .fileId(existingFile.getId())
@@ -118,27 +157,11 @@ public class FileUploadServiceImpl implements FileUploadService {
         
         // 3. 检查是否有未完成的上传（断点续传）
         if (existingFile != null && "UPLOADING".equals(existingFile.getUploadStatus())) {
-            // 优先从 Redis 获取已上传分片
-            Set<Integer> cachedChunks = uploadCacheService.getUploadedChunks(existingFile.getId());
-            List<Integer> chunkNumbers;
-            
-            if (!cachedChunks.isEmpty()) {
-                // Redis 有缓存
-                chunkNumbers = new ArrayList<>(cachedChunks);
-            } else {
-                // Redis 无缓存，从数据库查询
-                List<FileChunk> uploadedChunks = fileChunkMapper.selectByFileIdAndUploadStatus(
-                        existingFile.getId(), "COMPLETED");
-                chunkNumbers = uploadedChunks.stream()
-                        .map(FileChunk::getChunkNumber)
-                        .collect(Collectors.toList());
-                
-                // 同步到 Redis
-                chunkNumbers.forEach(num -> uploadCacheService.markChunkUploaded(existingFile.getId(), num));
-            }
+            List<Integer> chunkNumbers = loadUploadedChunks(existingFile);
             
             // **修复：获取或创建任务ID（用于监控数据匹配）**
             String taskId = getOrCreateTaskId(existingFile.getId());
+            fileIdToTaskId.put(existingFile.getId(), taskId);
             
             log.info("断点续传 - 文件ID: {}, 已上传分片: {}, 任务ID: {}", existingFile.getId(), chunkNumbers.size(), taskId);
             return FileUploadInitVO.builder()
@@ -167,29 +190,29 @@ public class FileUploadServiceImpl implements FileUploadService {
                 .extendName(extendName)  // 设置文件扩展名
                 .fileSize(dto.getFileSize())
                 .fileHash(dto.getFileHash())
+                .hashAlgorithm(hashAlgorithm)
                 .filePath(tempFilePath)  // 设置临时文件路径，合并完成后会更新
                 .isDir(0)  // 上传的是文件，不是目录
                 .folderId(dto.getFolderId() != null ? dto.getFolderId() : 0L)  // 默认放在根目录
                 .uploadStatus("UPLOADING")
+                .totalChunks(dto.getTotalChunks())
+                .chunkSize(dto.getChunkSize())
+                .chunkBitmap(ChunkBitmap.create(dto.getTotalChunks()))  // 分片进度位图，替代逐个分片插入记录
                 .delFlag(0)
                 .createTime(LocalDateTime.now())
                 .updateTime(LocalDateTime.now())
                 .build();
         
         fileInfoMapper.insert(fileInfo);
+        hashFilterService.add(dto.getFileHash());
         
         log.info("创建文件记录 - 文件ID: {}, 临时路径: {}", fileInfo.getId(), tempFilePath);
         
-        // 5. 创建分片记录
-        for (int i = 0; i < dto.getTotalChunks(); i++) {
-            FileChunk chunk = FileChunk.builder()
-                    .fileId(fileInfo.getId())
-                    .chunkNumber(i)
-                    .chunkSize(dto.getChunkSize())  // **修复ISSUE-3: 直接使用前端提供的chunkSize，确保前后端一致**
-                    .uploadStatus("PENDING")
-                    .createTime(LocalDateTime.now())
-                    .build();
-            fileChunkMapper.insert(chunk);
+        // 预分配目标文件（直接落盘模式），分片到达后按偏移写入
+        try {
+            storageService.preallocateFile(fileInfo.getId(), dto.getFileSize(), dto.getChunkSize());
+        } catch (IOException e) {
+            throw new RuntimeException("预分配文件失败: " + e.getMessage(), e);
         }
         
         // **修复：创建传输任务并获取taskId（用于监控数据匹配）**
@@ -202,6 +225,7 @@ public class FileUploadServiceImpl implements FileUploadService {
         }
         
         fileIdToTotalChunks.put(fileInfo.getId(), dto.getTotalChunks());
+        fileIdToTaskId.put(fileInfo.getId(), taskId);
         log.info("创建新上传任务 - 文件ID: {}, 总分片数: {}, 任务ID: {}", fileInfo.getId(), dto.getTotalChunks(), taskId);
         return FileUploadInitVO.builder()
                 .fileId(fileInfo.getId())
@@ -213,6 +237,108 @@ public class FileUploadServiceImpl implements FileUploadService {
                 .build();
     }
     
+    /**
+     * 跨用户秒传：为当前用户新增文件记录，引用已有的存储内容（不复制数据）
+     *
+     * @param source 已完成上传的文件
+     * @param dto    初始化DTO
+     * @param userId 当前用户ID
+     * @return 新文件记录
+     */
+    private FileInfo createQuickUploadCopy(FileInfo source, FileUploadInitDTO dto, Long userId) {
+        Long folderId = dto.getFolderId() != null ? dto.getFolderId() : 0L;
+        String filePath;
+        try {
+            filePath = storageService.retainBlob(source.getFilePath(), source.getFileHash());
+        } catch (IOException e) {
+            throw new RuntimeException("秒传失败: " + e.getMessage(), e);
+        }
+        FileInfo fileInfo = FileInfo.builder()
+                .userId(userId)
+                .fileName(resolveUniqueFileName(dto.getFileName(), folderId, userId))
+                .extendName(extractExtendName(dto.getFileName()))
+                .fileSize(source.getFileSize())
+                .fileHash(source.getFileHash())
+                .hashAlgorithm(source.getHashAlgorithm())
+                .filePath(filePath)
+                .isDir(0)
+                .folderId(folderId)
+                .uploadStatus("COMPLETED")
+                .delFlag(0)
+                .createTime(LocalDateTime.now())
+                .updateTime(LocalDateTime.now())
+                .build();
+        try {
+            fileInfoMapper.insert(fileInfo);
+        } catch (RuntimeException e) {
+            // 记录未插入，撤销刚增加的引用（在事务中时随事务一起回滚，不会重复扣减）
+            storageService.deleteFile(filePath);
+            throw e;
+        }
+        log.info("跨用户秒传 - 源文件ID: {}, 新文件ID: {}, 用户ID: {}", source.getId(), fileInfo.getId(), userId);
+        return fileInfo;
+    }
+    
+    /**
+     * 目标文件夹下已有同名文件时生成新文件名（如：图片(1).jpg）
+     */
+    private String resolveUniqueFileName(String fileName, Long folderId, Long userId) {
+        List<FileInfo> duplicates = fileInfoMapper.selectByFileNameAndFolder(fileName, folderId, userId);
+        if (duplicates.isEmpty()) {
+            return fileName;
+        }
+        int dot = fileName.lastIndexOf('.');
+        String baseName = dot > 0 ? fileName.substring(0, dot) : fileName;
+        String extension = dot > 0 ? fileName.substring(dot) : "";
+        for (int n = 1; ; n++) {
+            String candidate = baseName + "(" + n + ")" + extension;
+            if (fileInfoMapper.selectByFileNameAndFolder(candidate, folderId, userId).isEmpty()) {
+                return candidate;
+            }
+        }
+    }
+    
+    /**
+     * 确定完整性校验算法
+     * SHA256_TREE 模式下文件哈希为64位树根哈希，且分片必须由整数个叶子组成，才能在分片到达时独立计算叶子
+     *
+     * @param dto 初始化DTO
+     * @return MD5 或 SHA256_TREE
+     */
+    private String resolveHashAlgorithm(FileUploadInitDTO dto) {
+        String algorithm = dto.getHashAlgorithm();
+        if (algorithm == null || algorithm.isEmpty() || "MD5".equalsIgnoreCase(algorithm)) {
+            return "MD5";
+        }
+        if (!MerkleTree.ALGORITHM.equalsIgnoreCase(algorithm)) {
+            throw new RuntimeException("不支持的校验算法: " + algorithm);
+        }
+        if (!SHA256_HEX.matcher(dto.getFileHash()).matches()) {
+            throw new RuntimeException("树哈希模式的文件哈希必须是64位十六进制");
+        }
+        if (dto.getChunkSize() % MerkleTree.LEAF_SIZE != 0) {
+            throw new RuntimeException("树哈希模式要求分片大小为 " + MerkleTree.LEAF_SIZE + " 字节的整数倍");
+        }
+        return MerkleTree.ALGORITHM;
+    }
+    
+    /**
+     * 按文件哈希查询已有文件（秒传/断点续传），哈希过滤器判定不存在时不查数据库
+     *
+     * @param fileHash 文件哈希
+     * @return 文件信息，不存在返回null
+     */
+    private FileInfo findByFileHash(String fileHash) {
+        if (!hashFilterService.mightExist(fileHash)) {
+            return null;
+        }
+        FileInfo existingFile = fileInfoMapper.selectByFileHash(fileHash);
+        if (existingFile == null) {
+            hashFilterService.recordMiss();
+        }
+        return existingFile;
+    }
+    
     /**
      * 检查分片是否已上传（秒传/断点续传）
      * 兼容 vue-simple-uploader
@@ -222,7 +348,7 @@ public class FileUploadServiceImpl implements FileUploadService {
         log.info("检查分片 - identifier: {}, filename: {}", identifier, filename);
         
         // 1. 根据文件哈希查找文件
-        FileInfo existingFile = fileInfoMapper.selectByFileHash(identifier);
+        FileInfo existingFile = findByFileHash(identifier);
         
         // 2. 文件已存在且上传完成 - 秒传
         if (existingFile != null && "COMPLETED".equals(existingFile.getUploadStatus())) {
@@ -240,18 +366,7 @@ public class FileUploadServiceImpl implements FileUploadService {
         // 3. 文件正在上传中 - 断点续传
         if (existingFile != null && "UPLOADING".equals(existingFile.getUploadStatus())) {
             // 获取已上传的分片
-            Set<Integer> cachedChunks = uploadCacheService.getUploadedChunks(existingFile.getId());
-            List<Integer> uploadedList;
-            
-            if (!cachedChunks.isEmpty()) {
-                uploadedList = new ArrayList<>(cachedChunks);
-            } else {
-                List<FileChunk> uploadedChunks = fileChunkMapper.selectByFileIdAndUploadStatus(
-                        existingFile.getId(), "COMPLETED");
-                uploadedList = uploadedChunks.stream()
-                        .map(FileChunk::getChunkNumber)
-                        .collect(Collectors.toList());
-            }
+            List<Integer> uploadedList = loadUploadedChunks(existingFile);
             
             if (totalChunks != null && totalChunks > 0) {
                 fileIdToTotalChunks.put(existingFile.getId(), totalChunks);
@@ -277,8 +392,59 @@ public class FileUploadServiceImpl implements FileUploadService {
                 .build();
     }
     
+    /**
+     * 获取已上传的分片
+     * 优先读取 Redis 位图；Redis 数据丢失或过期时读取 file_info 中的位图（总分片数/8 字节），并回填 Redis
+     *
+     * @param fileInfo 文件信息
+     * @return 已上传的分片序号
+     */
+    private List<Integer> loadUploadedChunks(FileInfo fileInfo) {
+        Long fileId = fileInfo.getId();
+        if (fileInfo.getTotalChunks() != null) {
+            fileIdToTotalChunks.put(fileId, fileInfo.getTotalChunks());
+        }
+        
+        Set<Integer> cachedChunks = uploadCacheService.getUploadedChunks(fileId);
+        if (!cachedChunks.isEmpty()) {
+            return new ArrayList<>(cachedChunks);
+        }
+        
+        byte[] bitmap = fileInfoMapper.selectChunkBitmap(fileId);
+        if (bitmap == null) {
+            return new ArrayList<>();
+        }
+        int totalChunks = fileInfo.getTotalChunks() != null ? fileInfo.getTotalChunks() : bitmap.length * 8;
+        List<Integer> chunkNumbers = ChunkBitmap.setChunks(bitmap, totalChunks);
+        if (!chunkNumbers.isEmpty()) {
+            // 同步到 Redis
+            uploadCacheService.restoreChunkBitmap(fileId, bitmap);
+        }
+        return chunkNumbers;
+    }
+    
+    /**
+     * 获取文件的总分片数（优先内存，缺失时读取 file_info.total_chunks）
+     *
+     * @param fileId 文件ID
+     * @return 总分片数，未知时返回0
+     */
+    private int getTotalChunks(Long fileId) {
+        Integer totalChunks = fileIdToTotalChunks.get(fileId);
+        if (totalChunks != null) {
+            return totalChunks;
+        }
+        FileInfo fileInfo = fileInfoMapper.selectById(fileId);
+        if (fileInfo == null || fileInfo.getTotalChunks() == null) {
+            return 0;
+        }
+        fileIdToTotalChunks.put(fileId, fileInfo.getTotalChunks());
+        return fileInfo.getTotalChunks();
+    }
+    
     /**
      * 上传文件分片
+     * 热路径只访问内存和 Redis（不开启事务），分片状态、进度、指标由写回服务批量写库
      *
      * @param fileId 文件ID
      * @param chunkNumber 分片编号
@@ -287,7 +453,6 @@ public class FileUploadServiceImpl implements FileUploadService {
      * @return 分片上传结果
      */
     @Override
-    @Transactional
     public ChunkUploadVO uploadChunk(Long fileId, Integer chunkNumber, String chunkHash, MultipartFile file, Long clientRttMs, Integer clientRetryCount) {
         ChunkUploadDTO dto = new ChunkUploadDTO();
         dto.setFileId(fileId);
@@ -299,6 +464,31 @@ public class FileUploadServiceImpl implements FileUploadService {
         return uploadChunkInternal(dto);
     }
     
+    /**
+     * 上传文件分片（原始请求体）
+     * 请求体经池化缓冲直接写入 FileChannel，每个请求的内存占用与分片大小无关
+     *
+     * @param fileId 文件ID
+     * @param chunkNumber 分片编号
+     * @param chunkHash 分片哈希
+     * @param content 分片数据流
+     * @param contentLength 分片大小
+     * @return 分片上传结果
+     */
+    @Override
+    public ChunkUploadVO uploadChunkStream(Long fileId, Integer chunkNumber, String chunkHash, InputStream content,
+                                           long contentLength, Long clientRttMs, Integer clientRetryCount) {
+        ChunkUploadDTO dto = new ChunkUploadDTO();
+        dto.setFileId(fileId);
+        dto.setChunkNumber(chunkNumber);
+        dto.setChunkHash(chunkHash);
+        dto.setContent(content);
+        dto.setContentLength(contentLength);
+        dto.setClientRttMs(clientRttMs);
+        dto.setClientRetryCount(clientRetryCount);
+        return uploadChunkInternal(dto);
+    }
+    
     /**
      * 上传分片（内部方法）
      * 集成拥塞控制算法，在上传成功/失败时触发算法响应
@@ -308,46 +498,91 @@ public class FileUploadServiceImpl implements FileUploadService {
      */
     private ChunkUploadVO uploadChunkInternal(ChunkUploadDTO dto) {
         // 获取任务ID和拥塞控制算法实例
-        String taskId = getOrCreateTaskId(dto.getFileId());
+        String taskId = getCachedTaskId(dto.getFileId());
         CongestionControlAlgorithm algorithm = algorithmManager.getOrCreateAlgorithm(taskId);
-        handleRetryLossStatistics(dto, algorithm);
+        // 分级带宽限制：在读取分片数据前等待或返回 429，超限的数据不进入服务端
+        bandwidthLimitService.acquire(TransferDirection.UPLOAD, taskId, getChunkLength(dto));
+        handleRetryLossStatistics(taskId, dto, algorithm);
         // 记录分片开始时间
         String chunkKey = dto.getFileId() + "-" + dto.getChunkNumber();
         long startTime = System.currentTimeMillis();
         chunkStartTimes.put(chunkKey, startTime);
         try {
-            long chunkSize = dto.getFile().getSize();
-            storageService.saveChunk(dto.getFileId(), dto.getChunkNumber(), dto.getFile());
+            int totalChunks = getTotalChunks(dto.getFileId());
+            if (dto.getChunkNumber() < 0 || dto.getChunkNumber() >= totalChunks) {
+                throw new IOException(String.format("分片序号越界: chunk_%d, 总分片数: %d",
+                        dto.getChunkNumber(), totalChunks));
+            }
+            long chunkSize = getChunkLength(dto);
+            String actualHash = dto.getFile() != null
+                    ? storageService.saveChunk(dto.getFileId(), dto.getChunkNumber(), dto.getFile())
+                    : storageService.saveChunk(dto.getFileId(), dto.getChunkNumber(), dto.getContent(), chunkSize);
+            verifyChunkHash(dto, actualHash);
             long serverProcessingMs = System.currentTimeMillis() - startTime;
             chunkStartTimes.remove(chunkKey);
             long rtt = calculateRtt(dto, serverProcessingMs);
             Long propagationRttMs = updateCongestionControlOnAck(
                     taskId, dto, algorithm, chunkSize, rtt);
-            updateChunkDatabaseRecord(dto, chunkSize);
+            updateChunkRecord(dto, totalChunks, actualHash);
             updateChunkCache(dto);
+            updateIncrementalHash(dto);
             ChunkProgressInfo progressInfo = calculateChunkProgress(dto.getFileId(), algorithm);
+            writeBehindService.taskProgress(taskId, progressInfo.progress);
             logChunkUploadSuccess(taskId, dto, rtt, algorithm, progressInfo);
-            return buildSuccessResponse(dto, rtt, propagationRttMs, algorithm, progressInfo);
+            return buildSuccessResponse(taskId, dto, rtt, propagationRttMs, algorithm, progressInfo);
         } catch (IOException e) {
             return handleUploadFailure(taskId, dto, algorithm, chunkKey, e);
         }
     }
     
+    /**
+     * 分片大小（multipart 取文件大小，原始请求体取 Content-Length）
+     */
+    private long getChunkLength(ChunkUploadDTO dto) {
+        if (dto.getFile() != null) {
+            return dto.getFile().getSize();
+        }
+        return dto.getContentLength() != null ? dto.getContentLength() : 0L;
+    }
+    
+    /**
+     * 校验分片哈希
+     * 与写入时计算的MD5比对，不一致说明分片在传输中损坏，按上传失败处理（计入丢包并要求重传该分片）
+     *
+     * @param dto        分片上传DTO
+     * @param actualHash 写入时计算的MD5
+     * @throws IOException 校验失败
+     */
+    private void verifyChunkHash(ChunkUploadDTO dto, String actualHash) throws IOException {
+        String expected = dto.getChunkHash();
+        if (expected == null || !MD5_HEX.matcher(expected).matches() || expected.equalsIgnoreCase(actualHash)) {
+            return;
+        }
+        // 旧版客户端以整文件MD5作为分片哈希占位，仅在不一致时才查询，正常分片不多一次数据库访问
+        FileInfo fileInfo = fileInfoMapper.selectById(dto.getFileId());
+        if (fileInfo != null && expected.equalsIgnoreCase(fileInfo.getFileHash())) {
+            return;
+        }
+        throw new IOException(String.format("分片校验失败: chunk_%d, 期望: %s, 实际: %s",
+                dto.getChunkNumber(), expected, actualHash));
+    }
+    
     /**
      * 处理客户端重试导致的丢包统计
-     * 将重试次数转换为丢包事件，通知拥塞控制算法
+     * 将重试次数转换为丢包事件，通知拥塞控制算法，并计入任务、用户的监测器和全局汇总（与下载一致）
      */
-    private void handleRetryLossStatistics(ChunkUploadDTO dto, CongestionControlAlgorithm algorithm) {
+    private void handleRetryLossStatistics(String taskId, ChunkUploadDTO dto, CongestionControlAlgorithm algorithm) {
         Integer retryCount = dto.getClientRetryCount();
         if (retryCount == null || retryCount <= 0 || algorithm == null) {
             return;
         }
         
         int cappedRetry = Math.min(retryCount, CongestionClientMetricsConstants.RETRY_COUNT_CAP);
-        long chunkSize = dto.getFile().getSize();
+        long chunkSize = getChunkLength(dto);
         
         for (int i = 0; i < cappedRetry; i++) {
             algorithm.onLoss(chunkSize);
+            algorithmManager.recordLoss(taskId, chunkSize);
         }
         
         if (shouldLogChunk(dto.getChunkNumber(), -1, -1)) {
@@ -383,7 +618,8 @@ public class FileUploadServiceImpl implements FileUploadService {
      */
     private Long updateCongestionControlOnAck(String taskId, ChunkUploadDTO dto,
             CongestionControlAlgorithm algorithm, long chunkSize, long rtt) {
-        bandwidthEstimator.recordSent(chunkSize);
+        // 交付数据只写入本任务、本用户的监测器和全局汇总，不影响其他用户看到的带宽
+        algorithmManager.recordDelivered(taskId, chunkSize, rtt);
         
         if (algorithm == null) {
             return null;
@@ -393,13 +629,11 @@ public class FileUploadServiceImpl implements FileUploadService {
         Long propagationRttMs = getPropagationRtt();
         
         // 设置自适应算法的总分片数
-        if (algorithm instanceof AdaptiveAlgorithm) {
-            int totalChunks = fileIdToTotalChunks.getOrDefault(dto.getFileId(), 0);
-            ((AdaptiveAlgorithm) algorithm).setTotalChunks(totalChunks);
-        }
+        algorithm.setTotalChunks(getTotalChunks(dto.getFileId()));
         
         // 通知算法收到ACK
         algorithm.onAck(chunkSize, rtt, propagationRttMs);
+        fairShareService.onDelivered(TransferDirection.UPLOAD, taskId, chunkSize);
         
         if (shouldLogChunk(dto.getChunkNumber(), -1, -1)) {
             log.debug("拥塞控制ACK - 任务{}, 分片{}, 算法{}, RTT{}ms, cwnd{}字节",
@@ -428,28 +662,23 @@ public class FileUploadServiceImpl implements FileUploadService {
     }
     
     /**
-     * 更新分片数据库记录
-     */
-    private void updateChunkDatabaseRecord(ChunkUploadDTO dto, long chunkSize) {
-        FileChunk chunk = fileChunkMapper.selectByFileIdAndChunkNumber(
-                dto.getFileId(), dto.getChunkNumber());
-        
-        if (chunk != null) {
-            chunk.setChunkHash(dto.getChunkHash());
-            chunk.setUploadStatus("COMPLETED");
-            fileChunkMapper.updateById(chunk);
-        } else {
-            log.warn("分片记录不存在，创建新记录 - 文件ID: {}, 分片: {}", 
-                    dto.getFileId(), dto.getChunkNumber());
-            chunk = FileChunk.builder()
-                    .fileId(dto.getFileId())
-                    .chunkNumber(dto.getChunkNumber())
-                    .chunkSize(chunkSize)
-                    .chunkHash(dto.getChunkHash())
-                    .uploadStatus("COMPLETED")
-                    .createTime(LocalDateTime.now())
-                    .build();
-            fileChunkMapper.insert(chunk);
+     * 更新分片记录：先追加磁盘分片日志（崩溃恢复依据），再交给写回服务在 file_info 的位图中置位，
+     * 写入时计算的MD5先缓存在 Redis，合并时批量写入 file_chunk，用于定位损坏的分片
+     */
+    private void updateChunkRecord(ChunkUploadDTO dto, int totalChunks, String actualHash) {
+        try {
+            storageService.appendChunkJournal(dto.getFileId(), dto.getChunkNumber(), actualHash);
+        } catch (IOException e) {
+            // 日志缺失只会让崩溃恢复时多重传该分片
+            log.warn("追加分片日志失败 - 文件{}, 分片{}, 错误: {}",
+                    dto.getFileId(), dto.getChunkNumber(), e.getMessage());
+        }
+        writeBehindService.chunkCompleted(dto.getFileId(), totalChunks, dto.getChunkNumber());
+        try {
+            uploadCacheService.cacheChunkHash(dto.getFileId(), dto.getChunkNumber(), actualHash);
+        } catch (Exception e) {
+            log.warn("缓存分片哈希失败 - 文件{}, 分片{}, 错误: {}",
+                    dto.getFileId(), dto.getChunkNumber(), e.getMessage());
         }
     }
     
@@ -468,6 +697,22 @@ public class FileUploadServiceImpl implements FileUploadService {
         }
     }
     
+    /**
+     * 推进整文件哈希：树哈希模式提交叶子计算，否则推进增量MD5（失败不影响分片上传，合并时会补算或回退为全量校验）
+     */
+    private void updateIncrementalHash(ChunkUploadDTO dto) {
+        try {
+            if (treeHashService.isTreeHashed(dto.getFileId())) {
+                treeHashService.onChunkLanded(dto.getFileId(), dto.getChunkNumber());
+                return;
+            }
+            incrementalHashService.onChunkLanded(dto.getFileId(), dto.getChunkNumber());
+        } catch (Exception e) {
+            log.warn("增量MD5推进失败 - 文件{}, 分片{}, 错误: {}",
+                    dto.getFileId(), dto.getChunkNumber(), e.getMessage());
+        }
+    }
+    
     /**
      * 分片进度信息
      */
@@ -479,25 +724,24 @@ public class FileUploadServiceImpl implements FileUploadService {
     }
     
     /**
-     * 计算分片上传进度
+     * 计算分片上传进度（Redis BITCOUNT，不再查询全部分片记录）
      */
     private ChunkProgressInfo calculateChunkProgress(Long fileId, CongestionControlAlgorithm algorithm) {
-        QueryWrapper<FileChunk> queryWrapper = new QueryWrapper<>();
-        queryWrapper.eq("file_id", fileId);
-        List<FileChunk> allChunks = fileChunkMapper.selectList(queryWrapper);
-        
         ChunkProgressInfo info = new ChunkProgressInfo();
-        info.totalChunks = allChunks.size();
-        info.completedChunks = allChunks.stream()
-                .filter(c -> "COMPLETED".equals(c.getUploadStatus()))
-                .count();
+        info.totalChunks = getTotalChunks(fileId);
+        try {
+            info.completedChunks = uploadCacheService.countUploadedChunks(fileId);
+        } catch (Exception e) {
+            log.warn("统计已上传分片失败，改为读取数据库位图 - 文件{}, 错误: {}", fileId, e.getMessage());
+            info.completedChunks = ChunkBitmap.count(fileInfoMapper.selectChunkBitmap(fileId), info.totalChunks);
+        }
         info.progress = info.totalChunks > 0 
                 ? (double) info.completedChunks / info.totalChunks * 100 : 0;
         info.cwnd = algorithm != null ? algorithm.getCwnd() : 5 * 1024 * 1024;
         
         // 更新自适应算法的总分片数
-        if (algorithm instanceof AdaptiveAlgorithm && info.totalChunks > 0) {
-            ((AdaptiveAlgorithm) algorithm).setTotalChunks(info.totalChunks);
+        if (algorithm != null && info.totalChunks > 0) {
+            algorithm.setTotalChunks(info.totalChunks);
         }
         
         return info;
@@ -518,9 +762,10 @@ public class FileUploadServiceImpl implements FileUploadService {
     /**
      * 构建上传成功响应
      */
-    private ChunkUploadVO buildSuccessResponse(ChunkUploadDTO dto, long rtt, Long propagationRttMs,
+    private ChunkUploadVO buildSuccessResponse(String taskId, ChunkUploadDTO dto, long rtt, Long propagationRttMs,
             CongestionControlAlgorithm algorithm, ChunkProgressInfo progressInfo) {
-        long rateBps = algorithm != null ? algorithm.getRate() : 0L;
+        // 多个任务竞争带宽时，速率和窗口不超过该任务的公平份额
+        long rateBps = algorithm != null ? fairShareService.clampRate(taskId, algorithm.getRate()) : 0L;
         Long propagationRttOneWay = propagationRttMs != null ? propagationRttMs / 2 : null;
         
         return ChunkUploadVO.builder()
@@ -530,7 +775,7 @@ public class FileUploadServiceImpl implements FileUploadService {
                 .completedChunks((int) progressInfo.completedChunks)
                 .totalChunks(progressInfo.totalChunks)
                 .progress(progressInfo.progress)
-                .cwnd(progressInfo.cwnd)
+                .cwnd(fairShareService.clampCwnd(taskId, progressInfo.cwnd, rtt))
                 .rtt(rtt)
                 .rate(rateBps > 0 ? rateBps : null)
                 .propagationRtt(propagationRttOneWay)
@@ -540,17 +785,19 @@ public class FileUploadServiceImpl implements FileUploadService {
     
     /**
      * 处理分片上传失败
-     * 通知拥塞控制算法发生丢包，并返回失败响应
+     * 通知拥塞控制算法发生丢包，将分片标记为待重传，并返回失败响应
      */
     private ChunkUploadVO handleUploadFailure(String taskId, ChunkUploadDTO dto,
             CongestionControlAlgorithm algorithm, String chunkKey, IOException e) {
         log.error("分片上传失败 - 任务{}, 文件{}, 分片{}, 错误: {}",
                 taskId, dto.getFileId(), dto.getChunkNumber(), e.getMessage());
         
-        long chunkSize = dto.getFile().getSize();
+        long chunkSize = getChunkLength(dto);
         chunkStartTimes.remove(chunkKey);
+        markChunkSuspect(dto);
         
         // 通知拥塞控制算法发生丢包
+        algorithmManager.recordLoss(taskId, chunkSize);
         if (algorithm != null) {
             algorithm.onLoss(chunkSize);
             log.warn("拥塞控制丢包 - 任务{}, 算法{}, 分片大小{}字节, cwnd{}字节",
@@ -571,6 +818,39 @@ public class FileUploadServiceImpl implements FileUploadService {
                 .build();
     }
     
+    /**
+     * 将分片标记为待重传
+     * 失败的写入可能已覆盖该分片此前的完整数据，因此即使之前上传成功也要取消已上传标记
+     */
+    private void markChunkSuspect(ChunkUploadDTO dto) {
+        try {
+            int totalChunks = getTotalChunks(dto.getFileId());
+            if (dto.getChunkNumber() >= 0 && dto.getChunkNumber() < totalChunks) {
+                storageService.appendChunkJournal(dto.getFileId(), dto.getChunkNumber(), null);
+                writeBehindService.chunkReverted(dto.getFileId(), totalChunks, dto.getChunkNumber());
+                treeHashService.invalidateChunk(dto.getFileId(), dto.getChunkNumber());
+            }
+            uploadCacheService.unmarkChunkUploaded(dto.getFileId(), dto.getChunkNumber());
+        } catch (Exception e) {
+            log.warn("标记分片待重传失败 - 文件{}, 分片{}, 错误: {}",
+                    dto.getFileId(), dto.getChunkNumber(), e.getMessage());
+        }
+    }
+    
+    /**
+     * 获取任务ID（优先本地缓存，服务重启等缓存缺失时走数据库）
+     *
+     * @param fileId 文件ID
+     * @return 任务ID
+     */
+    private String getCachedTaskId(Long fileId) {
+        try {
+            return fileIdToTaskId.get(fileId, () -> getOrCreateTaskId(fileId));
+        } catch (ExecutionException e) {
+            throw new RuntimeException("获取任务ID失败: " + e.getCause().getMessage(), e.getCause());
+        }
+    }
+    
     /**
      * 获取或创建任务ID（同一 fileId 只复用一条未完成任务，避免重试时出现两条记录）
      * 若该文件已有未完成任务（PENDING/PROCESSING/PAUSED/FAILED），复用并置为 PROCESSING；否则创建新任务。
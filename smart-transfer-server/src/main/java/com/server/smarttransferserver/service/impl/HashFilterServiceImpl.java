@@ -0,0 +1,431 @@
+package com.server.smarttransferserver.service.impl;
+
+import com.google.common.hash.BloomFilter;
+import com.google.common.hash.Funnel;
+import com.google.common.hash.Funnels;
+import com.server.smarttransferserver.entity.FileInfo;
+import com.server.smarttransferserver.mapper.FileInfoMapper;
+import com.server.smarttransferserver.service.HashFilterService;
+import com.server.smarttransferserver.service.RedisService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 文件哈希过滤器服务实现
+ * 1. 构建：按主键游标分页读取 file_info 的 file_hash（包含回收站中的记录，还原时无需回填），
+ *    构建完成后把过滤器序列化为快照写入 Redis，代号（generation）取构建时间戳
+ * 2. 同步：后台线程每 sync-interval-ms 检查 Redis 中的代号，代号变化时加载快照，
+ *    并合并其他节点新增的哈希（按代号保存的增量集合，同时读取上一代的增量，覆盖切换代号期间的新增）
+ * 3. 重建：快照超过 rebuild-interval-minutes，或物理删除的记录数超过元素数的 stale-ratio 时，
+ *    由取得 Redis 锁的节点重建，清除已删除的哈希
+ * 过滤器只用于跳过"一定不存在"的查询：未就绪或与 Redis 同步中断时一律回退到查数据库
+ * 哈希统一转小写（MySQL 默认排序规则比较时不区分大小写）
+ */
+@Slf4j
+@Service
+public class HashFilterServiceImpl implements HashFilterService {
+
+    /** 当前代号 */
+    private static final String GENERATION_KEY = "filter:hash:generation";
+
+    /** 快照前缀，后接代号 */
+    private static final String SNAPSHOT_PREFIX = "filter:hash:snapshot:";
+
+    /** 增量集合前缀，后接代号 */
+    private static final String DELTA_PREFIX = "filter:hash:delta:";
+
+    /** 上次重建后物理删除的记录数 */
+    private static final String STALE_KEY = "filter:hash:stale";
+
+    /** 重建锁 */
+    private static final String REBUILD_LOCK_KEY = "lock:hashfilter:rebuild";
+
+    private static final long REBUILD_LOCK_MINUTES = 30;
+
+    private static final Funnel<CharSequence> FUNNEL = Funnels.stringFunnel(StandardCharsets.UTF_8);
+
+    @Autowired
+    private FileInfoMapper fileInfoMapper;
+
+    @Autowired
+    private RedisService redisService;
+
+    @Value("${transfer.hash-filter.enabled:true}")
+    private boolean enabled;
+
+    /** 预期元素数下限，实际按记录数的2倍与该值取大 */
+    @Value("${transfer.hash-filter.expected-insertions:1000000}")
+    private long expectedInsertions;
+
+    /** 预期误判率 */
+    @Value("${transfer.hash-filter.fpp:0.01}")
+    private double fpp;
+
+    /** 定期重建间隔（分钟） */
+    @Value("${transfer.hash-filter.rebuild-interval-minutes:360}")
+    private long rebuildIntervalMinutes;
+
+    /** 物理删除的记录数超过元素数的该比例时提前重建 */
+    @Value("${transfer.hash-filter.stale-ratio:0.2}")
+    private double staleRatio;
+
+    /** 与 Redis 同步的间隔（毫秒） */
+    @Value("${transfer.hash-filter.sync-interval-ms:5000}")
+    private long syncIntervalMs;
+
+    /** 构建时每页读取的记录数 */
+    @Value("${transfer.hash-filter.scan-batch-size:5000}")
+    private int scanBatchSize;
+
+    /** 当前过滤器，未就绪时为null */
+    private volatile BloomFilter<CharSequence> filter;
+
+    /** 正在构建的过滤器，构建期间的新增同时写入 */
+    private BloomFilter<CharSequence> building;
+
+    /** 过滤器就绪前的新增，安装过滤器时补入 */
+    private final List<String> pendingAdds = new ArrayList<>();
+
+    /** 安装/构建过滤器与新增互斥（新增只发生在创建文件记录时，频率很低） */
+    private final Object installLock = new Object();
+
+    private volatile long generation;
+    private volatile long previousGeneration;
+
+    /** 已合并的增量集合大小，只在同步线程中读写 */
+    private long appliedDelta;
+    private long appliedPreviousDelta;
+
+    private volatile long lastSyncMillis;
+    private volatile long lastRebuildRows;
+    private volatile long lastRebuildCostMs;
+    private volatile int snapshotBytes;
+
+    private final AtomicLong queries = new AtomicLong();
+    private final AtomicLong negatives = new AtomicLong();
+    private final AtomicLong falsePositives = new AtomicLong();
+
+    private final String nodeId = UUID.randomUUID().toString();
+
+    private volatile boolean running = true;
+    private Thread syncThread;
+
+    @PostConstruct
+    public void startSyncThread() {
+        if (!enabled) {
+            log.info("文件哈希过滤器未启用，秒传检查直接查询数据库");
+            return;
+        }
+        syncThread = new Thread(this::syncLoop, "hash-filter-sync");
+        syncThread.setDaemon(true);
+        syncThread.start();
+    }
+
+    @PreDestroy
+    public void stopSyncThread() {
+        running = false;
+        if (syncThread != null) {
+            syncThread.interrupt();
+        }
+    }
+
+    @Override
+    public boolean mightExist(String fileHash) {
+        BloomFilter<CharSequence> current = filter;
+        if (!enabled || fileHash == null || current == null || !isSynced()) {
+            return true;
+        }
+        queries.incrementAndGet();
+        if (current.mightContain(normalize(fileHash))) {
+            return true;
+        }
+        negatives.incrementAndGet();
+        return false;
+    }
+
+    @Override
+    public void recordMiss() {
+        if (enabled && filter != null) {
+            falsePositives.incrementAndGet();
+        }
+    }
+
+    @Override
+    public void add(String fileHash) {
+        if (!enabled || fileHash == null) {
+            return;
+        }
+        String key = normalize(fileHash);
+        long gen;
+        synchronized (installLock) {
+            if (filter != null) {
+                filter.put(key);
+            } else {
+                pendingAdds.add(key);
+            }
+            if (building != null) {
+                building.put(key);
+            }
+            gen = generation;
+        }
+        if (gen == 0) {
+            return;
+        }
+        try {
+            String deltaKey = DELTA_PREFIX + gen;
+            redisService.sAdd(deltaKey, key);
+            redisService.expire(deltaKey, snapshotTtlMinutes(), TimeUnit.MINUTES);
+        } catch (Exception e) {
+            log.warn("文件哈希写入共享增量失败 - hash: {}, 错误: {}", key, e.getMessage());
+        }
+    }
+
+    @Override
+    public void onRemoved(int count) {
+        if (!enabled || count <= 0) {
+            return;
+        }
+        try {
+            redisService.increment(STALE_KEY, count);
+        } catch (Exception e) {
+            log.warn("记录已删除文件哈希数失败: {}", e.getMessage());
+        }
+    }
+
+    @Override
+    public Map<String, Object> getStats() {
+        BloomFilter<CharSequence> current = filter;
+        long negativeCount = negatives.get();
+        long falsePositiveCount = falsePositives.get();
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("ready", current != null);
+        stats.put("synced", current != null && isSynced());
+        stats.put("generation", generation);
+        stats.put("approximateElements", current != null ? current.approximateElementCount() : 0);
+        stats.put("expectedFpp", current != null ? current.expectedFpp() : 0);
+        stats.put("snapshotBytes", snapshotBytes);
+        stats.put("queries", queries.get());
+        stats.put("skippedQueries", negativeCount);
+        stats.put("falsePositives", falsePositiveCount);
+        // 误判率 = 误判数 / (误判数 + 判定不存在数)
+        long negativeTotal = falsePositiveCount + negativeCount;
+        stats.put("observedFpp", negativeTotal > 0 ? (double) falsePositiveCount / negativeTotal : 0);
+        stats.put("lastRebuildRows", lastRebuildRows);
+        stats.put("lastRebuildCostMs", lastRebuildCostMs);
+        return stats;
+    }
+
+    private void syncLoop() {
+        while (running) {
+            try {
+                syncOnce();
+            } catch (Exception e) {
+                log.warn("文件哈希过滤器同步失败: {}", e.getMessage());
+            }
+            try {
+                Thread.sleep(syncIntervalMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    /**
+     * 同步一次：加载新代号的快照、合并增量，必要时重建
+     */
+    private void syncOnce() throws IOException {
+        long shared = readGeneration();
+        if (shared == 0 || (shared != generation && !loadSnapshot(shared))) {
+            tryRebuild();
+            return;
+        }
+        appliedDelta = applyDelta(generation, appliedDelta);
+        if (previousGeneration != 0) {
+            appliedPreviousDelta = applyDelta(previousGeneration, appliedPreviousDelta);
+        }
+        lastSyncMillis = System.currentTimeMillis();
+        if (shouldRebuild(shared)) {
+            tryRebuild();
+        }
+    }
+
+    private long readGeneration() {
+        Object value = redisService.get(GENERATION_KEY);
+        return value != null ? Long.parseLong(value.toString()) : 0;
+    }
+
+    /**
+     * 加载指定代号的快照
+     *
+     * @return 快照不存在（已过期）返回false
+     */
+    private boolean loadSnapshot(long gen) throws IOException {
+        byte[] bytes = redisService.getBytes(SNAPSHOT_PREFIX + gen);
+        if (bytes == null) {
+            return false;
+        }
+        BloomFilter<CharSequence> loaded = BloomFilter.readFrom(new ByteArrayInputStream(bytes), FUNNEL);
+        snapshotBytes = bytes.length;
+        install(loaded, gen);
+        log.info("已加载文件哈希过滤器快照 - 代号: {}, 元素数: {}, 大小: {}字节",
+                gen, loaded.approximateElementCount(), bytes.length);
+        return true;
+    }
+
+    /**
+     * 合并增量集合中的新哈希
+     *
+     * @param gen     代号
+     * @param applied 已合并的集合大小
+     * @return 合并后的集合大小
+     */
+    private long applyDelta(long gen, long applied) {
+        Long size = redisService.sSize(DELTA_PREFIX + gen);
+        if (size == null || size <= applied) {
+            return applied;
+        }
+        Set<Object> members = redisService.sMembers(DELTA_PREFIX + gen);
+        synchronized (installLock) {
+            for (Object member : members) {
+                filter.put(member.toString());
+                if (building != null) {
+                    building.put(member.toString());
+                }
+            }
+        }
+        return members.size();
+    }
+
+    private boolean shouldRebuild(long shared) {
+        long ageMillis = System.currentTimeMillis() - shared;
+        if (ageMillis >= TimeUnit.MINUTES.toMillis(rebuildIntervalMinutes)) {
+            return true;
+        }
+        Object stale = redisService.get(STALE_KEY);
+        BloomFilter<CharSequence> current = filter;
+        return stale != null && current != null
+                && Long.parseLong(stale.toString()) > current.approximateElementCount() * staleRatio;
+    }
+
+    private void tryRebuild() throws IOException {
+        if (!redisService.tryLock(REBUILD_LOCK_KEY, nodeId, REBUILD_LOCK_MINUTES, TimeUnit.MINUTES)) {
+            return;
+        }
+        try {
+            rebuild();
+        } finally {
+            redisService.releaseLock(REBUILD_LOCK_KEY, nodeId);
+        }
+    }
+
+    /**
+     * 从数据库重建过滤器并发布到 Redis
+     */
+    private void rebuild() throws IOException {
+        long start = System.currentTimeMillis();
+        long oldGeneration = readGeneration();
+        Long rows = fileInfoMapper.countHashes();
+        long expected = Math.max(expectedInsertions, (rows != null ? rows : 0) * 2);
+        BloomFilter<CharSequence> rebuilt = BloomFilter.create(FUNNEL, expected, fpp);
+        synchronized (installLock) {
+            building = rebuilt;
+        }
+        long scanned = 0;
+        long lastId = 0;
+        try {
+            while (running) {
+                List<FileInfo> page = fileInfoMapper.selectHashesAfter(lastId, scanBatchSize);
+                for (FileInfo file : page) {
+                    rebuilt.put(normalize(file.getFileHash()));
+                }
+                scanned += page.size();
+                if (page.size() < scanBatchSize) {
+                    break;
+                }
+                lastId = page.get(page.size() - 1).getId();
+            }
+            // 扫描期间其他节点新增、尚未提交的记录
+            if (oldGeneration != 0) {
+                Set<Object> delta = redisService.sMembers(DELTA_PREFIX + oldGeneration);
+                synchronized (installLock) {
+                    for (Object member : delta) {
+                        rebuilt.put(member.toString());
+                    }
+                }
+            }
+            long newGeneration = Math.max(System.currentTimeMillis(), oldGeneration + 1);
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            rebuilt.writeTo(out);
+            byte[] bytes = out.toByteArray();
+            redisService.setBytes(SNAPSHOT_PREFIX + newGeneration, bytes, snapshotTtlMinutes(), TimeUnit.MINUTES);
+            redisService.set(GENERATION_KEY, newGeneration);
+            redisService.delete(STALE_KEY);
+            snapshotBytes = bytes.length;
+            install(rebuilt, newGeneration);
+            lastSyncMillis = System.currentTimeMillis();
+        } finally {
+            synchronized (installLock) {
+                building = null;
+            }
+        }
+        lastRebuildRows = scanned;
+        lastRebuildCostMs = System.currentTimeMillis() - start;
+        log.info("文件哈希过滤器重建完成 - 代号: {}, 记录数: {}, 预期元素数: {}, 耗时: {}ms, 快照大小: {}字节",
+                generation, scanned, expected, lastRebuildCostMs, snapshotBytes);
+    }
+
+    /**
+     * 安装过滤器，补入就绪前的新增
+     */
+    private void install(BloomFilter<CharSequence> installed, long gen) {
+        synchronized (installLock) {
+            for (String key : pendingAdds) {
+                installed.put(key);
+            }
+            pendingAdds.clear();
+            previousGeneration = generation;
+            appliedPreviousDelta = appliedDelta;
+            appliedDelta = 0;
+            generation = gen;
+            filter = installed;
+        }
+    }
+
+    /**
+     * 超过3个同步间隔未与 Redis 同步时，其他节点的新增可能缺失，不再信任"不存在"的判定
+     */
+    private boolean isSynced() {
+        return System.currentTimeMillis() - lastSyncMillis <= syncIntervalMs * 3;
+    }
+
+    /**
+     * 快照和增量的保留时间：两个重建周期再加1小时
+     */
+    private long snapshotTtlMinutes() {
+        return rebuildIntervalMinutes * 2 + 60;
+    }
+
+    private static String normalize(String fileHash) {
+        return fileHash.toLowerCase(Locale.ROOT);
+    }
+}
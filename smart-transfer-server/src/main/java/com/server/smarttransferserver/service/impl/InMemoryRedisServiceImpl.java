@@ -0,0 +1,503 @@
+package com.server.smarttransferserver.service.impl;
+
+import com.server.smarttransferserver.config.RedisConfig;
+import com.server.smarttransferserver.service.RedisService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.redis.serializer.Jackson2JsonRedisSerializer;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * 内存版 Redis 服务（仅 perf 环境）
+ * 性能测试时不依赖外部 Redis，语义与 {@link RedisServiceImpl} 对齐：
+ * 值和 Hash/Set 成员按同一个 JSON 序列化器存成字节（取出的是副本，和真实 Redis 一样不共享对象），
+ * SET 覆盖旧值并清除过期时间，SETBIT/INCR 保留过期时间，锁为 NX + 过期时间、释放时比较值，
+ * 类型不匹配时抛出 WRONGTYPE 异常。
+ * 每个 key 的操作在 ConcurrentHashMap.compute 内完成，单 key 原子；过期 key 访问时惰性删除，另有后台线程定期清理
+ */
+@Slf4j
+@Service
+@Profile("perf")
+public class InMemoryRedisServiceImpl implements RedisService {
+
+    /**
+     * 过期 key 清理间隔（毫秒）
+     */
+    private static final long SWEEP_INTERVAL_MS = 1000;
+
+    private final Jackson2JsonRedisSerializer<Object> serializer = RedisConfig.jsonSerializer();
+
+    private final ConcurrentHashMap<String, Entry> store = new ConcurrentHashMap<>();
+
+    private volatile boolean running = true;
+    private Thread sweepThread;
+
+    @PostConstruct
+    public void startSweepThread() {
+        log.info("perf 环境使用内存版 RedisService，数据不持久化、不跨进程共享");
+        sweepThread = new Thread(this::sweepLoop, "redis-memory-expire");
+        sweepThread.setDaemon(true);
+        sweepThread.start();
+    }
+
+    @PreDestroy
+    public void stopSweepThread() {
+        running = false;
+        if (sweepThread != null) {
+            sweepThread.interrupt();
+        }
+    }
+
+    // ========== String 操作 ==========
+
+    @Override
+    public void set(String key, Object value) {
+        byte[] raw = serialize(value);
+        execute(key, entry -> entry.put(raw, 0));
+    }
+
+    @Override
+    public void set(String key, Object value, long timeout, TimeUnit unit) {
+        byte[] raw = serialize(value);
+        long expireAt = expireAt(timeout, unit);
+        execute(key, entry -> entry.put(raw, expireAt));
+    }
+
+    @Override
+    public Object get(String key) {
+        byte[] raw = execute(key, Entry::string);
+        return raw == null ? null : serializer.deserialize(raw);
+    }
+
+    @Override
+    public Boolean delete(String key) {
+        return execute(key, entry -> {
+            boolean existed = !entry.isEmpty();
+            entry.clear();
+            return existed;
+        });
+    }
+
+    @Override
+    public Long delete(List<String> keys) {
+        long deleted = 0;
+        for (String key : keys) {
+            if (delete(key)) {
+                deleted++;
+            }
+        }
+        return deleted;
+    }
+
+    @Override
+    public Boolean expire(String key, long timeout, TimeUnit unit) {
+        long millis = unit.toMillis(timeout);
+        return execute(key, entry -> {
+            if (entry.isEmpty()) {
+                return false;
+            }
+            if (millis <= 0) {
+                // 与 Redis 一致：过期时间不为正时直接删除
+                entry.clear();
+            } else {
+                entry.expireAt = System.currentTimeMillis() + millis;
+            }
+            return true;
+        });
+    }
+
+    @Override
+    public Boolean hasKey(String key) {
+        return execute(key, entry -> !entry.isEmpty());
+    }
+
+    @Override
+    public Long increment(String key, long delta) {
+        return execute(key, entry -> {
+            byte[] raw = entry.string();
+            long value = raw == null ? 0 : parseLong(raw);
+            value += delta;
+            entry.data = ascii(value);
+            return value;
+        });
+    }
+
+    @Override
+    public Long decrement(String key, long delta) {
+        return increment(key, -delta);
+    }
+
+    // ========== Hash 操作 ==========
+
+    @Override
+    public void hSet(String key, String hashKey, Object value) {
+        byte[] raw = serialize(value);
+        execute(key, entry -> entry.hash(true).put(hashKey, raw));
+    }
+
+    @Override
+    public Object hGet(String key, String hashKey) {
+        byte[] raw = execute(key, entry -> {
+            Map<String, byte[]> hash = entry.hash(false);
+            return hash == null ? null : hash.get(hashKey);
+        });
+        return raw == null ? null : serializer.deserialize(raw);
+    }
+
+    @Override
+    public Long hDelete(String key, Object... hashKeys) {
+        return execute(key, entry -> {
+            Map<String, byte[]> hash = entry.hash(false);
+            long removed = 0;
+            if (hash != null) {
+                for (Object hashKey : hashKeys) {
+                    if (hash.remove((String) hashKey) != null) {
+                        removed++;
+                    }
+                }
+            }
+            return removed;
+        });
+    }
+
+    @Override
+    public Boolean hHasKey(String key, String hashKey) {
+        return execute(key, entry -> {
+            Map<String, byte[]> hash = entry.hash(false);
+            return hash != null && hash.containsKey(hashKey);
+        });
+    }
+
+    @Override
+    public Long hIncrement(String key, String hashKey, long delta) {
+        return execute(key, entry -> {
+            Map<String, byte[]> hash = entry.hash(true);
+            byte[] raw = hash.get(hashKey);
+            long value = (raw == null ? 0 : parseLong(raw)) + delta;
+            hash.put(hashKey, ascii(value));
+            return value;
+        });
+    }
+
+    @Override
+    public Map<Object, Object> hGetAll(String key) {
+        Map<String, byte[]> copy = execute(key, entry -> {
+            Map<String, byte[]> hash = entry.hash(false);
+            return hash == null ? null : new HashMap<>(hash);
+        });
+        Map<Object, Object> result = new LinkedHashMap<>();
+        if (copy != null) {
+            copy.forEach((hashKey, raw) -> result.put(hashKey, serializer.deserialize(raw)));
+        }
+        return result;
+    }
+
+    // ========== Set 操作 ==========
+
+    @Override
+    public Long sAdd(String key, Object... values) {
+        List<ByteBuffer> members = members(values);
+        return execute(key, entry -> {
+            Set<ByteBuffer> set = entry.set(true);
+            long added = 0;
+            for (ByteBuffer member : members) {
+                if (set.add(member)) {
+                    added++;
+                }
+            }
+            return added;
+        });
+    }
+
+    @Override
+    public Set<Object> sMembers(String key) {
+        Set<ByteBuffer> copy = execute(key, entry -> {
+            Set<ByteBuffer> set = entry.set(false);
+            return set == null ? null : new HashSet<>(set);
+        });
+        Set<Object> result = new LinkedHashSet<>();
+        if (copy != null) {
+            for (ByteBuffer member : copy) {
+                result.add(serializer.deserialize(member.array()));
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public Boolean sIsMember(String key, Object value) {
+        ByteBuffer member = ByteBuffer.wrap(serialize(value));
+        return execute(key, entry -> {
+            Set<ByteBuffer> set = entry.set(false);
+            return set != null && set.contains(member);
+        });
+    }
+
+    @Override
+    public Long sRemove(String key, Object... values) {
+        List<ByteBuffer> members = members(values);
+        return execute(key, entry -> {
+            Set<ByteBuffer> set = entry.set(false);
+            long removed = 0;
+            if (set != null) {
+                for (ByteBuffer member : members) {
+                    if (set.remove(member)) {
+                        removed++;
+                    }
+                }
+            }
+            return removed;
+        });
+    }
+
+    @Override
+    public Long sSize(String key) {
+        return execute(key, entry -> {
+            Set<ByteBuffer> set = entry.set(false);
+            return set == null ? 0L : (long) set.size();
+        });
+    }
+
+    // ========== Bitmap 操作 ==========
+
+    @Override
+    public Boolean setBit(String key, long offset, boolean value) {
+        if (offset < 0 || offset >= (long) Integer.MAX_VALUE << 3) {
+            throw new IllegalArgumentException("ERR bit offset is not an integer or out of range");
+        }
+        int index = (int) (offset >>> 3);
+        int mask = 0x80 >>> (int) (offset & 7);
+        return execute(key, entry -> {
+            byte[] bitmap = entry.string();
+            if (bitmap == null) {
+                bitmap = new byte[index + 1];
+            } else if (bitmap.length <= index) {
+                bitmap = Arrays.copyOf(bitmap, index + 1);
+            }
+            boolean previous = (bitmap[index] & mask) != 0;
+            if (value) {
+                bitmap[index] |= mask;
+            } else {
+                bitmap[index] &= ~mask;
+            }
+            entry.data = bitmap;
+            return previous;
+        });
+    }
+
+    @Override
+    public Long bitCount(String key) {
+        return execute(key, entry -> {
+            byte[] bitmap = entry.string();
+            long count = 0;
+            if (bitmap != null) {
+                for (byte b : bitmap) {
+                    count += Integer.bitCount(b & 0xff);
+                }
+            }
+            return count;
+        });
+    }
+
+    @Override
+    public byte[] getBytes(String key) {
+        return execute(key, entry -> {
+            byte[] raw = entry.string();
+            return raw == null ? null : raw.clone();
+        });
+    }
+
+    @Override
+    public void setBytes(String key, byte[] value, long timeout, TimeUnit unit) {
+        byte[] raw = value.clone();
+        long expireAt = expireAt(timeout, unit);
+        execute(key, entry -> entry.put(raw, expireAt));
+    }
+
+    // ========== 分布式锁 ==========
+
+    @Override
+    public Boolean tryLock(String key, String value, long timeout, TimeUnit unit) {
+        byte[] raw = serialize(value);
+        long expireAt = expireAt(timeout, unit);
+        Boolean result = execute(key, entry -> {
+            if (!entry.isEmpty()) {
+                return false;
+            }
+            entry.put(raw, expireAt);
+            return true;
+        });
+        log.debug("尝试获取锁 - key: {}, value: {}, result: {}", key, value, result);
+        return result;
+    }
+
+    @Override
+    public Boolean releaseLock(String key, String value) {
+        try {
+            byte[] raw = serialize(value);
+            Boolean result = execute(key, entry -> {
+                if (!Arrays.equals(entry.string(), raw)) {
+                    return false;
+                }
+                entry.clear();
+                return true;
+            });
+            log.debug("释放锁 - key: {}, value: {}, result: {}", key, value, result);
+            return result;
+        } catch (Exception e) {
+            log.error("释放锁失败 - key: {}", key, e);
+            return false;
+        }
+    }
+
+    // ========== 内部实现 ==========
+
+    /**
+     * 在 key 的桶锁内执行命令
+     * 命令拿到的 entry 不为null（key 不存在或已过期时是空 entry），执行后 entry 为空则删除 key
+     */
+    @SuppressWarnings("unchecked")
+    private <T> T execute(String key, Function<Entry, T> command) {
+        Object[] result = new Object[1];
+        store.compute(key, (k, entry) -> {
+            if (entry == null || entry.isExpired(System.currentTimeMillis())) {
+                entry = new Entry();
+            }
+            result[0] = command.apply(entry);
+            return entry.isEmpty() ? null : entry;
+        });
+        return (T) result[0];
+    }
+
+    private void sweepLoop() {
+        while (running) {
+            try {
+                Thread.sleep(SWEEP_INTERVAL_MS);
+                long now = System.currentTimeMillis();
+                for (String key : store.keySet()) {
+                    store.computeIfPresent(key, (k, entry) -> entry.isExpired(now) ? null : entry);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                log.warn("清理过期 key 失败: {}", e.getMessage());
+            }
+        }
+    }
+
+    private byte[] serialize(Object value) {
+        return serializer.serialize(value);
+    }
+
+    private List<ByteBuffer> members(Object... values) {
+        ByteBuffer[] members = new ByteBuffer[values.length];
+        for (int i = 0; i < values.length; i++) {
+            members[i] = ByteBuffer.wrap(serialize(values[i]));
+        }
+        return Arrays.asList(members);
+    }
+
+    private static long expireAt(long timeout, TimeUnit unit) {
+        return System.currentTimeMillis() + unit.toMillis(timeout);
+    }
+
+    /**
+     * INCR/HINCRBY 把值当作十进制 ASCII 数字（JSON 序列化的整数正好是这种格式）
+     */
+    private static long parseLong(byte[] raw) {
+        try {
+            return Long.parseLong(new String(raw, StandardCharsets.US_ASCII));
+        } catch (NumberFormatException e) {
+            throw new IllegalStateException("ERR value is not an integer or out of range");
+        }
+    }
+
+    private static byte[] ascii(long value) {
+        return Long.toString(value).getBytes(StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * 一个 key 的值：data 为 byte[]（String/Bitmap）、Map（Hash）或 Set（Set）
+     * 只在 ConcurrentHashMap.compute 内读写
+     */
+    private static final class Entry {
+        private Object data;
+        /** 过期时刻（毫秒），0 表示不过期 */
+        private long expireAt;
+
+        private boolean isExpired(long now) {
+            return expireAt > 0 && expireAt <= now;
+        }
+
+        private boolean isEmpty() {
+            if (data instanceof Map) {
+                return ((Map<?, ?>) data).isEmpty();
+            }
+            if (data instanceof Set) {
+                return ((Set<?>) data).isEmpty();
+            }
+            return data == null;
+        }
+
+        private Void put(byte[] value, long expireAt) {
+            this.data = value;
+            this.expireAt = expireAt;
+            return null;
+        }
+
+        private void clear() {
+            data = null;
+            expireAt = 0;
+        }
+
+        private byte[] string() {
+            if (data == null || data instanceof byte[]) {
+                return (byte[]) data;
+            }
+            throw wrongType();
+        }
+
+        @SuppressWarnings("unchecked")
+        private Map<String, byte[]> hash(boolean create) {
+            if (data == null && create) {
+                data = new HashMap<String, byte[]>();
+            }
+            if (data == null || data instanceof Map) {
+                return (Map<String, byte[]>) data;
+            }
+            throw wrongType();
+        }
+
+        @SuppressWarnings("unchecked")
+        private Set<ByteBuffer> set(boolean create) {
+            if (data == null && create) {
+                data = new HashSet<ByteBuffer>();
+            }
+            if (data == null || data instanceof Set) {
+                return (Set<ByteBuffer>) data;
+            }
+            throw wrongType();
+        }
+
+        private static IllegalStateException wrongType() {
+            return new IllegalStateException("WRONGTYPE Operation against a key holding the wrong kind of value");
+        }
+    }
+}
@@ -0,0 +1,232 @@
+package com.server.smarttransferserver.service.impl;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.server.smarttransferserver.service.FileUploadCacheService;
+import com.server.smarttransferserver.service.IFileStorageService;
+import com.server.smarttransferserver.service.IncrementalHashService;
+import com.server.smarttransferserver.util.IncrementalMd5;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.BitSet;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 增量哈希服务实现
+ *
+ * 每个上传维护一个可导出状态的MD5和连续前缀游标（cursor）：
+ * 1. 分片 cursor 到达时立即纳入摘要，并继续追赶已乱序到达的 cursor+1、cursor+2...（从磁盘回读，刚写入的数据通常仍在页缓存中）
+ * 2. 每次推进后将 "游标;MD5状态" 写入 Redis（file:md5:{fileId}），服务重启或断点续传时从断点继续
+ * 3. 同一文件的并发分片只由一个线程推进摘要，其他线程只登记到达情况，不阻塞上传
+ */
+@Slf4j
+@Service
+public class IncrementalHashServiceImpl implements IncrementalHashService {
+
+    @Autowired
+    private IFileStorageService storageService;
+
+    @Autowired
+    private FileUploadCacheService uploadCacheService;
+
+    /**
+     * 回读分片时的缓冲大小
+     */
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * 各上传的增量哈希状态，长时间未访问（放弃的上传）自动淘汰，Redis 中的断点仍保留
+     */
+    private final Cache<Long, HashState> states = CacheBuilder.newBuilder()
+            .expireAfterAccess(24, TimeUnit.HOURS)
+            .build();
+
+    @Override
+    public void onChunkLanded(Long fileId, Integer chunkNumber) {
+        HashState state = getState(fileId);
+        if (state == null) {
+            return;
+        }
+        synchronized (state.landed) {
+            state.landed.set(chunkNumber);
+        }
+
+        while (true) {
+            // 其他线程正在推进摘要，由其负责追赶本分片
+            if (!state.lock.tryLock()) {
+                return;
+            }
+            boolean advanced;
+            try {
+                advanced = advance(fileId, state, Integer.MAX_VALUE, false);
+            } finally {
+                state.lock.unlock();
+            }
+            if (!advanced) {
+                return;
+            }
+            // 释放锁前后可能有分片刚好到达而 tryLock 失败，需要再检查一次
+            if (!state.isLanded(state.cursor)) {
+                return;
+            }
+        }
+    }
+
+    @Override
+    public String finish(Long fileId, int totalChunks) {
+        HashState state = getState(fileId);
+        if (state == null) {
+            return null;
+        }
+        state.lock.lock();
+        try {
+            if (!advance(fileId, state, totalChunks, true)) {
+                return null;
+            }
+            String md5 = state.md5.hexDigest();
+            log.info("增量MD5完成 - 文件ID: {}, 分片数: {}, 字节数: {}, MD5: {}",
+                    fileId, totalChunks, state.md5.getByteCount(), md5);
+            return md5;
+        } finally {
+            state.lock.unlock();
+        }
+    }
+
+    @Override
+    public void clear(Long fileId) {
+        states.invalidate(fileId);
+        try {
+            uploadCacheService.deleteHashState(fileId);
+        } catch (Exception e) {
+            log.warn("删除增量MD5状态失败 - 文件ID: {}, 错误: {}", fileId, e.getMessage());
+        }
+    }
+
+    /**
+     * 推进摘要（调用方需持有 state.lock）
+     *
+     * @param fileId 文件ID
+     * @param limit  推进上限（不含）
+     * @param force  true 时不检查分片是否已登记到达（合并时所有分片均已完成）
+     * @return 是否成功
+     */
+    private boolean advance(Long fileId, HashState state, int limit, boolean force) {
+        int start = state.cursor;
+        byte[] buffer = null;
+        try {
+            while (state.cursor < limit && (force || state.isLanded(state.cursor))) {
+                if (buffer == null) {
+                    buffer = new byte[READ_BUFFER_SIZE];
+                }
+                hashChunk(fileId, state.cursor, state.md5, buffer);
+                state.cursor++;
+            }
+            if (state.cursor > start) {
+                checkpoint(fileId, state);
+            }
+            return true;
+        } catch (IOException e) {
+            // 摘要中已混入不完整的分片数据，丢弃本地与 Redis 中的状态，合并时会回退为全量校验
+            log.error("增量MD5计算失败 - 文件ID: {}, 分片: {}, 错误: {}", fileId, state.cursor, e.getMessage());
+            clear(fileId);
+            return false;
+        }
+    }
+
+    /**
+     * 将分片数据纳入摘要
+     */
+    private void hashChunk(Long fileId, int chunkNumber, IncrementalMd5 md5, byte[] buffer) throws IOException {
+        try (InputStream is = storageService.openChunkStream(fileId, chunkNumber)) {
+            int n;
+            while ((n = is.read(buffer)) != -1) {
+                md5.update(buffer, 0, n);
+            }
+        }
+    }
+
+    /**
+     * 保存断点到 Redis：格式 "游标;MD5状态"
+     */
+    private void checkpoint(Long fileId, HashState state) {
+        try {
+            uploadCacheService.cacheHashState(fileId, state.cursor + ";" + state.md5.exportState());
+        } catch (Exception e) {
+            log.warn("保存增量MD5断点失败 - 文件ID: {}, 错误: {}", fileId, e.getMessage());
+        }
+    }
+
+    /**
+     * 获取上传的哈希状态，本地不存在时从 Redis 断点恢复
+     */
+    private HashState getState(Long fileId) {
+        try {
+            return states.get(fileId, () -> loadState(fileId));
+        } catch (ExecutionException e) {
+            log.error("加载增量MD5状态失败 - 文件ID: {}, 错误: {}", fileId, e.getMessage());
+            return null;
+        }
+    }
+
+    private HashState loadState(Long fileId) {
+        HashState state = new HashState();
+        try {
+            String saved = uploadCacheService.getHashState(fileId);
+            if (saved != null) {
+                int sep = saved.indexOf(';');
+                state.md5 = IncrementalMd5.restore(saved.substring(sep + 1));
+                state.cursor = Integer.parseInt(saved.substring(0, sep));
+                log.info("从断点恢复增量MD5 - 文件ID: {}, 游标: {}", fileId, state.cursor);
+            }
+            // 服务重启前已到达但尚未纳入摘要的分片
+            Set<Integer> uploaded = uploadCacheService.getUploadedChunks(fileId);
+            for (Integer chunkNumber : uploaded) {
+                state.landed.set(chunkNumber);
+            }
+        } catch (Exception e) {
+            log.warn("读取增量MD5断点失败，从头计算 - 文件ID: {}, 错误: {}", fileId, e.getMessage());
+            state.md5 = new IncrementalMd5();
+            state.cursor = 0;
+        }
+        return state;
+    }
+
+    /**
+     * 单个上传的增量哈希状态
+     */
+    private static class HashState {
+
+        /**
+         * 推进摘要的锁，同一时刻只有一个线程计算
+         */
+        final ReentrantLock lock = new ReentrantLock();
+
+        /**
+         * 已写入存储的分片（以自身为锁）
+         */
+        final BitSet landed = new BitSet();
+
+        /**
+         * 摘要状态，已包含 [0, cursor) 的分片
+         */
+        IncrementalMd5 md5 = new IncrementalMd5();
+
+        /**
+         * 下一个待纳入摘要的分片序号
+         */
+        volatile int cursor;
+
+        boolean isLanded(int chunkNumber) {
+            synchronized (landed) {
+                return landed.get(chunkNumber);
+            }
+        }
+    }
+}
@@ -0,0 +1,294 @@
+package com.server.smarttransferserver.service.impl;
+
+import com.server.smarttransferserver.common.enums.MergeJobState;
+import com.server.smarttransferserver.dto.FileMergeDTO;
+import com.server.smarttransferserver.entity.FileInfo;
+import com.server.smarttransferserver.entity.TransferTask;
+import com.server.smarttransferserver.mapper.FileInfoMapper;
+import com.server.smarttransferserver.mapper.TransferTaskMapper;
+import com.server.smarttransferserver.service.FileMergeService;
+import com.server.smarttransferserver.service.MergeJobService;
+import com.server.smarttransferserver.service.TransferTaskService;
+import com.server.smarttransferserver.util.UserContextHolder;
+import com.server.smarttransferserver.vo.FileMergeVO;
+import com.server.smarttransferserver.vo.MergeJobVO;
+import com.server.smarttransferserver.websocket.MonitorPushService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 合并任务服务实现
+ * 按文件大小分两个有界线程池：
+ * 1. 普通合并（transfer.merge.concurrency 个线程）：小文件校验/拼接很快，多个并行
+ * 2. 大文件合并（transfer.merge.io-concurrency 个线程，默认1）：全量校验、拼接需要顺序读写整个文件，
+ *    同时执行多个只会让磁盘在多个文件间来回寻道，限制并发避免多个用户同时完成大文件上传时拖慢整个服务
+ * 队列满时拒绝提交，由客户端稍后重试
+ */
+@Slf4j
+@Service
+public class MergeJobServiceImpl implements MergeJobService {
+
+    @Autowired
+    private FileMergeService fileMergeService;
+
+    @Autowired
+    private FileInfoMapper fileInfoMapper;
+
+    @Autowired
+    private TransferTaskMapper transferTaskMapper;
+
+    @Autowired
+    private TransferTaskService transferTaskService;
+
+    @Autowired
+    private MonitorPushService monitorPushService;
+
+    /** 普通合并并发数 */
+    @Value("${transfer.merge.concurrency:4}")
+    private int concurrency;
+
+    /** 大文件合并并发数 */
+    @Value("${transfer.merge.io-concurrency:1}")
+    private int ioConcurrency;
+
+    /** 大文件阈值（字节），达到该大小的文件进入大文件合并队列 */
+    @Value("${transfer.merge.large-file-threshold:1073741824}")
+    private long largeFileThreshold;
+
+    /** 每个线程池的排队上限 */
+    @Value("${transfer.merge.queue-capacity:100}")
+    private int queueCapacity;
+
+    /** 已结束任务的保留时间（分钟），过期后不再可查询 */
+    @Value("${transfer.merge.retention-minutes:60}")
+    private long retentionMinutes;
+
+    /** 合并任务，Key: 任务ID */
+    private final Map<String, MergeJob> jobs = new ConcurrentHashMap<>();
+
+    private ThreadPoolExecutor mergeExecutor;
+    private ThreadPoolExecutor ioMergeExecutor;
+
+    @PostConstruct
+    public void init() {
+        mergeExecutor = createExecutor("merge-worker-", concurrency);
+        ioMergeExecutor = createExecutor("merge-io-worker-", ioConcurrency);
+        log.info("合并线程池已启动 - 普通并发: {}, 大文件并发: {}, 大文件阈值: {}字节, 队列上限: {}",
+                concurrency, ioConcurrency, largeFileThreshold, queueCapacity);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        mergeExecutor.shutdown();
+        ioMergeExecutor.shutdown();
+    }
+
+    @Override
+    public MergeJobVO submit(FileMergeDTO dto) {
+        purgeExpiredJobs();
+
+        FileInfo fileInfo = fileInfoMapper.selectById(dto.getFileId());
+        if (fileInfo == null) {
+            throw new RuntimeException("文件不存在");
+        }
+        // 普通用户只能合并自己的文件；管理员可以合并任何用户的文件（与下载一致）
+        if (!canAccess(fileInfo.getUserId())) {
+            log.warn("用户尝试合并其他用户的文件 - 用户ID: {}, 文件ID: {}, 文件所有者: {}",
+                    UserContextHolder.getUserId(), dto.getFileId(), fileInfo.getUserId());
+            throw new RuntimeException("无权合并此文件");
+        }
+        long fileSize = fileInfo.getFileSize() != null ? fileInfo.getFileSize() : 0L;
+        String taskId = resolveTaskId(dto.getFileId());
+
+        // 存储路径按文件所有者隔离，工作线程以所有者的用户上下文执行合并
+        MergeJob job = new MergeJob(taskId, dto, fileSize, fileSize >= largeFileThreshold, fileInfo.getUserId());
+        // 原子地安装：没有任务或上一次已结束时才放入新任务，只有放入成功的线程提交执行
+        MergeJob current = jobs.compute(taskId,
+                (key, existing) -> existing == null || existing.state.isFinished() ? job : existing);
+        if (current != job) {
+            log.info("合并任务已在执行 - 任务ID: {}, 状态: {}", taskId, current.state);
+            return current.toVO();
+        }
+
+        ThreadPoolExecutor executor = job.ioBound ? ioMergeExecutor : mergeExecutor;
+        try {
+            executor.execute(() -> runJob(job));
+        } catch (RejectedExecutionException e) {
+            jobs.remove(taskId, job);
+            log.warn("合并队列已满 - 任务ID: {}, 文件ID: {}, 大文件: {}", taskId, dto.getFileId(), job.ioBound);
+            throw new RuntimeException("合并队列已满，请稍后重试");
+        }
+        log.info("提交合并任务 - 任务ID: {}, 文件ID: {}, 大小: {}字节, 大文件: {}, 排队: {}",
+                taskId, dto.getFileId(), fileSize, job.ioBound, executor.getQueue().size());
+        publish(job);
+        return job.toVO();
+    }
+
+    @Override
+    public CompletableFuture<FileMergeVO> awaitResult(String taskId) {
+        MergeJob job = findJob(taskId);
+        return job != null ? job.future : null;
+    }
+
+    @Override
+    public MergeJobVO getJob(String taskId) {
+        MergeJob job = findJob(taskId);
+        return job != null ? job.toVO() : null;
+    }
+
+    /**
+     * 查找当前用户可见的任务，其他用户的任务按不存在处理（不暴露文件名和路径）
+     */
+    private MergeJob findJob(String taskId) {
+        MergeJob job = jobs.get(taskId);
+        return job != null && canAccess(job.userId) ? job : null;
+    }
+
+    /**
+     * 当前用户是否为所有者或管理员
+     */
+    private static boolean canAccess(Long ownerId) {
+        if ("ADMIN".equals(UserContextHolder.getRole())) {
+            return true;
+        }
+        Long currentUserId = UserContextHolder.getUserId();
+        return currentUserId != null && currentUserId.equals(ownerId);
+    }
+
+    /**
+     * 执行合并（线程池线程）
+     * 存储路径按用户隔离，需要在工作线程恢复提交时的用户上下文
+     */
+    private void runJob(MergeJob job) {
+        UserContextHolder.setUserId(job.userId);
+        job.startTime = LocalDateTime.now();
+        FileMergeVO result;
+        try {
+            result = fileMergeService.mergeFile(job.dto, stage -> {
+                job.state = stage;
+                publish(job);
+            });
+        } catch (Exception e) {
+            log.error("合并任务异常 - 任务ID: {}, 错误: {}", job.taskId, e.getMessage(), e);
+            result = FileMergeVO.builder()
+                    .fileId(job.dto.getFileId())
+                    .success(false)
+                    .message("文件合并失败: " + e.getMessage())
+                    .build();
+        } finally {
+            UserContextHolder.clear();
+        }
+        job.result = result;
+        job.finishTime = LocalDateTime.now();
+        job.state = Boolean.TRUE.equals(result.getSuccess()) ? MergeJobState.DONE : MergeJobState.FAILED;
+        publish(job);
+        job.future.complete(result);
+        log.info("合并任务结束 - 任务ID: {}, 状态: {}, 耗时: {}ms", job.taskId, job.state,
+                Duration.between(job.startTime, job.finishTime).toMillis());
+    }
+
+    /**
+     * 通过监控 WebSocket 推送任务状态
+     */
+    private void publish(MergeJob job) {
+        try {
+            Map<String, Object> data = new HashMap<>(4);
+            data.put("type", "merge");
+            data.put("job", job.toVO());
+            data.put("timestamp", System.currentTimeMillis());
+            monitorPushService.pushToUser(job.userId, data);
+        } catch (Exception e) {
+            log.debug("推送合并状态失败 - 任务ID: {}, 错误: {}", job.taskId, e.getMessage());
+        }
+    }
+
+    /**
+     * 获取文件的活跃上传任务，没有时创建（合并结束时由合并流程更新状态）
+     */
+    private String resolveTaskId(Long fileId) {
+        List<TransferTask> tasks = transferTaskMapper.selectByFileId(fileId);
+        if (tasks != null) {
+            for (TransferTask task : tasks) {
+                String status = task.getTransferStatus();
+                if ("PENDING".equals(status) || "PROCESSING".equals(status)) {
+                    return task.getTaskId();
+                }
+            }
+        }
+        return transferTaskService.createTask(fileId, "UPLOAD");
+    }
+
+    private void purgeExpiredJobs() {
+        LocalDateTime expireBefore = LocalDateTime.now().minusMinutes(retentionMinutes);
+        jobs.values().removeIf(job -> job.finishTime != null && job.finishTime.isBefore(expireBefore));
+    }
+
+    private ThreadPoolExecutor createExecutor(String namePrefix, int threads) {
+        AtomicInteger index = new AtomicInteger();
+        return new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                r -> {
+                    Thread thread = new Thread(r, namePrefix + index.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    /**
+     * 单个合并任务
+     */
+    private static class MergeJob {
+
+        final String taskId;
+        final FileMergeDTO dto;
+        final long fileSize;
+        final boolean ioBound;
+        final Long userId;
+        final LocalDateTime submitTime = LocalDateTime.now();
+        final CompletableFuture<FileMergeVO> future = new CompletableFuture<>();
+
+        volatile MergeJobState state = MergeJobState.QUEUED;
+        volatile LocalDateTime startTime;
+        volatile LocalDateTime finishTime;
+        volatile FileMergeVO result;
+
+        MergeJob(String taskId, FileMergeDTO dto, long fileSize, boolean ioBound, Long userId) {
+            this.taskId = taskId;
+            this.dto = dto;
+            this.fileSize = fileSize;
+            this.ioBound = ioBound;
+            this.userId = userId;
+        }
+
+        MergeJobVO toVO() {
+            return MergeJobVO.builder()
+                    .taskId(taskId)
+                    .fileId(dto.getFileId())
+                    .fileSize(fileSize)
+                    .state(state)
+                    .ioBound(ioBound)
+                    .submitTime(submitTime)
+                    .startTime(startTime)
+                    .finishTime(finishTime)
+                    .result(result)
+                    .build();
+        }
+    }
+}
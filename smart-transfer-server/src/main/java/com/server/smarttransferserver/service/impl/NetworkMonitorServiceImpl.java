@@ -1,82 +1,69 @@
 package com.server.smarttransferserver.service.impl;
 
-import com.server.smarttransferserver.congestion.*;
+import com.server.smarttransferserver.congestion.BandwidthEstimator;
+import com.server.smarttransferserver.congestion.NetworkMonitor;
+import com.server.smarttransferserver.congestion.NetworkMonitor.NetworkQuality;
+import com.server.smarttransferserver.congestion.NetworkMonitor.NetworkStats;
+import com.server.smarttransferserver.congestion.PacketLossDetector;
+import com.server.smarttransferserver.congestion.RttMeasurement;
 import com.server.smarttransferserver.service.INetworkMonitorService;
-import lombok.Data;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import javax.annotation.PostConstruct;
+
 /**
- * 网络监测服务实现
- * 集成RTT测量、带宽估算、丢包检测
+ * 网络监测服务实现（全局汇总）
+ * 按任务ID把写入分散到多个分片监测器上，每个分片使用自己的锁，并发任务之间不争用同一把锁；
+ * 读取时汇总所有分片：带宽、在途、丢包数直接相加，RTT按样本数加权平均，最小/最大RTT取极值
  */
 @Slf4j
 @Service
 public class NetworkMonitorServiceImpl implements INetworkMonitorService {
-    
-    /**
-     * RTT测量器
-     */
-    private final RttMeasurement rttMeasurement;
-    
-    /**
-     * 带宽估算器
-     */
-    private final BandwidthEstimator bandwidthEstimator;
-    
-    /**
-     * 丢包检测器
-     */
-    private final PacketLossDetector lossDetector;
-    
-    /**
-     * 总发送数据包数
-     */
-    private long totalSentPackets;
-    
-    /**
-     * 总接收ACK数
-     */
-    private long totalReceivedAcks;
-    
+
     /**
-     * 构造方法
+     * 分片数
      */
-    @Autowired
-    public NetworkMonitorServiceImpl(RttMeasurement rttMeasurement,
-                                      BandwidthEstimator bandwidthEstimator,
-                                      PacketLossDetector lossDetector) {
-        this.rttMeasurement = rttMeasurement;
-        this.bandwidthEstimator = bandwidthEstimator;
-        this.lossDetector = lossDetector;
-        this.totalSentPackets = 0;
-        this.totalReceivedAcks = 0;
+    @Value("${transfer.network-monitor.stripes:16}")
+    private int stripeCount;
+
+    private NetworkMonitor[] stripes;
+
+    @PostConstruct
+    public void init() {
+        stripes = new NetworkMonitor[Math.max(1, stripeCount)];
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new NetworkMonitor();
+        }
     }
-    
+
+    private NetworkMonitor stripe(Object key) {
+        return stripes[Math.floorMod(key.hashCode(), stripes.length)];
+    }
+
+    @Override
+    public void recordDelivered(String taskId, long bytes, long rttMs) {
+        stripe(taskId).recordDelivered(bytes, rttMs);
+    }
+
+    @Override
+    public void recordLoss(String taskId, long bytes) {
+        stripe(taskId).recordLoss(bytes);
+    }
+
     /**
-     * 记录数据包发送
+     * 记录数据包发送（同一序列号的发送和ACK落在同一分片）
      *
      * @param sequenceNumber 序列号
      * @param size           数据包大小
      */
     @Override
     public void recordPacketSent(long sequenceNumber, long size) {
-        totalSentPackets++;
-        
-        // RTT测量
-        rttMeasurement.recordSendTime(sequenceNumber);
-        
-        // 带宽估算
-        bandwidthEstimator.recordSent(size);
-        
-        // 丢包检测
-        long rto = rttMeasurement.calculateRto();
-        lossDetector.recordSent(sequenceNumber, size, rto);
-        
+        stripe(sequenceNumber).recordPacketSent(sequenceNumber, size);
         log.debug("记录数据包发送 - 序列号: {}, 大小: {}字节", sequenceNumber, size);
     }
-    
+
     /**
      * 记录ACK接收
      *
@@ -85,44 +72,35 @@ public class NetworkMonitorServiceImpl implements INetworkMonitorService {
      */
     @Override
     public long recordAckReceived(long sequenceNumber) {
-        totalReceivedAcks++;
-        
-        // RTT测量
-        long rtt = rttMeasurement.recordAck(sequenceNumber);
-        
-        // 丢包检测
-        boolean lossDetected = lossDetector.recordAck(sequenceNumber);
-        
-        if (lossDetected) {
-            log.warn("检测到丢包 - ACK序列号: {}", sequenceNumber);
-        }
-        
+        long rtt = stripe(sequenceNumber).recordAckReceived(sequenceNumber);
         log.debug("记录ACK接收 - 序列号: {}, RTT: {}ms", sequenceNumber, rtt);
-        
         return rtt;
     }
-    
+
     /**
      * 检查超时丢包
      */
     @Override
     public void checkTimeoutLoss() {
-        java.util.concurrent.ConcurrentHashMap<Long, PacketLossDetector.PacketInfo> lostPackets = lossDetector.checkTimeout();
-        if (!lostPackets.isEmpty()) {
-            log.warn("检测到{}个超时丢包", lostPackets.size());
+        int lost = 0;
+        for (NetworkMonitor stripe : stripes) {
+            lost += stripe.checkTimeoutLoss();
+        }
+        if (lost > 0) {
+            log.warn("检测到{}个超时丢包", lost);
         }
     }
-    
+
     /**
-     * 获取当前RTT
+     * 获取当前RTT（各分片平滑RTT按样本数加权）
      *
      * @return RTT（毫秒）
      */
     @Override
     public long getCurrentRtt() {
-        return rttMeasurement.getSmoothedRtt();
+        return getStats().getRttStats().getSmoothedRtt();
     }
-    
+
     /**
      * 获取最小RTT
      *
@@ -130,19 +108,30 @@ public class NetworkMonitorServiceImpl implements INetworkMonitorService {
      */
     @Override
     public long getMinRtt() {
-        return rttMeasurement.getMinRtt();
+        long min = 0;
+        for (NetworkMonitor stripe : stripes) {
+            long stripeMin = stripe.getMinRtt();
+            if (stripeMin > 0 && (min == 0 || stripeMin < min)) {
+                min = stripeMin;
+            }
+        }
+        return min;
     }
-    
+
     /**
-     * 获取估算带宽
+     * 获取估算带宽（各分片之和）
      *
      * @return 带宽（字节/秒）
      */
     @Override
     public long getEstimatedBandwidth() {
-        return bandwidthEstimator.getEstimatedBandwidth();
+        long sum = 0;
+        for (NetworkMonitor stripe : stripes) {
+            sum += stripe.getEstimatedBandwidth();
+        }
+        return sum;
     }
-    
+
     /**
      * 丢包率
      *
@@ -150,29 +139,29 @@ public class NetworkMonitorServiceImpl implements INetworkMonitorService {
      */
     @Override
     public double getLossRate() {
-        return lossDetector.getLossRate(totalSentPackets);
+        NetworkStats stats = getStats();
+        return stats.getTotalSentPackets() > 0
+                ? (double) stats.getLossStats().getTotalLostPackets() / stats.getTotalSentPackets() : 0;
     }
-    
-    /**
-     * 获取在途数据包数量
-     *
-     * @return 在途数据包数
-     */
+
     @Override
     public int getInflightCount() {
-        return lossDetector.getInflightCount();
+        int sum = 0;
+        for (NetworkMonitor stripe : stripes) {
+            sum += stripe.getInflightCount();
+        }
+        return sum;
     }
-    
-    /**
-     * 获取在途数据总字节数
-     *
-     * @return 在途数据字节数
-     */
+
     @Override
     public long getInflightBytes() {
-        return lossDetector.getInflightBytes();
+        long sum = 0;
+        for (NetworkMonitor stripe : stripes) {
+            sum += stripe.getInflightBytes();
+        }
+        return sum;
     }
-    
+
     /**
      * 评估网络质量
      *
@@ -180,121 +169,96 @@ public class NetworkMonitorServiceImpl implements INetworkMonitorService {
      */
     @Override
     public NetworkQuality evaluateNetworkQuality() {
-        // 如果没有足够的样本数据，无法评估网络质量
-        // 检查是否有足够的数据包进行统计
-        if (totalSentPackets < 10 || totalReceivedAcks < 5) {
-            // 数据不足，返回null（调用者会处理为"未知"）
-            return null;
-        }
-        
-        double lossRate = getLossRate();
-        long rtt = getCurrentRtt();
-        long bandwidth = getEstimatedBandwidth();
-        
-        // 如果RTT为0或带宽为0，说明还没有足够的测量数据
-        if (rtt <= 0 || bandwidth <= 0) {
-            return null;
-        }
-        
-        // 优秀：丢包率<0.5%，RTT<50ms，带宽>10MB/s
-        if (lossRate < 0.005 && rtt < 50 && bandwidth > 10 * 1024 * 1024) {
-            return NetworkQuality.EXCELLENT;
-        }
-        
-        // 良好：丢包率<1%，RTT<100ms，带宽>5MB/s
-        if (lossRate < 0.01 && rtt < 100 && bandwidth > 5 * 1024 * 1024) {
-            return NetworkQuality.GOOD;
-        }
-        
-        // 一般：丢包率<3%，RTT<200ms，带宽>1MB/s
-        if (lossRate < 0.03 && rtt < 200 && bandwidth > 1024 * 1024) {
-            return NetworkQuality.FAIR;
-        }
-        
-        // 差：其他情况
-        return NetworkQuality.POOR;
+        return getStats().getNetworkQuality();
     }
-    
-    /**
-     * 检查是否有足够的数据评估网络质量
-     *
-     * @return 是否有足够数据
-     */
-    public boolean hasEnoughDataForEvaluation() {
-        return totalSentPackets >= 10 && totalReceivedAcks >= 5;
-    }
-    
+
     /**
      * 重置所有监测器
      */
     @Override
     public void reset() {
-        rttMeasurement.reset();
-        bandwidthEstimator.reset();
-        lossDetector.reset();
-        totalSentPackets = 0;
-        totalReceivedAcks = 0;
-        
+        for (NetworkMonitor stripe : stripes) {
+            stripe.reset();
+        }
         log.info("网络监测器已重置");
     }
-    
+
     /**
-     * 获取网络监测统计信息
+     * 汇总所有分片的网络统计
      *
      * @return 网络统计
      */
     @Override
     public NetworkStats getStats() {
-        NetworkStats stats = new NetworkStats();
-        
-        // RTT统计
-        stats.setRttStats(rttMeasurement.getStats());
-        
-        // 带宽统计
-        stats.setBandwidthStats(bandwidthEstimator.getStats());
-        
-        // 丢包统计
-        stats.setLossStats(lossDetector.getStats());
-        
-        // 总体统计
-        stats.setTotalSentPackets(totalSentPackets);
-        stats.setTotalReceivedAcks(totalReceivedAcks);
-        stats.setNetworkQuality(evaluateNetworkQuality());
-        
-        return stats;
-    }
-    
-    /**
-     * 网络质量等级
-     */
-    public enum NetworkQuality {
-        EXCELLENT("优秀"),
-        GOOD("良好"),
-        FAIR("一般"),
-        POOR("差");
-        
-        private final String description;
-        
-        NetworkQuality(String description) {
-            this.description = description;
+        RttMeasurement.RttStats rtt = new RttMeasurement.RttStats();
+        BandwidthEstimator.BandwidthStats bandwidth = new BandwidthEstimator.BandwidthStats();
+        PacketLossDetector.LossStats loss = new PacketLossDetector.LossStats();
+        long totalSent = 0;
+        long totalAcks = 0;
+        long rttWeight = 0;
+        double smoothedSum = 0;
+        double averageSum = 0;
+        double varSum = 0;
+        long minBandwidth = 0;
+
+        for (NetworkMonitor stripe : stripes) {
+            NetworkStats stats = stripe.getStats();
+            totalSent += stats.getTotalSentPackets();
+            totalAcks += stats.getTotalReceivedAcks();
+
+            RttMeasurement.RttStats stripeRtt = stats.getRttStats();
+            int samples = stripeRtt.getSampleCount();
+            if (samples > 0) {
+                rttWeight += samples;
+                smoothedSum += (double) stripeRtt.getSmoothedRtt() * samples;
+                averageSum += (double) stripeRtt.getAverageRtt() * samples;
+                varSum += (double) stripeRtt.getRttVar() * samples;
+                if (stripeRtt.getMinRtt() > 0 && (rtt.getMinRtt() == 0 || stripeRtt.getMinRtt() < rtt.getMinRtt())) {
+                    rtt.setMinRtt(stripeRtt.getMinRtt());
+                }
+                rtt.setMaxRtt(Math.max(rtt.getMaxRtt(), stripeRtt.getMaxRtt()));
+            }
+
+            BandwidthEstimator.BandwidthStats stripeBandwidth = stats.getBandwidthStats();
+            bandwidth.setEstimatedBandwidth(bandwidth.getEstimatedBandwidth() + stripeBandwidth.getEstimatedBandwidth());
+            bandwidth.setAverageBandwidth(bandwidth.getAverageBandwidth() + stripeBandwidth.getAverageBandwidth());
+            bandwidth.setMaxBandwidth(bandwidth.getMaxBandwidth() + stripeBandwidth.getMaxBandwidth());
+            if (stripeBandwidth.getMinBandwidth() > 0
+                    && (minBandwidth == 0 || stripeBandwidth.getMinBandwidth() < minBandwidth)) {
+                minBandwidth = stripeBandwidth.getMinBandwidth();
+            }
+            bandwidth.setTotalSentBytes(bandwidth.getTotalSentBytes() + stripeBandwidth.getTotalSentBytes());
+            bandwidth.setSampleCount(bandwidth.getSampleCount() + stripeBandwidth.getSampleCount());
+
+            PacketLossDetector.LossStats stripeLoss = stats.getLossStats();
+            loss.setTotalLostPackets(loss.getTotalLostPackets() + stripeLoss.getTotalLostPackets());
+            loss.setTimeoutLostPackets(loss.getTimeoutLostPackets() + stripeLoss.getTimeoutLostPackets());
+            loss.setFastRetransmitLostPackets(loss.getFastRetransmitLostPackets() + stripeLoss.getFastRetransmitLostPackets());
+            loss.setReportedLostPackets(loss.getReportedLostPackets() + stripeLoss.getReportedLostPackets());
+            loss.setInflightCount(loss.getInflightCount() + stripeLoss.getInflightCount());
+            loss.setInflightBytes(loss.getInflightBytes() + stripeLoss.getInflightBytes());
         }
-        
-        public String getDescription() {
-            return description;
+
+        if (rttWeight > 0) {
+            rtt.setSmoothedRtt(Math.round(smoothedSum / rttWeight));
+            rtt.setAverageRtt(Math.round(averageSum / rttWeight));
+            rtt.setRttVar(Math.round(varSum / rttWeight));
         }
-    }
-    
-    /**
-     * 网络统计信息
-     */
-    @Data
-    public static class NetworkStats {
-        private RttMeasurement.RttStats rttStats;
-        private BandwidthEstimator.BandwidthStats bandwidthStats;
-        private PacketLossDetector.LossStats lossStats;
-        private long totalSentPackets;
-        private long totalReceivedAcks;
-        private NetworkQuality networkQuality;
+        rtt.setRto(rtt.getSmoothedRtt() + 4 * rtt.getRttVar());
+        rtt.setSampleCount((int) rttWeight);
+        bandwidth.setMinBandwidth(minBandwidth);
+        bandwidth.setUtilization(bandwidth.getMaxBandwidth() > 0
+                ? (double) bandwidth.getEstimatedBandwidth() / bandwidth.getMaxBandwidth() : 0);
+
+        NetworkStats stats = new NetworkStats();
+        stats.setRttStats(rtt);
+        stats.setBandwidthStats(bandwidth);
+        stats.setLossStats(loss);
+        stats.setTotalSentPackets(totalSent);
+        stats.setTotalReceivedAcks(totalAcks);
+        double lossRate = totalSent > 0 ? (double) loss.getTotalLostPackets() / totalSent : 0;
+        stats.setNetworkQuality(NetworkQuality.evaluate(totalSent, totalAcks, lossRate,
+                rtt.getSmoothedRtt(), bandwidth.getEstimatedBandwidth()));
+        return stats;
     }
 }
-
@@ -0,0 +1,186 @@
+package com.server.smarttransferserver.service.impl;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.server.smarttransferserver.congestion.CongestionControlAlgorithm;
+import com.server.smarttransferserver.service.FairShareService;
+import com.server.smarttransferserver.service.PacingService;
+import com.server.smarttransferserver.util.FileRegion;
+import com.server.smarttransferserver.util.TimerWheel;
+import com.server.smarttransferserver.util.TokenBucket;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 发送速率控制服务实现
+ * 1. 速率 = max(algorithm.getRate() * gain, min-rate)；gain 略大于1，留出探测余量，
+ *    避免限速本身拉长客户端测得的 RTT、使 cwnd/RTT 类算法的速率持续走低
+ *    多个任务竞争带宽时，速率不超过 FairShareService 分配的份额
+ * 2. 算法尚无速率（getRate() <= 0，如首个 ACK 之前）时不限速
+ * 3. 超出速率的写出线程等待一个由时间轮完成的 Future，所有传输共用一个时间轮线程，不为每个传输创建定时线程
+ * 4. 限速写出仍是每个传输占用一个 Tomcat 请求线程（阻塞在等待上，而不是异步写出后由时间轮恢复），
+ *    因此同时限速的写出数不超过 transfer.pacing.max-streams；达到上限时新的写出不限速（可走 sendfile），
+ *    避免大量慢速下载占满 Tomcat 线程池
+ */
+@Slf4j
+@Service
+public class PacingServiceImpl implements PacingService {
+
+    @Autowired
+    private FairShareService fairShareService;
+
+    @Value("${transfer.pacing.enabled:true}")
+    private boolean enabled;
+
+    /** 速率增益 */
+    @Value("${transfer.pacing.gain:1.25}")
+    private double gain;
+
+    /** 最低速率（字节/秒） */
+    @Value("${transfer.pacing.min-rate:65536}")
+    private long minRate;
+
+    /** 令牌桶容量对应的时长（毫秒），允许的突发量 */
+    @Value("${transfer.pacing.burst-ms:100}")
+    private long burstMs;
+
+    /** 时间轮 tick（毫秒） */
+    @Value("${transfer.pacing.tick-ms:5}")
+    private long tickMs;
+
+    /** 同时限速写出的上限，应明显小于 Tomcat 最大线程数 */
+    @Value("${transfer.pacing.max-streams:64}")
+    private int maxStreams;
+
+    /** 令牌桶最小容量，不小于单次写出的分段大小（64KB） */
+    private static final long MIN_BURST_BYTES = 64 * 1024;
+
+    /** 单次等待上限，超过视为异常（避免写出线程无限阻塞） */
+    private static final long MAX_WAIT_SECONDS = 60;
+
+    private static final int WHEEL_SIZE = 512;
+
+    /** 令牌桶，Key: 任务ID */
+    private final Cache<String, TokenBucket> buckets = CacheBuilder.newBuilder()
+            .expireAfterAccess(30, TimeUnit.MINUTES)
+            .build();
+
+    private TimerWheel timerWheel;
+
+    /** 限速写出许可 */
+    private Semaphore streams;
+
+    /** 因达到上限而未限速的写出次数 */
+    private final AtomicLong unpacedStreams = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        // 时间轮始终创建：发送速率控制未启用时，带宽限制仍通过 await 使用
+        timerWheel = new TimerWheel("pacing-timer", tickMs, WHEEL_SIZE);
+        streams = new Semaphore(Math.max(1, maxStreams));
+        if (!enabled) {
+            log.info("发送速率控制未启用，拥塞控制速率仅通过响应头告知客户端");
+        } else {
+            log.info("发送速率控制已启用 - 同时限速写出上限: {}", maxStreams);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (timerWheel != null) {
+            timerWheel.stop();
+        }
+    }
+
+    @Override
+    public FileRegion.Pacer pacer(String taskId, CongestionControlAlgorithm algorithm) {
+        if (!enabled || taskId == null || algorithm == null) {
+            return null;
+        }
+        return new TaskPacer(taskId, algorithm);
+    }
+
+    @Override
+    public void remove(String taskId) {
+        buckets.invalidate(taskId);
+    }
+
+    @Override
+    public void await(long delayNanos) throws IOException {
+        CompletableFuture<Void> wakeUp = new CompletableFuture<>();
+        timerWheel.schedule(() -> wakeUp.complete(null), delayNanos);
+        try {
+            wakeUp.get(MAX_WAIT_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("发送等待被中断");
+        } catch (ExecutionException | TimeoutException e) {
+            throw new IOException("发送等待失败: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 单个任务的发送速率控制（每次下载响应一个写出）
+     */
+    private final class TaskPacer implements FileRegion.Pacer {
+
+        private final String taskId;
+        private final CongestionControlAlgorithm algorithm;
+
+        private TaskPacer(String taskId, CongestionControlAlgorithm algorithm) {
+            this.taskId = taskId;
+            this.algorithm = algorithm;
+        }
+
+        @Override
+        public boolean tryBegin() {
+            if (streams.tryAcquire()) {
+                return true;
+            }
+            long count = unpacedStreams.incrementAndGet();
+            if (count == 1 || count % 1000 == 0) {
+                log.warn("同时限速写出已达上限，本次不限速 - 任务ID: {}, 上限: {}, 累计未限速: {}次",
+                        taskId, maxStreams, count);
+            }
+            return false;
+        }
+
+        @Override
+        public void end() {
+            streams.release();
+        }
+
+        @Override
+        public void acquire(long bytes) throws IOException {
+            long rate = algorithm.getRate();
+            if (rate <= 0) {
+                return;
+            }
+            // 多个任务竞争带宽时不超过该任务的公平份额
+            long effectiveRate = Math.max(minRate, fairShareService.clampRate(taskId, (long) (rate * gain)));
+            TokenBucket bucket;
+            try {
+                bucket = buckets.get(taskId, () -> new TokenBucket(burstMs, MIN_BURST_BYTES));
+            } catch (ExecutionException e) {
+                throw new IllegalStateException(e.getCause());
+            }
+            long delayNanos = bucket.reserve(bytes, effectiveRate);
+            if (delayNanos > 0) {
+                await(delayNanos);
+            }
+        }
+    }
+}
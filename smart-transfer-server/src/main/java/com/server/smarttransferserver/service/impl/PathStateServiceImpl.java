@@ -0,0 +1,141 @@
+package com.server.smarttransferserver.service.impl;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.server.smarttransferserver.config.CongestionConfig;
+import com.server.smarttransferserver.congestion.AlgorithmSnapshot;
+import com.server.smarttransferserver.congestion.CongestionControlAlgorithm;
+import com.server.smarttransferserver.congestion.PathState;
+import com.server.smarttransferserver.service.PathStateService;
+import com.server.smarttransferserver.util.ClientIpUtil;
+import com.server.smarttransferserver.util.UserContextHolder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 路径状态缓存服务实现
+ * 1. 缓存在本地有界缓存中，超过 ttl-minutes 未更新的记录过期
+ * 2. 读取时带宽和窗口按 half-life-minutes 半衰期衰减，衰减后的窗口不大于初始窗口时视为无效（慢启动即可）
+ * 3. 记录的丢包率超过配置的丢包率阈值时，初始化窗口再乘以 0.7（与 CUBIC 的乘性减一致），避免新任务一开始就加重拥塞
+ */
+@Slf4j
+@Service
+public class PathStateServiceImpl implements PathStateService {
+
+    @Autowired
+    private CongestionConfig congestionConfig;
+
+    @Value("${transfer.path-cache.enabled:true}")
+    private boolean enabled;
+
+    /** 最多缓存的路径数 */
+    @Value("${transfer.path-cache.max-size:10000}")
+    private long maxSize;
+
+    /** 记录过期时间（分钟） */
+    @Value("${transfer.path-cache.ttl-minutes:30}")
+    private long ttlMinutes;
+
+    /** 带宽和窗口衰减的半衰期（分钟） */
+    @Value("${transfer.path-cache.half-life-minutes:10}")
+    private long halfLifeMinutes;
+
+    /** 高丢包路径的窗口系数 */
+    private static final double LOSSY_PATH_FACTOR = 0.7;
+
+    private Cache<String, PathState> states;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder records = new LongAdder();
+
+    @PostConstruct
+    public void init() {
+        states = CacheBuilder.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttlMinutes, TimeUnit.MINUTES)
+                .build();
+    }
+
+    @Override
+    public String currentPathKey() {
+        if (!enabled) {
+            return null;
+        }
+        Long userId = UserContextHolder.getUserId();
+        String prefix = ClientIpUtil.prefixOf(ClientIpUtil.currentClientIp());
+        if (userId == null || prefix == null) {
+            return null;
+        }
+        return userId + "@" + prefix;
+    }
+
+    @Override
+    public PathState lookup(String pathKey) {
+        if (!enabled || pathKey == null) {
+            return null;
+        }
+        PathState state = states.getIfPresent(pathKey);
+        if (state == null) {
+            misses.increment();
+            return null;
+        }
+        PathState aged = state.aged(System.currentTimeMillis(), TimeUnit.MINUTES.toMillis(halfLifeMinutes));
+        if (aged.getLossRate() > congestionConfig.getLossRateThreshold()) {
+            aged = new PathState((long) (aged.getBandwidth() * LOSSY_PATH_FACTOR), aged.getMinRtt(),
+                    (long) (aged.getCwnd() * LOSSY_PATH_FACTOR), aged.getLossRate(), aged.getUpdatedAt());
+        }
+        if (aged.getCwnd() <= congestionConfig.getInitialCwnd()) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return aged;
+    }
+
+    @Override
+    public void record(String pathKey, CongestionControlAlgorithm algorithm) {
+        if (!enabled || pathKey == null || algorithm == null) {
+            return;
+        }
+        AlgorithmSnapshot snapshot = algorithm.snapshot();
+        long rtt = snapshot.getRtt();
+        long rate = snapshot.getRate();
+        long cwnd = snapshot.getCwnd();
+        if (rtt <= 0 || rate <= 0 || cwnd <= 0) {
+            // 没有收到过ACK的任务不代表路径状态
+            return;
+        }
+        double lossRate = snapshot.isAdaptive() ? snapshot.getCurrentLossRate() : 0;
+        long now = System.currentTimeMillis();
+        long minRtt = rtt;
+        PathState previous = states.getIfPresent(pathKey);
+        if (previous != null && now - previous.getUpdatedAt() < TimeUnit.MINUTES.toMillis(halfLifeMinutes)) {
+            // 最小RTT是路径属性，较新的记录沿用更小的值
+            minRtt = Math.min(minRtt, previous.getMinRtt());
+        }
+        states.put(pathKey, new PathState(rate, minRtt, cwnd, lossRate, now));
+        records.increment();
+        log.debug("记录路径状态 - 路径: {}, 带宽: {}字节/秒, minRtt: {}ms, cwnd: {}字节, 丢包率: {}",
+                pathKey, rate, minRtt, cwnd, lossRate);
+    }
+
+    @Override
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("size", states.size());
+        stats.put("hits", hits.sum());
+        stats.put("misses", misses.sum());
+        stats.put("records", records.sum());
+        return stats;
+    }
+}
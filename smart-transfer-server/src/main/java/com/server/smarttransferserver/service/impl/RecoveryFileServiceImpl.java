@@ -12,6 +12,7 @@ import com.server.smarttransferserver.mapper.FileInfoMapper;
 import com.server.smarttransferserver.mapper.FolderMapper;
 import com.server.smarttransferserver.mapper.RecoveryFileMapper;
 import com.server.smarttransferserver.mapper.TransferTaskMapper;
+import com.server.smarttransferserver.service.HashFilterService;
 import com.server.smarttransferserver.service.IFileStorageService;
 import com.server.smarttransferserver.service.RecoveryFileService;
 import lombok.extern.slf4j.Slf4j;
@@ -47,6 +48,9 @@ public class RecoveryFileServiceImpl extends ServiceImpl<RecoveryFileMapper, Rec
     @Autowired
     private IFileStorageService fileStorageService;
 
+    @Autowired
+    private HashFilterService hashFilterService;
+
     @Override
     public List<RecoveryFile> getRecoveryFileList(Long filterUserId) {
         Long userId = UserContextHolder.getUserId();
@@ -325,13 +329,15 @@ public class RecoveryFileServiceImpl extends ServiceImpl<RecoveryFileMapper, Rec
             FileInfo fileInfo = fileInfoMapper.selectById(recoveryFile.getFileId());
             if (fileInfo != null && fileInfo.getFilePath() != null) {
                 filePath = fileInfo.getFilePath();
-            } else if (recoveryFile.getFilePath() != null) {
+            } else if (recoveryFile.getFilePath() != null
+                    && !fileStorageService.isBlobPath(recoveryFile.getFilePath())) {
                 // 如果FileInfo已被删除，从RecoveryFile中获取保存的文件路径
+                // （共享存储的引用随文件记录一起释放，记录不存在时不能再减少引用）
                 filePath = recoveryFile.getFilePath();
                 log.warn("文件记录已不存在，使用RecoveryFile中保存的路径: {}", filePath);
             }
             
-            // 删除物理文件
+            // 删除物理文件（共享存储只减少引用，最后一个引用删除时才删除数据）
             if (filePath != null) {
                 fileStorageService.deleteFile(filePath);
             } else {
@@ -348,7 +354,7 @@ public class RecoveryFileServiceImpl extends ServiceImpl<RecoveryFileMapper, Rec
             }
             transferTaskMapper.deleteByFileId(recoveryFile.getFileId());
             // 3. 彻底删除单个文件记录（物理删除，使用原生SQL）
-            fileInfoMapper.deletePhysically(recoveryFile.getFileId());
+            hashFilterService.onRemoved(fileInfoMapper.deletePhysically(recoveryFile.getFileId()));
             log.info("文件已彻底删除，recoveryId: {}, fileName: {}", recoveryId, recoveryFile.getFileName());
         }
 
@@ -382,7 +388,7 @@ public class RecoveryFileServiceImpl extends ServiceImpl<RecoveryFileMapper, Rec
         transferTaskMapper.deleteByBatchNum(batchNum);
         
         // 3. 彻底删除所有标记为该批次号的文件记录
-        fileInfoMapper.deletePhysicallyByBatchNum(batchNum);
+        hashFilterService.onRemoved(fileInfoMapper.deletePhysicallyByBatchNum(batchNum));
 
         // 4. 彻底删除所有标记为该批次号的文件夹记录
         LambdaQueryWrapper<Folder> folderQuery = new LambdaQueryWrapper<>();
@@ -462,7 +468,8 @@ public class RecoveryFileServiceImpl extends ServiceImpl<RecoveryFileMapper, Rec
                 FileInfo fileInfo = fileInfoMapper.selectById(recoveryFile.getFileId());
                 if (fileInfo != null && fileInfo.getFilePath() != null) {
                     filePath = fileInfo.getFilePath();
-                } else if (recoveryFile.getFilePath() != null) {
+                } else if (recoveryFile.getFilePath() != null
+                        && !fileStorageService.isBlobPath(recoveryFile.getFilePath())) {
                     // 如果FileInfo已被删除，从RecoveryFile中获取保存的文件路径
                     filePath = recoveryFile.getFilePath();
                     log.warn("文件记录已不存在，使用RecoveryFile中保存的路径: {}", filePath);
@@ -485,7 +492,7 @@ public class RecoveryFileServiceImpl extends ServiceImpl<RecoveryFileMapper, Rec
                 }
                 transferTaskMapper.deleteByFileId(recoveryFile.getFileId());
                 // 3. 彻底删除单个文件记录（物理删除）
-                fileInfoMapper.deletePhysically(recoveryFile.getFileId());
+                hashFilterService.onRemoved(fileInfoMapper.deletePhysically(recoveryFile.getFileId()));
             }
         }
         // 清空回收站
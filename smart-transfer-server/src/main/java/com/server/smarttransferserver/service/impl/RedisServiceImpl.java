@@ -3,20 +3,28 @@ package com.server.smarttransferserver.service.impl;
 import com.server.smarttransferserver.service.RedisService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.redis.connection.RedisStringCommands;
+import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.types.Expiration;
 import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.serializer.RedisSerializer;
 import org.springframework.stereotype.Service;
 
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
 
 /**
  * Redis 服务实现类
+ * perf 环境使用 {@link InMemoryRedisServiceImpl}
  */
 @Slf4j
 @Service
+@Profile("!perf")
 public class RedisServiceImpl implements RedisService {
     
     @Autowired
@@ -96,6 +104,11 @@ public class RedisServiceImpl implements RedisService {
         return redisTemplate.opsForHash().increment(key, hashKey, delta);
     }
     
+    @Override
+    public Map<Object, Object> hGetAll(String key) {
+        return redisTemplate.opsForHash().entries(key);
+    }
+    
     // ========== Set 操作 ==========
     
     @Override
@@ -123,6 +136,40 @@ public class RedisServiceImpl implements RedisService {
         return redisTemplate.opsForSet().size(key);
     }
     
+    // ========== Bitmap 操作 ==========
+    
+    @Override
+    public Boolean setBit(String key, long offset, boolean value) {
+        return redisTemplate.opsForValue().setBit(key, offset, value);
+    }
+    
+    @Override
+    public Long bitCount(String key) {
+        byte[] rawKey = rawKey(key);
+        return redisTemplate.execute((RedisCallback<Long>) connection -> connection.bitCount(rawKey));
+    }
+    
+    @Override
+    public byte[] getBytes(String key) {
+        byte[] rawKey = rawKey(key);
+        return redisTemplate.execute((RedisCallback<byte[]>) connection -> connection.get(rawKey));
+    }
+    
+    @Override
+    public void setBytes(String key, byte[] value, long timeout, TimeUnit unit) {
+        byte[] rawKey = rawKey(key);
+        redisTemplate.execute((RedisCallback<Boolean>) connection ->
+                connection.set(rawKey, value, Expiration.from(timeout, unit), RedisStringCommands.SetOption.upsert()));
+    }
+    
+    /**
+     * 位图以原始字节存取，key 仍按模板的 key 序列化器编码
+     */
+    @SuppressWarnings("unchecked")
+    private byte[] rawKey(String key) {
+        return ((RedisSerializer<String>) redisTemplate.getKeySerializer()).serialize(key);
+    }
+    
     // ========== 分布式锁 ==========
     
     @Override
@@ -0,0 +1,154 @@
+package com.server.smarttransferserver.service.impl;
+
+import com.server.smarttransferserver.config.CongestionConfig;
+import com.server.smarttransferserver.congestion.CongestionControlAlgorithm;
+import com.server.smarttransferserver.congestion.simulation.NetworkSimulator;
+import com.server.smarttransferserver.congestion.simulation.SimulationConfig;
+import com.server.smarttransferserver.congestion.simulation.SimulationResult;
+import com.server.smarttransferserver.entity.CongestionMetrics;
+import com.server.smarttransferserver.mapper.CongestionMetricsMapper;
+import com.server.smarttransferserver.service.AlgorithmFactory;
+import com.server.smarttransferserver.service.SimulationService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 网络模拟服务实现
+ * 每次模拟都通过算法工厂新建算法实例并注入虚拟时钟，不影响线上任务使用的实例
+ */
+@Slf4j
+@Service
+public class SimulationServiceImpl implements SimulationService {
+
+    @Autowired
+    private AlgorithmFactory algorithmFactory;
+
+    @Autowired
+    private CongestionConfig congestionConfig;
+
+    @Autowired
+    private CongestionMetricsMapper congestionMetricsMapper;
+
+    /**
+     * 单次模拟最长时长（秒）
+     */
+    @Value("${transfer.simulation.max-duration-seconds:86400}")
+    private double maxDurationSeconds;
+
+    /**
+     * 单次模拟最多流数
+     */
+    @Value("${transfer.simulation.max-flows:32}")
+    private int maxFlows;
+
+    /**
+     * 单次模拟最多采样点数
+     */
+    @Value("${transfer.simulation.max-samples:100000}")
+    private long maxSamples;
+
+    /**
+     * 单次模拟最多事件数
+     */
+    @Value("${transfer.simulation.max-events:50000000}")
+    private long maxEvents;
+
+    @Override
+    public SimulationResult run(SimulationConfig config) {
+        if (config.getFlows() == null || config.getFlows().isEmpty()) {
+            config.setFlows(new ArrayList<>(Collections.singletonList(new SimulationConfig.FlowConfig())));
+        }
+        if (config.getFlows().size() > maxFlows) {
+            throw new RuntimeException("流数不能超过 " + maxFlows);
+        }
+        if (config.getDurationSeconds() > maxDurationSeconds) {
+            throw new RuntimeException("模拟时长不能超过 " + maxDurationSeconds + " 秒");
+        }
+        if (config.getDurationSeconds() * 1000 / config.getSampleIntervalMs() > maxSamples) {
+            throw new RuntimeException("采样点数超过上限 " + maxSamples + "，请增大采样间隔");
+        }
+
+        List<CongestionControlAlgorithm> algorithms = new ArrayList<>(config.getFlows().size());
+        for (SimulationConfig.FlowConfig flow : config.getFlows()) {
+            algorithms.add(algorithmFactory.createAlgorithm(flow.getAlgorithm()));
+        }
+        NetworkSimulator simulator = new NetworkSimulator(config, algorithms, System.currentTimeMillis(), maxEvents);
+        SimulationResult result = simulator.run();
+        log.info("网络模拟完成 - 流数: {}, 模拟时长: {}s, 耗时: {}ms, 事件数: {}, 链路利用率: {}%, 公平性: {}",
+                config.getFlows().size(), String.format("%.1f", result.getSimulatedSeconds()), result.getWallTimeMs(),
+                result.getEventCount(), String.format("%.1f", result.getLinkUtilization() * 100),
+                String.format("%.3f", result.getJainFairness()));
+        return result;
+    }
+
+    @Override
+    public Map<String, Object> replay(String taskId, String algorithm, long seed) {
+        List<CongestionMetrics> records = new ArrayList<>(congestionMetricsMapper.selectByTaskIdOrderByRecordTimeDesc(taskId));
+        if (records.isEmpty()) {
+            throw new RuntimeException("任务没有拥塞指标记录: " + taskId);
+        }
+        Collections.reverse(records);
+
+        LocalDateTime origin = records.get(0).getRecordTime();
+        SimulationConfig config = new SimulationConfig();
+        long lastOffsetMs = 0;
+        long bandwidthSum = 0;
+        long rttSum = 0;
+        double lossSum = 0;
+        for (CongestionMetrics record : records) {
+            long offsetMs = origin != null && record.getRecordTime() != null
+                    ? Math.max(0, Duration.between(origin, record.getRecordTime()).toMillis()) : lastOffsetMs;
+            SimulationConfig.TracePoint point = new SimulationConfig.TracePoint();
+            point.setOffsetMs(offsetMs);
+            point.setBandwidth(record.getBandwidth() != null ? record.getBandwidth() : 0);
+            point.setRttMs(record.getRtt() != null ? record.getRtt() : 0);
+            point.setLossRate(record.getLossRate() != null ? record.getLossRate().doubleValue() : -1);
+            config.getTrace().add(point);
+            lastOffsetMs = offsetMs;
+            bandwidthSum += point.getBandwidth();
+            rttSum += point.getRttMs();
+            lossSum += Math.max(0, point.getLossRate());
+        }
+
+        // 第一条记录之前没有测量值，链路从第一条记录的参数开始
+        SimulationConfig.TracePoint first = config.getTrace().get(0);
+        if (first.getBandwidth() > 0) {
+            config.setBandwidth(first.getBandwidth());
+        }
+        if (first.getRttMs() > 0) {
+            config.setPropagationDelayMs(first.getRttMs() / 2.0);
+        }
+        config.setDurationSeconds(Math.min(maxDurationSeconds, Math.max(1000, lastOffsetMs + 1000) / 1000.0));
+        config.setSampleIntervalMs(Math.max(100, (long) Math.ceil(config.getDurationSeconds() * 1000 / maxSamples)));
+        config.setSeed(seed);
+
+        String algorithmType = algorithm != null && !algorithm.isEmpty() ? algorithm : congestionConfig.getAlgorithm();
+        SimulationConfig.FlowConfig flow = new SimulationConfig.FlowConfig();
+        flow.setAlgorithm(algorithmType);
+        config.getFlows().add(flow);
+
+        Map<String, Object> recorded = new HashMap<>();
+        recorded.put("records", records.size());
+        recorded.put("durationMs", lastOffsetMs);
+        recorded.put("algorithm", records.get(records.size() - 1).getAlgorithm());
+        recorded.put("avgBandwidth", bandwidthSum / records.size());
+        recorded.put("avgRtt", rttSum / records.size());
+        recorded.put("avgLossRate", lossSum / records.size());
+
+        Map<String, Object> result = new HashMap<>();
+        result.put("taskId", taskId);
+        result.put("recorded", recorded);
+        result.put("simulation", run(config));
+        return result;
+    }
+}
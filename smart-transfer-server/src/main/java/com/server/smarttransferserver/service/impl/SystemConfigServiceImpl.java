@@ -2,12 +2,14 @@ package com.server.smarttransferserver.service.impl;
 
 import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.server.smarttransferserver.config.BandwidthLimitConfig;
 import com.server.smarttransferserver.config.CongestionConfig;
 import com.server.smarttransferserver.congestion.AdaptiveAlgorithm;
 import com.server.smarttransferserver.congestion.BBRAlgorithm;
 import com.server.smarttransferserver.congestion.CubicAlgorithm;
 import com.server.smarttransferserver.congestion.RenoAlgorithm;
 import com.server.smarttransferserver.congestion.VegasAlgorithm;
+import com.server.smarttransferserver.dto.BandwidthConfigDTO;
 import com.server.smarttransferserver.dto.CongestionConfigDTO;
 import com.server.smarttransferserver.entity.SystemConfig;
 import com.server.smarttransferserver.mapper.SystemConfigMapper;
@@ -35,6 +37,9 @@ public class SystemConfigServiceImpl extends ServiceImpl<SystemConfigMapper, Sys
     @Autowired
     private CongestionConfig congestionConfig;
     
+    @Autowired
+    private BandwidthLimitConfig bandwidthLimitConfig;
+    
     @Autowired(required = false)
     private RenoAlgorithm renoAlgorithm;
     
@@ -157,6 +162,105 @@ public class SystemConfigServiceImpl extends ServiceImpl<SystemConfigMapper, Sys
         log.info("拥塞控制配置更新完成，已刷新内存配置并重新初始化算法");
     }
     
+    /**
+     * 获取分级带宽限制配置
+     *
+     * @return 配置映射
+     */
+    @Override
+    public Map<String, String> getBandwidthConfig() {
+        return bandwidthLimitConfig.getAll();
+    }
+    
+    /**
+     * 更新分级带宽限制配置
+     * 写入数据库后刷新内存配置，限速服务下一次重新分配速率时生效
+     *
+     * @param dto 配置DTO
+     */
+    @Override
+    @Transactional
+    public void updateBandwidthConfig(BandwidthConfigDTO dto) {
+        log.info("更新分级带宽限制配置 - 启用: {}", dto.getEnabled());
+        String prefix = BandwidthLimitConfig.PREFIX;
+        
+        if (dto.getEnabled() != null) {
+            updateConfigValue(prefix + "enabled", dto.getEnabled().toString(), "分级带宽限制开关");
+        }
+        
+        if (dto.getUploadGlobalCeiling() != null) {
+            updateConfigValue(prefix + "upload.global-ceiling", dto.getUploadGlobalCeiling().toString(), "全局上传上限（字节/秒）");
+        }
+        
+        if (dto.getDownloadGlobalCeiling() != null) {
+            updateConfigValue(prefix + "download.global-ceiling", dto.getDownloadGlobalCeiling().toString(), "全局下载上限（字节/秒）");
+        }
+        
+        if (dto.getUserDefaultWeight() != null) {
+            updateConfigValue(prefix + "user.default-weight", dto.getUserDefaultWeight().toString(), "用户默认权重");
+        }
+        
+        if (dto.getUserDefaultCeiling() != null) {
+            updateConfigValue(prefix + "user.default-ceiling", dto.getUserDefaultCeiling().toString(), "用户默认上限（字节/秒）");
+        }
+        
+        if (dto.getTaskCeiling() != null) {
+            updateConfigValue(prefix + "task.ceiling", dto.getTaskCeiling().toString(), "单任务上限（字节/秒）");
+        }
+        
+        if (dto.getMaxDelayMs() != null) {
+            updateConfigValue(prefix + "max-delay-ms", dto.getMaxDelayMs().toString(), "限速允许的排队时长（毫秒）");
+        }
+        
+        if (dto.getRoles() != null) {
+            for (Map.Entry<String, BandwidthConfigDTO.Limit> entry : dto.getRoles().entrySet()) {
+                String role = entry.getKey().trim().toUpperCase();
+                if (!"ADMIN".equals(role) && !"USER".equals(role)) {
+                    throw new RuntimeException("未知角色: " + entry.getKey());
+                }
+                updateLimit(prefix + "role." + role, entry.getValue(), "角色" + role);
+            }
+        }
+        
+        if (dto.getUsers() != null) {
+            for (Map.Entry<Long, BandwidthConfigDTO.Limit> entry : dto.getUsers().entrySet()) {
+                BandwidthConfigDTO.Limit limit = entry.getValue();
+                String keyPrefix = prefix + "user." + entry.getKey();
+                if (limit == null || (limit.getWeight() == null && limit.getCeiling() == null)) {
+                    // 删除该用户的单独设置，恢复默认值
+                    configMapper.deleteByConfigKey(keyPrefix + ".weight");
+                    configMapper.deleteByConfigKey(keyPrefix + ".ceiling");
+                } else {
+                    updateLimit(keyPrefix, limit, "用户" + entry.getKey());
+                }
+            }
+        }
+        
+        // 刷新内存中的配置
+        bandwidthLimitConfig.refresh();
+        
+        log.info("分级带宽限制配置更新完成，已刷新内存配置");
+    }
+    
+    /**
+     * 更新一个分级节点的权重和上限
+     *
+     * @param keyPrefix   配置键前缀
+     * @param limit       权重和上限
+     * @param description 描述前缀
+     */
+    private void updateLimit(String keyPrefix, BandwidthConfigDTO.Limit limit, String description) {
+        if (limit == null) {
+            return;
+        }
+        if (limit.getWeight() != null) {
+            updateConfigValue(keyPrefix + ".weight", limit.getWeight().toString(), description + "带宽权重");
+        }
+        if (limit.getCeiling() != null) {
+            updateConfigValue(keyPrefix + ".ceiling", limit.getCeiling().toString(), description + "带宽上限（字节/秒）");
+        }
+    }
+    
     /**
      * 重新初始化所有拥塞控制算法
      * 使新配置生效
@@ -301,6 +405,7 @@ public class SystemConfigServiceImpl extends ServiceImpl<SystemConfigMapper, Sys
     public void refreshConfig() {
         log.info("刷新系统配置");
         congestionConfig.refresh();
+        bandwidthLimitConfig.refresh();
     }
 }
 
@@ -0,0 +1,357 @@
+package com.server.smarttransferserver.service.impl;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.server.smarttransferserver.entity.FileInfo;
+import com.server.smarttransferserver.mapper.FileInfoMapper;
+import com.server.smarttransferserver.service.IFileStorageService;
+import com.server.smarttransferserver.service.TreeHashService;
+import com.server.smarttransferserver.util.MerkleTree;
+import com.server.smarttransferserver.util.UserContextHolder;
+import com.server.smarttransferserver.vo.TreeHashVO;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.io.IOUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 树哈希服务实现
+ *
+ * 与增量MD5按顺序推进不同，树哈希的叶子互不依赖：
+ * 1. 分片到达后提交到独立的 ForkJoinPool，计算该分片覆盖的叶子（分片大小是叶子大小的整数倍，初始化时已校验）
+ * 2. 分片重传时递增其版本号，旧版本的计算结果直接丢弃
+ * 3. 合并时并行补算缺失的分片（服务重启、计算失败等），再由叶子求根哈希，校验耗时随CPU核数线性下降
+ */
+@Slf4j
+@Service
+public class TreeHashServiceImpl implements TreeHashService {
+
+    @Autowired
+    private IFileStorageService storageService;
+
+    @Autowired
+    private FileInfoMapper fileInfoMapper;
+
+    /**
+     * 并行线程数，0 表示使用CPU核数
+     */
+    @Value("${transfer.tree-hash.parallelism:0}")
+    private int parallelism;
+
+    /**
+     * 单次查询最多返回的叶子数（64K 个叶子即 64GB 区间）
+     */
+    private static final int MAX_LEAVES_PER_REQUEST = 65536;
+
+    /**
+     * 非树哈希模式的文件（Guava Cache 不能存 null）
+     */
+    private static final TreeState NONE = new TreeState(0, 0, 0);
+
+    private static final ThreadLocal<byte[]> LEAF_BUFFER = ThreadLocal.withInitial(() -> new byte[MerkleTree.LEAF_SIZE]);
+
+    /**
+     * 各上传的树哈希状态，长时间未访问（放弃的上传）自动淘汰，合并时重新计算
+     */
+    private final Cache<Long, TreeState> states = CacheBuilder.newBuilder()
+            .expireAfterAccess(24, TimeUnit.HOURS)
+            .build();
+
+    private ForkJoinPool pool;
+
+    @PostConstruct
+    public void init() {
+        int threads = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        pool = new ForkJoinPool(threads, p -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(p);
+            thread.setName("tree-hash-" + thread.getPoolIndex());
+            return thread;
+        }, null, false);
+        log.info("树哈希线程池已启动 - 并行度: {}", threads);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+
+    @Override
+    public boolean isTreeHashed(Long fileId) {
+        return getState(fileId) != NONE;
+    }
+
+    @Override
+    public void onChunkLanded(Long fileId, Integer chunkNumber) {
+        TreeState state = getState(fileId);
+        if (state == NONE || chunkNumber >= state.totalChunks) {
+            return;
+        }
+        // 分片读取路径按用户隔离，需要在工作线程恢复上传时的用户上下文
+        Long userId = UserContextHolder.getUserId();
+        int version = state.begin(chunkNumber);
+        pool.execute(() -> {
+            UserContextHolder.setUserId(userId);
+            try {
+                state.complete(chunkNumber, version, hashChunk(fileId, state, chunkNumber));
+            } catch (IOException e) {
+                // 合并时会补算
+                log.warn("计算分片叶子哈希失败 - 文件ID: {}, 分片: {}, 错误: {}", fileId, chunkNumber, e.getMessage());
+            } finally {
+                UserContextHolder.clear();
+            }
+        });
+    }
+
+    @Override
+    public void invalidateChunk(Long fileId, Integer chunkNumber) {
+        TreeState state = states.getIfPresent(fileId);
+        if (state != null && state != NONE && chunkNumber < state.totalChunks) {
+            state.begin(chunkNumber);
+        }
+    }
+
+    @Override
+    public String finish(Long fileId) {
+        TreeState state = getState(fileId);
+        if (state == NONE) {
+            return null;
+        }
+        long start = System.currentTimeMillis();
+        Long userId = UserContextHolder.getUserId();
+        List<ForkJoinTask<?>> tasks = new ArrayList<>();
+        for (int chunkNumber = 0; chunkNumber < state.totalChunks; chunkNumber++) {
+            if (state.isDone(chunkNumber)) {
+                continue;
+            }
+            int c = chunkNumber;
+            int version = state.begin(c);
+            tasks.add(pool.submit(() -> {
+                UserContextHolder.setUserId(userId);
+                try {
+                    state.complete(c, version, hashChunk(fileId, state, c));
+                } finally {
+                    UserContextHolder.clear();
+                }
+                return null;
+            }));
+        }
+        try {
+            for (ForkJoinTask<?> task : tasks) {
+                task.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException e) {
+            log.error("树哈希计算失败 - 文件ID: {}, 错误: {}", fileId, e.getCause().getMessage());
+            return null;
+        }
+        String root = state.root();
+        log.info("树哈希完成 - 文件ID: {}, 叶子数: {}, 补算分片数: {}, 耗时: {}ms, 根哈希: {}",
+                fileId, state.leaves.length, tasks.size(), System.currentTimeMillis() - start, root);
+        return root;
+    }
+
+    @Override
+    public void commit(Long fileId, String rootHash) {
+        TreeState state = states.getIfPresent(fileId);
+        states.invalidate(fileId);
+        if (state == null || state == NONE) {
+            return;
+        }
+        try {
+            storageService.saveTreeLeaves(rootHash, state.leaves);
+        } catch (IOException e) {
+            // 下载端查询时会从文件重新计算
+            log.warn("保存叶子哈希失败 - 文件ID: {}, 错误: {}", fileId, e.getMessage());
+        }
+    }
+
+    @Override
+    public void clear(Long fileId) {
+        states.invalidate(fileId);
+    }
+
+    @Override
+    public TreeHashVO getLeaves(Long fileId, Integer fromLeaf, Integer leafCount) {
+        FileInfo fileInfo = fileInfoMapper.selectById(fileId);
+        if (fileInfo == null || Integer.valueOf(1).equals(fileInfo.getDelFlag())) {
+            throw new RuntimeException("文件不存在");
+        }
+        Long currentUserId = UserContextHolder.getUserId();
+        if (!"ADMIN".equals(UserContextHolder.getRole())
+                && (currentUserId == null || !currentUserId.equals(fileInfo.getUserId()))) {
+            throw new RuntimeException("无权下载此文件");
+        }
+        if (!MerkleTree.ALGORITHM.equals(fileInfo.getHashAlgorithm())) {
+            throw new RuntimeException("该文件未使用树哈希校验");
+        }
+        if (!"COMPLETED".equals(fileInfo.getUploadStatus())) {
+            throw new RuntimeException("文件尚未上传完成");
+        }
+
+        int totalLeaves = MerkleTree.leafCount(fileInfo.getFileSize());
+        int from = fromLeaf != null ? Math.max(0, fromLeaf) : 0;
+        int count = leafCount != null ? leafCount : totalLeaves - from;
+        count = Math.max(0, Math.min(Math.min(count, totalLeaves - from), MAX_LEAVES_PER_REQUEST));
+
+        String rootHash = fileInfo.getFileHash().toLowerCase();
+        byte[] data;
+        try {
+            data = storageService.readTreeLeaves(rootHash, from, count);
+            if (data == null) {
+                rebuildLeaves(fileInfo, rootHash);
+                data = storageService.readTreeLeaves(rootHash, from, count);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("读取叶子哈希失败: " + e.getMessage(), e);
+        }
+
+        List<String> leaves = new ArrayList<>(count);
+        for (int offset = 0; offset + 32 <= data.length; offset += 32) {
+            leaves.add(Hex.encodeHexString(Arrays.copyOfRange(data, offset, offset + 32)));
+        }
+        return TreeHashVO.builder()
+                .fileId(fileId)
+                .algorithm(MerkleTree.ALGORITHM)
+                .rootHash(rootHash)
+                .leafSize(MerkleTree.LEAF_SIZE)
+                .totalLeaves(totalLeaves)
+                .fromLeaf(from)
+                .leaves(leaves)
+                .build();
+    }
+
+    /**
+     * 叶子哈希缺失（保存失败或被清理）时从已完成的文件并行重新计算
+     * 只有根哈希与记录一致时才保存，避免对外提供与文件不符的校验数据
+     */
+    private void rebuildLeaves(FileInfo fileInfo, String rootHash) throws IOException {
+        Path path = storageService.getAbsoluteFilePath(fileInfo.getFilePath());
+        long start = System.currentTimeMillis();
+        byte[][] leaves = MerkleTree.hashLeaves(path, pool);
+        String actual = MerkleTree.root(leaves);
+        log.info("重新计算叶子哈希 - 文件ID: {}, 叶子数: {}, 耗时: {}ms", fileInfo.getId(), leaves.length,
+                System.currentTimeMillis() - start);
+        if (!actual.equals(rootHash)) {
+            log.error("文件内容与树哈希不一致 - 文件ID: {}, 记录: {}, 实际: {}", fileInfo.getId(), rootHash, actual);
+            throw new IOException("文件内容与树哈希不一致");
+        }
+        storageService.saveTreeLeaves(rootHash, leaves);
+    }
+
+    /**
+     * 读取分片并计算其覆盖的叶子哈希
+     */
+    private byte[][] hashChunk(Long fileId, TreeState state, int chunkNumber) throws IOException {
+        int firstLeaf = chunkNumber * state.leavesPerChunk;
+        int lastLeaf = Math.min(firstLeaf + state.leavesPerChunk, state.leaves.length);
+        byte[][] leaves = new byte[lastLeaf - firstLeaf][];
+        byte[] buffer = LEAF_BUFFER.get();
+        try (InputStream is = storageService.openChunkStream(fileId, chunkNumber)) {
+            for (int i = firstLeaf; i < lastLeaf; i++) {
+                int length = (int) Math.min(MerkleTree.LEAF_SIZE, state.fileSize - (long) i * MerkleTree.LEAF_SIZE);
+                if (IOUtils.read(is, buffer, 0, length) != length) {
+                    throw new IOException("分片数据不完整: " + chunkNumber);
+                }
+                leaves[i - firstLeaf] = MerkleTree.hashLeaf(buffer, 0, length);
+            }
+        }
+        return leaves;
+    }
+
+    private TreeState getState(Long fileId) {
+        try {
+            return states.get(fileId, () -> loadState(fileId));
+        } catch (ExecutionException e) {
+            log.error("加载树哈希状态失败 - 文件ID: {}, 错误: {}", fileId, e.getMessage());
+            return NONE;
+        }
+    }
+
+    private TreeState loadState(Long fileId) {
+        FileInfo fileInfo = fileInfoMapper.selectById(fileId);
+        if (fileInfo == null || !MerkleTree.ALGORITHM.equals(fileInfo.getHashAlgorithm())
+                || fileInfo.getChunkSize() == null || fileInfo.getTotalChunks() == null) {
+            return NONE;
+        }
+        return new TreeState(fileInfo.getFileSize(), fileInfo.getChunkSize(), fileInfo.getTotalChunks());
+    }
+
+    /**
+     * 单个上传的树哈希状态（以自身为锁）
+     */
+    private static class TreeState {
+
+        final long fileSize;
+        final int totalChunks;
+        final int leavesPerChunk;
+
+        /**
+         * 叶子哈希，未计算的为 null
+         */
+        final byte[][] leaves;
+
+        /**
+         * 叶子已计算完成的分片
+         */
+        final BitSet done = new BitSet();
+
+        /**
+         * 分片版本号，每次写入/失效时递增
+         */
+        final int[] versions;
+
+        TreeState(long fileSize, long chunkSize, int totalChunks) {
+            this.fileSize = fileSize;
+            this.totalChunks = totalChunks;
+            this.leavesPerChunk = (int) (chunkSize / MerkleTree.LEAF_SIZE);
+            this.leaves = new byte[totalChunks > 0 ? MerkleTree.leafCount(fileSize) : 0][];
+            this.versions = new int[totalChunks];
+        }
+
+        /**
+         * 开始新版本（分片重新写入或失效），返回版本号
+         */
+        synchronized int begin(int chunkNumber) {
+            done.clear(chunkNumber);
+            return ++versions[chunkNumber];
+        }
+
+        /**
+         * 写入计算结果，版本已过期时丢弃
+         */
+        synchronized void complete(int chunkNumber, int version, byte[][] chunkLeaves) {
+            if (versions[chunkNumber] != version) {
+                return;
+            }
+            System.arraycopy(chunkLeaves, 0, leaves, chunkNumber * leavesPerChunk, chunkLeaves.length);
+            done.set(chunkNumber);
+        }
+
+        synchronized boolean isDone(int chunkNumber) {
+            return done.get(chunkNumber);
+        }
+
+        synchronized String root() {
+            return MerkleTree.root(leaves);
+        }
+    }
+}
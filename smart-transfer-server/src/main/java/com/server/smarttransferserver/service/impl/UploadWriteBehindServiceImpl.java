@@ -0,0 +1,253 @@
+package com.server.smarttransferserver.service.impl;
+
+import com.server.smarttransferserver.mapper.FileInfoMapper;
+import com.server.smarttransferserver.mapper.TransferTaskMapper;
+import com.server.smarttransferserver.service.UploadWriteBehindService;
+import com.server.smarttransferserver.util.ChunkBitmap;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Collections;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 上传写回服务实现
+ * 使用独立后台线程刷新：每 flush-interval-ms 一次，或累计 batch-size 个事件时提前唤醒
+ * 1. 分片状态：同一文件的多次置位/清位合并为一条 "(chunk_bitmap & keep) | set" UPDATE
+ * 2. 任务进度：同一任务只写最新值
+ * 拥塞指标由 CongestionMetricsWriterServiceImpl 单独降采样写入
+ * 崩溃时未刷新的分片状态由 UploadRecoveryTask 根据磁盘上的分片日志恢复
+ */
+@Slf4j
+@Service
+public class UploadWriteBehindServiceImpl implements UploadWriteBehindService {
+
+    @Autowired
+    private FileInfoMapper fileInfoMapper;
+
+    @Autowired
+    private TransferTaskMapper transferTaskMapper;
+
+    @Value("${transfer.write-behind.enabled:true}")
+    private boolean enabled;
+
+    /** 刷新间隔（毫秒） */
+    @Value("${transfer.write-behind.flush-interval-ms:500}")
+    private long flushIntervalMs;
+
+    /** 累计多少个事件提前刷新 */
+    @Value("${transfer.write-behind.batch-size:200}")
+    private int batchSize;
+
+    /** 待写分片状态，Key: 文件ID */
+    private final ConcurrentHashMap<Long, PendingBits> pendingBits = new ConcurrentHashMap<>();
+
+    /** 待写任务进度，Key: 任务ID */
+    private final ConcurrentHashMap<String, Double> pendingProgress = new ConcurrentHashMap<>();
+
+    /** 上次刷新后的事件数 */
+    private final AtomicInteger pendingEvents = new AtomicInteger();
+
+    /** 刷新锁，后台线程与 flush() 调用方互斥 */
+    private final ReentrantLock flushLock = new ReentrantLock();
+
+    private final Object signal = new Object();
+
+    private volatile boolean running = true;
+    private Thread flushThread;
+
+    @PostConstruct
+    public void startFlushThread() {
+        if (!enabled) {
+            log.info("上传写回未启用，分片状态和任务进度直接写库");
+            return;
+        }
+        flushThread = new Thread(this::flushLoop, "upload-write-behind");
+        flushThread.setDaemon(true);
+        flushThread.start();
+        log.info("上传写回线程已启动（每 {}ms 或累计 {} 个事件刷新一次）", flushIntervalMs, batchSize);
+    }
+
+    @PreDestroy
+    public void stopFlushThread() {
+        running = false;
+        if (flushThread != null) {
+            flushThread.interrupt();
+        }
+        // 关闭前写入剩余数据
+        flush();
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public void chunkCompleted(Long fileId, int totalChunks, int chunkNumber) {
+        if (!enabled) {
+            fileInfoMapper.setChunkBits(fileId, ChunkBitmap.mask(totalChunks, chunkNumber));
+            return;
+        }
+        pendingBits.compute(fileId, (k, bits) -> {
+            PendingBits target = bits != null ? bits : new PendingBits(totalChunks);
+            target.set(chunkNumber);
+            return target;
+        });
+        onEvent();
+    }
+
+    @Override
+    public void chunkReverted(Long fileId, int totalChunks, int chunkNumber) {
+        if (!enabled) {
+            fileInfoMapper.clearChunkBits(fileId,
+                    ChunkBitmap.inverseMask(totalChunks, Collections.singletonList(chunkNumber)));
+            return;
+        }
+        pendingBits.compute(fileId, (k, bits) -> {
+            PendingBits target = bits != null ? bits : new PendingBits(totalChunks);
+            target.clear(chunkNumber);
+            return target;
+        });
+        onEvent();
+    }
+
+    @Override
+    public void taskProgress(String taskId, double progress) {
+        if (!enabled) {
+            transferTaskMapper.updateProgress(taskId, toProgress(progress));
+            return;
+        }
+        pendingProgress.put(taskId, progress);
+        onEvent();
+    }
+
+    @Override
+    public void flush() {
+        flushLock.lock();
+        try {
+            pendingEvents.set(0);
+            flushChunkBits();
+            flushProgress();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * 刷新循环：等待刷新间隔或被事件数唤醒
+     */
+    private void flushLoop() {
+        while (running) {
+            try {
+                synchronized (signal) {
+                    if (pendingEvents.get() < batchSize) {
+                        signal.wait(flushIntervalMs);
+                    }
+                }
+                flush();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                if (!running) {
+                    break;
+                }
+            } catch (Exception e) {
+                log.error("上传写回刷新失败: {}", e.getMessage(), e);
+            }
+        }
+        log.info("上传写回线程已退出");
+    }
+
+    private void onEvent() {
+        if (pendingEvents.incrementAndGet() == batchSize) {
+            synchronized (signal) {
+                signal.notifyAll();
+            }
+        }
+    }
+
+    private void flushChunkBits() {
+        for (Long fileId : pendingBits.keySet()) {
+            PendingBits bits = pendingBits.remove(fileId);
+            if (bits == null) {
+                continue;
+            }
+            try {
+                fileInfoMapper.updateChunkBits(fileId, bits.keep, bits.set);
+            } catch (Exception e) {
+                log.warn("写入分片位图失败，下次重试 - 文件ID: {}, 错误: {}", fileId, e.getMessage());
+                // 期间可能又有新的变更，旧变更需排在前面
+                pendingBits.merge(fileId, bits, (newer, failed) -> failed.then(newer));
+            }
+        }
+    }
+
+    private void flushProgress() {
+        for (String taskId : pendingProgress.keySet()) {
+            Double progress = pendingProgress.remove(taskId);
+            if (progress == null) {
+                continue;
+            }
+            try {
+                transferTaskMapper.updateProgress(taskId, toProgress(progress));
+            } catch (Exception e) {
+                log.warn("写入任务进度失败，下次重试 - 任务ID: {}, 错误: {}", taskId, e.getMessage());
+                pendingProgress.putIfAbsent(taskId, progress);
+            }
+        }
+    }
+
+    private static BigDecimal toProgress(double progress) {
+        return BigDecimal.valueOf(progress).setScale(2, RoundingMode.HALF_UP);
+    }
+
+    /**
+     * 单个文件待写的分片状态变更，应用方式：(位图 & keep) | set
+     * 同一分片以最后一次变更为准
+     */
+    private static final class PendingBits {
+
+        final byte[] keep;
+        final byte[] set;
+
+        PendingBits(int totalChunks) {
+            this(ChunkBitmap.inverseMask(totalChunks, Collections.emptyList()), ChunkBitmap.create(totalChunks));
+        }
+
+        private PendingBits(byte[] keep, byte[] set) {
+            this.keep = keep;
+            this.set = set;
+        }
+
+        void set(int chunkNumber) {
+            ChunkBitmap.set(set, chunkNumber);
+        }
+
+        void clear(int chunkNumber) {
+            ChunkBitmap.clear(set, chunkNumber);
+            ChunkBitmap.clear(keep, chunkNumber);
+        }
+
+        /**
+         * 先应用本变更再应用 newer 的等效变更
+         */
+        PendingBits then(PendingBits newer) {
+            int length = Math.min(keep.length, newer.keep.length);
+            byte[] mergedKeep = new byte[length];
+            byte[] mergedSet = new byte[length];
+            for (int i = 0; i < length; i++) {
+                mergedKeep[i] = (byte) (keep[i] & newer.keep[i]);
+                mergedSet[i] = (byte) ((set[i] & newer.keep[i]) | newer.set[i]);
+            }
+            return new PendingBits(mergedKeep, mergedSet);
+        }
+    }
+}
@@ -70,7 +70,7 @@ public class TempCleanupTask {
                 
                 // 遍历每个文件的临时分片目录
                 for (File fileDir : fileDirs) {
-                    long lastModified = fileDir.lastModified();
+                    long lastModified = getLastModified(fileDir);
                     long age = currentTime - lastModified;
                     
                     // 如果超过24小时未使用，删除
@@ -102,4 +102,22 @@ public class TempCleanupTask {
             log.error("清理临时文件失败", e);
         }
     }
+    
+    /**
+     * 获取临时目录的最近修改时间
+     * 直接落盘模式下分片写入预分配文件，目录本身的修改时间不会更新，需要取目录内文件的最大修改时间
+     *
+     * @param fileDir 文件临时目录
+     * @return 最近修改时间
+     */
+    private long getLastModified(File fileDir) {
+        long lastModified = fileDir.lastModified();
+        File[] files = fileDir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                lastModified = Math.max(lastModified, file.lastModified());
+            }
+        }
+        return lastModified;
+    }
 }
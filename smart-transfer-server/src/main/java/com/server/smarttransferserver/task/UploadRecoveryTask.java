@@ -0,0 +1,92 @@
+package com.server.smarttransferserver.task;
+
+import com.server.smarttransferserver.entity.FileInfo;
+import com.server.smarttransferserver.mapper.FileInfoMapper;
+import com.server.smarttransferserver.service.FileUploadCacheService;
+import com.server.smarttransferserver.service.IFileStorageService;
+import com.server.smarttransferserver.service.UploadWriteBehindService;
+import com.server.smarttransferserver.util.ChunkBitmap;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 上传状态恢复任务
+ * 写回模式下分片状态先于数据库写入磁盘分片日志，服务崩溃时数据库位图可能落后、Redis 位图可能超前，
+ * 启动时以分片日志为准重建所有上传中文件的位图（数据库与 Redis）和分片MD5缓存
+ */
+@Slf4j
+@Component
+public class UploadRecoveryTask implements ApplicationRunner {
+
+    @Autowired
+    private FileInfoMapper fileInfoMapper;
+
+    @Autowired
+    private IFileStorageService storageService;
+
+    @Autowired
+    private FileUploadCacheService uploadCacheService;
+
+    @Autowired
+    private UploadWriteBehindService writeBehindService;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!writeBehindService.isEnabled()) {
+            return;
+        }
+        List<FileInfo> uploadingFiles = fileInfoMapper.selectByUploadStatus("UPLOADING");
+        int recovered = 0;
+        for (FileInfo fileInfo : uploadingFiles) {
+            if (fileInfo.getTotalChunks() == null || fileInfo.getTotalChunks() <= 0) {
+                continue;
+            }
+            try {
+                if (recover(fileInfo)) {
+                    recovered++;
+                }
+            } catch (Exception e) {
+                log.warn("恢复上传状态失败 - 文件ID: {}, 错误: {}", fileInfo.getId(), e.getMessage());
+            }
+        }
+        if (recovered > 0) {
+            log.info("根据分片日志恢复上传状态完成 - 上传中文件: {}, 已恢复: {}", uploadingFiles.size(), recovered);
+        }
+    }
+
+    /**
+     * 恢复单个文件
+     *
+     * @param fileInfo 文件信息
+     * @return 是否存在分片日志并已恢复
+     */
+    private boolean recover(FileInfo fileInfo) throws Exception {
+        Long fileId = fileInfo.getId();
+        int totalChunks = fileInfo.getTotalChunks();
+        Map<Integer, String> chunks = storageService.readChunkJournal(fileInfo.getUserId(), fileId);
+        // 没有日志（旧版本上传的文件）时保留数据库中的位图
+        if (chunks.isEmpty()) {
+            return false;
+        }
+
+        byte[] bitmap = ChunkBitmap.create(totalChunks);
+        for (Integer chunkNumber : chunks.keySet()) {
+            if (chunkNumber >= 0 && chunkNumber < totalChunks) {
+                ChunkBitmap.set(bitmap, chunkNumber);
+            }
+        }
+        fileInfoMapper.updateChunkBitmap(fileId, bitmap);
+        uploadCacheService.restoreChunkBitmap(fileId, bitmap);
+        for (Map.Entry<Integer, String> entry : chunks.entrySet()) {
+            uploadCacheService.cacheChunkHash(fileId, entry.getKey(), entry.getValue());
+        }
+        log.debug("恢复上传状态 - 文件ID: {}, 已完成分片: {}/{}", fileId, ChunkBitmap.count(bitmap, totalChunks), totalChunks);
+        return true;
+    }
+}
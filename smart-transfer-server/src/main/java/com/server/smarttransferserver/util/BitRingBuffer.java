@@ -0,0 +1,107 @@
+package com.server.smarttransferserver.util;
+
+/**
+ * 定长位环形缓冲区（滑动窗口）
+ * 每个样本占1位，置位数随写入和淘汰增量维护，统计窗口内成功/丢包个数为 O(1)，
+ * 用于代替 Queue&lt;Boolean&gt;。非线程安全
+ */
+public class BitRingBuffer {
+
+    private final long[] words;
+    private final int capacity;
+    private int head;
+    private int size;
+    private int setCount;
+
+    /**
+     * @param capacity 窗口大小
+     */
+    public BitRingBuffer(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity必须大于0");
+        }
+        this.capacity = capacity;
+        this.words = new long[(capacity + 63) >>> 6];
+    }
+
+    /**
+     * 写入样本，窗口已满时丢弃最旧的样本
+     *
+     * @param value 样本
+     */
+    public void add(boolean value) {
+        int index;
+        if (size == capacity) {
+            index = head;
+            if (getBit(index)) {
+                setCount--;
+            }
+            head = (head + 1) % capacity;
+        } else {
+            index = (head + size) % capacity;
+            size++;
+        }
+        setBit(index, value);
+        if (value) {
+            setCount++;
+        }
+    }
+
+    /**
+     * 移除最旧的样本
+     *
+     * @return 被移除的样本
+     */
+    public boolean removeFirst() {
+        if (size == 0) {
+            throw new IllegalStateException("缓冲区为空");
+        }
+        boolean value = getBit(head);
+        if (value) {
+            setCount--;
+        }
+        head = (head + 1) % capacity;
+        size--;
+        return value;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * @return 窗口内为 true 的样本数
+     */
+    public int countTrue() {
+        return setCount;
+    }
+
+    /**
+     * @return 窗口内为 false 的样本数
+     */
+    public int countFalse() {
+        return size - setCount;
+    }
+
+    public void clear() {
+        head = 0;
+        size = 0;
+        setCount = 0;
+    }
+
+    private boolean getBit(int index) {
+        return (words[index >>> 6] & (1L << index)) != 0;
+    }
+
+    private void setBit(int index, boolean value) {
+        if (value) {
+            words[index >>> 6] |= 1L << index;
+        } else {
+            words[index >>> 6] &= ~(1L << index);
+        }
+    }
+}
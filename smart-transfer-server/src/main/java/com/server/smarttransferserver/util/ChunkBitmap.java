@@ -0,0 +1,176 @@
+package com.server.smarttransferserver.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 分片位图工具
+ * 每个分片占1位，位序与 Redis SETBIT 一致（分片 n 位于第 n/8 字节，从最高位开始），
+ * 因此 Redis 中的位图字节与 file_info.chunk_bitmap 可以直接互相复制
+ */
+public final class ChunkBitmap {
+
+    private ChunkBitmap() {
+    }
+
+    /**
+     * 位图字节数
+     *
+     * @param totalChunks 总分片数
+     * @return 字节数
+     */
+    public static int byteLength(int totalChunks) {
+        return (totalChunks + 7) / 8;
+    }
+
+    /**
+     * 创建空位图（所有分片未上传）
+     *
+     * @param totalChunks 总分片数
+     * @return 位图
+     */
+    public static byte[] create(int totalChunks) {
+        return new byte[byteLength(totalChunks)];
+    }
+
+    /**
+     * 仅包含指定分片的位图，用于按位或置位
+     *
+     * @param totalChunks 总分片数
+     * @param chunkNumber 分片序号
+     * @return 掩码
+     */
+    public static byte[] mask(int totalChunks, int chunkNumber) {
+        byte[] mask = create(totalChunks);
+        set(mask, chunkNumber);
+        return mask;
+    }
+
+    /**
+     * 除指定分片外全为1的位图，用于按位与清位
+     *
+     * @param totalChunks  总分片数
+     * @param chunkNumbers 分片序号
+     * @return 掩码
+     */
+    public static byte[] inverseMask(int totalChunks, List<Integer> chunkNumbers) {
+        byte[] mask = create(totalChunks);
+        for (int i = 0; i < mask.length; i++) {
+            mask[i] = (byte) 0xff;
+        }
+        for (Integer chunkNumber : chunkNumbers) {
+            mask[chunkNumber >>> 3] &= (byte) ~(0x80 >>> (chunkNumber & 7));
+        }
+        return mask;
+    }
+
+    /**
+     * 置位
+     */
+    public static void set(byte[] bitmap, int chunkNumber) {
+        bitmap[chunkNumber >>> 3] |= (byte) (0x80 >>> (chunkNumber & 7));
+    }
+
+    /**
+     * 清位
+     */
+    public static void clear(byte[] bitmap, int chunkNumber) {
+        bitmap[chunkNumber >>> 3] &= (byte) ~(0x80 >>> (chunkNumber & 7));
+    }
+
+    /**
+     * 按位或，语义同 MySQL 二进制串的 {@code |}：任一参数为null返回null，长度不同报错
+     * 用作 H2 的 BITMAP_OR 函数（perf 环境）
+     */
+    public static byte[] or(byte[] a, byte[] b) {
+        if (a == null || b == null) {
+            return null;
+        }
+        checkSameLength(a, b);
+        byte[] result = new byte[a.length];
+        for (int i = 0; i < a.length; i++) {
+            result[i] = (byte) (a[i] | b[i]);
+        }
+        return result;
+    }
+
+    /**
+     * 按位与，语义同 MySQL 二进制串的 {@code &}
+     * 用作 H2 的 BITMAP_AND 函数（perf 环境）
+     */
+    public static byte[] and(byte[] a, byte[] b) {
+        if (a == null || b == null) {
+            return null;
+        }
+        checkSameLength(a, b);
+        byte[] result = new byte[a.length];
+        for (int i = 0; i < a.length; i++) {
+            result[i] = (byte) (a[i] & b[i]);
+        }
+        return result;
+    }
+
+    private static void checkSameLength(byte[] a, byte[] b) {
+        if (a.length != b.length) {
+            throw new IllegalArgumentException("位图长度不一致: " + a.length + " != " + b.length);
+        }
+    }
+
+    /**
+     * 分片是否已上传（超出位图长度视为未上传）
+     */
+    public static boolean get(byte[] bitmap, int chunkNumber) {
+        int index = chunkNumber >>> 3;
+        return bitmap != null && index < bitmap.length && (bitmap[index] & (0x80 >>> (chunkNumber & 7))) != 0;
+    }
+
+    /**
+     * 已上传分片数
+     *
+     * @param bitmap      位图
+     * @param totalChunks 总分片数（忽略末字节多余的位）
+     * @return 已上传分片数
+     */
+    public static int count(byte[] bitmap, int totalChunks) {
+        if (bitmap == null) {
+            return 0;
+        }
+        int count = 0;
+        int fullBytes = Math.min(totalChunks >>> 3, bitmap.length);
+        for (int i = 0; i < fullBytes; i++) {
+            count += Integer.bitCount(bitmap[i] & 0xff);
+        }
+        for (int n = fullBytes << 3; n < totalChunks; n++) {
+            if (get(bitmap, n)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * 已上传的分片序号
+     */
+    public static List<Integer> setChunks(byte[] bitmap, int totalChunks) {
+        List<Integer> chunks = new ArrayList<>();
+        for (int n = 0; n < totalChunks; n++) {
+            if (get(bitmap, n)) {
+                chunks.add(n);
+            }
+        }
+        return chunks;
+    }
+
+    /**
+     * 未上传的分片序号
+     */
+    public static List<Integer> missingChunks(byte[] bitmap, int totalChunks) {
+        List<Integer> chunks = new ArrayList<>();
+        for (int n = 0; n < totalChunks; n++) {
+            if (!get(bitmap, n)) {
+                chunks.add(n);
+            }
+        }
+        return chunks;
+    }
+}
@@ -0,0 +1,71 @@
+package com.server.smarttransferserver.util;
+
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import javax.servlet.http.HttpServletRequest;
+
+/**
+ * 客户端IP工具
+ * 优先取反向代理传入的 X-Forwarded-For 第一个地址，其次 X-Real-IP，最后取连接地址
+ */
+public class ClientIpUtil {
+
+    private ClientIpUtil() {
+    }
+
+    /**
+     * 当前请求的客户端IP
+     *
+     * @return IP，不在请求线程中时返回null
+     */
+    public static String currentClientIp() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (!(attributes instanceof ServletRequestAttributes)) {
+            return null;
+        }
+        return getClientIp(((ServletRequestAttributes) attributes).getRequest());
+    }
+
+    /**
+     * 请求的客户端IP
+     *
+     * @param request 请求
+     * @return IP
+     */
+    public static String getClientIp(HttpServletRequest request) {
+        String forwarded = request.getHeader("X-Forwarded-For");
+        if (forwarded != null && !forwarded.isEmpty()) {
+            int comma = forwarded.indexOf(',');
+            return (comma >= 0 ? forwarded.substring(0, comma) : forwarded).trim();
+        }
+        String realIp = request.getHeader("X-Real-IP");
+        if (realIp != null && !realIp.isEmpty()) {
+            return realIp.trim();
+        }
+        return request.getRemoteAddr();
+    }
+
+    /**
+     * IP所在网段：IPv4 取前24位，IPv6 取前48位（前三组）
+     *
+     * @param ip IP
+     * @return 网段，如 192.168.1.0/24
+     */
+    public static String prefixOf(String ip) {
+        if (ip == null || ip.isEmpty()) {
+            return null;
+        }
+        if (ip.indexOf(':') >= 0) {
+            String[] groups = ip.split(":", -1);
+            StringBuilder prefix = new StringBuilder();
+            for (int i = 0; i < 3 && i < groups.length; i++) {
+                prefix.append(groups[i].isEmpty() ? "0" : groups[i]).append(':');
+            }
+            return prefix.append(":/48").toString();
+        }
+        int lastDot = ip.lastIndexOf('.');
+        return lastDot > 0 ? ip.substring(0, lastDot) + ".0/24" : ip;
+    }
+}
@@ -0,0 +1,75 @@
+package com.server.smarttransferserver.util;
+
+/**
+ * 定长 double 环形缓冲区（滑动窗口）
+ * 与 {@link LongRingBuffer} 相同，用于丢包率等小数样本，写满后覆盖最旧样本。
+ * 非线程安全
+ */
+public class DoubleRingBuffer {
+
+    private final double[] values;
+    private int head;
+    private int size;
+    private double sum;
+
+    /**
+     * @param capacity 窗口大小
+     */
+    public DoubleRingBuffer(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity必须大于0");
+        }
+        this.values = new double[capacity];
+    }
+
+    /**
+     * 写入样本，窗口已满时丢弃最旧的样本
+     *
+     * @param value 样本
+     */
+    public void add(double value) {
+        if (size == values.length) {
+            sum -= values[head];
+            values[head] = value;
+            head = (head + 1) % values.length;
+        } else {
+            values[(head + size) % values.length] = value;
+            size++;
+        }
+        sum += value;
+    }
+
+    /**
+     * 按写入顺序取样本
+     *
+     * @param index 0 为最旧的样本
+     * @return 样本
+     */
+    public double get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("index: " + index + ", size: " + size);
+        }
+        return values[(head + index) % values.length];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * @return 平均值，为空时返回0
+     */
+    public double mean() {
+        return size == 0 ? 0 : sum / size;
+    }
+
+    public void clear() {
+        head = 0;
+        size = 0;
+        sum = 0;
+    }
+}
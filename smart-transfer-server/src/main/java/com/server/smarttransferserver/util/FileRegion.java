@@ -0,0 +1,76 @@
+package com.server.smarttransferserver.util;
+
+import lombok.Getter;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * 文件区间（响应体）
+ * 由 FileRegionHttpMessageConverter 直接从文件写出，数据不经过堆内存；
+ * 设置了发送速率控制时按小段写出，每段写出前先向 Pacer 申请
+ */
+@Getter
+public class FileRegion {
+
+    /**
+     * 文件路径
+     */
+    private final Path path;
+
+    /**
+     * 起始位置
+     */
+    private final long position;
+
+    /**
+     * 字节数
+     */
+    private final long count;
+
+    /**
+     * 发送速率控制，null 表示不限速
+     */
+    private final Pacer pacer;
+
+    public FileRegion(Path path, long position, long count) {
+        this(path, position, count, null);
+    }
+
+    public FileRegion(Path path, long position, long count, Pacer pacer) {
+        this.path = path;
+        this.position = position;
+        this.count = count;
+        this.pacer = pacer;
+    }
+
+    /**
+     * 发送速率控制
+     * 限速写出期间一直占用写出线程（Tomcat 请求线程），调用方在写出前 tryBegin、写完后 end
+     */
+    public interface Pacer {
+
+        /**
+         * 申请发送指定字节数，超出速率时阻塞到允许发送
+         *
+         * @param bytes 字节数
+         * @throws IOException 等待被中断
+         */
+        void acquire(long bytes) throws IOException;
+
+        /**
+         * 开始一次限速写出
+         *
+         * @return 是否按限速写出；false 表示同时限速的写出已达上限，本次不限速
+         */
+        default boolean tryBegin() {
+            return true;
+        }
+
+        /**
+         * 结束限速写出（仅在 tryBegin 返回 true 后调用）
+         */
+        default void end() {
+        }
+    }
+}
@@ -0,0 +1,216 @@
+package com.server.smarttransferserver.util;
+
+import java.util.Arrays;
+import java.util.Base64;
+
+/**
+ * 可断点续算的MD5
+ * JDK 的 MessageDigest 内部状态无法导出，这里按 RFC 1321 实现，
+ * 内部状态（A/B/C/D、已处理字节数、未满64字节的缓冲）可以导出为字符串，存入Redis后在服务重启时恢复继续计算
+ */
+public class IncrementalMd5 {
+
+    private static final int BLOCK_SIZE = 64;
+
+    private static final int[] SHIFT = {
+            7, 12, 17, 22, 7, 12, 17, 22, 7, 12, 17, 22, 7, 12, 17, 22,
+            5, 9, 14, 20, 5, 9, 14, 20, 5, 9, 14, 20, 5, 9, 14, 20,
+            4, 11, 16, 23, 4, 11, 16, 23, 4, 11, 16, 23, 4, 11, 16, 23,
+            6, 10, 15, 21, 6, 10, 15, 21, 6, 10, 15, 21, 6, 10, 15, 21
+    };
+
+    private static final int[] TABLE = new int[64];
+
+    static {
+        for (int i = 0; i < 64; i++) {
+            TABLE[i] = (int) (long) ((1L << 32) * Math.abs(Math.sin(i + 1)));
+        }
+    }
+
+    private int a;
+    private int b;
+    private int c;
+    private int d;
+
+    /**
+     * 已处理的总字节数
+     */
+    private long byteCount;
+
+    /**
+     * 未满一个分组的缓冲
+     */
+    private final byte[] buffer = new byte[BLOCK_SIZE];
+
+    private int bufferLength;
+
+    /**
+     * 分组运算用的字数组，复用避免每个分组分配
+     */
+    private final int[] words = new int[16];
+
+    public IncrementalMd5() {
+        reset();
+    }
+
+    /**
+     * 重置为初始状态
+     */
+    public void reset() {
+        a = 0x67452301;
+        b = 0xefcdab89;
+        c = 0x98badcfe;
+        d = 0x10325476;
+        byteCount = 0;
+        bufferLength = 0;
+    }
+
+    /**
+     * 追加数据
+     *
+     * @param data   数据
+     * @param offset 起始位置
+     * @param length 长度
+     */
+    public void update(byte[] data, int offset, int length) {
+        byteCount += length;
+        int pos = offset;
+        int end = offset + length;
+
+        // 先补齐缓冲中的残余分组
+        if (bufferLength > 0) {
+            int n = Math.min(BLOCK_SIZE - bufferLength, length);
+            System.arraycopy(data, pos, buffer, bufferLength, n);
+            bufferLength += n;
+            pos += n;
+            if (bufferLength < BLOCK_SIZE) {
+                return;
+            }
+            processBlock(buffer, 0);
+            bufferLength = 0;
+        }
+
+        while (end - pos >= BLOCK_SIZE) {
+            processBlock(data, pos);
+            pos += BLOCK_SIZE;
+        }
+
+        if (pos < end) {
+            System.arraycopy(data, pos, buffer, 0, end - pos);
+            bufferLength = end - pos;
+        }
+    }
+
+    /**
+     * 已处理的总字节数
+     */
+    public long getByteCount() {
+        return byteCount;
+    }
+
+    /**
+     * 计算当前摘要（不影响内部状态，之后仍可继续追加）
+     *
+     * @return 32位小写十六进制MD5
+     */
+    public String hexDigest() {
+        IncrementalMd5 copy = IncrementalMd5.restore(exportState());
+
+        long bitLength = copy.byteCount << 3;
+        byte[] padding = new byte[(copy.bufferLength < 56 ? 56 : 120) - copy.bufferLength + 8];
+        padding[0] = (byte) 0x80;
+        for (int i = 0; i < 8; i++) {
+            padding[padding.length - 8 + i] = (byte) (bitLength >>> (8 * i));
+        }
+        copy.update(padding, 0, padding.length);
+
+        StringBuilder sb = new StringBuilder(32);
+        for (int word : new int[]{copy.a, copy.b, copy.c, copy.d}) {
+            for (int i = 0; i < 4; i++) {
+                sb.append(String.format("%02x", (word >>> (8 * i)) & 0xff));
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * 导出内部状态
+     * 格式：a,b,c,d,byteCount,base64(缓冲)
+     *
+     * @return 状态字符串
+     */
+    public String exportState() {
+        return a + "," + b + "," + c + "," + d + "," + byteCount + ","
+                + Base64.getEncoder().encodeToString(Arrays.copyOf(buffer, bufferLength));
+    }
+
+    /**
+     * 从导出的状态恢复
+     *
+     * @param state 状态字符串
+     * @return MD5实例
+     * @throws IllegalArgumentException 状态格式错误
+     */
+    public static IncrementalMd5 restore(String state) {
+        String[] parts = state.split(",", -1);
+        if (parts.length != 6) {
+            throw new IllegalArgumentException("MD5状态格式错误: " + state);
+        }
+        IncrementalMd5 md5 = new IncrementalMd5();
+        md5.a = Integer.parseInt(parts[0]);
+        md5.b = Integer.parseInt(parts[1]);
+        md5.c = Integer.parseInt(parts[2]);
+        md5.d = Integer.parseInt(parts[3]);
+        md5.byteCount = Long.parseLong(parts[4]);
+        byte[] pending = Base64.getDecoder().decode(parts[5]);
+        if (pending.length >= BLOCK_SIZE || pending.length != (int) (md5.byteCount % BLOCK_SIZE)) {
+            throw new IllegalArgumentException("MD5状态缓冲长度错误: " + pending.length);
+        }
+        System.arraycopy(pending, 0, md5.buffer, 0, pending.length);
+        md5.bufferLength = pending.length;
+        return md5;
+    }
+
+    private void processBlock(byte[] block, int offset) {
+        for (int i = 0; i < 16; i++) {
+            int p = offset + i * 4;
+            words[i] = (block[p] & 0xff)
+                    | ((block[p + 1] & 0xff) << 8)
+                    | ((block[p + 2] & 0xff) << 16)
+                    | ((block[p + 3] & 0xff) << 24);
+        }
+
+        int aa = a;
+        int bb = b;
+        int cc = c;
+        int dd = d;
+
+        for (int i = 0; i < 64; i++) {
+            int f;
+            int g;
+            if (i < 16) {
+                f = (bb & cc) | (~bb & dd);
+                g = i;
+            } else if (i < 32) {
+                f = (dd & bb) | (~dd & cc);
+                g = (5 * i + 1) & 15;
+            } else if (i < 48) {
+                f = bb ^ cc ^ dd;
+                g = (3 * i + 5) & 15;
+            } else {
+                f = cc ^ (bb | ~dd);
+                g = (7 * i) & 15;
+            }
+            int temp = dd;
+            dd = cc;
+            cc = bb;
+            bb = bb + Integer.rotateLeft(aa + f + TABLE[i] + words[g], SHIFT[i]);
+            aa = temp;
+        }
+
+        a += aa;
+        b += bb;
+        c += cc;
+        d += dd;
+    }
+}
@@ -0,0 +1,150 @@
+package com.server.smarttransferserver.util;
+
+/**
+ * 定长 long 环形缓冲区（滑动窗口）
+ * 写满后新样本覆盖最旧样本，累加和随写入增量维护；
+ * 拥塞控制每个ACK都会写入样本，用原始类型数组代替 Queue&lt;Long&gt;，稳态下写入和统计都不产生对象分配。
+ * 非线程安全，由算法实例自身的调用方保证串行
+ */
+public class LongRingBuffer {
+
+    private final long[] values;
+    private int head;
+    private int size;
+    private long sum;
+
+    /**
+     * @param capacity 窗口大小
+     */
+    public LongRingBuffer(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity必须大于0");
+        }
+        this.values = new long[capacity];
+    }
+
+    /**
+     * 写入样本，窗口已满时丢弃最旧的样本
+     *
+     * @param value 样本
+     */
+    public void add(long value) {
+        if (size == values.length) {
+            sum -= values[head];
+            values[head] = value;
+            head = (head + 1) % values.length;
+        } else {
+            values[(head + size) % values.length] = value;
+            size++;
+        }
+        sum += value;
+    }
+
+    /**
+     * 移除最旧的样本
+     *
+     * @return 被移除的样本
+     */
+    public long removeFirst() {
+        if (size == 0) {
+            throw new IllegalStateException("缓冲区为空");
+        }
+        long value = values[head];
+        head = (head + 1) % values.length;
+        size--;
+        sum -= value;
+        return value;
+    }
+
+    /**
+     * 按写入顺序取样本
+     *
+     * @param index 0 为最旧的样本
+     * @return 样本
+     */
+    public long get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("index: " + index + ", size: " + size);
+        }
+        return values[(head + index) % values.length];
+    }
+
+    /**
+     * 最新的样本
+     *
+     * @return 样本
+     */
+    public long last() {
+        return get(size - 1);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int capacity() {
+        return values.length;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public long sum() {
+        return sum;
+    }
+
+    /**
+     * @return 平均值，为空时返回0
+     */
+    public double mean() {
+        return size == 0 ? 0 : (double) sum / size;
+    }
+
+    /**
+     * @return 最小值，为空时返回0
+     */
+    public long min() {
+        if (size == 0) {
+            return 0;
+        }
+        long min = Long.MAX_VALUE;
+        for (int i = 0; i < size; i++) {
+            min = Math.min(min, values[(head + i) % values.length]);
+        }
+        return min;
+    }
+
+    /**
+     * @return 最大值，为空时返回0
+     */
+    public long max() {
+        if (size == 0) {
+            return 0;
+        }
+        long max = Long.MIN_VALUE;
+        for (int i = 0; i < size; i++) {
+            max = Math.max(max, values[(head + i) % values.length]);
+        }
+        return max;
+    }
+
+    /**
+     * 按写入顺序复制样本到调用方的数组（调用方复用数组，避免每次统计都分配）
+     *
+     * @param dest 目标数组，长度不小于 size()
+     * @return 复制的样本数
+     */
+    public int copyTo(long[] dest) {
+        for (int i = 0; i < size; i++) {
+            dest[i] = values[(head + i) % values.length];
+        }
+        return size;
+    }
+
+    public void clear() {
+        head = 0;
+        size = 0;
+        sum = 0;
+    }
+}
@@ -0,0 +1,74 @@
+package com.server.smarttransferserver.util;
+
+/**
+ * 加权最大最小公平分配（注水法）
+ * 容量按权重分给各参与者；份额超过自身上限的参与者只拿上限，剩余容量在其余参与者之间继续按权重分配，
+ * 直到没有参与者被上限截断
+ */
+public final class MaxMinFairShare {
+
+    /**
+     * 不限（容量或上限）
+     */
+    public static final long UNLIMITED = Long.MAX_VALUE;
+
+    private MaxMinFairShare() {
+    }
+
+    /**
+     * 分配容量
+     *
+     * @param capacity 总容量，UNLIMITED 表示不限
+     * @param weights  权重（小于等于0按极小权重处理）
+     * @param caps     各参与者上限，UNLIMITED 表示不限
+     * @return 各参与者分到的容量；总容量和上限都不限时为 UNLIMITED
+     */
+    public static long[] allocate(long capacity, double[] weights, long[] caps) {
+        int n = weights.length;
+        long[] result = new long[n];
+        if (capacity == UNLIMITED) {
+            System.arraycopy(caps, 0, result, 0, n);
+            return result;
+        }
+        boolean[] fixed = new boolean[n];
+        int remainingCount = n;
+        double remaining = capacity;
+        while (remainingCount > 0) {
+            double weightSum = 0;
+            for (int i = 0; i < n; i++) {
+                if (!fixed[i]) {
+                    weightSum += effectiveWeight(weights[i]);
+                }
+            }
+            // 本轮份额按轮初的剩余容量计算，被截断者让出的容量留到下一轮分配
+            double pool = remaining;
+            boolean capped = false;
+            for (int i = 0; i < n; i++) {
+                if (fixed[i]) {
+                    continue;
+                }
+                double share = pool * effectiveWeight(weights[i]) / weightSum;
+                if (caps[i] != UNLIMITED && caps[i] <= share) {
+                    result[i] = caps[i];
+                    fixed[i] = true;
+                    remainingCount--;
+                    remaining -= caps[i];
+                    capped = true;
+                }
+            }
+            if (!capped) {
+                for (int i = 0; i < n; i++) {
+                    if (!fixed[i]) {
+                        result[i] = (long) (remaining * effectiveWeight(weights[i]) / weightSum);
+                    }
+                }
+                break;
+            }
+        }
+        return result;
+    }
+
+    private static double effectiveWeight(double weight) {
+        return weight > 0 ? weight : 1e-6;
+    }
+}
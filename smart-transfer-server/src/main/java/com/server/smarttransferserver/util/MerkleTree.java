@@ -0,0 +1,184 @@
+package com.server.smarttransferserver.util;
+
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.codec.digest.DigestUtils;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * SHA-256 Merkle 树哈希（SHA256_TREE）
+ * 文件按 1MB 切分为叶子，叶子哈希 = SHA256(0x00 || 数据)，内部节点 = SHA256(0x01 || 左 || 右)，
+ * 奇数个节点时最后一个直接提升到上一层；根哈希为64位小写十六进制
+ * 叶子之间互不依赖，可以多核并行计算，叶子哈希同时可作为按区间校验的数据
+ */
+public final class MerkleTree {
+
+    /**
+     * 算法名称（FileUploadInitDTO.hashAlgorithm / file_info.hash_algorithm）
+     */
+    public static final String ALGORITHM = "SHA256_TREE";
+
+    /**
+     * 叶子大小：1MB
+     */
+    public static final int LEAF_SIZE = 1024 * 1024;
+
+    /**
+     * 单个并行任务最多处理的叶子数，更少时不再拆分
+     */
+    private static final int LEAVES_PER_TASK = 8;
+
+    private static final byte LEAF_PREFIX = 0x00;
+    private static final byte NODE_PREFIX = 0x01;
+
+    private static final ThreadLocal<byte[]> LEAF_BUFFER = ThreadLocal.withInitial(() -> new byte[LEAF_SIZE]);
+
+    private MerkleTree() {
+    }
+
+    /**
+     * 叶子数
+     *
+     * @param fileSize 文件大小
+     * @return 叶子数（空文件为1个空叶子）
+     */
+    public static int leafCount(long fileSize) {
+        return (int) Math.max(1, (fileSize + LEAF_SIZE - 1) / LEAF_SIZE);
+    }
+
+    /**
+     * 计算叶子哈希
+     *
+     * @param data   数据
+     * @param offset 起始位置
+     * @param length 长度（不超过 LEAF_SIZE）
+     * @return 32字节哈希
+     */
+    public static byte[] hashLeaf(byte[] data, int offset, int length) {
+        MessageDigest digest = DigestUtils.getSha256Digest();
+        digest.update(LEAF_PREFIX);
+        digest.update(data, offset, length);
+        return digest.digest();
+    }
+
+    /**
+     * 由叶子哈希计算根哈希
+     *
+     * @param leaves 叶子哈希（不能有空位）
+     * @return 根哈希（64位小写十六进制）
+     */
+    public static String root(byte[][] leaves) {
+        byte[][] level = leaves;
+        MessageDigest digest = DigestUtils.getSha256Digest();
+        while (level.length > 1) {
+            byte[][] parent = new byte[(level.length + 1) / 2][];
+            for (int i = 0; i < parent.length; i++) {
+                int left = i * 2;
+                if (left + 1 == level.length) {
+                    parent[i] = level[left];
+                    continue;
+                }
+                digest.reset();
+                digest.update(NODE_PREFIX);
+                digest.update(level[left]);
+                digest.update(level[left + 1]);
+                parent[i] = digest.digest();
+            }
+            level = parent;
+        }
+        return Hex.encodeHexString(level[0]);
+    }
+
+    /**
+     * 并行计算文件的所有叶子哈希
+     * 按叶子区间拆分任务，每个任务用 FileChannel 按位置读取，互不干扰
+     *
+     * @param path 文件路径
+     * @param pool 并行计算的线程池
+     * @return 叶子哈希
+     * @throws IOException IO异常
+     */
+    public static byte[][] hashLeaves(Path path, ForkJoinPool pool) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long fileSize = channel.size();
+            byte[][] leaves = new byte[leafCount(fileSize)][];
+            try {
+                pool.invoke(new LeafRangeTask(channel, fileSize, leaves, 0, leaves.length));
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            return leaves;
+        }
+    }
+
+    /**
+     * 并行计算文件的根哈希
+     *
+     * @param path 文件路径
+     * @param pool 并行计算的线程池
+     * @return 根哈希
+     * @throws IOException IO异常
+     */
+    public static String hashFile(Path path, ForkJoinPool pool) throws IOException {
+        return root(hashLeaves(path, pool));
+    }
+
+    /**
+     * 计算 [from, to) 区间叶子的任务
+     */
+    private static class LeafRangeTask extends RecursiveAction {
+
+        private final FileChannel channel;
+        private final long fileSize;
+        private final byte[][] leaves;
+        private final int from;
+        private final int to;
+
+        LeafRangeTask(FileChannel channel, long fileSize, byte[][] leaves, int from, int to) {
+            this.channel = channel;
+            this.fileSize = fileSize;
+            this.leaves = leaves;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > LEAVES_PER_TASK) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new LeafRangeTask(channel, fileSize, leaves, from, mid),
+                        new LeafRangeTask(channel, fileSize, leaves, mid, to));
+                return;
+            }
+            byte[] buffer = LEAF_BUFFER.get();
+            for (int i = from; i < to; i++) {
+                long position = (long) i * LEAF_SIZE;
+                int length = (int) Math.min(LEAF_SIZE, fileSize - position);
+                try {
+                    readFully(position, buffer, length);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                leaves[i] = hashLeaf(buffer, 0, length);
+            }
+        }
+
+        private void readFully(long position, byte[] buffer, int length) throws IOException {
+            ByteBuffer target = ByteBuffer.wrap(buffer, 0, length);
+            while (target.hasRemaining()) {
+                int n = channel.read(target, position + target.position());
+                if (n < 0) {
+                    throw new IOException("文件被截断: 位置 " + (position + target.position()));
+                }
+            }
+        }
+    }
+}
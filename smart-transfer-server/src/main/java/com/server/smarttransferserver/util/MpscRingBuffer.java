@@ -0,0 +1,114 @@
+package com.server.smarttransferserver.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+/**
+ * 有界无锁环形队列（多生产者单消费者）
+ * 每个槽位带序号：生产者 CAS 抢占写位置后写入元素再发布序号，消费者按序号判断槽位是否可读，
+ * 写入不加锁、不阻塞，队列满时 offer 直接返回 false 由调用方计数丢弃。
+ * poll/drain 只能由同一个线程（或在外部互斥下）调用
+ */
+public class MpscRingBuffer<E> {
+
+    private final int capacity;
+    private final int mask;
+    private final AtomicReferenceArray<E> buffer;
+    /** 槽位序号：等于写位置时可写，等于写位置+1时可读 */
+    private final AtomicLongArray sequences;
+    private final AtomicLong tail = new AtomicLong();
+    private volatile long head;
+
+    /**
+     * @param capacity 容量，向上取整为2的幂
+     */
+    public MpscRingBuffer(int capacity) {
+        if (capacity <= 0 || capacity > (1 << 30)) {
+            throw new IllegalArgumentException("capacity必须在1到2^30之间");
+        }
+        this.capacity = capacity == 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+        this.mask = this.capacity - 1;
+        this.buffer = new AtomicReferenceArray<>(this.capacity);
+        this.sequences = new AtomicLongArray(this.capacity);
+        for (int i = 0; i < this.capacity; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    /**
+     * 写入元素（可多线程并发调用）
+     *
+     * @param element 元素
+     * @return 是否写入，队列满时返回false
+     */
+    public boolean offer(E element) {
+        long position = tail.get();
+        while (true) {
+            int index = (int) (position & mask);
+            long diff = sequences.get(index) - position;
+            if (diff == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    buffer.lazySet(index, element);
+                    sequences.lazySet(index, position + 1);
+                    return true;
+                }
+                position = tail.get();
+            } else if (diff < 0) {
+                // 槽位还是上一圈的数据，消费者未读走
+                return false;
+            } else {
+                // 其他生产者已占用该位置
+                position = tail.get();
+            }
+        }
+    }
+
+    /**
+     * 取出一个元素（单消费者）
+     *
+     * @return 元素，队列为空（或下一个槽位尚未发布）时返回null
+     */
+    public E poll() {
+        long position = head;
+        int index = (int) (position & mask);
+        if (sequences.get(index) != position + 1) {
+            return null;
+        }
+        E element = buffer.get(index);
+        buffer.lazySet(index, null);
+        sequences.lazySet(index, position + capacity);
+        head = position + 1;
+        return element;
+    }
+
+    /**
+     * 取出当前所有可读元素（单消费者）
+     *
+     * @param consumer 元素处理
+     * @param limit    最多取出的元素数
+     * @return 取出的元素数
+     */
+    public int drain(Consumer<E> consumer, int limit) {
+        int count = 0;
+        E element;
+        while (count < limit && (element = poll()) != null) {
+            consumer.accept(element);
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * 当前元素数（近似值，包含已抢占但尚未发布的槽位）
+     */
+    public int size() {
+        long size = tail.get() - head;
+        return (int) Math.max(0, Math.min(size, capacity));
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+}
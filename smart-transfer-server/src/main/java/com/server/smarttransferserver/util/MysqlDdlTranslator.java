@@ -0,0 +1,253 @@
+package com.server.smarttransferserver.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 把 MySQL 建表脚本（sql/smart_transfer.sql，Navicat 导出）转换成 H2（MySQL 兼容模式）可执行的语句
+ * 只处理导出脚本里出现的语法：
+ * <ul>
+ *     <li>去掉注释、SET 语句、DROP TABLE（内存库总是空库）</li>
+ *     <li>去掉字符集/排序规则、COMMENT、USING BTREE 和表选项（ENGINE、AUTO_INCREMENT 初值、ROW_FORMAT 等）</li>
+ *     <li>blob 类型转为 VARBINARY，text 类型转为 VARCHAR</li>
+ *     <li>表内索引拆成 CREATE INDEX（H2 的索引名在整个 schema 内唯一，加表名前缀），外键在所有表建完后用 ALTER TABLE 添加</li>
+ * </ul>
+ * 反引号标识符转为双引号，配合 DATABASE_TO_LOWER 与代码里不加引号的小写表名/列名一致
+ */
+public final class MysqlDdlTranslator {
+
+    private static final Pattern COMMENT = Pattern.compile("\\s+COMMENT\\s*=?\\s*'(?:[^'\\\\]|\\\\.|'')*'",
+            Pattern.CASE_INSENSITIVE);
+    private static final Pattern CHARSET = Pattern.compile("\\s+(?:CHARACTER\\s+SET|CHARSET|COLLATE)\\s*=?\\s*\\w+",
+            Pattern.CASE_INSENSITIVE);
+    private static final Pattern USING = Pattern.compile("\\s+USING\\s+(?:BTREE|HASH)", Pattern.CASE_INSENSITIVE);
+    private static final Pattern UNSIGNED = Pattern.compile("\\s+UNSIGNED\\b", Pattern.CASE_INSENSITIVE);
+    private static final Pattern COLUMN_TYPE = Pattern.compile("^(`[^`]+`|\\S+)\\s+(\\w+)(\\s*\\([^)]*\\))?",
+            Pattern.CASE_INSENSITIVE);
+    private static final Pattern INDEX = Pattern.compile(
+            "^(UNIQUE\\s+)?(?:INDEX|KEY)\\s+(`[^`]+`|\\w+)\\s*(\\(.*\\))", Pattern.CASE_INSENSITIVE);
+
+    private MysqlDdlTranslator() {
+    }
+
+    /**
+     * 转换整个脚本
+     *
+     * @param script MySQL 脚本
+     * @return H2 语句（依次为建表、建索引、其他语句、外键）
+     */
+    public static List<String> toH2(String script) {
+        List<String> tables = new ArrayList<>();
+        List<String> indexes = new ArrayList<>();
+        List<String> others = new ArrayList<>();
+        List<String> foreignKeys = new ArrayList<>();
+        for (String statement : split(script)) {
+            String upper = statement.toUpperCase(Locale.ROOT);
+            if (upper.startsWith("SET ") || upper.startsWith("DROP TABLE")) {
+                continue;
+            }
+            if (upper.startsWith("CREATE TABLE")) {
+                translateTable(statement, tables, indexes, foreignKeys);
+            } else {
+                others.add(quote(statement));
+            }
+        }
+        List<String> result = new ArrayList<>(tables);
+        result.addAll(indexes);
+        result.addAll(others);
+        result.addAll(foreignKeys);
+        return result;
+    }
+
+    private static void translateTable(String statement, List<String> tables, List<String> indexes,
+                                       List<String> foreignKeys) {
+        int open = statement.indexOf('(');
+        int close = matchingParen(statement, open);
+        if (open < 0 || close < 0) {
+            throw new IllegalArgumentException("无法解析建表语句: " + statement);
+        }
+        String table = unquote(statement.substring("CREATE TABLE".length(), open)
+                .replaceFirst("(?i)^\\s*IF\\s+NOT\\s+EXISTS", "").trim());
+
+        List<String> definitions = new ArrayList<>();
+        for (String item : splitTopLevel(statement.substring(open + 1, close))) {
+            String definition = strip(item);
+            String upper = definition.toUpperCase(Locale.ROOT);
+            Matcher index = INDEX.matcher(definition);
+            if (upper.startsWith("PRIMARY KEY")) {
+                definitions.add(quote(definition));
+            } else if (index.find()) {
+                String columns = index.group(3);
+                indexes.add("CREATE " + (index.group(1) != null ? "UNIQUE " : "") + "INDEX \""
+                        + table + "_" + unquote(index.group(2)) + "\" ON \"" + table + "\" " + quote(columns));
+            } else if (upper.startsWith("CONSTRAINT") || upper.startsWith("FOREIGN KEY")) {
+                foreignKeys.add("ALTER TABLE \"" + table + "\" ADD " + quote(definition));
+            } else if (upper.startsWith("FULLTEXT") || upper.startsWith("SPATIAL")) {
+                // H2 没有对应索引，性能测试不涉及全文检索
+                continue;
+            } else {
+                definitions.add(quote(column(definition)));
+            }
+        }
+        tables.add("CREATE TABLE \"" + table + "\" (\n  " + String.join(",\n  ", definitions) + "\n)");
+    }
+
+    /**
+     * 列定义：替换 H2 不支持的类型
+     */
+    private static String column(String definition) {
+        String stripped = UNSIGNED.matcher(definition).replaceAll("");
+        Matcher matcher = COLUMN_TYPE.matcher(stripped);
+        if (!matcher.find()) {
+            return stripped;
+        }
+        String type = matcher.group(2).toLowerCase(Locale.ROOT);
+        String mapped;
+        if (type.endsWith("blob")) {
+            mapped = "VARBINARY";
+        } else if (type.endsWith("text") || "json".equals(type)) {
+            mapped = "VARCHAR";
+        } else {
+            return stripped;
+        }
+        return matcher.group(1) + " " + mapped + stripped.substring(matcher.end());
+    }
+
+    private static String strip(String definition) {
+        String result = COMMENT.matcher(definition).replaceAll("");
+        result = CHARSET.matcher(result).replaceAll("");
+        return USING.matcher(result).replaceAll("").trim();
+    }
+
+    private static String quote(String sql) {
+        return sql.replace('`', '"');
+    }
+
+    private static String unquote(String identifier) {
+        String name = identifier.trim();
+        if (name.startsWith("`") && name.endsWith("`")) {
+            name = name.substring(1, name.length() - 1);
+        }
+        return name;
+    }
+
+    /**
+     * 按分号拆分语句，跳过注释，分号在字符串或标识符内时不拆分
+     */
+    private static List<String> split(String script) {
+        List<String> statements = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        int length = script.length();
+        int i = 0;
+        while (i < length) {
+            char c = script.charAt(i);
+            if (c == '\'' || c == '"' || c == '`') {
+                int end = endOfQuoted(script, i);
+                current.append(script, i, end);
+                i = end;
+            } else if (c == '/' && i + 1 < length && script.charAt(i + 1) == '*') {
+                int end = script.indexOf("*/", i + 2);
+                i = end < 0 ? length : end + 2;
+                current.append(' ');
+            } else if (c == '#' || (c == '-' && script.startsWith("--", i))) {
+                int end = script.indexOf('\n', i);
+                i = end < 0 ? length : end + 1;
+                current.append('\n');
+            } else if (c == ';') {
+                addStatement(statements, current);
+                i++;
+            } else {
+                current.append(c);
+                i++;
+            }
+        }
+        addStatement(statements, current);
+        return statements;
+    }
+
+    private static void addStatement(List<String> statements, StringBuilder current) {
+        String statement = current.toString().trim();
+        if (!statement.isEmpty()) {
+            statements.add(statement);
+        }
+        current.setLength(0);
+    }
+
+    /**
+     * 引号结束后的位置，支持 '' 和反斜杠转义
+     */
+    private static int endOfQuoted(String sql, int start) {
+        char quote = sql.charAt(start);
+        int i = start + 1;
+        while (i < sql.length()) {
+            char c = sql.charAt(i);
+            if (c == '\\' && quote == '\'') {
+                i += 2;
+            } else if (c == quote) {
+                if (i + 1 < sql.length() && sql.charAt(i + 1) == quote) {
+                    i += 2;
+                } else {
+                    return i + 1;
+                }
+            } else {
+                i++;
+            }
+        }
+        return sql.length();
+    }
+
+    private static int matchingParen(String sql, int open) {
+        if (open < 0) {
+            return -1;
+        }
+        int depth = 0;
+        int i = open;
+        while (i < sql.length()) {
+            char c = sql.charAt(i);
+            if (c == '\'' || c == '"' || c == '`') {
+                i = endOfQuoted(sql, i);
+                continue;
+            }
+            if (c == '(') {
+                depth++;
+            } else if (c == ')' && --depth == 0) {
+                return i;
+            }
+            i++;
+        }
+        return -1;
+    }
+
+    /**
+     * 按不在括号和引号内的逗号拆分
+     */
+    private static List<String> splitTopLevel(String body) {
+        List<String> items = new ArrayList<>();
+        int depth = 0;
+        int start = 0;
+        int i = 0;
+        while (i < body.length()) {
+            char c = body.charAt(i);
+            if (c == '\'' || c == '"' || c == '`') {
+                i = endOfQuoted(body, i);
+                continue;
+            }
+            if (c == '(') {
+                depth++;
+            } else if (c == ')') {
+                depth--;
+            } else if (c == ',' && depth == 0) {
+                items.add(body.substring(start, i));
+                start = i + 1;
+            }
+            i++;
+        }
+        if (start < body.length() && !body.substring(start).trim().isEmpty()) {
+            items.add(body.substring(start));
+        }
+        return items;
+    }
+}
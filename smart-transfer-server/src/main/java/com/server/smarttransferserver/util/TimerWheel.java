@@ -0,0 +1,140 @@
+package com.server.smarttransferserver.util;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 哈希时间轮
+ * 单个后台线程按 tick 推进，所有定时任务共用这一个线程；任务按到期 tick 放入对应槽位，
+ * 超过一圈的任务记录剩余圈数。提交只写入无锁队列，槽位只由后台线程访问
+ * 精度为一个 tick，适合大量短延时任务（如发送速率控制），不适合需要精确时间的场景
+ */
+@Slf4j
+public final class TimerWheel {
+
+    private final long tickNanos;
+    private final int mask;
+    private final ArrayDeque<Timeout>[] slots;
+    private final ConcurrentLinkedQueue<Timeout> pending = new ConcurrentLinkedQueue<>();
+    private final long startNanos;
+    private final Thread worker;
+
+    private volatile boolean running = true;
+
+    /** 当前 tick，只由后台线程读写 */
+    private long tick;
+
+    /**
+     * @param name       线程名
+     * @param tickMillis 每个 tick 的毫秒数
+     * @param wheelSize  槽位数（向上取整为2的幂）
+     */
+    @SuppressWarnings("unchecked")
+    public TimerWheel(String name, long tickMillis, int wheelSize) {
+        int size = Integer.highestOneBit(Math.max(wheelSize, 2) - 1) << 1;
+        this.tickNanos = Math.max(1, tickMillis) * 1_000_000L;
+        this.mask = size - 1;
+        this.slots = new ArrayDeque[size];
+        for (int i = 0; i < size; i++) {
+            slots[i] = new ArrayDeque<>();
+        }
+        this.startNanos = System.nanoTime();
+        this.worker = new Thread(this::run, name);
+        this.worker.setDaemon(true);
+        this.worker.start();
+    }
+
+    /**
+     * 提交定时任务（任务在时间轮线程中执行，必须很快返回）
+     *
+     * @param task       任务
+     * @param delayNanos 延迟（纳秒）
+     */
+    public void schedule(Runnable task, long delayNanos) {
+        pending.add(new Timeout(task, System.nanoTime() + Math.max(0, delayNanos)));
+    }
+
+    /**
+     * 停止时间轮，尚未到期的任务立即执行（释放等待方）
+     */
+    public void stop() {
+        running = false;
+        worker.interrupt();
+        try {
+            worker.join(1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (ArrayDeque<Timeout> slot : slots) {
+            for (Timeout timeout : slot) {
+                runQuietly(timeout.task);
+            }
+            slot.clear();
+        }
+        Timeout timeout;
+        while ((timeout = pending.poll()) != null) {
+            runQuietly(timeout.task);
+        }
+    }
+
+    private void run() {
+        while (running) {
+            long deadline = startNanos + (tick + 1) * tickNanos;
+            long wait;
+            while (running && (wait = deadline - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(this, wait);
+            }
+            if (!running) {
+                return;
+            }
+            transferPending();
+            expire(slots[(int) (tick & mask)]);
+            tick++;
+        }
+    }
+
+    private void transferPending() {
+        Timeout timeout;
+        while ((timeout = pending.poll()) != null) {
+            long target = Math.max(tick, (timeout.deadlineNanos - startNanos + tickNanos - 1) / tickNanos);
+            timeout.rounds = (target - tick) / slots.length;
+            slots[(int) (target & mask)].add(timeout);
+        }
+    }
+
+    private void expire(ArrayDeque<Timeout> slot) {
+        Iterator<Timeout> it = slot.iterator();
+        while (it.hasNext()) {
+            Timeout timeout = it.next();
+            if (timeout.rounds > 0) {
+                timeout.rounds--;
+                continue;
+            }
+            it.remove();
+            runQuietly(timeout.task);
+        }
+    }
+
+    private static void runQuietly(Runnable task) {
+        try {
+            task.run();
+        } catch (Throwable t) {
+            log.error("时间轮任务执行失败", t);
+        }
+    }
+
+    private static final class Timeout {
+        private final Runnable task;
+        private final long deadlineNanos;
+        private long rounds;
+
+        Timeout(Runnable task, long deadlineNanos) {
+            this.task = task;
+            this.deadlineNanos = deadlineNanos;
+        }
+    }
+}
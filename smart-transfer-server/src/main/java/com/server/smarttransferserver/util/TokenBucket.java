@@ -0,0 +1,65 @@
+package com.server.smarttransferserver.util;
+
+/**
+ * 令牌桶（字节）
+ * 速率每次预留时由调用方传入（拥塞控制算法的速率随时变化），桶容量为速率对应的 burstMillis 时长的字节数；
+ * 预留允许令牌为负（先发后补），返回需要等待的时间，等待结束后即可发送
+ */
+public class TokenBucket {
+
+    private final long burstMillis;
+    private final long minBurstBytes;
+
+    private double tokens;
+    private long lastRefillNanos;
+
+    /**
+     * @param burstMillis   桶容量对应的时长（毫秒）
+     * @param minBurstBytes 最小桶容量（字节），不小于单次预留的字节数
+     */
+    public TokenBucket(long burstMillis, long minBurstBytes) {
+        this.burstMillis = burstMillis;
+        this.minBurstBytes = minBurstBytes;
+        this.tokens = minBurstBytes;
+        this.lastRefillNanos = System.nanoTime();
+    }
+
+    /**
+     * 预留令牌
+     *
+     * @param bytes       字节数
+     * @param rateBytesPerSecond 当前速率（字节/秒），必须大于0
+     * @return 需要等待的纳秒数，0 表示可以立即发送
+     */
+    public synchronized long reserve(long bytes, long rateBytesPerSecond) {
+        refill(bytes, rateBytesPerSecond);
+        tokens -= bytes;
+        if (tokens >= 0) {
+            return 0;
+        }
+        return (long) (-tokens * 1e9 / rateBytesPerSecond);
+    }
+
+    /**
+     * 计算预留需要等待的时间，不扣减令牌
+     *
+     * @param bytes       字节数
+     * @param rateBytesPerSecond 当前速率（字节/秒），必须大于0
+     * @return 立即预留需要等待的纳秒数
+     */
+    public synchronized long peek(long bytes, long rateBytesPerSecond) {
+        refill(bytes, rateBytesPerSecond);
+        double after = tokens - bytes;
+        return after >= 0 ? 0 : (long) (-after * 1e9 / rateBytesPerSecond);
+    }
+
+    /**
+     * 按速率补充令牌；桶容量不小于本次预留的字节数，整块预留在桶满时不需要等待
+     */
+    private void refill(long bytes, long rateBytesPerSecond) {
+        long now = System.nanoTime();
+        double capacity = Math.max(Math.max(minBurstBytes, bytes), rateBytesPerSecond * burstMillis / 1000.0);
+        tokens = Math.min(capacity, tokens + (now - lastRefillNanos) * rateBytesPerSecond / 1e9);
+        lastRefillNanos = now;
+    }
+}
@@ -46,6 +46,11 @@ public class FileDownloadInitVO {
      */
     private List<Integer> downloaded;
     
+    /**
+     * 完整性校验算法（SHA256_TREE 时可通过 /file/download/tree/{id} 获取叶子哈希按区间校验）
+     */
+    private String hashAlgorithm;
+    
     /**
      * 任务ID（用于拥塞控制）
      */
@@ -5,6 +5,8 @@ import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.util.List;
+
 /**
  * 文件合并VO
  */
@@ -49,6 +51,11 @@ public class FileMergeVO {
      */
     private String taskId;
     
+    /**
+     * 需要重传的分片序号（未上传或校验失败），为空表示无需重传
+     */
+    private List<Integer> retryChunks;
+    
     /**
      * 提示信息
      */
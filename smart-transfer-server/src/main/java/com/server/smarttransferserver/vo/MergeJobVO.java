@@ -0,0 +1,64 @@
+package com.server.smarttransferserver.vo;
+
+import com.server.smarttransferserver.common.enums.MergeJobState;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * 合并任务VO
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class MergeJobVO {
+
+    /**
+     * 传输任务ID
+     */
+    private String taskId;
+
+    /**
+     * 文件ID
+     */
+    private Long fileId;
+
+    /**
+     * 文件大小
+     */
+    private Long fileSize;
+
+    /**
+     * 状态
+     */
+    private MergeJobState state;
+
+    /**
+     * 是否在大文件合并队列（限制并发磁盘I/O）
+     */
+    private Boolean ioBound;
+
+    /**
+     * 提交时间
+     */
+    private LocalDateTime submitTime;
+
+    /**
+     * 开始执行时间
+     */
+    private LocalDateTime startTime;
+
+    /**
+     * 结束时间
+     */
+    private LocalDateTime finishTime;
+
+    /**
+     * 合并结果（DONE/FAILED 时有值）
+     */
+    private FileMergeVO result;
+}
@@ -0,0 +1,54 @@
+package com.server.smarttransferserver.vo;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * 树哈希叶子VO
+ * 叶子 i 覆盖文件区间 [i * leafSize, (i + 1) * leafSize)，下载端可对任意对齐区间单独校验
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TreeHashVO {
+
+    /**
+     * 文件ID
+     */
+    private Long fileId;
+
+    /**
+     * 算法（SHA256_TREE）
+     */
+    private String algorithm;
+
+    /**
+     * 根哈希
+     */
+    private String rootHash;
+
+    /**
+     * 叶子大小（字节）
+     */
+    private Integer leafSize;
+
+    /**
+     * 文件的叶子总数
+     */
+    private Integer totalLeaves;
+
+    /**
+     * 本次返回的起始叶子序号
+     */
+    private Integer fromLeaf;
+
+    /**
+     * 叶子哈希（小写十六进制）
+     */
+    private List<String> leaves;
+}
@@ -143,7 +143,7 @@ public class MonitorPushService {
                 for (TransferTask task : activeTasks) {
                     CongestionControlAlgorithm algorithm = algorithmManager.getAlgorithm(task.getTaskId());
                     if (algorithm != null) {
-                        CongestionMetricsVO metrics = metricsService.getCurrentMetrics(algorithm, userId);
+                        CongestionMetricsVO metrics = metricsService.getTaskMetrics(task.getTaskId(), userId);
                         metrics.setTaskId(task.getTaskId());
                         taskMetricsMap.put(task.getTaskId(), metrics);
                     } else {
@@ -189,7 +189,9 @@ public class MonitorPushService {
                 for (WebSocketSession session : sessions) {
                     if (session.isOpen()) {
                         try {
-                            session.sendMessage(message);
+                            synchronized (session) {
+                                session.sendMessage(message);
+                            }
                         } catch (IOException e) {
                             log.warn("发送消息失败，移除会话 - 用户ID: {}, SessionId: {}", userId, session.getId());
                             sessionsToRemove.add(session);
@@ -213,6 +215,42 @@ public class MonitorPushService {
         }
     }
 
+    /**
+     * 立即向用户的所有会话推送一条消息（合并进度等事件类消息，不等待推送间隔）
+     *
+     * @param userId 用户ID
+     * @param data   消息内容，需包含 type 字段
+     */
+    public void pushToUser(Long userId, Map<String, Object> data) {
+        if (userId == null) {
+            return;
+        }
+        Set<WebSocketSession> sessions = userSessions.get(userId);
+        if (sessions == null || sessions.isEmpty()) {
+            return;
+        }
+        TextMessage message;
+        try {
+            message = new TextMessage(objectMapper.writeValueAsString(data));
+        } catch (IOException e) {
+            log.error("序列化推送消息失败 - 用户ID: {}, 类型: {}", userId, data.get("type"), e);
+            return;
+        }
+        for (WebSocketSession session : sessions) {
+            if (!session.isOpen()) {
+                continue;
+            }
+            // 推送线程可能同时在发送，同一会话的发送需串行
+            synchronized (session) {
+                try {
+                    session.sendMessage(message);
+                } catch (IOException e) {
+                    log.warn("推送消息失败 - 用户ID: {}, SessionId: {}, 错误: {}", userId, session.getId(), e.getMessage());
+                }
+            }
+        }
+    }
+
     /**
      * 注册WebSocket会话
      */
@@ -0,0 +1,115 @@
+package com.server.smarttransferserver.config;
+
+import com.server.smarttransferserver.util.FileRegion;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.MediaType;
+import org.springframework.mock.http.MockHttpOutputMessage;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * FileRegionHttpMessageConverter：限速写出按段申请，达到同时限速上限时不限速写出，结束后归还许可
+ */
+class FileRegionHttpMessageConverterTest {
+
+    @TempDir
+    Path dir;
+
+    private final FileRegionHttpMessageConverter converter = new FileRegionHttpMessageConverter(false);
+
+    @Test
+    void pacedWriteAcquiresPerSliceAndEnds() throws IOException {
+        byte[] data = data(200 * 1024);
+        Path file = write(data);
+        RecordingPacer pacer = new RecordingPacer(true);
+        MockHttpOutputMessage output = new MockHttpOutputMessage();
+
+        converter.write(new FileRegion(file, 1000, 150 * 1024, pacer), MediaType.APPLICATION_OCTET_STREAM, output);
+
+        assertArrayEquals(Arrays.copyOfRange(data, 1000, 1000 + 150 * 1024), output.getBodyAsBytes());
+        // 64KB + 64KB + 22KB
+        assertEquals(3, pacer.acquires.get());
+        assertEquals(150 * 1024, pacer.bytes.get());
+        assertEquals(1, pacer.ends.get());
+    }
+
+    @Test
+    void writesUnpacedWhenLimitReached() throws IOException {
+        byte[] data = data(100 * 1024);
+        Path file = write(data);
+        RecordingPacer pacer = new RecordingPacer(false);
+        MockHttpOutputMessage output = new MockHttpOutputMessage();
+
+        converter.write(new FileRegion(file, 0, data.length, pacer), MediaType.APPLICATION_OCTET_STREAM, output);
+
+        assertArrayEquals(data, output.getBodyAsBytes());
+        assertEquals(0, pacer.acquires.get());
+        assertEquals(0, pacer.ends.get());
+    }
+
+    @Test
+    void endsWhenPacedWriteFails() throws IOException {
+        Path file = write(data(100 * 1024));
+        RecordingPacer pacer = new RecordingPacer(true) {
+            @Override
+            public void acquire(long bytes) throws IOException {
+                throw new IOException("发送等待被中断");
+            }
+        };
+        assertThrows(IOException.class, () -> converter.write(new FileRegion(file, 0, 1024, pacer),
+                MediaType.APPLICATION_OCTET_STREAM, new MockHttpOutputMessage()));
+        assertEquals(1, pacer.ends.get());
+    }
+
+    private Path write(byte[] data) throws IOException {
+        Path file = dir.resolve("chunk.bin");
+        Files.write(file, data);
+        return file;
+    }
+
+    private static byte[] data(int length) {
+        byte[] data = new byte[length];
+        for (int i = 0; i < length; i++) {
+            data[i] = (byte) (i * 31 + 7);
+        }
+        return data;
+    }
+
+    private static class RecordingPacer implements FileRegion.Pacer {
+
+        private final boolean allowed;
+        private final AtomicInteger acquires = new AtomicInteger();
+        private final AtomicLong bytes = new AtomicLong();
+        private final AtomicInteger ends = new AtomicInteger();
+
+        RecordingPacer(boolean allowed) {
+            this.allowed = allowed;
+        }
+
+        @Override
+        public void acquire(long bytes) throws IOException {
+            acquires.incrementAndGet();
+            this.bytes.addAndGet(bytes);
+        }
+
+        @Override
+        public boolean tryBegin() {
+            return allowed;
+        }
+
+        @Override
+        public void end() {
+            ends.incrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,209 @@
+package com.server.smarttransferserver.congestion;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * CongestionEventLoop + SerializedAlgorithm：多线程入队的事件全部由循环线程按序执行，读取方只看到快照
+ */
+class CongestionEventLoopTest {
+
+    private CongestionEventLoop loop;
+
+    @AfterEach
+    void tearDown() {
+        if (loop != null) {
+            loop.shutdown();
+        }
+    }
+
+    @Test
+    void concurrentProducersAreSerializedWithoutLoss() throws Exception {
+        // 容量很小，生产者会频繁遇到队列满
+        loop = new CongestionEventLoop("test-loop", 4);
+        loop.start();
+        RecordingAlgorithm delegate = new RecordingAlgorithm();
+        SerializedAlgorithm algorithm = new SerializedAlgorithm("task", delegate, loop);
+
+        int producers = 4;
+        int perProducer = 5000;
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            final int producer = p;
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 1; i <= perProducer; i++) {
+                    algorithm.onAck(encode(producer, i), 10, null);
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join(TimeUnit.SECONDS.toMillis(30));
+        }
+
+        long expected = (long) producers * perProducer;
+        awaitTrue(() -> algorithm.getCwnd() == expected);
+        assertEquals(0, loop.pending());
+        assertNull(delegate.failure, delegate.failure);
+        for (int p = 0; p < producers; p++) {
+            // 同一生产者的事件按入队顺序执行
+            assertEquals(perProducer, delegate.lastSeq[p]);
+        }
+    }
+
+    @Test
+    void readsComeFromPublishedSnapshot() throws Exception {
+        loop = new CongestionEventLoop("test-loop", 16);
+        RecordingAlgorithm delegate = new RecordingAlgorithm();
+        SerializedAlgorithm algorithm = new SerializedAlgorithm("task", delegate, loop);
+
+        // 循环未启动：事件只入队，快照保持构造时的状态
+        algorithm.onAck(encode(0, 1), 10, null);
+        algorithm.onLoss(100);
+        assertEquals(2, loop.pending());
+        assertEquals(0, algorithm.getCwnd());
+        assertEquals(0, delegate.events);
+
+        loop.start();
+        awaitTrue(() -> algorithm.getCwnd() == 1 && algorithm.getSsthresh() == 100);
+        algorithm.reset();
+        awaitTrue(() -> algorithm.getCwnd() == 0 && algorithm.getSsthresh() == 0);
+    }
+
+    @Test
+    void failingEventDoesNotStopTheLoop() throws Exception {
+        loop = new CongestionEventLoop("test-loop", 8);
+        loop.start();
+        RecordingAlgorithm delegate = new RecordingAlgorithm();
+        SerializedAlgorithm algorithm = new SerializedAlgorithm("task", delegate, loop);
+
+        algorithm.onLoss(-1);
+        algorithm.onAck(encode(0, 1), 10, null);
+        awaitTrue(() -> algorithm.getCwnd() == 1);
+    }
+
+    @Test
+    void totalChunksOnlyQueuedForAdaptiveAlgorithm() {
+        loop = new CongestionEventLoop("test-loop", 8);
+        SerializedAlgorithm algorithm = new SerializedAlgorithm("task", new RecordingAlgorithm(), loop);
+        algorithm.setTotalChunks(100);
+        assertEquals(0, loop.pending());
+    }
+
+    private static long encode(int producer, int seq) {
+        return ((long) producer << 32) | seq;
+    }
+
+    private static void awaitTrue(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() > deadline) {
+                fail("等待事件循环处理超时");
+            }
+            Thread.sleep(1);
+        }
+    }
+
+    /**
+     * 记录事件的算法，字段不加同步：被多个线程同时修改时计数会出错
+     */
+    private static class RecordingAlgorithm implements CongestionControlAlgorithm {
+
+        private long acked;
+        private long lost;
+        private int events;
+        private final int[] lastSeq = new int[8];
+        private Thread owner;
+        private String failure;
+
+        @Override
+        public void initialize() {
+        }
+
+        @Override
+        public void onAck(long ackedBytes, long fullRttMs, Long propagationRttMs) {
+            check();
+            int producer = (int) (ackedBytes >>> 32);
+            int seq = (int) ackedBytes;
+            if (seq != lastSeq[producer] + 1 && failure == null) {
+                failure = "生产者" + producer + "的事件乱序: " + lastSeq[producer] + " -> " + seq;
+            }
+            lastSeq[producer] = seq;
+            acked++;
+        }
+
+        @Override
+        public void onLoss(long lostBytes) {
+            check();
+            if (lostBytes < 0) {
+                throw new IllegalArgumentException("lostBytes");
+            }
+            lost += lostBytes;
+        }
+
+        private void check() {
+            events++;
+            if (owner == null) {
+                owner = Thread.currentThread();
+            } else if (owner != Thread.currentThread() && failure == null) {
+                failure = "事件在多个线程上执行";
+            }
+        }
+
+        @Override
+        public long getCwnd() {
+            return acked;
+        }
+
+        @Override
+        public long getRate() {
+            return 0;
+        }
+
+        @Override
+        public CongestionState getState() {
+            return CongestionState.SLOW_START;
+        }
+
+        @Override
+        public String getAlgorithmName() {
+            return "RECORDING";
+        }
+
+        @Override
+        public long getSsthresh() {
+            return lost;
+        }
+
+        @Override
+        public long getRtt() {
+            return 0;
+        }
+
+        @Override
+        public void reset() {
+            check();
+            acked = 0;
+            lost = 0;
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package com.server.smarttransferserver.congestion;
+
+import com.server.smarttransferserver.util.LongRingBuffer;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * RttOutlierFilter 的数组版本与原来基于 Queue&lt;Long&gt; / ArrayList 的实现结果一致
+ */
+class RttOutlierFilterTest {
+
+    private final RttOutlierFilter filter = new RttOutlierFilter(true);
+
+    @Test
+    void fewerThanFourSamplesAreNotFiltered() {
+        // 不足 4 个有效样本时按写入顺序原样返回（不排序）
+        assertFiltered(filter, new long[]{30, 10, 1000}, 10);
+        // 无效值不计入有效样本数
+        assertFiltered(filter, new long[]{30, 0, 10, -5, 1000}, 10);
+    }
+
+    @Test
+    void samplesOnTheFencesAreKept() {
+        // 1..8 与 100：n=9，Q1 插值取整为 2，Q3 为 7 → IQR=5，上界 14
+        assertFiltered(filter, new long[]{1, 2, 3, 4, 5, 6, 7, 8, 100}, 10);
+        assertFiltered(filter, new long[]{1, 2, 3, 4, 5, 6, 7, 8, 14}, 10);
+        assertFiltered(filter, new long[]{1, 2, 3, 4, 5, 6, 7, 8, 15}, 10);
+        // 全部相同：IQR 为 0，只保留等于该值的样本
+        assertFiltered(filter, new long[]{50, 50, 50, 50, 51}, 10);
+    }
+
+    @Test
+    void disabledFilterOnlyDropsInvalidSamples() {
+        assertFiltered(new RttOutlierFilter(false), false, new long[]{5, 0, 1000, 7, -1, 6, 8}, 10);
+    }
+
+    @Test
+    void matchesQueueImplementationAfterWraparound() {
+        Random random = new Random(31);
+        for (int capacity : new int[]{4, 5, 20, 50}) {
+            for (int round = 0; round < 300; round++) {
+                int count = capacity + random.nextInt(3 * capacity);
+                long[] samples = new long[count];
+                for (int i = 0; i < count; i++) {
+                    int kind = random.nextInt(20);
+                    // 正常 RTT 附近抖动，夹杂少量尖峰、极小值和无效值
+                    samples[i] = kind == 0 ? 2000 + random.nextInt(5000)
+                            : kind == 1 ? 1 + random.nextInt(3)
+                            : kind == 2 ? 0
+                            : 40 + random.nextInt(30);
+                }
+                assertFiltered(filter, samples, capacity);
+            }
+        }
+    }
+
+    /**
+     * 把样本依次写入窗口（超出容量时淘汰最旧的），比较新旧实现的过滤结果
+     */
+    private static void assertFiltered(RttOutlierFilter filter, long[] samples, int capacity) {
+        assertFiltered(filter, true, samples, capacity);
+    }
+
+    private static void assertFiltered(RttOutlierFilter filter, boolean enabled, long[] samples, int capacity) {
+        LongRingBuffer ring = new LongRingBuffer(capacity);
+        Queue<Long> queue = new ArrayDeque<>();
+        for (long sample : samples) {
+            ring.add(sample);
+            if (queue.size() >= capacity) {
+                queue.poll();
+            }
+            queue.offer(sample);
+        }
+        long[] out = new long[capacity];
+        int n = filter.filterOutliers(ring, out);
+        List<Long> actual = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            actual.add(out[i]);
+        }
+        assertEquals(referenceFilter(queue, enabled), actual);
+    }
+
+    /**
+     * 改为数组实现之前的 filterOutliers（保留原逻辑，去掉日志）
+     */
+    private static List<Long> referenceFilter(Queue<Long> rttSamples, boolean enabled) {
+        List<Long> validSamples = new ArrayList<>();
+        for (Long rtt : rttSamples) {
+            if (rtt != null && rtt > 0) {
+                validSamples.add(rtt);
+            }
+        }
+        if (!enabled || validSamples.size() < 4) {
+            return validSamples;
+        }
+        List<Long> sorted = new ArrayList<>(validSamples);
+        Collections.sort(sorted);
+        int n = sorted.size();
+        long q1 = percentile(sorted, (n + 1) * 0.25);
+        long q3 = percentile(sorted, (n + 1) * 0.75);
+        long iqr = q3 - q1;
+        long lowerBound = (long) (q1 - 1.5 * iqr);
+        long upperBound = (long) (q3 + 1.5 * iqr);
+        List<Long> filtered = new ArrayList<>();
+        for (Long rtt : sorted) {
+            if (rtt >= lowerBound && rtt <= upperBound) {
+                filtered.add(rtt);
+            }
+        }
+        return filtered;
+    }
+
+    private static long percentile(List<Long> sorted, double index) {
+        if (index <= 0) {
+            return sorted.get(0);
+        }
+        if (index >= sorted.size()) {
+            return sorted.get(sorted.size() - 1);
+        }
+        int lower = Math.max(0, (int) Math.floor(index) - 1);
+        int upper = Math.min(sorted.size() - 1, (int) Math.ceil(index) - 1);
+        if (lower == upper) {
+            return sorted.get(lower);
+        }
+        double fraction = index - Math.floor(index);
+        return (long) (sorted.get(lower) * (1 - fraction) + sorted.get(upper) * fraction);
+    }
+}
@@ -0,0 +1,120 @@
+package com.server.smarttransferserver.service.impl;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * InMemoryRedisServiceImpl 与 Redis 语义对齐：过期、SETBIT 位序、类型检查、锁的比较删除
+ */
+class InMemoryRedisServiceImplTest {
+
+    private final InMemoryRedisServiceImpl redis = new InMemoryRedisServiceImpl();
+
+    @Test
+    void keysExpireAfterTimeout() throws InterruptedException {
+        redis.set("short", "v", 50, TimeUnit.MILLISECONDS);
+        redis.set("long", "v", 1, TimeUnit.MINUTES);
+        assertEquals("v", redis.get("short"));
+        Thread.sleep(120);
+        assertNull(redis.get("short"));
+        assertFalse(redis.hasKey("short"));
+        assertEquals("v", redis.get("long"));
+
+        // expire 不为正时直接删除，对不存在的 key 返回 false
+        assertTrue(redis.expire("long", 0, TimeUnit.SECONDS));
+        assertFalse(redis.hasKey("long"));
+        assertFalse(redis.expire("missing", 1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void setClearsTimeoutButIncrementKeepsIt() throws InterruptedException {
+        redis.set("plain", 1, 50, TimeUnit.MILLISECONDS);
+        redis.set("plain", 2);
+        redis.set("counter", 1, 50, TimeUnit.MILLISECONDS);
+        assertEquals(2L, redis.increment("counter", 1));
+        Thread.sleep(120);
+        assertEquals(2, ((Number) redis.get("plain")).intValue());
+        assertNull(redis.get("counter"));
+        assertEquals(-3L, redis.decrement("counter", 3));
+    }
+
+    @Test
+    void setBitUsesRedisBitOrder() {
+        // 与 Redis 一致：offset 0 是第一个字节的最高位
+        assertFalse(redis.setBit("bits", 0, true));
+        assertFalse(redis.setBit("bits", 9, true));
+        assertTrue(redis.setBit("bits", 9, true));
+        assertArrayEquals(new byte[]{(byte) 0x80, 0x40}, redis.getBytes("bits"));
+        assertEquals(2L, redis.bitCount("bits"));
+        assertTrue(redis.setBit("bits", 0, false));
+        assertEquals(1L, redis.bitCount("bits"));
+        assertEquals(0L, redis.bitCount("missing"));
+        assertThrows(IllegalArgumentException.class, () -> redis.setBit("bits", -1, true));
+
+        // 取出的是副本
+        byte[] copy = redis.getBytes("bits");
+        copy[1] = 0;
+        assertEquals(1L, redis.bitCount("bits"));
+    }
+
+    @Test
+    void wrongTypeIsRejected() {
+        redis.hSet("hash", "f", "v");
+        redis.sAdd("set", "a");
+        redis.set("string", "v");
+        assertThrows(IllegalStateException.class, () -> redis.get("hash"));
+        assertThrows(IllegalStateException.class, () -> redis.setBit("set", 0, true));
+        assertThrows(IllegalStateException.class, () -> redis.hSet("string", "f", "v"));
+        assertThrows(IllegalStateException.class, () -> redis.sAdd("hash", "a"));
+        assertThrows(IllegalStateException.class, () -> redis.increment("string", 1));
+        // 失败的命令不改变原值
+        assertEquals("v", redis.get("string"));
+    }
+
+    @Test
+    void hashAndSetOperations() {
+        redis.hSet("h", "a", "x");
+        assertEquals(5L, redis.hIncrement("h", "n", 5));
+        assertEquals(7L, redis.hIncrement("h", "n", 2));
+        assertTrue(redis.hHasKey("h", "a"));
+        Map<Object, Object> all = redis.hGetAll("h");
+        assertEquals("x", all.get("a"));
+        assertEquals(7, ((Number) all.get("n")).intValue());
+        assertEquals(2L, redis.hDelete("h", "a", "n", "missing"));
+        // 最后一个字段删除后 key 也不存在
+        assertFalse(redis.hasKey("h"));
+
+        assertEquals(2L, redis.sAdd("s", "a", "b", "a"));
+        assertTrue(redis.sIsMember("s", "a"));
+        assertEquals(new HashSet<>(Arrays.asList("a", "b")), redis.sMembers("s"));
+        assertEquals(1L, redis.sRemove("s", "a", "c"));
+        assertEquals(1L, redis.sSize("s"));
+        assertEquals(1L, redis.delete(Arrays.asList("s", "missing")));
+    }
+
+    @Test
+    void lockIsReleasedOnlyByOwner() throws InterruptedException {
+        assertTrue(redis.tryLock("lock", "owner-1", 50, TimeUnit.MILLISECONDS));
+        assertFalse(redis.tryLock("lock", "owner-2", 1, TimeUnit.MINUTES));
+        assertFalse(redis.releaseLock("lock", "owner-2"));
+        assertTrue(redis.hasKey("lock"));
+
+        // 锁过期后被他人获取，原持有者不能释放
+        Thread.sleep(120);
+        assertTrue(redis.tryLock("lock", "owner-2", 1, TimeUnit.MINUTES));
+        assertFalse(redis.releaseLock("lock", "owner-1"));
+        assertTrue(redis.releaseLock("lock", "owner-2"));
+        assertFalse(redis.hasKey("lock"));
+    }
+}
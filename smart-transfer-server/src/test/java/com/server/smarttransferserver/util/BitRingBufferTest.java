@@ -0,0 +1,74 @@
+package com.server.smarttransferserver.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * BitRingBuffer 与原来的 Queue&lt;Boolean&gt; 窗口（满了先 poll 再 offer，按 filter 计数）逐步比对
+ */
+class BitRingBufferTest {
+
+    @Test
+    void evictsOldestBitAcrossWordBoundaries() {
+        // 65 位跨两个 long，淘汰第 0 位后第 64 位仍正确
+        BitRingBuffer ring = new BitRingBuffer(65);
+        ring.add(true);
+        for (int i = 1; i < 64; i++) {
+            ring.add(false);
+        }
+        ring.add(true);
+        assertEquals(2, ring.countTrue());
+        ring.add(false);
+        assertEquals(1, ring.countTrue());
+        assertEquals(64, ring.countFalse());
+    }
+
+    @Test
+    void matchesDequeWindowUnderRandomOperations() {
+        Random random = new Random(23);
+        for (int capacity : new int[]{1, 7, 63, 64, 65, 100, 130}) {
+            BitRingBuffer ring = new BitRingBuffer(capacity);
+            Deque<Boolean> reference = new ArrayDeque<>();
+            for (int step = 0; step < 20_000; step++) {
+                int op = random.nextInt(50);
+                if (op == 0) {
+                    ring.clear();
+                    reference.clear();
+                } else if (op < 5 && !reference.isEmpty()) {
+                    assertEquals(reference.pollFirst(), ring.removeFirst());
+                } else {
+                    // 丢包率不同的时段交替出现
+                    boolean value = random.nextInt(100) < (step / 1000 % 2 == 0 ? 5 : 60);
+                    if (reference.size() >= capacity) {
+                        reference.pollFirst();
+                    }
+                    reference.offerLast(value);
+                    ring.add(value);
+                }
+                long trues = reference.stream().filter(Boolean::booleanValue).count();
+                assertEquals(reference.size(), ring.size());
+                assertEquals(trues, ring.countTrue());
+                assertEquals(reference.size() - trues, ring.countFalse());
+            }
+        }
+    }
+
+    @Test
+    void rejectsInvalidAccess() {
+        assertThrows(IllegalArgumentException.class, () -> new BitRingBuffer(0));
+        BitRingBuffer ring = new BitRingBuffer(3);
+        assertTrue(ring.isEmpty());
+        assertThrows(IllegalStateException.class, ring::removeFirst);
+        ring.add(true);
+        assertFalse(ring.isEmpty());
+        assertTrue(ring.removeFirst());
+    }
+}
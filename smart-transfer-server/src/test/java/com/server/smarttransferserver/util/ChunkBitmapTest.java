@@ -0,0 +1,108 @@
+package com.server.smarttransferserver.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * ChunkBitmap：位序与 Redis SETBIT 一致，各操作与逐位的布尔数组结果一致
+ */
+class ChunkBitmapTest {
+
+    @Test
+    void bitOrderMatchesRedisSetbit() {
+        assertEquals(0, ChunkBitmap.byteLength(0));
+        assertEquals(1, ChunkBitmap.byteLength(8));
+        assertEquals(2, ChunkBitmap.byteLength(9));
+
+        // SETBIT key 0 1 → 0x80；SETBIT key 9 1 → 第2字节 0x40
+        byte[] bitmap = ChunkBitmap.create(10);
+        ChunkBitmap.set(bitmap, 0);
+        ChunkBitmap.set(bitmap, 9);
+        assertArrayEquals(new byte[]{(byte) 0x80, 0x40}, bitmap);
+
+        ChunkBitmap.clear(bitmap, 0);
+        assertArrayEquals(new byte[]{0, 0x40}, bitmap);
+    }
+
+    @Test
+    void masksSelectSingleChunks() {
+        assertArrayEquals(new byte[]{0, 0x01}, ChunkBitmap.mask(16, 15));
+        assertArrayEquals(new byte[]{(byte) 0x7f, (byte) 0xfe},
+                ChunkBitmap.inverseMask(16, Arrays.asList(0, 15)));
+        assertArrayEquals(new byte[]{(byte) 0xff}, ChunkBitmap.inverseMask(5, Collections.emptyList()));
+    }
+
+    @Test
+    void orAndFollowMysqlBinaryOperators() {
+        byte[] a = {(byte) 0xf0, 0x0f};
+        byte[] b = {(byte) 0x3c, (byte) 0x3c};
+        assertArrayEquals(new byte[]{(byte) 0xfc, 0x3f}, ChunkBitmap.or(a, b));
+        assertArrayEquals(new byte[]{0x30, 0x0c}, ChunkBitmap.and(a, b));
+        assertNull(ChunkBitmap.or(null, b));
+        assertNull(ChunkBitmap.and(a, null));
+        assertThrows(IllegalArgumentException.class, () -> ChunkBitmap.or(a, new byte[1]));
+        assertThrows(IllegalArgumentException.class, () -> ChunkBitmap.and(a, new byte[3]));
+    }
+
+    @Test
+    void setThenClearThroughMasksMatchesReference() {
+        Random random = new Random(7);
+        for (int totalChunks : new int[]{1, 7, 8, 9, 63, 64, 65, 1000}) {
+            boolean[] reference = new boolean[totalChunks];
+            byte[] bitmap = ChunkBitmap.create(totalChunks);
+            for (int step = 0; step < totalChunks * 3; step++) {
+                int chunk = random.nextInt(totalChunks);
+                if (random.nextInt(4) == 0) {
+                    // 与 clearChunkBits 的 SQL 相同：和反掩码按位与
+                    bitmap = ChunkBitmap.and(bitmap, ChunkBitmap.inverseMask(totalChunks,
+                            Collections.singletonList(chunk)));
+                    reference[chunk] = false;
+                } else {
+                    // 与 setChunkBits 的 SQL 相同：和掩码按位或
+                    bitmap = ChunkBitmap.or(bitmap, ChunkBitmap.mask(totalChunks, chunk));
+                    reference[chunk] = true;
+                }
+            }
+            List<Integer> set = new ArrayList<>();
+            List<Integer> missing = new ArrayList<>();
+            for (int n = 0; n < totalChunks; n++) {
+                assertEquals(reference[n], ChunkBitmap.get(bitmap, n), "chunk " + n);
+                (reference[n] ? set : missing).add(n);
+            }
+            assertEquals(set.size(), ChunkBitmap.count(bitmap, totalChunks));
+            assertEquals(set, ChunkBitmap.setChunks(bitmap, totalChunks));
+            assertEquals(missing, ChunkBitmap.missingChunks(bitmap, totalChunks));
+        }
+    }
+
+    @Test
+    void countIgnoresBitsBeyondTotalChunks() {
+        // inverseMask 会把末字节多余的位也置1
+        byte[] bitmap = ChunkBitmap.inverseMask(10, Collections.emptyList());
+        assertEquals(10, ChunkBitmap.count(bitmap, 10));
+        assertTrue(ChunkBitmap.missingChunks(bitmap, 10).isEmpty());
+    }
+
+    @Test
+    void shortOrMissingBitmapMeansNotUploaded() {
+        assertFalse(ChunkBitmap.get(null, 0));
+        assertFalse(ChunkBitmap.get(new byte[]{(byte) 0xff}, 8));
+        assertEquals(0, ChunkBitmap.count(null, 5));
+        assertEquals(Arrays.asList(0, 1, 2), ChunkBitmap.missingChunks(null, 3));
+        // 位图比总分片数短（旧记录）：超出部分视为未上传
+        assertEquals(Arrays.asList(8, 9), ChunkBitmap.missingChunks(new byte[]{(byte) 0xff}, 10));
+        assertEquals(8, ChunkBitmap.count(new byte[]{(byte) 0xff}, 10));
+    }
+}
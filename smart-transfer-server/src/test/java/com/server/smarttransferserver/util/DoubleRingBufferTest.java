@@ -0,0 +1,47 @@
+package com.server.smarttransferserver.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * DoubleRingBuffer 与原来的 Queue&lt;Double&gt; 窗口逐步比对，增量维护的和长时间运行后误差可忽略
+ */
+class DoubleRingBufferTest {
+
+    @Test
+    void matchesDequeWindowUnderRandomOperations() {
+        Random random = new Random(29);
+        for (int capacity : new int[]{1, 3, 10}) {
+            DoubleRingBuffer ring = new DoubleRingBuffer(capacity);
+            Deque<Double> reference = new ArrayDeque<>();
+            for (int step = 0; step < 100_000; step++) {
+                if (random.nextInt(5000) == 0) {
+                    ring.clear();
+                    reference.clear();
+                    continue;
+                }
+                double value = random.nextDouble() * 100;
+                if (reference.size() >= capacity) {
+                    reference.pollFirst();
+                }
+                reference.offerLast(value);
+                ring.add(value);
+
+                List<Double> expected = new ArrayList<>(reference);
+                assertEquals(expected.size(), ring.size());
+                for (int i = 0; i < expected.size(); i++) {
+                    assertEquals(expected.get(i), ring.get(i));
+                }
+                assertEquals(expected.stream().mapToDouble(Double::doubleValue).average().getAsDouble(),
+                        ring.mean(), 1e-6);
+            }
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.server.smarttransferserver.util;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * IncrementalMd5：与 JDK MD5 一致，任意位置导出/恢复状态后续算结果不变
+ */
+class IncrementalMd5Test {
+
+    @Test
+    void matchesRfc1321TestSuite() {
+        String[][] vectors = {
+                {"", "d41d8cd98f00b204e9800998ecf8427e"},
+                {"a", "0cc175b9c0f1b6a831c399e269772661"},
+                {"abc", "900150983cd24fb0d6963f7d28e17f72"},
+                {"message digest", "f96b697d7cb7938d525a2f31aaf161d0"},
+                {"abcdefghijklmnopqrstuvwxyz", "c3fcd3d76192e4007dfb496cca67e13b"},
+                {"12345678901234567890123456789012345678901234567890123456789012345678901234567890",
+                        "57edf4a22be3c955ac49da2e2107b67a"},
+        };
+        for (String[] vector : vectors) {
+            byte[] data = vector[0].getBytes(StandardCharsets.US_ASCII);
+            IncrementalMd5 md5 = new IncrementalMd5();
+            md5.update(data, 0, data.length);
+            assertEquals(vector[1], md5.hexDigest(), vector[0]);
+        }
+    }
+
+    @Test
+    void paddingBoundariesMatchJdk() {
+        Random random = new Random(1);
+        for (int length : new int[]{55, 56, 57, 63, 64, 65, 119, 120, 127, 128, 129}) {
+            byte[] data = new byte[length];
+            random.nextBytes(data);
+            IncrementalMd5 md5 = new IncrementalMd5();
+            md5.update(data, 0, data.length);
+            assertEquals(DigestUtils.md5Hex(data), md5.hexDigest(), "length " + length);
+        }
+    }
+
+    @Test
+    void resumedDigestEqualsOneShot() {
+        Random random = new Random(42);
+        byte[] data = new byte[1 << 20];
+        random.nextBytes(data);
+        String expected = DigestUtils.md5Hex(data);
+
+        for (int round = 0; round < 20; round++) {
+            IncrementalMd5 md5 = new IncrementalMd5();
+            int pos = 0;
+            while (pos < data.length) {
+                // 分片大小不按64字节对齐，每片之后模拟服务重启：导出状态再恢复
+                int n = Math.min(data.length - pos, 1 + random.nextInt(100_000));
+                md5.update(data, pos, n);
+                pos += n;
+                md5 = IncrementalMd5.restore(md5.exportState());
+            }
+            assertEquals(data.length, md5.getByteCount());
+            assertEquals(expected, md5.hexDigest());
+        }
+    }
+
+    @Test
+    void hexDigestDoesNotChangeState() {
+        byte[] data = "0123456789".getBytes(StandardCharsets.US_ASCII);
+        IncrementalMd5 md5 = new IncrementalMd5();
+        md5.update(data, 0, 5);
+        assertEquals(DigestUtils.md5Hex(Arrays.copyOf(data, 5)), md5.hexDigest());
+        md5.update(data, 5, 5);
+        assertEquals(DigestUtils.md5Hex(data), md5.hexDigest());
+    }
+
+    @Test
+    void resetStartsOver() {
+        byte[] data = "abc".getBytes(StandardCharsets.US_ASCII);
+        IncrementalMd5 md5 = new IncrementalMd5();
+        md5.update(new byte[100], 0, 100);
+        md5.reset();
+        md5.update(data, 0, data.length);
+        assertEquals("900150983cd24fb0d6963f7d28e17f72", md5.hexDigest());
+    }
+
+    @Test
+    void restoreRejectsMalformedState() {
+        assertThrows(IllegalArgumentException.class, () -> IncrementalMd5.restore("1,2,3"));
+        // 缓冲长度与已处理字节数不符
+        assertThrows(IllegalArgumentException.class, () -> IncrementalMd5.restore("1,2,3,4,10,AAA="));
+    }
+}
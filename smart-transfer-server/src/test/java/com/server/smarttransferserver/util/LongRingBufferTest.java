@@ -0,0 +1,96 @@
+package com.server.smarttransferserver.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * LongRingBuffer 与原来的 Queue&lt;Long&gt; 窗口（满了先 poll 再 offer）逐步比对
+ */
+class LongRingBufferTest {
+
+    @Test
+    void wrapsAroundAndEvictsOldestFirst() {
+        LongRingBuffer ring = new LongRingBuffer(3);
+        for (long v = 1; v <= 5; v++) {
+            ring.add(v);
+        }
+        // 写入 1..5，窗口 3：剩 3,4,5
+        assertEquals(3, ring.size());
+        assertEquals(3, ring.get(0));
+        assertEquals(5, ring.last());
+        assertEquals(12, ring.sum());
+        assertEquals(3, ring.removeFirst());
+        ring.add(6);
+        ring.add(7);
+        assertEquals(5, ring.get(0));
+        assertEquals(18, ring.sum());
+    }
+
+    @Test
+    void matchesDequeWindowUnderRandomOperations() {
+        Random random = new Random(17);
+        for (int capacity : new int[]{1, 2, 5, 16, 100}) {
+            LongRingBuffer ring = new LongRingBuffer(capacity);
+            Deque<Long> reference = new ArrayDeque<>();
+            long[] scratch = new long[capacity];
+            for (int step = 0; step < 20_000; step++) {
+                int op = random.nextInt(20);
+                if (op == 0) {
+                    ring.clear();
+                    reference.clear();
+                } else if (op < 4 && !reference.isEmpty()) {
+                    assertEquals((long) reference.pollFirst(), ring.removeFirst());
+                } else {
+                    long value = random.nextInt(2000) - 100;
+                    if (reference.size() >= capacity) {
+                        reference.pollFirst();
+                    }
+                    reference.offerLast(value);
+                    ring.add(value);
+                }
+                assertSameWindow(reference, ring, scratch);
+            }
+        }
+    }
+
+    @Test
+    void rejectsInvalidAccess() {
+        assertThrows(IllegalArgumentException.class, () -> new LongRingBuffer(0));
+        LongRingBuffer ring = new LongRingBuffer(2);
+        assertThrows(IllegalStateException.class, ring::removeFirst);
+        ring.add(1);
+        assertThrows(IndexOutOfBoundsException.class, () -> ring.get(1));
+        assertThrows(IndexOutOfBoundsException.class, () -> ring.get(-1));
+        assertEquals(0, new LongRingBuffer(1).min());
+        assertEquals(0, new LongRingBuffer(1).mean());
+    }
+
+    private static void assertSameWindow(Deque<Long> reference, LongRingBuffer ring, long[] scratch) {
+        List<Long> expected = new ArrayList<>(reference);
+        assertEquals(expected.size(), ring.size());
+        assertEquals(expected.isEmpty(), ring.isEmpty());
+        int copied = ring.copyTo(scratch);
+        assertEquals(expected.size(), copied);
+        long sum = 0;
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals((long) expected.get(i), ring.get(i));
+            assertEquals((long) expected.get(i), scratch[i]);
+            sum += expected.get(i);
+        }
+        assertEquals(sum, ring.sum());
+        if (!expected.isEmpty()) {
+            assertEquals((long) reference.peekLast(), ring.last());
+            assertEquals(expected.stream().mapToLong(Long::longValue).min().getAsLong(), ring.min());
+            assertEquals(expected.stream().mapToLong(Long::longValue).max().getAsLong(), ring.max());
+            assertEquals(expected.stream().mapToLong(Long::longValue).average().getAsDouble(), ring.mean(), 1e-9);
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.server.smarttransferserver.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static com.server.smarttransferserver.util.MaxMinFairShare.UNLIMITED;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * MaxMinFairShare：按权重注水分配，上限截断后的余量分给其他参与者，容量不超发也不浪费
+ */
+class MaxMinFairShareTest {
+
+    @Test
+    void equalWeightsSplitEvenly() {
+        assertArrayEquals(new long[]{25, 25, 25, 25},
+                MaxMinFairShare.allocate(100, new double[]{1, 1, 1, 1}, caps(4, UNLIMITED)));
+    }
+
+    @Test
+    void sharesFollowWeights() {
+        assertArrayEquals(new long[]{25, 75},
+                MaxMinFairShare.allocate(100, new double[]{1, 3}, caps(2, UNLIMITED)));
+    }
+
+    @Test
+    void cappedParticipantsReleaseTheirRemainder() {
+        // 经典注水：需求 20/26/40/50 分 100 → 20, 26, 27, 27
+        assertArrayEquals(new long[]{20, 26, 27, 27},
+                MaxMinFairShare.allocate(100, new double[]{1, 1, 1, 1}, new long[]{20, 26, 40, 50}));
+        // 截断是级联的：第一轮只有 10 被截断，第二轮 30 也被截断
+        assertArrayEquals(new long[]{10, 30, 60},
+                MaxMinFairShare.allocate(100, new double[]{1, 1, 1}, new long[]{10, 30, UNLIMITED}));
+    }
+
+    @Test
+    void unlimitedCapacityGivesEveryoneTheirCap() {
+        assertArrayEquals(new long[]{5, UNLIMITED},
+                MaxMinFairShare.allocate(UNLIMITED, new double[]{1, 1}, new long[]{5, UNLIMITED}));
+    }
+
+    @Test
+    void nonPositiveWeightGetsAlmostNothingUntilOthersAreCapped() {
+        long[] shares = MaxMinFairShare.allocate(100, new double[]{0, 1}, caps(2, UNLIMITED));
+        assertTrue(shares[0] <= 1 && shares[1] >= 99);
+        assertArrayEquals(new long[]{60, 40},
+                MaxMinFairShare.allocate(100, new double[]{0, 1}, new long[]{UNLIMITED, 40}));
+    }
+
+    @Test
+    void randomAllocationsAreFeasibleAndMaxMinFair() {
+        Random random = new Random(11);
+        for (int round = 0; round < 2000; round++) {
+            int n = 1 + random.nextInt(8);
+            long capacity = 1 + random.nextInt(1_000_000);
+            double[] weights = new double[n];
+            long[] caps = new long[n];
+            for (int i = 0; i < n; i++) {
+                weights[i] = 0.1 + random.nextDouble() * 10;
+                caps[i] = random.nextInt(4) == 0 ? UNLIMITED : random.nextInt(400_000);
+            }
+            long[] shares = MaxMinFairShare.allocate(capacity, weights, caps);
+
+            long sum = 0;
+            boolean allCapped = true;
+            for (int i = 0; i < n; i++) {
+                assertTrue(shares[i] >= 0 && (caps[i] == UNLIMITED || shares[i] <= caps[i]));
+                sum += shares[i];
+                allCapped &= caps[i] != UNLIMITED && shares[i] == caps[i];
+            }
+            // 不超发；除非所有人都到了上限，否则容量（取整误差外）全部分完
+            assertTrue(sum <= capacity);
+            assertTrue(allCapped || sum >= capacity - n, "sum " + sum + " of " + capacity);
+
+            // 未被截断的参与者单位权重份额相同，且不低于任何被截断者
+            for (int i = 0; i < n; i++) {
+                if (caps[i] != UNLIMITED && shares[i] == caps[i]) {
+                    continue;
+                }
+                double level = shares[i] / weights[i];
+                for (int j = 0; j < n; j++) {
+                    assertTrue(shares[j] / weights[j] <= level + 1 / weights[i] + 1e-6,
+                            "participant " + j + " above water level of " + i);
+                }
+            }
+        }
+    }
+
+    private static long[] caps(int n, long cap) {
+        long[] caps = new long[n];
+        Arrays.fill(caps, cap);
+        return caps;
+    }
+}
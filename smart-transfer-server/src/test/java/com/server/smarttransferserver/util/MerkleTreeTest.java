@@ -0,0 +1,118 @@
+package com.server.smarttransferserver.util;
+
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * MerkleTree：根哈希与按定义逐层计算的结果一致（含奇数叶子），并行读文件与内存计算一致
+ */
+class MerkleTreeTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void leafCountRoundsUp() {
+        assertEquals(1, MerkleTree.leafCount(0));
+        assertEquals(1, MerkleTree.leafCount(1));
+        assertEquals(1, MerkleTree.leafCount(MerkleTree.LEAF_SIZE));
+        assertEquals(2, MerkleTree.leafCount(MerkleTree.LEAF_SIZE + 1L));
+    }
+
+    @Test
+    void leafAndNodeAreDomainSeparated() {
+        byte[] data = {1, 2, 3};
+        assertArrayEquals(DigestUtils.sha256(new byte[]{0, 1, 2, 3}), MerkleTree.hashLeaf(data, 0, 3));
+        // 单个叶子时根就是叶子哈希
+        byte[][] leaves = {MerkleTree.hashLeaf(data, 0, 3)};
+        assertEquals(Hex.encodeHexString(leaves[0]), MerkleTree.root(leaves));
+    }
+
+    @Test
+    void oddNodeIsPromotedUnchanged() {
+        byte[][] leaves = leaves(3);
+        // 3个叶子：root = H(1 || H(1 || l0 || l1) || l2)
+        byte[] left = node(leaves[0], leaves[1]);
+        assertEquals(Hex.encodeHexString(node(left, leaves[2])), MerkleTree.root(leaves));
+    }
+
+    @Test
+    void rootMatchesReferenceForAllLeafCounts() {
+        for (int count = 1; count <= 33; count++) {
+            byte[][] leaves = leaves(count);
+            assertEquals(Hex.encodeHexString(referenceRoot(leaves)), MerkleTree.root(leaves), "leaves " + count);
+        }
+    }
+
+    @Test
+    void parallelFileHashMatchesInMemoryLeaves() throws IOException {
+        Random random = new Random(3);
+        int leaf = MerkleTree.LEAF_SIZE;
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            for (long size : new long[]{0, 1, leaf, leaf + 1L, 11L * leaf + 17}) {
+                byte[] data = new byte[(int) size];
+                random.nextBytes(data);
+                Path file = tempDir.resolve("file-" + size);
+                Files.write(file, data);
+
+                byte[][] expected = new byte[MerkleTree.leafCount(size)][];
+                for (int i = 0; i < expected.length; i++) {
+                    int offset = i * leaf;
+                    expected[i] = MerkleTree.hashLeaf(data, offset, Math.min(leaf, data.length - offset));
+                }
+                byte[][] actual = MerkleTree.hashLeaves(file, pool);
+                assertEquals(expected.length, actual.length);
+                for (int i = 0; i < expected.length; i++) {
+                    assertArrayEquals(expected[i], actual[i], "size " + size + " leaf " + i);
+                }
+                assertEquals(MerkleTree.root(expected), MerkleTree.hashFile(file, pool));
+                assertEquals(MerkleTree.root(expected), MerkleTree.hashFile(file, ForkJoinPool.commonPool()));
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private static byte[][] leaves(int count) {
+        byte[][] leaves = new byte[count][];
+        for (int i = 0; i < count; i++) {
+            byte[] data = ("leaf-" + i).getBytes();
+            leaves[i] = MerkleTree.hashLeaf(data, 0, data.length);
+        }
+        return leaves;
+    }
+
+    /**
+     * 按定义递归：左子树取小于叶子数的最大2的幂个叶子，与逐层配对、奇数节点提升的结果相同
+     */
+    private static byte[] referenceRoot(byte[][] leaves) {
+        if (leaves.length == 1) {
+            return leaves[0];
+        }
+        int split = Integer.highestOneBit(leaves.length - 1);
+        return node(referenceRoot(Arrays.copyOfRange(leaves, 0, split)),
+                referenceRoot(Arrays.copyOfRange(leaves, split, leaves.length)));
+    }
+
+    private static byte[] node(byte[] left, byte[] right) {
+        MessageDigest digest = DigestUtils.getSha256Digest();
+        digest.update((byte) 0x01);
+        digest.update(left);
+        digest.update(right);
+        return digest.digest();
+    }
+}
@@ -0,0 +1,125 @@
+package com.server.smarttransferserver.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * MpscRingBuffer：容量取整、满/空边界、drain 上限，以及多生产者并发写入不丢不重
+ */
+class MpscRingBufferTest {
+
+    @Test
+    void capacityRoundsUpToPowerOfTwo() {
+        assertEquals(1, new MpscRingBuffer<Integer>(1).capacity());
+        assertEquals(2, new MpscRingBuffer<Integer>(2).capacity());
+        assertEquals(4, new MpscRingBuffer<Integer>(3).capacity());
+        assertEquals(1024, new MpscRingBuffer<Integer>(1000).capacity());
+        assertEquals(1024, new MpscRingBuffer<Integer>(1024).capacity());
+        assertThrows(IllegalArgumentException.class, () -> new MpscRingBuffer<Integer>(0));
+        assertThrows(IllegalArgumentException.class, () -> new MpscRingBuffer<Integer>((1 << 30) + 1));
+    }
+
+    @Test
+    void offerFailsWhenFullAndPollReturnsNullWhenEmpty() {
+        MpscRingBuffer<Integer> ring = new MpscRingBuffer<>(4);
+        assertNull(ring.poll());
+        // 多绕几圈，覆盖序号回绕
+        int next = 0;
+        int expected = 0;
+        for (int round = 0; round < 10; round++) {
+            for (int i = 0; i < 4; i++) {
+                assertTrue(ring.offer(next++));
+            }
+            assertFalse(ring.offer(-1));
+            assertEquals(4, ring.size());
+            assertEquals(expected++, ring.poll());
+            assertTrue(ring.offer(next++));
+            assertFalse(ring.offer(-1));
+            for (int i = 0; i < 4; i++) {
+                assertEquals(expected++, ring.poll());
+            }
+            assertNull(ring.poll());
+            assertEquals(0, ring.size());
+        }
+    }
+
+    @Test
+    void drainStopsAtLimit() {
+        MpscRingBuffer<Integer> ring = new MpscRingBuffer<>(8);
+        for (int i = 0; i < 6; i++) {
+            ring.offer(i);
+        }
+        List<Integer> drained = new ArrayList<>();
+        assertEquals(4, ring.drain(drained::add, 4));
+        assertEquals(2, ring.size());
+        assertEquals(2, ring.drain(drained::add, 10));
+        assertEquals(0, ring.drain(drained::add, 10));
+        assertEquals(Arrays.asList(0, 1, 2, 3, 4, 5), drained);
+    }
+
+    @Test
+    void concurrentProducersLoseAndDuplicateNothing() throws Exception {
+        int producers = 4;
+        int perProducer = 50_000;
+        // 容量远小于总数，生产者会反复遇到队列满
+        MpscRingBuffer<Long> ring = new MpscRingBuffer<>(64);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            final long producer = p;
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < perProducer; i++) {
+                    Long element = (producer << 32) | i;
+                    while (!ring.offer(element)) {
+                        Thread.yield();
+                    }
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        start.countDown();
+
+        int[] next = new int[producers];
+        long total = (long) producers * perProducer;
+        long received = 0;
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(60);
+        while (received < total) {
+            Long element = ring.poll();
+            if (element == null) {
+                assertTrue(System.nanoTime() < deadline, "消费超时，已收到 " + received);
+                Thread.yield();
+                continue;
+            }
+            int producer = (int) (element >>> 32);
+            int seq = (int) (long) element;
+            // 同一生产者的元素按写入顺序出现，既不缺也不重复
+            assertEquals(next[producer], seq, "生产者" + producer);
+            next[producer]++;
+            received++;
+        }
+        for (Thread thread : threads) {
+            thread.join(TimeUnit.SECONDS.toMillis(10));
+        }
+        assertNull(ring.poll());
+        for (int p = 0; p < producers; p++) {
+            assertEquals(perProducer, next[p]);
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package com.server.smarttransferserver.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * MysqlDdlTranslator：Navicat 导出语法的转换结果，以及转换后的脚本能在 H2（MySQL 模式）上执行
+ */
+class MysqlDdlTranslatorTest {
+
+    private static final String SCRIPT = String.join("\n",
+            "/* Navicat 导出; 注释里的分号不拆分 */",
+            "SET NAMES utf8mb4;",
+            "SET FOREIGN_KEY_CHECKS = 0;",
+            "-- ----------------------------",
+            "DROP TABLE IF EXISTS `parent`;",
+            "CREATE TABLE `parent`  (",
+            "  `id` bigint UNSIGNED NOT NULL AUTO_INCREMENT COMMENT '主键;ID',",
+            "  `name` varchar(64) CHARACTER SET utf8mb4 COLLATE utf8mb4_0900_ai_ci NOT NULL COMMENT 'it''s a name',",
+            "  `body` longtext CHARACTER SET utf8mb4 COLLATE utf8mb4_0900_ai_ci NULL COMMENT '正文',",
+            "  `bits` blob NULL COMMENT '位图',",
+            "  `extra` json NULL,",
+            "  PRIMARY KEY (`id`) USING BTREE,",
+            "  UNIQUE INDEX `uk_name`(`name` ASC) USING BTREE,",
+            "  FULLTEXT INDEX `ft_body`(`body`)",
+            ") ENGINE = InnoDB AUTO_INCREMENT = 12 CHARACTER SET = utf8mb4 COMMENT = '父表' ROW_FORMAT = Dynamic;",
+            "DROP TABLE IF EXISTS `child`;",
+            "CREATE TABLE `child`  (",
+            "  `id` bigint NOT NULL AUTO_INCREMENT,",
+            "  `parent_id` bigint UNSIGNED NOT NULL,",
+            "  PRIMARY KEY (`id`),",
+            "  KEY `idx_parent` (`parent_id`),",
+            "  CONSTRAINT `fk_parent` FOREIGN KEY (`parent_id`) REFERENCES `parent` (`id`) ON DELETE RESTRICT",
+            ") ENGINE = InnoDB;",
+            "INSERT INTO `parent` (`name`) VALUES ('a;b');",
+            "SET FOREIGN_KEY_CHECKS = 1;");
+
+    @Test
+    void translatesNavicatSyntax() {
+        List<String> statements = MysqlDdlTranslator.toH2(SCRIPT);
+        // 建表、建索引、其他语句、外键依次排列；SET/DROP TABLE 和 FULLTEXT 索引被丢弃
+        assertEquals(6, statements.size());
+        String parent = statements.get(0);
+        assertTrue(parent.startsWith("CREATE TABLE \"parent\" ("), parent);
+        assertTrue(parent.contains("\"id\" bigint NOT NULL AUTO_INCREMENT"), parent);
+        assertTrue(parent.contains("\"body\" VARCHAR NULL"), parent);
+        assertTrue(parent.contains("\"bits\" VARBINARY NULL"), parent);
+        assertTrue(parent.contains("\"extra\" VARCHAR NULL"), parent);
+        assertTrue(parent.contains("PRIMARY KEY (\"id\")"), parent);
+        for (String removed : new String[]{"COMMENT", "COLLATE", "CHARACTER SET", "UNSIGNED", "BTREE", "ENGINE",
+                "FULLTEXT", "`"}) {
+            assertFalse(parent.contains(removed), removed + " 未去掉: " + parent);
+        }
+        assertTrue(statements.get(1).startsWith("CREATE TABLE \"child\" ("));
+        assertEquals("CREATE UNIQUE INDEX \"parent_uk_name\" ON \"parent\" (\"name\" ASC)", statements.get(2));
+        assertEquals("CREATE INDEX \"child_idx_parent\" ON \"child\" (\"parent_id\")", statements.get(3));
+        assertEquals("INSERT INTO \"parent\" (\"name\") VALUES ('a;b')", statements.get(4));
+        assertEquals("ALTER TABLE \"child\" ADD CONSTRAINT \"fk_parent\" FOREIGN KEY (\"parent_id\") "
+                + "REFERENCES \"parent\" (\"id\") ON DELETE RESTRICT", statements.get(5));
+    }
+
+    @Test
+    void translatedScriptRunsOnH2() throws SQLException {
+        try (Connection connection = open("translator_sample");
+             Statement statement = connection.createStatement()) {
+            for (String sql : MysqlDdlTranslator.toH2(SCRIPT)) {
+                statement.execute(sql);
+            }
+            // 不加引号的小写名称能访问到表
+            try (ResultSet rs = statement.executeQuery("SELECT name FROM parent")) {
+                assertTrue(rs.next());
+                assertEquals("a;b", rs.getString(1));
+            }
+            assertThrows(SQLException.class, () -> statement.execute("INSERT INTO child (parent_id) VALUES (999)"));
+            assertThrows(SQLException.class, () -> statement.execute("INSERT INTO parent (name) VALUES ('a;b')"));
+        }
+    }
+
+    @Test
+    void projectSchemaRunsOnH2() throws Exception {
+        String script = new String(Files.readAllBytes(Paths.get("sql/smart_transfer.sql")), StandardCharsets.UTF_8);
+        List<String> statements = MysqlDdlTranslator.toH2(script);
+        try (Connection connection = open("translator_schema");
+             Statement statement = connection.createStatement()) {
+            for (String sql : statements) {
+                statement.execute(sql);
+            }
+            try (ResultSet rs = statement.executeQuery("SELECT COUNT(*) FROM information_schema.tables "
+                    + "WHERE table_schema = 'public'")) {
+                assertTrue(rs.next());
+                assertEquals(count(statements, "CREATE TABLE"), rs.getInt(1));
+            }
+        }
+    }
+
+    private static Connection open(String name) throws SQLException {
+        return DriverManager.getConnection("jdbc:h2:mem:" + name + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE");
+    }
+
+    private static int count(List<String> statements, String prefix) {
+        int count = 0;
+        for (String sql : statements) {
+            if (sql.startsWith(prefix)) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
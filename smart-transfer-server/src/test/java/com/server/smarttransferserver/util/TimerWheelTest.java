@@ -0,0 +1,74 @@
+package com.server.smarttransferserver.util;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * TimerWheel：任务不早于到期时间执行，超过一圈的任务按圈数等待，停止时释放未到期任务
+ */
+class TimerWheelTest {
+
+    private TimerWheel wheel;
+
+    @AfterEach
+    void tearDown() {
+        if (wheel != null) {
+            wheel.stop();
+        }
+    }
+
+    @Test
+    void tasksNeverFireEarly() throws InterruptedException {
+        // 8 个槽位、1ms 一格：40ms 的任务要转 5 圈
+        wheel = new TimerWheel("test-wheel", 1, 8);
+        long[] delaysMs = {0, 1, 3, 7, 8, 9, 15, 16, 17, 40};
+        AtomicLongArray firedAt = new AtomicLongArray(delaysMs.length);
+        CountDownLatch latch = new CountDownLatch(delaysMs.length);
+        long[] scheduledAt = new long[delaysMs.length];
+        for (int i = 0; i < delaysMs.length; i++) {
+            int index = i;
+            scheduledAt[i] = System.nanoTime();
+            wheel.schedule(() -> {
+                firedAt.set(index, System.nanoTime());
+                latch.countDown();
+            }, TimeUnit.MILLISECONDS.toNanos(delaysMs[i]));
+        }
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        for (int i = 0; i < delaysMs.length; i++) {
+            long elapsed = firedAt.get(i) - scheduledAt[i];
+            assertTrue(elapsed >= TimeUnit.MILLISECONDS.toNanos(delaysMs[i]),
+                    "delay " + delaysMs[i] + "ms fired after " + elapsed + "ns");
+        }
+    }
+
+    @Test
+    void failingTaskDoesNotStopTheWheel() throws InterruptedException {
+        wheel = new TimerWheel("test-wheel", 1, 16);
+        CountDownLatch latch = new CountDownLatch(1);
+        wheel.schedule(() -> {
+            throw new IllegalStateException("boom");
+        }, 0);
+        wheel.schedule(latch::countDown, TimeUnit.MILLISECONDS.toNanos(5));
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void stopReleasesPendingTasks() throws InterruptedException {
+        wheel = new TimerWheel("test-wheel", 10, 16);
+        CountDownLatch latch = new CountDownLatch(2);
+        wheel.schedule(latch::countDown, TimeUnit.MINUTES.toNanos(10));
+        wheel.schedule(latch::countDown, TimeUnit.HOURS.toNanos(1));
+        assertFalse(latch.await(50, TimeUnit.MILLISECONDS));
+        wheel.stop();
+        wheel = null;
+        assertEquals(0, latch.getCount());
+    }
+}
@@ -0,0 +1,79 @@
+package com.server.smarttransferserver.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * TokenBucket：桶满时整块立即放行，欠账按速率折算等待时间，空闲补充不超过桶容量
+ */
+class TokenBucketTest {
+
+    private static final long MB = 1024 * 1024;
+
+    @Test
+    void fullBucketAdmitsOneBurstImmediately() {
+        TokenBucket bucket = new TokenBucket(1000, 5 * MB);
+        assertEquals(0, bucket.reserve(5 * MB, MB));
+    }
+
+    @Test
+    void deficitIsPaidBackAtTheRate() {
+        // 速率 1MB/s，容量 = max(最小容量 1MB, 1MB/s × 1s)
+        TokenBucket bucket = new TokenBucket(1000, MB);
+        assertEquals(0, bucket.reserve(MB, MB));
+        long wait = bucket.reserve(MB / 2, MB);
+        // 欠 0.5MB，按 1MB/s 需要 0.5s（两次调用之间补充的少量令牌可以忽略）
+        assertTrue(wait > TimeUnit.MILLISECONDS.toNanos(450) && wait <= TimeUnit.MILLISECONDS.toNanos(500),
+                "wait " + wait);
+    }
+
+    @Test
+    void peekDoesNotConsume() {
+        TokenBucket bucket = new TokenBucket(1000, MB);
+        assertEquals(0, bucket.peek(MB, MB));
+        assertEquals(0, bucket.peek(MB, MB));
+        assertEquals(0, bucket.reserve(MB, MB));
+        assertTrue(bucket.peek(MB, MB) > 0);
+    }
+
+    @Test
+    void idleRefillIsCappedAtBurst() throws InterruptedException {
+        // 速率 10MB/s、burst 10ms：容量 100KB 左右（最小容量 1 字节）
+        long rate = 10 * MB;
+        TokenBucket bucket = new TokenBucket(10, 1);
+        bucket.reserve(1, rate);
+        Thread.sleep(100);
+        // 空闲 100ms 可补 1MB，但只保留 10ms 的量
+        long capacity = rate * 10 / 1000;
+        assertEquals(0, bucket.peek(capacity - 1024, rate));
+        // 不封顶时令牌有 1MB，不需要等待；封顶后差 extra 字节
+        long extra = 512 * 1024;
+        long wait = bucket.peek(capacity + extra, rate);
+        long expected = extra * 1_000_000_000L / rate;
+        assertTrue(wait > 0 && wait <= expected, "wait " + wait);
+    }
+
+    @Test
+    void backToBackReservationsNeverExceedRatePlusBurst() {
+        long rate = 10 * MB;
+        long chunk = 64 * 1024;
+        TokenBucket bucket = new TokenBucket(1, chunk);
+        long start = System.nanoTime();
+        long total = 0;
+        long lastWait = 0;
+        for (int i = 0; i < 400; i++) {
+            lastWait = bucket.reserve(chunk, rate);
+            total += chunk;
+        }
+        double elapsed = (System.nanoTime() - start) / 1e9;
+        // 最后一块发出的时刻 = 现在 + 等待；到那时放行的字节数不超过 初始令牌 + 速率 × 时长
+        double sendTime = elapsed + lastWait / 1e9;
+        assertTrue(total <= chunk + rate * sendTime + 1, "total " + total + " at " + sendTime + "s");
+        // 也不会多等：预留总量扣掉初始令牌后正好按速率折算
+        assertTrue(lastWait / 1e9 >= (total - chunk) / (double) rate - elapsed - 1e-3, "wait " + lastWait);
+    }
+}
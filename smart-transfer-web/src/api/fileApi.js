@@ -1,4 +1,4 @@
-import request from '@/utils/http'
+import request, { getRetryAfterMs } from '@/utils/http'
 import axios from 'axios'
 import { userStorage } from '@/utils/storage'
 
@@ -21,6 +21,31 @@ function clampRetryCountForHeader(c) {
   return Math.max(0, Math.min(RETRY_COUNT_MAX, Math.round(n)))
 }
 
+/**
+ * 等待服务端 429 要求的时间后再重发同一分片（可被取消信号中断）
+ * 限流等待不是失败：不计入重试次数，也不作为重试/丢包上报给后端
+ * @param {number} ms - 等待时间（毫秒）
+ * @param {AbortSignal} signal - 取消信号（可选）
+ * @returns {Promise<void>}
+ */
+function waitRetryAfter(ms, signal) {
+  return new Promise((resolve, reject) => {
+    if (signal?.aborted) {
+      reject(new DOMException('Aborted', 'AbortError'))
+      return
+    }
+    const onAbort = () => {
+      clearTimeout(timer)
+      reject(new DOMException('Aborted', 'AbortError'))
+    }
+    const timer = setTimeout(() => {
+      signal?.removeEventListener('abort', onAbort)
+      resolve()
+    }, ms)
+    signal?.addEventListener('abort', onAbort, { once: true })
+  })
+}
+
 /**
  * 获取上传配置（分片大小、最大文件大小）
  * 从系统配置接口获取，与后端 application.yml 保持一致
@@ -46,16 +71,24 @@ export function initUpload(data) {
 
 /**
  * 上传分片（进度停滞检测 + 自动重试）
- * 不设超时，只有进度卡死30秒才重试
- * @param {FormData} formData - 分片数据
- * @param {Function} onProgress - 进度回调
- * @param {number} maxRetries - 最大重试次数
- * @param {AbortSignal} signal - 取消信号（可选，用于取消请求）
- * @param {number} lastRtt - 上一分片客户端测量的 RTT（ms），用于后端拥塞算法，默认 0
- * @param {number} lastRetryCount - 上一分片的重试次数（成功前的失败次数），用于后端丢包率统计，默认 0
+ * 不设超时，只有进度卡死30秒才重试；服务端带宽限流返回 429 时按 X-Retry-After-Ms / Retry-After 等待后重发，
+ * 不占用 maxRetries，也不计入返回的 retryCount
+ * 分片以原始请求体 PUT 到 /file/upload/chunk/{fileId}/{chunkNumber}（不是 multipart），
+ * Content-Length 就是 blob 大小，服务端按它校验分片长度并直接流式落盘
+ * @param {number|string} fileId - 文件ID
+ * @param {number} chunkNumber - 分片序号（从0开始）
+ * @param {string} chunkHash - 分片哈希（放在 X-Chunk-Hash 请求头，空字符串表示跳过校验）
+ * @param {Blob} blob - 分片数据
+ * @param {Object} options - 可选参数
+ * @param {Function} options.onProgress - 进度回调
+ * @param {number} options.maxRetries - 最大重试次数，默认 3
+ * @param {AbortSignal} options.signal - 取消信号（用于取消请求）
+ * @param {number} options.lastRtt - 上一分片客户端测量的 RTT（ms），用于后端拥塞算法，默认 0
+ * @param {number} options.lastRetryCount - 上一分片的重试次数（成功前的失败次数），用于后端丢包率统计，默认 0
  * @returns {Promise<{ ...ChunkUploadVO, clientRtt: number, retryCount: number }>}
  */
-export async function uploadChunk(formData, onProgress, maxRetries = 3, signal, lastRtt = 0, lastRetryCount = 0) {
+export async function uploadChunk(fileId, chunkNumber, chunkHash, blob, options = {}) {
+  const { onProgress, maxRetries = 3, signal, lastRtt = 0, lastRetryCount = 0 } = options
   const STALL_TIMEOUT = 30000 // 30秒无进度才认为卡死
   const CONNECTION_TIMEOUT = 60000 // **新增：60秒连接建立超时**
 
@@ -93,13 +126,15 @@ export async function uploadChunk(formData, onProgress, maxRetries = 3, signal,
 
       // RTT 修复：记录请求发出时刻，用于计算真实网络往返时延
       const sendTime = Date.now()
-      request.post({
-        url: '/file/upload/chunk',
-        data: formData,
+      // 分片数据作为原始请求体 PUT，元数据放在URL和请求头，服务端不经过 multipart 缓冲直接流式落盘
+      request.put({
+        url: `/file/upload/chunk/${fileId}/${chunkNumber}`,
+        data: blob,
         timeout: 0, // 不设超时，但axios可能仍使用实例默认值
         signal: finalSignal,  // **修复CRITICAL-4: 支持外部传入的signal**
         headers: {
-          'Content-Type': 'multipart/form-data',
+          'Content-Type': 'application/octet-stream',
+          'X-Chunk-Hash': chunkHash || '',
           'X-Last-RTT-Ms': String(clampRttForHeader(lastRtt)),
           'X-Chunk-Retry-Count': String(clampRetryCountForHeader(lastRetryCount))
         },
@@ -140,6 +175,13 @@ export async function uploadChunk(formData, onProgress, maxRetries = 3, signal,
     try {
       return await uploadWithStallDetection(attempt)
     } catch (error) {
+      if (error.message === 'THROTTLED') {
+        // 带宽限流：按服务端给出的时间等待后重发同一分片，不占用重试次数
+        console.debug(`分片上传被限流，${error.retryAfterMs}ms 后重发`)
+        await waitRetryAfter(error.retryAfterMs, signal)
+        attempt--
+        continue
+      }
       lastError = error
       const isStall = error.message === 'STALL_TIMEOUT'
       const isConnectionTimeout = error.message === 'CONNECTION_TIMEOUT'
@@ -184,6 +226,29 @@ export function mergeFile(data) {
   })
 }
 
+/**
+ * 提交合并任务（不等待完成，进度通过监控 WebSocket type=merge 推送）
+ * @param {Object} data - 合并数据
+ * @returns {Promise<{ taskId: string, state: string }>}
+ */
+export function submitMerge(data) {
+  return request.post({
+    url: '/file/merge/async',
+    data
+  })
+}
+
+/**
+ * 查询合并任务状态（QUEUED / VERIFYING / MERGING / DONE / FAILED）
+ * @param {string} taskId - 任务ID
+ * @returns {Promise}
+ */
+export function getMergeJob(taskId) {
+  return request.get({
+    url: `/file/merge/job/${taskId}`
+  })
+}
+
 /**
  * 取消上传
  * 清理未完成的上传数据
@@ -256,6 +321,7 @@ export function initDownload(fileId, chunkSize) {
  * @param {AbortSignal} signal - 取消信号（可选，用于取消请求）
  * @param {number} lastRtt - 上一分片客户端测量的 RTT（ms），用于后端拥塞算法，默认 0
  * @param {number} lastRetryCount - 上一分片的重试次数（成功前的失败次数），用于后端丢包率统计，默认 0
+ * 服务端带宽限流返回 429 时按 X-Retry-After-Ms / Retry-After 等待后重发，不计入重试
  * @returns {Promise<{ response: import('axios').AxiosResponse, clientRtt: number }>} 返回 { response, clientRtt }
  */
 export async function downloadChunk(fileId, chunkNumber, startByte, endByte, signal, lastRtt = 0, lastRetryCount = 0) {
@@ -277,13 +343,25 @@ export async function downloadChunk(fileId, chunkNumber, startByte, endByte, sig
     }
   })
 
-  const sendTime = Date.now()
-  const response = await axiosInstance.get(`/file/download/chunk/${fileId}/${chunkNumber}`, {
-    params,
-    signal
-  })
-  const clientRtt = Date.now() - sendTime
-  return { response, clientRtt }
+  while (true) {
+    const sendTime = Date.now()
+    try {
+      const response = await axiosInstance.get(`/file/download/chunk/${fileId}/${chunkNumber}`, {
+        params,
+        signal
+      })
+      const clientRtt = Date.now() - sendTime
+      return { response, clientRtt }
+    } catch (error) {
+      if (error.response?.status !== 429) {
+        throw error
+      }
+      // 带宽限流：等待后重新请求同一分块，调用方看不到这次 429，也不计入分块重试次数
+      const retryAfterMs = getRetryAfterMs(error.response.headers)
+      console.debug(`分块${chunkNumber}下载被限流，${retryAfterMs}ms 后重发`)
+      await waitRetryAfter(retryAfterMs, signal)
+    }
+  }
 }
 
 /**
@@ -27,6 +27,33 @@ const redirectToLogin = () => {
   }, 1000)
 }
 
+/**
+ * 带宽限流（HTTP 429）时的等待时间（毫秒）
+ * 优先使用 X-Retry-After-Ms（精确毫秒数），其次 Retry-After（秒）；都没有时等待 1 秒
+ * @param {Object} headers - 响应头（axios 已转为小写）
+ * @returns {number} 等待时间（毫秒）
+ */
+export const getRetryAfterMs = (headers = {}) => {
+  const ms = parseInt(headers['x-retry-after-ms'])
+  if (Number.isFinite(ms) && ms > 0) return ms
+  const seconds = parseInt(headers['retry-after'])
+  if (Number.isFinite(seconds) && seconds > 0) return seconds * 1000
+  return 1000
+}
+
+/**
+ * 限流错误：服务端要求稍后重发同一请求，不是失败
+ * 由调用方按 retryAfterMs 等待后重发，拦截器不弹错误提示
+ * @param {Object} response - 429 响应
+ * @returns {Error} message 为 THROTTLED，带 retryAfterMs
+ */
+const throttledError = (response) => {
+  const error = new Error('THROTTLED')
+  error.status = 429
+  error.retryAfterMs = getRetryAfterMs(response?.headers)
+  return error
+}
+
 /**
  * 创建 axios 实例
  */
@@ -67,6 +94,11 @@ service.interceptors.response.use(
       return response
     }
     
+    // 429 带宽限流（validateStatus 放行所有状态码的请求会走到这里）：交给调用方等待后重发
+    if (response.status === 429) {
+      return Promise.reject(throttledError(response))
+    }
+    
     const res = response.data
     
     // 如果返回的状态码不是 200，则认为是错误
@@ -100,6 +132,11 @@ service.interceptors.response.use(
     // HTTP 状态码错误
     const status = error.response?.status
     
+    if (status === 429) {
+      // 带宽限流不是错误，不弹提示
+      return Promise.reject(throttledError(error.response))
+    }
+    
     if (status === 401) {
       // 401 未授权
       ElMessage.error('登录已过期，请重新登录')